@@ -0,0 +1,169 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.FileEntrees;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la file d'entrées des parties ({@link FileEntrees}) à une
+ * {@link LinkedBlockingQueue} de même capacité :
+ * <ul>
+ * <li>{@code debit} : trois threads serveur ajoutent des entrées pendant que le
+ * thread de la partie les retire par lots de {@value #TAILLE_LOT} (une entrée
+ * refusée parce que la file est pleine compte comme une opération) ;</li>
+ * <li>{@code allerRetour} : une entrée est transmise à un thread de partie
+ * endormi, qui la renvoie par une seconde file (deux réveils par opération),
+ * avec des threads virtuels ou système.</li>
+ * </ul>
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileEntreesBenchmark {
+    private static final int TAILLE_LOT = 32;
+
+    interface File {
+        boolean offrir(String entree);
+
+        int retirer(String[] lot);
+
+        int prendre(String[] lot) throws InterruptedException;
+    }
+
+    public enum Implementation {
+        FILE_ENTREES, LINKED_BLOCKING_QUEUE;
+
+        File creer() {
+            if (this == FILE_ENTREES) {
+                FileEntrees<String> file = new FileEntrees<>(FileEntrees.CAPACITE_DEFAUT);
+                return new File() {
+                    public boolean offrir(String entree) {
+                        return file.offrir(entree);
+                    }
+
+                    public int retirer(String[] lot) {
+                        return file.retirer(lot);
+                    }
+
+                    public int prendre(String[] lot) throws InterruptedException {
+                        return file.prendre(lot);
+                    }
+                };
+            }
+            LinkedBlockingQueue<String> file = new LinkedBlockingQueue<>(FileEntrees.CAPACITE_DEFAUT);
+            List<String> tampon = new ArrayList<>(TAILLE_LOT);
+            return new File() {
+                public boolean offrir(String entree) {
+                    return file.offer(entree);
+                }
+
+                public int retirer(String[] lot) {
+                    tampon.clear();
+                    file.drainTo(tampon, lot.length);
+                    for (int i = 0; i < tampon.size(); i++) {
+                        lot[i] = tampon.get(i);
+                    }
+                    return tampon.size();
+                }
+
+                public int prendre(String[] lot) throws InterruptedException {
+                    lot[0] = file.take();
+                    tampon.clear();
+                    file.drainTo(tampon, lot.length - 1);
+                    for (int i = 0; i < tampon.size(); i++) {
+                        lot[i + 1] = tampon.get(i);
+                    }
+                    return tampon.size() + 1;
+                }
+            };
+        }
+    }
+
+    @State(Scope.Group)
+    public static class Debit {
+        @Param({"FILE_ENTREES", "LINKED_BLOCKING_QUEUE"})
+        private Implementation implementation;
+
+        private File file;
+
+        @Setup(Level.Iteration)
+        public void preparer() {
+            file = implementation.creer();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lot {
+        private final String[] lot = new String[TAILLE_LOT];
+    }
+
+    @Benchmark
+    @Group("debit")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ajouter(Debit debit) {
+        return debit.file.offrir("ROUGE");
+    }
+
+    @Benchmark
+    @Group("debit")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int retirer(Debit debit, Lot lot) {
+        return debit.file.retirer(lot.lot);
+    }
+
+    @State(Scope.Thread)
+    public static class AllerRetour {
+        @Param({"FILE_ENTREES", "LINKED_BLOCKING_QUEUE"})
+        private Implementation implementation;
+
+        @Param({"VIRTUEL", "PLATEFORME"})
+        private ExecuteurParties.Mode mode;
+
+        private File entrees;
+        private File reponses;
+        private final String[] lot = new String[TAILLE_LOT];
+        private ExecuteurParties executeur;
+
+        @Setup
+        public void preparer() {
+            entrees = implementation.creer();
+            reponses = implementation.creer();
+            executeur = new ExecuteurParties(mode, 0);
+            // la « partie » renvoie chaque entrée reçue
+            executeur.executer(() -> {
+                String[] recues = new String[TAILLE_LOT];
+                try {
+                    while (true) {
+                        int n = entrees.prendre(recues);
+                        for (int i = 0; i < n; i++) {
+                            reponses.offrir(recues[i]);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // fin de la mesure
+                }
+            });
+        }
+
+        @TearDown
+        public void arreter() throws InterruptedException {
+            executeur.arreter();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int allerRetour(AllerRetour etat) throws InterruptedException {
+        etat.entrees.offrir("ROUGE");
+        return etat.reponses.prendre(etat.lot);
+    }
+}
@@ -0,0 +1,100 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Enregistrement;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.StrategieAleatoire;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mesure le coût des journaux de parties du serveur :
+ * <ul>
+ * <li>l'ajout d'un choix au journal d'une partie, pour chaque politique de
+ * synchronisation (en synchronisation groupée, la validation est faite par le
+ * thread de {@link Journaux} toutes les {@link Journaux#DELAI_DEFAUT} ms) ;</li>
+ * <li>la reprise de 1000 parties interrompues au redémarrage du serveur
+ * (relecture des journaux et rejeu de tous leurs choix).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+    private static final String[] NOMS = new String[]{"Guybrush", "Largo", "LeChuck"};
+    private static final int NB_PARTIES = 1000;
+
+    @Param({"TOUJOURS", "GROUPEE", "JAMAIS"})
+    private Journal.Synchronisation synchronisation;
+
+    private Path dossier;
+    private Journaux journaux;
+    private Journal journal;
+    private Path dossierParties;
+
+    @Setup
+    public void preparer() throws IOException {
+        dossier = Files.createTempDirectory("journaux");
+        journaux = new Journaux(dossier, synchronisation, Journaux.DELAI_DEFAUT);
+        journal = journaux.creer("ajout", new Enregistrement(List.of(NOMS), 1, List.of()));
+
+        // parties interrompues après 30 tours, journalisées avec la politique mesurée
+        dossierParties = Files.createTempDirectory("parties");
+        try (Journaux parties = new Journaux(dossierParties, synchronisation, Journaux.DELAI_DEFAUT)) {
+            for (int i = 0; i < NB_PARTIES; i++) {
+                Jeu jeu = new Jeu(NOMS, i);
+                jeu.setSilencieux(true);
+                jeu.setNbToursMax(30);
+                for (int j = 0; j < NOMS.length; j++) {
+                    jeu.getJoueurs().get(j).setStrategie(new StrategieAleatoire(i + j));
+                }
+                jeu.run();
+                parties.creer("partie" + i, jeu.getEnregistrement());
+            }
+        }
+    }
+
+    @TearDown
+    public void nettoyer() throws IOException {
+        journaux.close();
+        supprimer(dossier);
+        supprimer(dossierParties);
+    }
+
+    private static void supprimer(Path dossier) throws IOException {
+        try (Stream<Path> fichiers = Files.walk(dossier)) {
+            for (Path fichier : fichiers.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(fichier);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void ajouterChoix() throws IOException {
+        journal.ajouter("Bruxelles - Frankfurt");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public int reprendreParties() throws IOException {
+        int nbTours = 0;
+        try (Journaux parties = new Journaux(dossierParties, synchronisation, Journaux.DELAI_DEFAUT)) {
+            for (Map.Entry<String, Journal> entree : parties.reprendre().entrySet()) {
+                nbTours += Jeu.rejouer(entree.getValue().getEnregistrement()).getNbTours();
+            }
+        }
+        return nbTours;
+    }
+}
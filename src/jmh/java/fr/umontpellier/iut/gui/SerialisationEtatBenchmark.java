@@ -0,0 +1,113 @@
+package fr.umontpellier.iut.gui;
+
+import com.google.gson.Gson;
+import fr.umontpellier.iut.rails.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compare les manières de construire le message d'état envoyé aux clients :
+ * <ul>
+ * <li>l'ancienne méthode de {@code Jeu.prompt} (arbres de {@code Map} construits
+ * à partir du modèle, nouvel objet {@code Gson} à chaque appel) ;</li>
+ * <li>un instantané converti en {@code Map} ({@link EtatPOJO}) puis sérialisé par Gson ;</li>
+ * <li>un instantané écrit directement par {@link SerialiseurEtat} ;</li>
+ * <li>la sérialisation seule d'un instantané déjà construit, par Gson et par
+ * {@link SerialiseurEtat} ;</li>
+ * <li>la publication d'un état inchangé (le message en cache est réutilisé).</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerialisationEtatBenchmark {
+    private Partie partie;
+    private Jeu jeu;
+    private List<String> boutons;
+    private Gson gson;
+    private SerialiseurEtat serialiseur;
+    private InstantaneJeu instantane;
+
+    @Setup
+    public void preparer() {
+        partie = new Partie("benchmark", new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+        jeu = partie.getJeu();
+        // milieu de partie : une route sur trois est capturée et les joueurs ont des cartes
+        List<Joueur> joueurs = jeu.getJoueurs();
+        List<Route> routes = jeu.getRoutes();
+        for (int i = 0; i < routes.size(); i += 3) {
+            routes.get(i).setProprietaire(joueurs.get(i % joueurs.size()));
+        }
+        for (Joueur joueur : joueurs) {
+            for (int i = 0; i < 12; i++) {
+                joueur.getCartesWagon().add(CouleurWagon.values()[i % CouleurWagon.values().length]);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            jeu.log("message " + i);
+        }
+        boutons = routes.stream().map(Route::getNom).limit(20).collect(Collectors.toList());
+        gson = new Gson();
+        serialiseur = new SerialiseurEtat();
+        instantane = new InstantaneJeu(jeu, "Que voulez vous faire ?", boutons, true);
+        partie.publier(instantane);
+    }
+
+    @Benchmark
+    public String ancienPrompt() {
+        Map<String, Object> data = Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("prompt", Map.ofEntries(
+                        new AbstractMap.SimpleEntry<String, Object>("instruction", "Que voulez vous faire ?"),
+                        new AbstractMap.SimpleEntry<String, Object>("boutons", boutons),
+                        new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", jeu.getJoueurCourant().getNom()),
+                        new AbstractMap.SimpleEntry<String, Object>("peutPasser", true))),
+                new AbstractMap.SimpleEntry<>("villes",
+                        jeu.getVilles().stream().map(Ville::asPOJO).collect(Collectors.toList())),
+                new AbstractMap.SimpleEntry<>("routes",
+                        jeu.getRoutes().stream().map(Route::asPOJO).collect(Collectors.toList())),
+                new AbstractMap.SimpleEntry<String, Object>("joueurs",
+                        jeu.getJoueurs().stream().map(Joueur::asPOJO).collect(Collectors.toList())),
+                new AbstractMap.SimpleEntry<String, Object>("piles", Map.ofEntries(
+                        new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", jeu.getPileCartesWagon().size()),
+                        new AbstractMap.SimpleEntry<String, Object>("pileDestinations", jeu.getPileDestinations().size()),
+                        new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", jeu.getDefausseCartesWagon()),
+                        new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", jeu.getCartesWagonVisibles()))),
+                new AbstractMap.SimpleEntry<String, Object>("log", jeu.getLog().depuis(0).lignes()));
+        return new Gson().toJson(data);
+    }
+
+    @Benchmark
+    public String instantanePOJO() {
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", boutons, true);
+        return gson.toJson(EtatPOJO.complet(etat, jeu.getLog()));
+    }
+
+    @Benchmark
+    public String instantaneSerialiseur() {
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", boutons, true);
+        return serialiseur.etatComplet(etat, jeu.getLog());
+    }
+
+    @Benchmark
+    public String gsonSeul() {
+        return gson.toJson(EtatPOJO.complet(instantane, jeu.getLog()));
+    }
+
+    @Benchmark
+    public String serialiseurSeul() {
+        return serialiseur.etatComplet(instantane, jeu.getLog());
+    }
+
+    @Benchmark
+    public InstantaneJeu publicationEtatInchange() {
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", boutons, true);
+        partie.publier(etat);
+        return partie.getEtatCourant();
+    }
+}
@@ -0,0 +1,110 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plus long chemin continu ({@link CheminLePlusLong}) sur des réseaux
+ * difficiles :
+ * <ul>
+ *     <li>{@code europe} : les routes les plus courtes du plateau Europe
+ *     (l'une des deux routes de chaque route double), jusqu'à 45 wagons, ce qui
+ *     donne le réseau le plus ramifié qu'un joueur puisse construire ;</li>
+ *     <li>{@code echelle} : échelle de 2 x 16 villes (46 routes de longueur 1,
+ *     presque toutes les villes de degré impair) ;</li>
+ *     <li>{@code grille} : grille de 5 x 5 villes (40 routes de longueur 1, où
+ *     le plus long chemin doit écarter 6 routes).</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheminBenchmark {
+    @Param({"europe", "echelle", "grille"})
+    private String reseau;
+    private int nbRoutes;
+    private int[] villes1;
+    private int[] villes2;
+    private int[] longueurs;
+    private CheminLePlusLong chemin;
+
+    @Setup
+    public void preparer() {
+        List<int[]> routes = switch (reseau) {
+            case "europe" -> europe();
+            case "echelle" -> echelle(16);
+            case "grille" -> grille(5);
+            default -> throw new IllegalArgumentException(reseau);
+        };
+        nbRoutes = routes.size();
+        villes1 = new int[nbRoutes];
+        villes2 = new int[nbRoutes];
+        longueurs = new int[nbRoutes];
+        for (int i = 0; i < nbRoutes; i++) {
+            villes1[i] = routes.get(i)[0];
+            villes2[i] = routes.get(i)[1];
+            longueurs[i] = routes.get(i)[2];
+        }
+        chemin = new CheminLePlusLong();
+    }
+
+    private static List<int[]> europe() {
+        GraphePlateau graphe = GraphePlateau.europe();
+        List<Integer> numeros = new ArrayList<>();
+        for (int r = 0; r < graphe.getNbRoutes(); r++) {
+            if (graphe.getRouteDouble(r) < r) {
+                numeros.add(r);
+            }
+        }
+        numeros.sort(Comparator.comparingInt(graphe::getLongueur));
+        List<int[]> routes = new ArrayList<>();
+        int nbWagons = 0;
+        for (int r : numeros) {
+            if (nbWagons + graphe.getLongueur(r) > 45) {
+                break;
+            }
+            nbWagons += graphe.getLongueur(r);
+            routes.add(new int[]{graphe.getVille1(r), graphe.getVille2(r), graphe.getLongueur(r)});
+        }
+        return routes;
+    }
+
+    private static List<int[]> echelle(int n) {
+        List<int[]> routes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            routes.add(new int[]{i, n + i, 1});
+            if (i + 1 < n) {
+                routes.add(new int[]{i, i + 1, 1});
+                routes.add(new int[]{n + i, n + i + 1, 1});
+            }
+        }
+        return routes;
+    }
+
+    private static List<int[]> grille(int n) {
+        List<int[]> routes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (j + 1 < n) {
+                    routes.add(new int[]{i * n + j, i * n + j + 1, 1});
+                }
+                if (i + 1 < n) {
+                    routes.add(new int[]{i * n + j, (i + 1) * n + j, 1});
+                }
+            }
+        }
+        return routes;
+    }
+
+    @Benchmark
+    public int cheminLePlusLong() {
+        return chemin.calculer(nbRoutes, villes1, villes2, longueurs);
+    }
+}
@@ -0,0 +1,61 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * État compact d'une partie à 4 joueurs ({@link EtatJeu}), tel que l'explore
+ * un joueur automatique :
+ * <ul>
+ * <li>{@code copier} : copie de l'état (objectif : bien moins d'une microseconde) ;</li>
+ * <li>{@code jouerAnnuler} : calcul des coups possibles, puis un coup joué et
+ * annulé ;</li>
+ * <li>{@code partieAleatoire} : copie, puis coups aléatoires jusqu'à la fin de
+ * la partie et calcul des scores finals.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EtatJeuBenchmark {
+    private EtatJeu etat;
+    private int[] coups;
+    private SplittableRandom alea;
+
+    @Setup
+    public void preparer() {
+        etat = new EtatJeu(new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}, 42));
+        coups = new int[etat.getNbCoupsMax()];
+        alea = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public EtatJeu copier() {
+        return etat.copier();
+    }
+
+    @Benchmark
+    public int jouerAnnuler() {
+        int n = etat.coupsPossibles(coups);
+        etat.jouer(coups[alea.nextInt(n)]);
+        etat.annuler();
+        return n;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int partieAleatoire() {
+        EtatJeu partie = etat.copier();
+        partie.melangerPioche(alea);
+        int n;
+        while ((n = partie.coupsPossibles(coups)) > 0) {
+            partie.jouer(coups[n > 1 ? 1 + alea.nextInt(n - 1) : 0]);
+        }
+        return partie.scoresFinals()[0];
+    }
+}
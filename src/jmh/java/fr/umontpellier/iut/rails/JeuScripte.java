@@ -0,0 +1,105 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Jeu joué automatiquement, pour les bancs d'essai.
+ * <p>
+ * À chaque demande du jeu ({@link #prompt(String, Collection, boolean)}), une
+ * réponse est calculée puis fournie comme entrée suivante, comme le ferait un
+ * test avec {@link IOJeu#setInput(String...)}. Les réponses sont prises dans une
+ * liste de préférences (capturer une route, piocher, passer...) : si la
+ * réponse précédente n'était pas valide ({@link #refuserEntree}), la réponse
+ * suivante de la liste est proposée. Rien n'est affiché.
+ */
+public class JeuScripte extends IOJeu {
+    /**
+     * Levée lorsque la partie dépasse le nombre maximal de décisions
+     */
+    public static class PartieInterrompue extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public PartieInterrompue() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Nombre de cartes en main en dessous duquel le joueur pioche plutôt que de capturer une route
+     */
+    private static final int MAIN_MIN = 6;
+
+    private final int nbDecisionsMax;
+    private int nbDecisions;
+    private String derniereDemande;
+    private int tentative;
+    /**
+     * Dernière demande du jeu, refaite lorsque la réponse est refusée
+     */
+    private String derniereInstruction;
+    private Collection<String> derniersBoutons;
+    private boolean dernierPeutPasser;
+
+    public JeuScripte(String[] nomJoueurs, int nbDecisionsMax) {
+        super(nomJoueurs);
+        this.nbDecisionsMax = nbDecisionsMax;
+    }
+
+    public int getNbDecisions() {
+        return nbDecisions;
+    }
+
+    private int nbCartesAPiocher() {
+        return getPileCartesWagon().size() + getDefausseCartesWagon().size();
+    }
+
+    @Override
+    public void prompt(String instruction, Collection<String> boutons, boolean peutPasser) {
+        if (++nbDecisions > nbDecisionsMax) {
+            throw new PartieInterrompue();
+        }
+        derniereInstruction = instruction;
+        derniersBoutons = boutons;
+        dernierPeutPasser = peutPasser;
+        Joueur joueur = getJoueurCourant();
+        // une demande identique (même état du joueur) signifie que la réponse précédente a été refusée
+        String demande = instruction + boutons + joueur.getNom() + joueur.getCartesWagon().size()
+                + joueur.getCartesWagonPosees().size() + joueur.getNbWagons() + getPileCartesWagon().size();
+        tentative = demande.equals(derniereDemande) ? tentative + 1 : 0;
+        derniereDemande = demande;
+
+        List<String> reponses = new ArrayList<>();
+        if (instruction.equals("Que voulez vous faire ?")) {
+            // le joueur pioche tant qu'il a peu de cartes (et régulièrement ensuite),
+            // sinon il tente de capturer une route (une route différente à chaque
+            // tour, une capture de tunnel pouvant échouer)
+            List<String> routes = joueur.nomRoutes();
+            // un tunnel fait piocher 3 cartes
+            routes.removeIf(nom -> joueur.getRouteParNom(nom) instanceof Tunnel && nbCartesAPiocher() < 3);
+            Collections.rotate(routes, nbDecisions);
+            if (nbCartesAPiocher() > 0 && (joueur.getCartesWagon().size() < MAIN_MIN || nbDecisions % 3 == 0)) {
+                reponses.add("GRIS");
+            }
+            reponses.addAll(routes);
+        } else if (!instruction.startsWith("choisissez une carte a retirer")
+                && !instruction.startsWith("Vous avez pioché")) {
+            // les destinations sont toutes gardées, et les cartes supplémentaires
+            // demandées par un tunnel ne sont jamais payées
+            reponses.addAll(boutons);
+        }
+        if (nbCartesAPiocher() > 0) {
+            reponses.add("GRIS");
+        }
+        reponses.add("");
+        setInput(reponses.get(tentative % reponses.size()));
+    }
+
+    @Override
+    public void refuserEntree(String entree) {
+        // la même demande est refaite, ce qui fait proposer la réponse suivante
+        prompt(derniereInstruction, derniersBoutons, dernierPeutPasser);
+    }
+}
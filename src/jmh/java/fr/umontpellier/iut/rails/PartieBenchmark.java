@@ -0,0 +1,40 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parties complètes jouées par {@link JeuScripte}, de la distribution des
+ * destinations jusqu'à la fin de la partie (création du jeu comprise), et
+ * création seule d'un jeu (plateau, pioches et joueurs)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartieBenchmark {
+    private static final String[] NOMS = {"Guybrush", "Largo", "LeChuck", "Elaine", "Stan"};
+    /**
+     * Au-delà de ce nombre de décisions, la partie est interrompue (ne devrait pas arriver)
+     */
+    private static final int NB_DECISIONS_MAX = 20_000;
+
+    @Param({"2", "4"})
+    public int nbJoueurs;
+
+    @Benchmark
+    public int partieComplete() {
+        JeuScripte jeu = new JeuScripte(Arrays.copyOf(NOMS, nbJoueurs), NB_DECISIONS_MAX);
+        jeu.run();
+        return jeu.getNbDecisions();
+    }
+
+    @Benchmark
+    public Jeu creationJeu() {
+        return new Jeu(Arrays.copyOf(NOMS, nbJoueurs), 42);
+    }
+}
@@ -0,0 +1,41 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pioche de cartes wagon ({@link Jeu#piocherCarteWagon()}) : chaque opération
+ * pioche {@code nbCartes} cartes, qui sont aussitôt défaussées, ce qui vide la
+ * pioche et la reconstitue à partir de la défausse plusieurs fois (5000 cartes
+ * correspondent à une très longue partie, avec une cinquantaine de remélanges).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PiocheBenchmark {
+    @Param({"200", "5000"})
+    private int nbCartes;
+    private IOJeu jeu;
+
+    @Setup
+    public void preparer() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+    }
+
+    @Benchmark
+    public int piocherAvecMelanges() {
+        int nbLocomotives = 0;
+        for (int i = 0; i < nbCartes; i++) {
+            CouleurWagon carte = jeu.piocherCarteWagon();
+            if (carte == CouleurWagon.LOCOMOTIVE) {
+                nbLocomotives++;
+            }
+            jeu.getDefausseCartesWagon().add(carte);
+        }
+        return nbLocomotives;
+    }
+}
@@ -0,0 +1,55 @@
+package fr.umontpellier.iut.rails;
+
+import fr.umontpellier.iut.gui.Partie;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@link Jeu#prompt(String, java.util.Collection, boolean)} pour un jeu
+ * hébergé par le serveur : affichage console (redirigé vers un flux vide),
+ * instantané de l'état et publication aux clients (sans client connecté, le
+ * message n'est construit qu'à la demande).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBenchmark {
+    private Jeu jeu;
+    private List<String> boutons;
+    private PrintStream sortie;
+    private int n;
+
+    @Setup
+    public void preparer() {
+        Partie partie = new Partie("benchmark", new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+        jeu = partie.getJeu();
+        for (int i = 0; i < 100; i++) {
+            jeu.log("message " + i);
+        }
+        boutons = List.of("Amsterdam - Bruxelles", "Amsterdam - Essen", "Amsterdam - Frankfurt");
+        sortie = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void terminer() {
+        System.setOut(sortie);
+    }
+
+    @Benchmark
+    public void promptEtatInchange() {
+        jeu.prompt("Que voulez vous faire ?", boutons, true);
+    }
+
+    @Benchmark
+    public void promptNouvelEtat() {
+        jeu.prompt((n++ & 1) == 0 ? "Que voulez vous faire ?" : "Choisissez une seconde carte", boutons, true);
+    }
+}
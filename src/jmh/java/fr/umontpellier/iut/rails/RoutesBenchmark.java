@@ -0,0 +1,62 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche des routes que le joueur courant peut capturer ({@link Joueur#nomRoutes()}
+ * et {@link Route#valide(Joueur)} sur toutes les routes du plateau), en milieu
+ * de partie : une route sur trois est déjà capturée et le joueur a 12 cartes.
+ * <p>
+ * {@code nomRoutes} mesure le cas où rien n'a changé depuis le tour précédent,
+ * {@code nomRoutesApresPioche} celui où la main du joueur vient de changer (les
+ * routes sont alors recalculées par {@link CoupsPossibles}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutesBenchmark {
+    private IOJeu jeu;
+    private Joueur joueur;
+
+    @Setup
+    public void preparer() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+        List<Joueur> joueurs = jeu.getJoueurs();
+        List<Route> routes = jeu.getRoutes();
+        for (int i = 0; i < routes.size(); i += 3) {
+            routes.get(i).setProprietaire(joueurs.get(1 + i % (joueurs.size() - 1)));
+        }
+        joueur = joueurs.get(0);
+        joueur.getCartesWagon().clear();
+        joueur.getCartesWagon().addAll(List.of(
+                CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.BLEU,
+                CouleurWagon.BLEU, CouleurWagon.VERT, CouleurWagon.JAUNE, CouleurWagon.JAUNE,
+                CouleurWagon.NOIR, CouleurWagon.BLANC, CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE));
+    }
+
+    @Benchmark
+    public List<String> nomRoutes() {
+        return joueur.nomRoutes();
+    }
+
+    @Benchmark
+    public List<String> nomRoutesApresPioche() {
+        joueur.getCartesWagon().add(CouleurWagon.ORANGE);
+        joueur.getCartesWagon().remove(CouleurWagon.ORANGE);
+        return joueur.nomRoutes();
+    }
+
+    @Benchmark
+    public void valideToutesRoutes(Blackhole trou) {
+        for (Route route : jeu.getRoutes()) {
+            trou.consume(route.valide(joueur));
+        }
+    }
+}
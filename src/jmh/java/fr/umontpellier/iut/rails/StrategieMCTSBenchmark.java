@@ -0,0 +1,66 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche de {@link StrategieMCTS} au premier tour d'une partie à 4 joueurs :
+ * <ul>
+ * <li>{@code iteration} : nombre d'itérations (tirage, descente dans l'arbre et
+ * partie simulée jusqu'à la fin) par seconde sur un cœur, l'arbre étant
+ * reconstruit à chaque itération de mesure ;</li>
+ * <li>{@code recherche} : durée d'une décision de {@value #NB_ITERATIONS}
+ * itérations par arbre, avec un arbre par thread (si le parallélisme est
+ * parfait, la durée ne dépend pas du nombre de threads).</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategieMCTSBenchmark {
+    private static final int NB_ITERATIONS = 200;
+
+    @Param({"1", "4"})
+    private int nbThreads;
+
+    private EtatJeu etat;
+    private StrategieMCTS.Arbre arbre;
+    private ForkJoinPool pool;
+    private StrategieMCTS strategie;
+
+    @Setup
+    public void preparer() {
+        etat = new EtatJeu(new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}, 42));
+        pool = new ForkJoinPool(nbThreads);
+        strategie = new StrategieMCTS(42, 60_000, pool);
+        strategie.setNbIterationsMax(NB_ITERATIONS);
+    }
+
+    @Setup(Level.Iteration)
+    public void nouvelArbre() {
+        arbre = new StrategieMCTS.Arbre(etat, new SplittableRandom(42));
+    }
+
+    @TearDown
+    public void arreter() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void iteration() {
+        arbre.iterer();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recherche() {
+        return strategie.chercher(etat);
+    }
+}
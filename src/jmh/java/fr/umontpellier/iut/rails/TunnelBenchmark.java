@@ -0,0 +1,56 @@
+package fr.umontpellier.iut.rails;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capture d'un tunnel ({@link Tunnel#capturer(Joueur, CouleurWagon)}) : paiement
+ * des cartes, pioche des 3 cartes supplémentaires et, si elles l'exigent, choix
+ * de payer le surcoût (la réponse scriptée est toujours de renoncer). Le tunnel,
+ * la main du joueur et la pioche sont remis dans leur état initial avant chaque
+ * capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TunnelBenchmark {
+    private static final List<CouleurWagon> MAIN = List.of(
+            CouleurWagon.ORANGE, CouleurWagon.ORANGE, CouleurWagon.ORANGE, CouleurWagon.ORANGE,
+            CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE);
+
+    private JeuScripte jeu;
+    private Joueur joueur;
+    private Tunnel tunnel;
+
+    @Setup
+    public void preparer() {
+        jeu = new JeuScripte(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}, Integer.MAX_VALUE);
+        joueur = jeu.getJoueurCourant();
+        tunnel = (Tunnel) joueur.getRouteParNom("Angora - Smyrna");
+    }
+
+    @Setup(Level.Invocation)
+    public void reinitialiser() {
+        tunnel.setProprietaire(null);
+        tunnel.effacerPaiement();
+        joueur.getCartesWagon().clear();
+        joueur.getCartesWagon().addAll(MAIN);
+        joueur.getCartesWagonPosees().clear();
+        jeu.getPileCartesWagon().addAll(jeu.getDefausseCartesWagon());
+        jeu.getDefausseCartesWagon().clear();
+    }
+
+    @Benchmark
+    public boolean capturer() {
+        boolean capture = true;
+        for (int i = 0; i < tunnel.getLongueur() && capture; i++) {
+            capture = tunnel.capturer(joueur, CouleurWagon.ORANGE);
+        }
+        return capture;
+    }
+}
@@ -0,0 +1,330 @@
+package fr.umontpellier.iut.gui;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client connecté à une partie.
+ * <p>
+ * Les messages sont envoyés de manière asynchrone, un seul à la fois par
+ * client : le thread de la partie n'attend jamais un client. Lorsque le client
+ * est lent, les états successifs de la partie sont fusionnés (seul le plus
+ * récent sera envoyé) ; les autres messages (réponses individuelles) sont mis
+ * en file, dans la limite de {@code rails.envoi.attente.max} messages. Un client
+ * dont la file déborde, ou dont un envoi dure plus de
+ * {@code rails.envoi.delai.max} millisecondes, est déconnecté.
+ * <p>
+ * Les messages reçus du client sont limités à {@code rails.entrees.debit} par
+ * seconde (en moyenne, avec des rafales d'autant de messages) : les messages en
+ * excès sont ignorés, et le client en est prévenu une fois par dépassement.
+ */
+public class ClientPartie {
+    public static final String PROPRIETE_ATTENTE_MAX = "rails.envoi.attente.max";
+    public static final String PROPRIETE_DELAI_MAX = "rails.envoi.delai.max";
+    private static final int ATTENTE_MAX = Integer.getInteger(PROPRIETE_ATTENTE_MAX, 32);
+    private static final long DELAI_MAX = Long.getLong(PROPRIETE_DELAI_MAX, 10_000);
+    /**
+     * Propriété système fixant le nombre de messages qu'un client peut envoyer
+     * par seconde (0 pour ne pas limiter les clients)
+     */
+    public static final String PROPRIETE_DEBIT_ENTREES = "rails.entrees.debit";
+    public static final int DEBIT_ENTREES_DEFAUT = 20;
+    private static final int DEBIT_ENTREES = Integer.getInteger(PROPRIETE_DEBIT_ENTREES, DEBIT_ENTREES_DEFAUT);
+    private static final String ERREUR_DEBIT = SerialiseurEtat.erreur("Trop d'instructions, messages ignorés");
+
+    /**
+     * Protocoles de mise à jour proposés aux clients
+     */
+    public enum Protocole {
+        /**
+         * l'état complet de la partie est envoyé à chaque changement (interface
+         * graphique fournie)
+         */
+        COMPLET,
+        /**
+         * seules les différences depuis la dernière version acquittée par le client
+         * sont envoyées
+         */
+        DELTA
+    }
+
+    private final Session session;
+    private final Partie partie;
+    private final Protocole protocole;
+    /**
+     * Dernière version de l'état acquittée par le client (-1 si le client n'a
+     * encore rien acquitté, ou a demandé une resynchronisation)
+     */
+    private volatile long versionAcquittee;
+    /**
+     * Numéro de séquence du premier message du log qui n'a pas encore été envoyé
+     * au client (protocole COMPLET)
+     */
+    private volatile long sequenceLogEnvoyee;
+    /**
+     * Messages individuels en attente d'envoi
+     */
+    private final Queue<String> messagesEnAttente;
+    private final AtomicInteger nbMessagesEnAttente;
+    /**
+     * Indique qu'un nouvel état de la partie doit être envoyé au client
+     */
+    private final AtomicBoolean etatEnAttente;
+    /**
+     * Indique qu'un envoi est en cours
+     */
+    private final AtomicBoolean envoiEnCours;
+    /**
+     * Date de début de l'envoi asynchrone en cours (System.nanoTime()), ou 0 si
+     * aucun message n'est en cours d'envoi sur la session (le message suivant peut
+     * être en cours de construction)
+     */
+    private volatile long debutEnvoi;
+    /**
+     * Indique que le client a été déconnecté par le serveur
+     */
+    private final AtomicBoolean deconnecte;
+    /**
+     * Nombre de messages que le client peut envoyer par seconde (0 si illimité)
+     */
+    private final int debitEntrees;
+    /**
+     * Messages que le client peut encore envoyer immédiatement (au plus
+     * {@code debitEntrees}, rechargés au fil du temps depuis {@code derniereRecharge})
+     */
+    private double jetons;
+    private long derniereRecharge;
+    /**
+     * Indique que le dernier message du client a été ignoré faute de jetons
+     */
+    private boolean limite;
+    private final AtomicLong nbEntreesInvalides;
+    private final AtomicLong nbEntreesLimitees;
+
+    public ClientPartie(Session session, Partie partie, Protocole protocole) {
+        this(session, partie, protocole, DEBIT_ENTREES);
+    }
+
+    /**
+     * @param debitEntrees nombre de messages que le client peut envoyer par
+     *                     seconde (0 pour ne pas le limiter)
+     */
+    ClientPartie(Session session, Partie partie, Protocole protocole, int debitEntrees) {
+        this.session = session;
+        this.partie = partie;
+        this.protocole = protocole;
+        this.debitEntrees = debitEntrees;
+        jetons = debitEntrees;
+        derniereRecharge = System.nanoTime();
+        nbEntreesInvalides = new AtomicLong();
+        nbEntreesLimitees = new AtomicLong();
+        versionAcquittee = -1;
+        messagesEnAttente = new ConcurrentLinkedQueue<>();
+        nbMessagesEnAttente = new AtomicInteger();
+        etatEnAttente = new AtomicBoolean();
+        envoiEnCours = new AtomicBoolean();
+        deconnecte = new AtomicBoolean();
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Partie getPartie() {
+        return partie;
+    }
+
+    public Protocole getProtocole() {
+        return protocole;
+    }
+
+    public long getVersionAcquittee() {
+        return versionAcquittee;
+    }
+
+    /**
+     * Enregistre l'acquittement d'une version de l'état par le client
+     */
+    public void acquitter(long version) {
+        if (version > versionAcquittee) {
+            versionAcquittee = version;
+        }
+    }
+
+    public long getSequenceLogEnvoyee() {
+        return sequenceLogEnvoyee;
+    }
+
+    void setSequenceLogEnvoyee(long sequence) {
+        sequenceLogEnvoyee = sequence;
+    }
+
+    /**
+     * Oublie la version acquittée et les messages du log envoyés : le prochain
+     * envoi contiendra l'état complet et tous les messages conservés du log
+     */
+    public void resynchroniser() {
+        versionAcquittee = -1;
+        sequenceLogEnvoyee = 0;
+    }
+
+    /**
+     * Décompte un message reçu du client. Lorsque le client dépasse son débit, le
+     * message doit être ignoré ; le client en est prévenu au premier message
+     * ignoré.
+     *
+     * @return false si le message doit être ignoré
+     */
+    synchronized boolean accepterMessage() {
+        if (debitEntrees <= 0) {
+            return true;
+        }
+        long maintenant = System.nanoTime();
+        jetons = Math.min(debitEntrees, jetons + (maintenant - derniereRecharge) * debitEntrees / 1e9);
+        derniereRecharge = maintenant;
+        if (jetons >= 1) {
+            jetons--;
+            limite = false;
+            return true;
+        }
+        nbEntreesLimitees.incrementAndGet();
+        if (!limite) {
+            limite = true;
+            envoyer(ERREUR_DEBIT);
+        }
+        return false;
+    }
+
+    /**
+     * Signale au client que son instruction n'est pas un choix valide (seul ce
+     * client reçoit la réponse, l'état de la partie n'est pas renvoyé)
+     *
+     * @param reponse le message d'erreur à envoyer
+     */
+    void refuserEntree(String reponse) {
+        nbEntreesInvalides.incrementAndGet();
+        envoyer(reponse);
+    }
+
+    /**
+     * @return le nombre d'instructions du client refusées parce qu'elles n'étaient
+     * pas un choix valide
+     */
+    public long getNbEntreesInvalides() {
+        return nbEntreesInvalides.get();
+    }
+
+    /**
+     * @return le nombre de messages du client ignorés parce qu'il dépassait son débit
+     */
+    public long getNbEntreesLimitees() {
+        return nbEntreesLimitees.get();
+    }
+
+    /**
+     * @return le nombre de messages en attente d'envoi (y compris l'état de la partie)
+     */
+    public int getProfondeurFile() {
+        return nbMessagesEnAttente.get() + (etatEnAttente.get() ? 1 : 0);
+    }
+
+    /**
+     * Signale qu'un nouvel état de la partie est disponible. S'il reste un état
+     * non envoyé, il est remplacé par le nouvel état.
+     */
+    public void signalerEtat() {
+        if (etatEnAttente.getAndSet(true)) {
+            partie.getMetriques().fusion();
+        }
+        pomper();
+    }
+
+    /**
+     * Ajoute un message individuel à la file d'envoi du client
+     */
+    public void envoyer(String message) {
+        if (nbMessagesEnAttente.incrementAndGet() > ATTENTE_MAX) {
+            nbMessagesEnAttente.decrementAndGet();
+            deconnecter("Trop de messages en attente");
+            return;
+        }
+        messagesEnAttente.add(message);
+        pomper();
+    }
+
+    /**
+     * Envoie le prochain message en attente si aucun envoi n'est en cours
+     */
+    private void pomper() {
+        while (envoiEnCours.compareAndSet(false, true)) {
+            String message = messagesEnAttente.poll();
+            if (message != null) {
+                nbMessagesEnAttente.decrementAndGet();
+            } else if (etatEnAttente.getAndSet(false)) {
+                message = partie.messageEtat(this);
+            }
+            if (message != null) {
+                envoyerAsynchrone(message);
+                return;
+            }
+            envoiEnCours.set(false);
+            // un message a pu être ajouté entre-temps par un autre thread
+            if (messagesEnAttente.isEmpty() && !etatEnAttente.get()) {
+                return;
+            }
+        }
+        // un envoi est déjà en cours : le client est-il bloqué ? (tant que le
+        // message est en construction, par exemple en attendant le verrou de la
+        // partie, aucun envoi n'a commencé)
+        long debut = debutEnvoi;
+        if (debut != 0 && System.nanoTime() - debut > DELAI_MAX * 1_000_000) {
+            deconnecter("Client trop lent");
+        }
+    }
+
+    private void envoyerAsynchrone(String message) {
+        long debut = System.nanoTime();
+        debutEnvoi = debut;
+        try {
+            session.getAsyncRemote().sendText(message, resultat -> {
+                partie.getMetriques().envoi(System.nanoTime() - debut, resultat.isOK());
+                debutEnvoi = 0;
+                envoiEnCours.set(false);
+                if (resultat.isOK()) {
+                    pomper();
+                } else {
+                    // les messages suivants ne pourraient plus être envoyés
+                    deconnecter("Échec de l'envoi");
+                }
+            });
+        } catch (RuntimeException e) {
+            // session fermée pendant l'envoi
+            partie.getMetriques().envoi(System.nanoTime() - debut, false);
+            debutEnvoi = 0;
+            envoiEnCours.set(false);
+            deconnecter("Échec de l'envoi");
+        }
+    }
+
+    /**
+     * Retire le client de sa partie et ferme sa session (une seule fois)
+     */
+    private void deconnecter(String raison) {
+        if (!deconnecte.compareAndSet(false, true)) {
+            return;
+        }
+        partie.getMetriques().deconnexion();
+        partie.removeClient(this);
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, raison));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package fr.umontpellier.iut.gui;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteur des parties hébergées par le serveur.
+ * <p>
+ * Une partie passe l'essentiel de son temps bloquée dans {@code Jeu.lireLigne()}
+ * en attendant l'instruction d'un joueur. Deux modes d'exécution sont proposés :
+ * <ul>
+ * <li>{@code VIRTUEL} : un thread virtuel par partie (nécessite Java 21 ou plus,
+ * le mode {@code PLATEFORME} est utilisé à défaut) ;</li>
+ * <li>{@code PLATEFORME} : un thread système par partie, avec une pile de taille
+ * réduite.</li>
+ * </ul>
+ * Le mode est choisi par la propriété système {@code rails.executeur}
+ * ({@code virtuel} par défaut) et la taille de pile des threads système (en Ko)
+ * par la propriété {@code rails.executeur.pile}.
+ */
+public class ExecuteurParties {
+    public static final String PROPRIETE_MODE = "rails.executeur";
+    public static final String PROPRIETE_PILE = "rails.executeur.pile";
+    /**
+     * Taille de pile par défaut des threads système (en Ko)
+     */
+    public static final long TAILLE_PILE_DEFAUT = 256;
+
+    public enum Mode {
+        VIRTUEL, PLATEFORME
+    }
+
+    /**
+     * Mode effectivement utilisé
+     */
+    private final Mode mode;
+    private final ExecutorService executeur;
+
+    /**
+     * @param mode       mode d'exécution souhaité (si les threads virtuels ne sont
+     *                   pas disponibles, le mode PLATEFORME est utilisé)
+     * @param taillePile taille de la pile des threads système en Ko (0 pour la
+     *                   taille par défaut de la JVM)
+     */
+    public ExecuteurParties(Mode mode, long taillePile) {
+        ExecutorService virtuel = mode == Mode.VIRTUEL ? executeurVirtuel() : null;
+        if (virtuel != null) {
+            this.mode = Mode.VIRTUEL;
+            executeur = virtuel;
+        } else {
+            this.mode = Mode.PLATEFORME;
+            executeur = Executors.newCachedThreadPool(fabriqueThreads(taillePile * 1024));
+        }
+    }
+
+    /**
+     * Construit l'exécuteur à partir des propriétés système
+     */
+    public static ExecuteurParties depuisConfiguration() {
+        Mode mode = Mode.valueOf(System.getProperty(PROPRIETE_MODE, "virtuel").toUpperCase(Locale.ROOT));
+        long taillePile = Long.getLong(PROPRIETE_PILE, TAILLE_PILE_DEFAUT);
+        ExecuteurParties executeur = new ExecuteurParties(mode, taillePile);
+        if (executeur.getMode() != mode) {
+            System.err.printf("Threads virtuels indisponibles (Java %s), utilisation de threads système%n",
+                    Runtime.version().feature());
+        }
+        return executeur;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Lance l'exécution d'une partie
+     *
+     * @param partie la tâche exécutant la partie (typiquement un {@code Jeu})
+     */
+    public Future<?> executer(Runnable partie) {
+        return executeur.submit(partie);
+    }
+
+    /**
+     * Interrompt toutes les parties en cours et attend leur arrêt
+     */
+    public void arreter() throws InterruptedException {
+        executeur.shutdownNow();
+        executeur.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return un exécuteur créant un thread virtuel par tâche, ou null si la JVM
+     * ne propose pas de threads virtuels
+     */
+    private static ExecutorService executeurVirtuel() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // threads virtuels présents mais désactivés (preview)
+            return null;
+        }
+    }
+
+    private static ThreadFactory fabriqueThreads(long taillePile) {
+        AtomicInteger compteur = new AtomicInteger();
+        return tache -> {
+            Thread thread = new Thread(null, tache, "partie-" + compteur.incrementAndGet(), taillePile);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,41 +1,130 @@
 package fr.umontpellier.iut.gui;
 
 import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.StrategieMCTS;
 import org.glassfish.tyrus.server.Server;
 
+import javax.websocket.CloseReason;
 import javax.websocket.DeploymentException;
 import javax.websocket.Session;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
 
 public class GameServer {
     /**
-     * Liste des clients connectés au serveur
+     * Identifiant de la partie utilisée par les clients qui n'en précisent pas
+     * (et qui reçoit les instructions tapées sur l'entrée standard)
      */
-    private static ArrayList<Session> clients = new ArrayList<>();
+    public static final String ID_PARTIE_DEFAUT = "defaut";
     /**
-     * Description de l'état du jeu, envoyé aux clients pour la mise à jour de l'interface graphique
+     * Nom du paramètre de la requête de connexion (ws://hote:3232/?partie=...)
+     * indiquant la partie à rejoindre
      */
-    private static String etatJeu = "";
+    public static final String PARAMETRE_PARTIE = "partie";
     /**
-     * Instance de jeu exécutée par le serveur
+     * Nom du paramètre de la requête de connexion indiquant le protocole de mise
+     * à jour souhaité ({@code complet} par défaut, ou {@code delta}, voir
+     * {@link ClientPartie.Protocole})
      */
-    private static Jeu jeu;
+    public static final String PARAMETRE_PROTOCOLE = "protocole";
+    /**
+     * Forme autorisée pour les identifiants de partie
+     */
+    private static final Pattern FORMAT_ID_PARTIE = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    /**
+     * Commande console affichant les métriques d'envoi de chaque partie
+     */
+    private static final String COMMANDE_METRIQUES = "!metriques";
+    /**
+     * Commande console affichant l'enregistrement d'une partie (au format JSON),
+     * pour la rejouer hors ligne avec {@link Jeu#rejouer}
+     */
+    private static final String COMMANDE_ENREGISTREMENT = "!enregistrement";
+    /**
+     * Noms des joueurs des parties créées par le serveur
+     */
+    private static final String[] NOMS_JOUEURS = new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"};
+    /**
+     * Nombre de places (les dernières de chaque partie) tenues par des joueurs
+     * automatiques ({@link StrategieMCTS}), durée de leur recherche pour chaque
+     * choix, en millisecondes, et nombre de threads du pool sur lequel ils
+     * cherchent (par défaut un par cœur)
+     */
+    public static final String PROPRIETE_JOUEURS_AUTOMATIQUES = "rails.ia.joueurs";
+    public static final String PROPRIETE_DUREE_RECHERCHE = "rails.ia.duree";
+    public static final String PROPRIETE_THREADS_IA = "rails.ia.threads";
+    private static final int NB_JOUEURS_AUTOMATIQUES = Integer.getInteger(PROPRIETE_JOUEURS_AUTOMATIQUES, 0);
+    private static final long DUREE_RECHERCHE = Long.getLong(PROPRIETE_DUREE_RECHERCHE, StrategieMCTS.DUREE_DEFAUT);
+    /**
+     * Pool partagé par les joueurs automatiques de toutes les parties (distinct
+     * du pool commun, qui reste disponible pour le reste de la JVM)
+     */
+    private static final ForkJoinPool poolIA = new ForkJoinPool(
+            Integer.getInteger(PROPRIETE_THREADS_IA, Runtime.getRuntime().availableProcessors()));
+    /**
+     * Nombre maximal de parties hébergées en même temps : au-delà, un client qui
+     * demande une nouvelle partie est refusé
+     */
+    public static final String PROPRIETE_PARTIES_MAX = "rails.parties.max";
+    public static final int PARTIES_MAX_DEFAUT = 100;
+    private static final int PARTIES_MAX = Integer.getInteger(PROPRIETE_PARTIES_MAX, PARTIES_MAX_DEFAUT);
+    /**
+     * Parties hébergées par le serveur, indexées par leur identifiant (les
+     * créations et les retraits se font sous le verrou de la table, les lectures
+     * sans verrou). Une partie est retirée lorsqu'elle se termine, ou lorsque son
+     * dernier client la quitte (sauf la partie par défaut) : elle est alors
+     * arrêtée, et reprise à partir de son journal si un client la redemande.
+     */
+    private static final Map<String, Partie> parties = new ConcurrentHashMap<>();
+    /**
+     * Clients connectés, indexés par l'identifiant de leur session (les propriétés
+     * de session de Tyrus 1.1 sont partagées entre toutes les sessions d'un même
+     * point d'accès et ne peuvent pas servir à mémoriser le client)
+     */
+    private static final Map<String, ClientPartie> clients = new ConcurrentHashMap<>();
+    /**
+     * Exécuteur sur lequel tournent les parties (voir {@link ExecuteurParties}
+     * pour sa configuration)
+     */
+    private static final ExecuteurParties executeur = ExecuteurParties.depuisConfiguration();
+    /**
+     * Journaux des parties, pour les reprendre après un arrêt brutal du serveur
+     * (null si les journaux sont désactivés, voir {@link Journaux})
+     */
+    private static final Journaux journaux = Journaux.depuisConfiguration();
 
     public static void main(String[] args) {
-        // Lancement de la partie
-        jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+        // Lancement (ou reprise) de la partie par défaut
+        Partie partieDefaut = getPartie(ID_PARTIE_DEFAUT);
+
+        // Reprise des parties interrompues par un arrêt du serveur
+        reprendreParties();
 
         // Prépare le serveur websocket
         Server server = new Server("localhost", 3232, "/", WebSocketClient.class);
 
         try (Scanner scanner = new Scanner(System.in)) {
             server.start();             // lance le serveur
-            new Thread(jeu).start();    // démarre le jeu (exécute la méthode Jeu.run() dans un nouveau thread)
 
             while (true) {
-                jeu.addInput(scanner.nextLine());
+                String ligne = scanner.nextLine();
+                if (ligne.equals(COMMANDE_METRIQUES)) {
+                    afficherMetriques();
+                } else if (ligne.startsWith(COMMANDE_ENREGISTREMENT + " ")) {
+                    afficherEnregistrement(ligne.substring(COMMANDE_ENREGISTREMENT.length() + 1).trim());
+                } else {
+                    if (!partieDefaut.addInput(ligne)) {
+                        System.out.println("File d'instructions pleine : instruction ignorée");
+                    }
+                }
             }
         } catch (DeploymentException e) {
             throw new RuntimeException(e);
@@ -44,55 +133,240 @@ public class GameServer {
         }
     }
 
-    /**
-     * Ajoute une nouvelle instruction à la file d'instructions
-     * (cette méthode est appelée lorsqu'un message est reçue sur la websocket)
-     * 
-     * @param message l'instruction à ajouter
-     */
-    public static void addInput(String message) {
-        jeu.addInput(message);
+    private static void afficherMetriques() {
+        for (Partie partie : parties.values()) {
+            long recherches = 0;
+            long iterations = 0;
+            for (Joueur joueur : partie.getJeu().getJoueurs()) {
+                if (joueur.getStrategie() instanceof StrategieMCTS strategie) {
+                    recherches += strategie.getNbRecherches();
+                    iterations += strategie.getNbIterationsTotal();
+                }
+            }
+            System.out.printf("[%s] en attente: %d, entrées refusées/invalides/limitées: %d/%d/%d, "
+                            + "recherches/itérations IA: %d/%d, %s%n",
+                    partie.getId(), partie.getProfondeurFiles(), partie.getNbEntreesRefusees(),
+                    partie.getNbEntreesInvalides(), partie.getNbEntreesLimitees(), recherches, iterations,
+                    partie.getMetriques());
+        }
+    }
+
+    private static void afficherEnregistrement(String id) {
+        Partie partie = parties.get(id);
+        if (partie == null) {
+            System.out.printf("Aucune partie %s%n", id);
+        } else {
+            System.out.println(partie.getJeu().getEnregistrement().toJson());
+        }
     }
 
     /**
-     * Met à jour l'état de la partie, et envoie le nouvel état à tous les clients connectés
-     * 
-     * @param etatJeu l'état de la partie
+     * Reprend les parties dont le journal est resté dans le dossier des journaux :
+     * chaque partie rejoue les choix de son journal puis attend ses joueurs
      */
-    public static void setEtatJeu(String etatJeu) {
-        GameServer.etatJeu = etatJeu;
-        // Envoie l'état de la partie à tous les clients
+    private static void reprendreParties() {
+        if (journaux == null) {
+            return;
+        }
         try {
-            for (Session session : clients) {
-                session.getBasicRemote().sendText(etatJeu);
+            for (Map.Entry<String, Journal> entree : journaux.reprendre().entrySet()) {
+                Journal journal = entree.getValue();
+                if (parties.containsKey(entree.getKey()) || parties.size() >= PARTIES_MAX) {
+                    // partie déjà reprise, ou qui le sera à la demande de ses clients
+                    journal.close();
+                    continue;
+                }
+                synchronized (parties) {
+                    demarrer(entree.getKey(), Jeu.reprendre(journal.getEnregistrement()), journal);
+                }
+                System.out.printf("Partie %s reprise (%d choix)%n", entree.getKey(),
+                        journal.getEnregistrement().entrees().size());
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            System.err.printf("Reprise des parties impossible (%s)%n", e);
+        }
+    }
+
+    /**
+     * Renvoie la partie d'identifiant donné. Si elle n'existe pas encore, la
+     * partie est reprise à partir de son journal s'il existe, et sinon créée (avec
+     * son journal), puis démarrée.
+     *
+     * @param id identifiant de la partie
+     * @return la partie correspondante, ou null si elle n'existe pas et que le
+     * nombre maximal de parties est atteint
+     */
+    public static Partie getPartie(String id) {
+        synchronized (parties) {
+            Partie partie = parties.get(id);
+            if (partie != null) {
+                return partie;
+            }
+            if (parties.size() >= PARTIES_MAX) {
+                return null;
+            }
+            Journal journal = journaux == null ? null : journaux.reprendre(id);
+            if (journal != null) {
+                return demarrer(id, Jeu.reprendre(journal.getEnregistrement()), journal);
+            }
+            Jeu jeu = new Jeu(NOMS_JOUEURS);
+            if (journaux != null) {
+                try {
+                    journal = journaux.creer(id, jeu.getEnregistrement());
+                } catch (IOException e) {
+                    System.err.printf("[%s] partie non journalisée (%s)%n", id, e);
+                }
+            }
+            return demarrer(id, jeu, journal);
+        }
+    }
+
+    /**
+     * Ajoute une partie à la table des parties et la démarre (à appeler sous le
+     * verrou de la table). La partie est retirée de la table lorsqu'elle s'arrête.
+     */
+    private static Partie demarrer(String id, Jeu jeu, Journal journal) {
+        placerJoueursAutomatiques(jeu);
+        Partie partie = new Partie(id, jeu, journal);
+        parties.put(id, partie);
+        partie.demarrer(executeur, () -> parties.remove(id, partie));
+        return partie;
+    }
+
+    /**
+     * Confie les dernières places de la partie à des joueurs automatiques (leurs
+     * choix sont journalisés comme ceux des autres joueurs, et relus lors de la
+     * reprise de la partie)
+     */
+    private static void placerJoueursAutomatiques(Jeu jeu) {
+        int nbJoueurs = jeu.getJoueurs().size();
+        for (int i = Math.max(0, nbJoueurs - NB_JOUEURS_AUTOMATIQUES); i < nbJoueurs; i++) {
+            jeu.getJoueurs().get(i).setStrategie(new StrategieMCTS(jeu.getGraine() + i, DUREE_RECHERCHE, poolIA));
+        }
+    }
+
+    /**
+     * @return le nombre de parties hébergées par le serveur
+     */
+    public static int getNbParties() {
+        return parties.size();
+    }
+
+    /**
+     * Renvoie l'identifiant de la partie demandée par un client lors de la
+     * connexion (paramètre {@code partie} de la requête), ou l'identifiant de la
+     * partie par défaut s'il n'est pas précisé
+     *
+     * @param session la session du client
+     * @return l'identifiant de la partie, ou null si l'identifiant demandé n'est pas valide
+     */
+    static String idPartie(Session session) {
+        String id = parametre(session, PARAMETRE_PARTIE);
+        if (id == null) {
+            return ID_PARTIE_DEFAUT;
+        }
+        return FORMAT_ID_PARTIE.matcher(id).matches() ? id : null;
+    }
+
+    /**
+     * @return le protocole de mise à jour demandé par un client lors de la connexion
+     */
+    static ClientPartie.Protocole protocole(Session session) {
+        String protocole = parametre(session, PARAMETRE_PROTOCOLE);
+        return "delta".equals(protocole) ? ClientPartie.Protocole.DELTA : ClientPartie.Protocole.COMPLET;
+    }
+
+    /**
+     * Renvoie la valeur d'un paramètre de l'URL de connexion d'un client.
+     * <p>
+     * Tyrus 1.1 ne remplit pas {@code getRequestParameterMap()} : la chaîne de
+     * requête est donc analysée directement.
+     */
+    private static String parametre(Session session, String nom) {
+        String requete = session.getQueryString();
+        if (requete != null) {
+            for (String paire : requete.split("&")) {
+                int egal = paire.indexOf('=');
+                String cle = egal < 0 ? paire : paire.substring(0, egal);
+                if (URLDecoder.decode(cle, StandardCharsets.UTF_8).equals(nom)) {
+                    return egal < 0 ? "" : URLDecoder.decode(paire.substring(egal + 1), StandardCharsets.UTF_8);
+                }
+            }
         }
+        List<String> valeurs = session.getRequestParameterMap().get(nom);
+        return valeurs == null || valeurs.isEmpty() ? null : valeurs.get(0);
     }
 
     /**
-     * Ajoute un nouveau client à la liste, et lui transmet l'état actuel de la partie
+     * Renvoie le client associé à une session
+     *
+     * @param session la session du client
+     * @return le client (ou null si la session n'est rattachée à aucune partie)
+     */
+    private static ClientPartie clientDe(Session session) {
+        return clients.get(session.getId());
+    }
+
+    /**
+     * Transmet un message reçu d'un client à sa partie (instruction ou message de
+     * contrôle, voir {@link Partie#recevoir(ClientPartie, String)})
+     * (cette méthode est appelée lorsqu'un message est reçu sur la websocket)
+     *
+     * @param session la session du client qui a envoyé le message
+     * @param message le message reçu
+     */
+    public static void addInput(Session session, String message) {
+        ClientPartie client = clientDe(session);
+        if (client != null) {
+            client.getPartie().recevoir(client, message);
+        }
+    }
+
+    /**
+     * Rattache un nouveau client à la partie qu'il a demandée, et lui transmet
+     * l'état actuel de cette partie
      * (cette méthode est appelée lorsqu'une nouvelle connexion est établie)
-     * 
+     *
      * @param session la session du nouveau client
+     * @return null si le client a été rattaché à une partie, ou la raison du refus
+     * de la connexion (identifiant de partie invalide, ou trop de parties en cours)
      */
-    public static void addClient(Session session) {
-        GameServer.clients.add(session);
-        try {
-            session.getBasicRemote().sendText(etatJeu);
-        } catch (IOException e) {
-            e.printStackTrace();
+    public static CloseReason addClient(Session session) {
+        String id = idPartie(session);
+        if (id == null) {
+            return new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Identifiant de partie invalide");
         }
+        synchronized (parties) {
+            Partie partie = getPartie(id);
+            if (partie == null) {
+                return new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Trop de parties en cours");
+            }
+            ClientPartie client = new ClientPartie(session, partie, protocole(session));
+            clients.put(session.getId(), client);
+            partie.addClient(client);
+        }
+        return null;
     }
 
     /**
-     * Retire un client de la liste
+     * Retire un client de sa partie. Une partie (autre que la partie par défaut)
+     * que son dernier client quitte est arrêtée et retirée du serveur.
      * (cette méthode est appelée lorsqu'une connexion est fermée)
-     * 
+     *
      * @param session la session du client à retirer
      */
     public static void removeClient(Session session) {
-        GameServer.clients.remove(session);
+        ClientPartie client = clients.remove(session.getId());
+        if (client == null) {
+            return;
+        }
+        Partie partie = client.getPartie();
+        synchronized (parties) {
+            partie.removeClient(client);
+            if (partie.getNbClients() == 0 && !partie.getId().equals(ID_PARTIE_DEFAUT)
+                    && parties.remove(partie.getId(), partie)) {
+                partie.arreter();
+            }
+        }
     }
 }
@@ -0,0 +1,145 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.*;
+
+import java.util.*;
+
+/**
+ * Instantané immuable de l'état d'une partie, pris au moment où un joueur doit
+ * faire un choix.
+ * <p>
+ * Deux instantanés peuvent être comparés afin de n'envoyer aux clients que ce
+ * qui a changé entre deux versions de l'état de la partie. Les messages envoyés
+ * aux clients sont écrits par {@link SerialiseurEtat}.
+ */
+public class InstantaneJeu {
+    record Prompt(String instruction, List<String> boutons, String nomJoueurCourant, boolean peutPasser) {
+    }
+
+    /**
+     * @param cheminLePlusLong       longueur du plus long chemin continu du joueur
+     * @param meneurCheminLePlusLong indique que le joueur recevrait le bonus du plus
+     *                               long chemin si la partie s'arrêtait maintenant
+     */
+    record EtatJoueur(String nom, Joueur.Couleur couleur, int score, int nbGares, int nbWagons,
+                      int cheminLePlusLong, boolean meneurCheminLePlusLong,
+                      boolean estJoueurCourant, List<Destination> destinations, List<String> cartesWagon,
+                      List<String> cartesWagonPosees) {
+    }
+
+    record Piles(int pileCartesWagon, int pileDestinations, List<CouleurWagon> defausseCartesWagon,
+                 List<CouleurWagon> cartesWagonVisibles) {
+    }
+
+    /**
+     * Numéro de version de l'état (attribué par la partie lors de la publication)
+     */
+    private long version;
+    private final Prompt prompt;
+    private final String[] nomsVilles;
+    private final Joueur.Couleur[] proprietairesVilles;
+    private final String[] nomsRoutes;
+    private final Joueur.Couleur[] proprietairesRoutes;
+    private final List<EtatJoueur> joueurs;
+    private final Piles piles;
+    /**
+     * Numéro de séquence du prochain message du log du jeu au moment de l'instantané
+     */
+    private final long sequenceLog;
+
+    public InstantaneJeu(Jeu jeu, String instruction, Collection<String> boutons, boolean peutPasser) {
+        prompt = new Prompt(instruction, copie(boutons), jeu.getJoueurCourant().getNom(), peutPasser);
+
+        List<Ville> villes = jeu.getVilles();
+        nomsVilles = new String[villes.size()];
+        proprietairesVilles = new Joueur.Couleur[villes.size()];
+        for (int i = 0; i < villes.size(); i++) {
+            Ville ville = villes.get(i);
+            nomsVilles[i] = ville.getNom();
+            proprietairesVilles[i] = ville.getProprietaire() == null ? null : ville.getProprietaire().getCouleur();
+        }
+
+        List<Route> routes = jeu.getRoutes();
+        nomsRoutes = new String[routes.size()];
+        proprietairesRoutes = new Joueur.Couleur[routes.size()];
+        for (int i = 0; i < routes.size(); i++) {
+            Route route = routes.get(i);
+            nomsRoutes[i] = route.getNom();
+            proprietairesRoutes[i] = route.getProprietaire() == null ? null : route.getProprietaire().getCouleur();
+        }
+
+        List<EtatJoueur> etats = new ArrayList<>();
+        List<Joueur> meneurs = jeu.getMeneursCheminLePlusLong();
+        for (Joueur joueur : jeu.getJoueurs()) {
+            etats.add(new EtatJoueur(joueur.getNom(), joueur.getCouleur(), joueur.getScore(), joueur.getNbGares(),
+                    joueur.getNbWagons(), jeu.longueurCheminLePlusLong(joueur), meneurs.contains(joueur),
+                    joueur == jeu.getJoueurCourant(), copie(joueur.getDestinations()),
+                    nomsTries(joueur.getCartesWagon()), nomsTries(joueur.getCartesWagonPosees())));
+        }
+        joueurs = Collections.unmodifiableList(etats);
+
+        piles = new Piles(jeu.getPileCartesWagon().size(), jeu.getPileDestinations().size(),
+                copie(jeu.getDefausseCartesWagon()), copie(jeu.getCartesWagonVisibles()));
+        sequenceLog = jeu.getLog().getSequence();
+    }
+
+    private static <T> List<T> copie(Collection<T> elements) {
+        return Collections.unmodifiableList(new ArrayList<>(elements));
+    }
+
+    private static List<String> nomsTries(List<CouleurWagon> cartes) {
+        return cartes.stream().sorted().map(CouleurWagon::name).toList();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getSequenceLog() {
+        return sequenceLog;
+    }
+
+    Prompt getPrompt() {
+        return prompt;
+    }
+
+    String[] getNomsVilles() {
+        return nomsVilles;
+    }
+
+    Joueur.Couleur[] getProprietairesVilles() {
+        return proprietairesVilles;
+    }
+
+    String[] getNomsRoutes() {
+        return nomsRoutes;
+    }
+
+    Joueur.Couleur[] getProprietairesRoutes() {
+        return proprietairesRoutes;
+    }
+
+    List<EtatJoueur> getJoueurs() {
+        return joueurs;
+    }
+
+    Piles getPiles() {
+        return piles;
+    }
+
+    /**
+     * @return true si les deux instantanés décrivent le même état (aux numéros de version près)
+     */
+    public boolean memeEtat(InstantaneJeu autre) {
+        return prompt.equals(autre.prompt)
+                && Arrays.equals(proprietairesVilles, autre.proprietairesVilles)
+                && Arrays.equals(proprietairesRoutes, autre.proprietairesRoutes)
+                && joueurs.equals(autre.joueurs)
+                && piles.equals(autre.piles)
+                && sequenceLog == autre.sequenceLog;
+    }
+}
@@ -0,0 +1,292 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Enregistrement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'une partie, écrit dans un fichier auquel on ne fait qu'ajouter des
+ * données : il permet de reconstruire la partie si le serveur s'arrête
+ * brutalement (voir {@link Journaux}).
+ * <p>
+ * Le fichier est une suite d'enregistrements ({@code longueur}, {@code crc32},
+ * puis les octets UTF-8 du texte). Le premier contient l'en-tête de la partie
+ * (noms des joueurs et graine, au format de {@link Enregistrement#toJson()}),
+ * chacun des suivants un choix accepté d'un joueur. Un enregistrement incomplet
+ * ou abîmé en fin de fichier (arrêt pendant une écriture) est ignoré à la
+ * relecture, puis effacé si le journal est rouvert pour continuer la partie.
+ * <p>
+ * Les choix ajoutés sont placés dans un tampon. Selon la politique de
+ * synchronisation, le tampon est écrit et forcé sur le disque à chaque choix,
+ * écrit sans être forcé (le système décide), ou écrit et forcé en une seule
+ * fois pour tous les choix reçus depuis la validation précédente
+ * ({@link #synchroniser()}, appelée régulièrement par {@link Journaux}).
+ */
+public class Journal implements Closeable {
+    /**
+     * Taille maximale d'un enregistrement (au-delà, la suite du fichier est
+     * considérée comme abîmée)
+     */
+    private static final int TAILLE_MAX = 1 << 20;
+    private static final int TAILLE_ENTETE = 8;
+
+    public enum Synchronisation {
+        /**
+         * Chaque choix est écrit et forcé sur le disque avant que la partie continue
+         */
+        TOUJOURS,
+        /**
+         * Les choix sont écrits et forcés sur le disque par groupes, à intervalles réguliers
+         */
+        GROUPEE,
+        /**
+         * Chaque choix est écrit, mais jamais forcé sur le disque (un arrêt du
+         * système, et non du seul serveur, peut perdre les derniers choix)
+         */
+        JAMAIS
+    }
+
+    private final Path fichier;
+    private final FileChannel canal;
+    private final Synchronisation synchronisation;
+    /**
+     * Contenu du journal au moment de son ouverture (en-tête et choix)
+     */
+    private final Enregistrement enregistrement;
+    /**
+     * Enregistrements pas encore écrits dans le fichier
+     */
+    private ByteBuffer enAttente;
+    /**
+     * Indique que des données ont été écrites et pas encore forcées sur le disque
+     */
+    private boolean aForcer;
+    private boolean ferme;
+
+    private Journal(Path fichier, FileChannel canal, Synchronisation synchronisation, Enregistrement enregistrement) {
+        this.fichier = fichier;
+        this.canal = canal;
+        this.synchronisation = synchronisation;
+        this.enregistrement = enregistrement;
+        enAttente = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * Crée le journal d'une nouvelle partie (un fichier existant est remplacé) et
+     * y écrit son en-tête, forcé sur le disque
+     *
+     * @param debut noms des joueurs et graine de la partie (les choix éventuels
+     *              sont aussi écrits)
+     */
+    public static Journal creer(Path fichier, Enregistrement debut, Synchronisation synchronisation)
+            throws IOException {
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(fichier, canal, synchronisation, debut);
+        synchronized (journal) {
+            journal.placer(new Enregistrement(debut.nomJoueurs(), debut.graine(), List.of()).toJson());
+            for (String entree : debut.entrees()) {
+                journal.placer(entree);
+            }
+            journal.ecrire();
+            journal.forcer();
+        }
+        return journal;
+    }
+
+    /**
+     * Rouvre le journal d'une partie interrompue pour continuer à y ajouter des
+     * choix (un enregistrement abîmé en fin de fichier est effacé)
+     *
+     * @throws IOException si le fichier ne peut pas être lu ou n'a pas d'en-tête valide
+     */
+    public static Journal ouvrir(Path fichier, Synchronisation synchronisation) throws IOException {
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer contenu = ByteBuffer.allocate((int) Math.min(canal.size(), Integer.MAX_VALUE));
+            while (contenu.hasRemaining() && canal.read(contenu) >= 0) {
+                // lecture de tout le fichier
+            }
+            contenu.flip();
+            Enregistrement enregistrement = relire(contenu);
+            canal.truncate(contenu.position());
+            canal.position(contenu.position());
+            return new Journal(fichier, canal, synchronisation, enregistrement);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Relit un journal sans le modifier
+     *
+     * @throws IOException si le fichier ne peut pas être lu ou n'a pas d'en-tête valide
+     */
+    public static Enregistrement lire(Path fichier) throws IOException {
+        return relire(ByteBuffer.wrap(Files.readAllBytes(fichier)));
+    }
+
+    /**
+     * Relit les enregistrements valides du contenu d'un journal. La position du
+     * tampon est laissée après le dernier enregistrement valide.
+     */
+    private static Enregistrement relire(ByteBuffer contenu) throws IOException {
+        String entete = lireEnregistrement(contenu);
+        if (entete == null) {
+            throw new IOException("Journal sans en-tête valide");
+        }
+        Enregistrement debut;
+        try {
+            debut = Enregistrement.depuisJson(entete);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("En-tête de journal invalide", e);
+        }
+        List<String> entrees = new ArrayList<>();
+        String entree;
+        while ((entree = lireEnregistrement(contenu)) != null) {
+            entrees.add(entree);
+        }
+        return new Enregistrement(debut.nomJoueurs(), debut.graine(), entrees);
+    }
+
+    /**
+     * @return le texte de l'enregistrement suivant, ou null s'il est incomplet ou
+     * abîmé (la position du tampon n'est alors pas modifiée)
+     */
+    private static String lireEnregistrement(ByteBuffer contenu) {
+        if (contenu.remaining() < TAILLE_ENTETE) {
+            return null;
+        }
+        int debut = contenu.position();
+        int longueur = contenu.getInt(debut);
+        if (longueur < 0 || longueur > TAILLE_MAX || longueur > contenu.remaining() - TAILLE_ENTETE) {
+            return null;
+        }
+        byte[] octets = new byte[longueur];
+        contenu.get(debut + TAILLE_ENTETE, octets);
+        CRC32 crc = new CRC32();
+        crc.update(octets);
+        if ((int) crc.getValue() != contenu.getInt(debut + 4)) {
+            return null;
+        }
+        contenu.position(debut + TAILLE_ENTETE + longueur);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    public Path getFichier() {
+        return fichier;
+    }
+
+    public Synchronisation getSynchronisation() {
+        return synchronisation;
+    }
+
+    /**
+     * @return le contenu du journal à son ouverture (pour reprendre la partie,
+     * voir {@link fr.umontpellier.iut.rails.Jeu#reprendre(Enregistrement)})
+     */
+    public Enregistrement getEnregistrement() {
+        return enregistrement;
+    }
+
+    /**
+     * Ajoute un choix accepté au journal (écrit selon la politique de synchronisation)
+     */
+    public synchronized void ajouter(String entree) throws IOException {
+        if (ferme) {
+            throw new IOException("Journal fermé : " + fichier);
+        }
+        placer(entree);
+        if (synchronisation != Synchronisation.GROUPEE) {
+            ecrire();
+            if (synchronisation == Synchronisation.TOUJOURS) {
+                forcer();
+            }
+        }
+    }
+
+    /**
+     * Écrit les choix en attente et force sur le disque tout ce qui a été écrit
+     * (validation de groupe)
+     */
+    public synchronized void synchroniser() throws IOException {
+        if (ferme) {
+            return;
+        }
+        ecrire();
+        if (aForcer && synchronisation != Synchronisation.JAMAIS) {
+            forcer();
+        }
+    }
+
+    private void placer(String texte) {
+        byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+        if (enAttente.remaining() < TAILLE_ENTETE + octets.length) {
+            ByteBuffer plusGrand = ByteBuffer.allocate(Math.max(2 * enAttente.capacity(),
+                    enAttente.position() + TAILLE_ENTETE + octets.length));
+            enAttente.flip();
+            plusGrand.put(enAttente);
+            enAttente = plusGrand;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(octets);
+        enAttente.putInt(octets.length).putInt((int) crc.getValue()).put(octets);
+    }
+
+    private void ecrire() throws IOException {
+        if (enAttente.position() == 0) {
+            return;
+        }
+        enAttente.flip();
+        while (enAttente.hasRemaining()) {
+            canal.write(enAttente);
+        }
+        enAttente.clear();
+        aForcer = true;
+    }
+
+    private void forcer() throws IOException {
+        canal.force(false);
+        aForcer = false;
+    }
+
+    public synchronized boolean estFerme() {
+        return ferme;
+    }
+
+    /**
+     * Écrit les choix en attente et ferme le fichier (qui permet de reprendre la partie)
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (ferme) {
+            return;
+        }
+        try {
+            synchroniser();
+        } finally {
+            ferme = true;
+            canal.close();
+        }
+    }
+
+    /**
+     * Ferme et supprime le journal d'une partie terminée
+     */
+    public synchronized void terminer() throws IOException {
+        ferme = true;
+        canal.close();
+        Files.deleteIfExists(fichier);
+    }
+}
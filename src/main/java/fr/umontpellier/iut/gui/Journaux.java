@@ -0,0 +1,189 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Enregistrement;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journaux des parties hébergées par le serveur (un fichier
+ * {@code <partie>.journal} par partie dans un même dossier, voir
+ * {@link Journal}).
+ * <p>
+ * Le dossier est donné par la propriété système {@code rails.journal.dossier}
+ * ({@code journaux} par défaut, une valeur vide désactive les journaux), la
+ * politique de synchronisation par {@code rails.journal.synchronisation}
+ * ({@code toujours}, {@code groupee} par défaut, ou {@code jamais}) et
+ * l'intervalle de la validation de groupe, en millisecondes, par
+ * {@code rails.journal.delai}. En synchronisation groupée, un arrêt brutal ne
+ * perd au plus que les choix faits pendant le dernier intervalle.
+ */
+public class Journaux implements AutoCloseable {
+    public static final String PROPRIETE_DOSSIER = "rails.journal.dossier";
+    public static final String PROPRIETE_SYNCHRONISATION = "rails.journal.synchronisation";
+    public static final String PROPRIETE_DELAI = "rails.journal.delai";
+    public static final long DELAI_DEFAUT = 10;
+    private static final String EXTENSION = ".journal";
+
+    private final Path dossier;
+    private final Journal.Synchronisation synchronisation;
+    /**
+     * Journaux ouverts (validés ensemble en synchronisation groupée)
+     */
+    private final Set<Journal> ouverts;
+    /**
+     * Thread de validation de groupe (null si la synchronisation n'est pas groupée)
+     */
+    private final ScheduledExecutorService validation;
+
+    /**
+     * @param delai intervalle de la validation de groupe, en millisecondes
+     */
+    public Journaux(Path dossier, Journal.Synchronisation synchronisation, long delai) throws IOException {
+        this.dossier = Files.createDirectories(dossier);
+        this.synchronisation = synchronisation;
+        ouverts = ConcurrentHashMap.newKeySet();
+        if (synchronisation == Journal.Synchronisation.GROUPEE) {
+            validation = Executors.newSingleThreadScheduledExecutor(tache -> {
+                Thread thread = new Thread(tache, "validation-journaux");
+                thread.setDaemon(true);
+                return thread;
+            });
+            validation.scheduleWithFixedDelay(this::valider, delai, delai, TimeUnit.MILLISECONDS);
+        } else {
+            validation = null;
+        }
+    }
+
+    /**
+     * Construit les journaux à partir des propriétés système
+     *
+     * @return les journaux, ou null s'ils sont désactivés ou si le dossier ne peut
+     * pas être créé
+     */
+    public static Journaux depuisConfiguration() {
+        String dossier = System.getProperty(PROPRIETE_DOSSIER, "journaux");
+        if (dossier.isEmpty()) {
+            return null;
+        }
+        Journal.Synchronisation synchronisation = Journal.Synchronisation.valueOf(
+                System.getProperty(PROPRIETE_SYNCHRONISATION, "groupee").toUpperCase(Locale.ROOT));
+        try {
+            return new Journaux(Paths.get(dossier), synchronisation, Long.getLong(PROPRIETE_DELAI, DELAI_DEFAUT));
+        } catch (IOException e) {
+            System.err.printf("Journaux désactivés (%s)%n", e);
+            return null;
+        }
+    }
+
+    public Path getDossier() {
+        return dossier;
+    }
+
+    public Journal.Synchronisation getSynchronisation() {
+        return synchronisation;
+    }
+
+    /**
+     * Crée le journal d'une nouvelle partie
+     *
+     * @param id    identifiant de la partie
+     * @param debut noms des joueurs et graine de la partie
+     */
+    public Journal creer(String id, Enregistrement debut) throws IOException {
+        Journal journal = Journal.creer(dossier.resolve(id + EXTENSION), debut, synchronisation);
+        ouverts.add(journal);
+        return journal;
+    }
+
+    /**
+     * Rouvre les journaux de toutes les parties interrompues du dossier (un
+     * journal illisible est signalé et ignoré)
+     *
+     * @return les journaux rouverts, indexés par identifiant de partie
+     */
+    public Map<String, Journal> reprendre() throws IOException {
+        Map<String, Journal> journaux = new TreeMap<>();
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, "*" + EXTENSION)) {
+            for (Path fichier : fichiers) {
+                String nom = fichier.getFileName().toString();
+                Journal journal = ouvrir(fichier);
+                if (journal != null) {
+                    journaux.put(nom.substring(0, nom.length() - EXTENSION.length()), journal);
+                }
+            }
+        }
+        return journaux;
+    }
+
+    /**
+     * Rouvre le journal d'une partie interrompue (ou arrêtée faute de clients)
+     *
+     * @param id identifiant de la partie
+     * @return le journal rouvert, ou null si la partie n'a pas de journal lisible
+     */
+    public Journal reprendre(String id) {
+        Path fichier = dossier.resolve(id + EXTENSION);
+        return Files.exists(fichier) ? ouvrir(fichier) : null;
+    }
+
+    private Journal ouvrir(Path fichier) {
+        try {
+            Journal journal = Journal.ouvrir(fichier, synchronisation);
+            ouverts.add(journal);
+            return journal;
+        } catch (IOException e) {
+            System.err.printf("Journal %s ignoré (%s)%n", fichier, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Validation de groupe : écrit et force sur le disque les choix en attente de
+     * tous les journaux ouverts
+     */
+    private void valider() {
+        ouverts.removeIf(Journal::estFerme);
+        for (Journal journal : ouverts) {
+            try {
+                journal.synchroniser();
+            } catch (IOException e) {
+                System.err.printf("Écriture du journal %s impossible (%s)%n", journal.getFichier(), e);
+            }
+        }
+    }
+
+    /**
+     * Arrête la validation de groupe et ferme tous les journaux (les parties
+     * pourront être reprises)
+     */
+    @Override
+    public void close() throws IOException {
+        if (validation != null) {
+            validation.shutdown();
+        }
+        IOException erreur = null;
+        for (Journal journal : ouverts) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                erreur = e;
+            }
+        }
+        ouverts.clear();
+        if (erreur != null) {
+            throw erreur;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package fr.umontpellier.iut.gui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs des envois de messages aux clients d'une partie
+ */
+public class MetriquesEnvoi {
+    /**
+     * Nombre de messages envoyés avec succès
+     */
+    private final LongAdder envois = new LongAdder();
+    /**
+     * Nombre d'envois qui ont échoué
+     */
+    private final LongAdder echecs = new LongAdder();
+    /**
+     * Nombre d'états qui n'ont pas été envoyés car remplacés par un état plus
+     * récent avant que le client ne soit prêt à les recevoir
+     */
+    private final LongAdder fusions = new LongAdder();
+    /**
+     * Nombre de clients déconnectés parce qu'ils ne suivaient pas le rythme des envois
+     */
+    private final LongAdder deconnexions = new LongAdder();
+    private final LongAdder latenceTotale = new LongAdder();
+    private final AtomicLong latenceMax = new AtomicLong();
+
+    void envoi(long latenceNanos, boolean reussi) {
+        if (reussi) {
+            envois.increment();
+        } else {
+            echecs.increment();
+        }
+        latenceTotale.add(latenceNanos);
+        latenceMax.accumulateAndGet(latenceNanos, Math::max);
+    }
+
+    void fusion() {
+        fusions.increment();
+    }
+
+    void deconnexion() {
+        deconnexions.increment();
+    }
+
+    public long getEnvois() {
+        return envois.sum();
+    }
+
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    public long getFusions() {
+        return fusions.sum();
+    }
+
+    public long getDeconnexions() {
+        return deconnexions.sum();
+    }
+
+    /**
+     * @return la durée moyenne d'un envoi, en microsecondes
+     */
+    public double getLatenceMoyenne() {
+        long n = envois.sum() + echecs.sum();
+        return n == 0 ? 0 : latenceTotale.sum() / 1000.0 / n;
+    }
+
+    /**
+     * @return la durée maximale d'un envoi, en microsecondes
+     */
+    public double getLatenceMax() {
+        return latenceMax.get() / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("envois: %d, échecs: %d, états fusionnés: %d, déconnexions: %d, latence moy/max: %.0f/%.0f µs",
+                getEnvois(), getEchecs(), getFusions(), getDeconnexions(), getLatenceMoyenne(), getLatenceMax());
+    }
+}
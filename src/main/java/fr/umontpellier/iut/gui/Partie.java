@@ -0,0 +1,413 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.LogJeu;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Partie hébergée par le serveur : une instance de jeu avec sa propre file
+ * d'instructions, son propre état et ses propres clients connectés
+ */
+public class Partie {
+    /**
+     * Identifiant de la partie (utilisé par les clients pour s'y connecter)
+     */
+    private final String id;
+    /**
+     * Instance de jeu exécutée pour cette partie
+     */
+    private final Jeu jeu;
+    /**
+     * Nombre de versions de l'état conservées pour calculer les différences à
+     * envoyer aux clients (un client plus en retard reçoit l'état complet)
+     */
+    public static final int TAILLE_HISTORIQUE = 64;
+    private static final String PREFIXE_CONTROLE = "!";
+    private static final String CONTROLE_ACQUITTEMENT = "!ack ";
+    private static final String CONTROLE_RESYNCHRONISATION = "!resync";
+    private static final String CONTROLE_PAGE_LOG = "!log ";
+    private static final String ERREUR_CHOIX_INVALIDE = SerialiseurEtat.erreur("Choix invalide");
+    private static final String ERREUR_FILE_PLEINE = SerialiseurEtat.erreur("File d'instructions pleine : instruction ignorée");
+
+    /**
+     * Clients connectés à la partie (parcourus sans verrou lors de la diffusion)
+     */
+    private final Set<ClientPartie> clients;
+    /**
+     * Derniers états publiés, indexés par version modulo TAILLE_HISTORIQUE
+     */
+    private final InstantaneJeu[] historique;
+    /**
+     * Dernier état publié
+     */
+    private volatile InstantaneJeu etatCourant;
+    /**
+     * Descriptions complètes de l'état courant, envoyées aux clients pour la mise
+     * à jour de l'interface graphique, indexées par numéro de séquence du premier
+     * message du log qu'elles contiennent
+     */
+    private Map<Long, String> etatsComplets;
+    /**
+     * Messages de différences construits pour l'état courant, indexés par version de référence
+     */
+    private Map<Long, String> deltas;
+    private final MetriquesEnvoi metriques;
+    /**
+     * Serialiseur des messages envoyés aux clients (utilisé sous le verrou de la partie)
+     */
+    private final SerialiseurEtat serialiseur;
+    /**
+     * Journal des choix acceptés de la partie (null si la partie n'est pas journalisée)
+     */
+    private final Journal journal;
+    /**
+     * Exécution de la partie sur l'exécuteur du serveur (null tant qu'elle n'est
+     * pas démarrée)
+     */
+    private Future<?> execution;
+    /**
+     * Messages ignorés parce que leur client dépassait son débit
+     */
+    private final LongAdder entreesLimitees;
+
+    public Partie(String id, String[] nomJoueurs) {
+        this(id, new Jeu(nomJoueurs), null);
+    }
+
+    /**
+     * @param jeu     le jeu de la partie (nouveau, ou repris à partir de son
+     *                journal avec {@link Jeu#reprendre})
+     * @param journal le journal où sont ajoutés les choix acceptés, ou null
+     */
+    public Partie(String id, Jeu jeu, Journal journal) {
+        this.id = id;
+        clients = new CopyOnWriteArraySet<>();
+        historique = new InstantaneJeu[TAILLE_HISTORIQUE];
+        serialiseur = new SerialiseurEtat();
+        etatsComplets = new HashMap<>();
+        deltas = new HashMap<>();
+        metriques = new MetriquesEnvoi();
+        entreesLimitees = new LongAdder();
+        this.jeu = jeu;
+        this.journal = journal;
+        jeu.setPartie(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Jeu getJeu() {
+        return jeu;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Démarre la partie (exécute la méthode Jeu.run() sur un thread de
+     * l'exécuteur). Le journal d'une partie terminée est supprimé.
+     *
+     * @param executeur l'exécuteur des parties du serveur
+     */
+    public void demarrer(ExecuteurParties executeur) {
+        demarrer(executeur, () -> {
+        });
+    }
+
+    /**
+     * Démarre la partie, comme {@link #demarrer(ExecuteurParties)}
+     *
+     * @param fin action exécutée sur le thread de la partie lorsqu'elle s'arrête
+     *            (terminée, interrompue ou en erreur)
+     */
+    public synchronized void demarrer(ExecuteurParties executeur, Runnable fin) {
+        execution = executeur.executer(() -> {
+            try {
+                jeu.run();
+                if (journal != null) {
+                    journal.terminer();
+                }
+            } catch (IOException e) {
+                System.err.printf("[%s] suppression du journal impossible (%s)%n", id, e);
+            } catch (RuntimeException e) {
+                // une partie interrompue (arrêt du serveur) se termine silencieusement
+                if (!Thread.currentThread().isInterrupted()) {
+                    e.printStackTrace();
+                }
+            } finally {
+                fin.run();
+            }
+        });
+    }
+
+    /**
+     * Interrompt la partie (par exemple lorsque tous ses clients sont partis) et
+     * ferme son journal, qui permet de la reprendre plus tard
+     */
+    public void arreter() {
+        Future<?> partieEnCours;
+        synchronized (this) {
+            partieEnCours = execution;
+        }
+        if (partieEnCours != null) {
+            partieEnCours.cancel(true);
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.printf("[%s] fermeture du journal impossible (%s)%n", id, e);
+            }
+        }
+    }
+
+    /**
+     * Traite un message reçu d'un client : les messages commençant par
+     * {@code "!"} sont des messages de contrôle du protocole de mise à jour
+     * ({@code "!ack <version>"} pour acquitter une version de l'état,
+     * {@code "!resync"} pour redemander l'état complet, {@code "!log <avant> <taille>"}
+     * pour obtenir les messages du log précédant le message numéro {@code avant}),
+     * les autres messages sont
+     * des instructions ajoutées à la file d'instructions de la partie.
+     * <p>
+     * Les messages d'un client qui dépasse son débit sont ignorés (sauf les
+     * acquittements). Les instructions sont vérifiées par le jeu au moment d'être
+     * lues : une instruction qui n'est pas un choix valide est signalée au seul
+     * client qui l'a envoyée ({@link #refuserEntree(ClientPartie)}), l'état de la
+     * partie n'est ni reconstruit ni renvoyé.
+     *
+     * @param client  le client qui a envoyé le message
+     * @param message le message reçu
+     */
+    public void recevoir(ClientPartie client, String message) {
+        if (!message.startsWith(CONTROLE_ACQUITTEMENT) && !client.accepterMessage()) {
+            entreesLimitees.increment();
+            return;
+        }
+        if (message.startsWith(PREFIXE_CONTROLE)) {
+            if (message.startsWith(CONTROLE_ACQUITTEMENT)) {
+                try {
+                    client.acquitter(Long.parseLong(message.substring(CONTROLE_ACQUITTEMENT.length()).trim()));
+                } catch (NumberFormatException e) {
+                    // acquittement mal formé : ignoré
+                }
+            } else if (message.equals(CONTROLE_RESYNCHRONISATION)) {
+                client.resynchroniser();
+                client.signalerEtat();
+            } else if (message.startsWith(CONTROLE_PAGE_LOG)) {
+                envoyerPageLog(client, message.substring(CONTROLE_PAGE_LOG.length()).trim().split("\\s+"));
+            }
+        } else if (!jeu.addInput(message, client)) {
+            client.envoyer(ERREUR_FILE_PLEINE);
+        }
+    }
+
+    /**
+     * Signale à un client que son instruction n'est pas un choix valide (appelée
+     * par le jeu lorsqu'il lit l'instruction)
+     *
+     * @param client le client qui a envoyé l'instruction refusée
+     */
+    public void refuserEntree(ClientPartie client) {
+        client.refuserEntree(ERREUR_CHOIX_INVALIDE);
+    }
+
+    /**
+     * Envoie à un client une page de messages anciens du log
+     *
+     * @param arguments numéro de séquence du message précédant la page, et nombre de messages de la page
+     */
+    private void envoyerPageLog(ClientPartie client, String[] arguments) {
+        try {
+            long avant = Long.parseLong(arguments[0]);
+            int taille = Math.min(Integer.parseInt(arguments[1]), jeu.getLog().getCapacite());
+            String page;
+            synchronized (this) {
+                page = serialiseur.pageLog(jeu.getLog().page(avant, taille));
+            }
+            client.envoyer(page);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // demande mal formée : ignorée
+        }
+    }
+
+    /**
+     * Ajoute un choix accepté au journal de la partie (appelée par le jeu pour
+     * chaque choix valide d'un joueur). Si le journal ne peut pas être écrit, la
+     * partie continue sans être journalisée.
+     */
+    public void journaliser(String entree) {
+        if (journal == null || journal.estFerme()) {
+            return;
+        }
+        try {
+            journal.ajouter(entree);
+        } catch (IOException e) {
+            System.err.printf("[%s] écriture du journal impossible (%s)%n", id, e);
+        }
+    }
+
+    /**
+     * Ajoute une nouvelle instruction à la file d'instructions de la partie
+     *
+     * @param message l'instruction à ajouter
+     * @return false si la file est pleine : l'instruction est alors ignorée (et
+     * comptée dans {@link #getNbEntreesRefusees()})
+     */
+    public boolean addInput(String message) {
+        return jeu.addInput(message);
+    }
+
+    /**
+     * @return le nombre d'instructions ignorées parce que la file d'instructions
+     * de la partie était pleine
+     */
+    public long getNbEntreesRefusees() {
+        return jeu.getNbEntreesRefusees();
+    }
+
+    /**
+     * @return le nombre d'instructions refusées parce qu'elles n'étaient pas un
+     * choix valide au moment d'être lues
+     */
+    public long getNbEntreesInvalides() {
+        return jeu.getNbEntreesInvalides();
+    }
+
+    /**
+     * @return le nombre de messages ignorés parce que leur client dépassait son débit
+     */
+    public long getNbEntreesLimitees() {
+        return entreesLimitees.sum();
+    }
+
+    /**
+     * Publie un nouvel état de la partie, et signale à chaque client connecté
+     * qu'il doit recevoir ce qui a changé pour lui (l'état complet ou les
+     * différences depuis la dernière version qu'il a acquittée). Les envois sont
+     * asynchrones : cette méthode n'attend aucun client. Un état identique à
+     * l'état courant n'est pas republié.
+     *
+     * @param etat l'état de la partie
+     */
+    public void publier(InstantaneJeu etat) {
+        synchronized (this) {
+            if (etatCourant != null && etat.memeEtat(etatCourant)) {
+                return;
+            }
+            etat.setVersion(etatCourant == null ? 0 : etatCourant.getVersion() + 1);
+            historique[(int) (etat.getVersion() % TAILLE_HISTORIQUE)] = etat;
+            etatCourant = etat;
+            etatsComplets = new HashMap<>();
+            deltas = new HashMap<>();
+        }
+        clients.forEach(ClientPartie::signalerEtat);
+    }
+
+    /**
+     * @return l'état courant de la partie (ou null si aucun état n'a encore été publié)
+     */
+    public InstantaneJeu getEtatCourant() {
+        return etatCourant;
+    }
+
+    public MetriquesEnvoi getMetriques() {
+        return metriques;
+    }
+
+    /**
+     * @return le nombre total de messages en attente d'envoi aux clients de la partie
+     */
+    public int getProfondeurFiles() {
+        int profondeur = 0;
+        for (ClientPartie client : clients) {
+            profondeur += client.getProfondeurFile();
+        }
+        return profondeur;
+    }
+
+    /**
+     * Construit le message décrivant l'état courant de la partie pour un client,
+     * selon son protocole. Les clients qui ont acquitté la même version reçoivent
+     * le même message (construit une seule fois). Un client qui reçoit l'état
+     * complet ne reçoit que les messages du log qui ne lui ont pas encore été
+     * envoyés (les plus anciens peuvent être demandés avec {@code !log}).
+     *
+     * @return le message à envoyer, ou null si le client connaît déjà l'état courant
+     */
+    synchronized String messageEtat(ClientPartie client) {
+        if (etatCourant == null) {
+            return null;
+        }
+        if (client.getProtocole() == ClientPartie.Protocole.COMPLET) {
+            String message = etatComplet(client.getSequenceLogEnvoyee());
+            client.setSequenceLogEnvoyee(etatCourant.getSequenceLog());
+            return message;
+        }
+        long base = client.getVersionAcquittee();
+        if (base == etatCourant.getVersion()) {
+            return null;
+        }
+        InstantaneJeu reference = instantane(base);
+        if (reference == null) {
+            return etatComplet(0);
+        }
+        return deltas.computeIfAbsent(base, v -> serialiseur.delta(etatCourant, reference, jeu.getLog()));
+    }
+
+    /**
+     * @return l'état de version donnée s'il est encore dans l'historique, null sinon
+     */
+    private InstantaneJeu instantane(long version) {
+        if (version < 0 || version > etatCourant.getVersion()
+                || etatCourant.getVersion() - version >= TAILLE_HISTORIQUE) {
+            return null;
+        }
+        return historique[(int) (version % TAILLE_HISTORIQUE)];
+    }
+
+    /**
+     * @param debutLog numéro de séquence du premier message du log à inclure
+     * @return la description complète de l'état courant (construite au plus une
+     * fois par version et par début de log)
+     */
+    private String etatComplet(long debutLog) {
+        return etatsComplets.computeIfAbsent(debutLog,
+                debut -> serialiseur.etatComplet(etatCourant, jeu.getLog(), debut));
+    }
+
+    /**
+     * Ajoute un nouveau client à la partie, et lui transmet l'état actuel de la partie
+     *
+     * @param client le nouveau client
+     */
+    public void addClient(ClientPartie client) {
+        clients.add(client);
+        client.signalerEtat();
+    }
+
+    /**
+     * Retire un client de la partie
+     *
+     * @param client le client à retirer
+     */
+    public void removeClient(ClientPartie client) {
+        clients.remove(client);
+    }
+
+    /**
+     * @return le nombre de clients connectés à la partie
+     */
+    public int getNbClients() {
+        return clients.size();
+    }
+}
@@ -0,0 +1,315 @@
+package fr.umontpellier.iut.gui;
+
+import com.google.gson.stream.JsonWriter;
+import fr.umontpellier.iut.rails.CouleurWagon;
+import fr.umontpellier.iut.rails.Destination;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.LogJeu;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Écrit les messages JSON envoyés aux clients d'une partie directement à partir
+ * des instantanés de l'état, sans construire d'objets intermédiaires.
+ * <p>
+ * Un état complet est un objet {@code {prompt, villes, routes, joueurs, piles,
+ * debutLog, log, version, complet: true}} :
+ * <ul>
+ * <li>{@code prompt} : {@code instruction}, {@code boutons},
+ * {@code nomJoueurCourant} et {@code peutPasser} ;</li>
+ * <li>{@code villes} et {@code routes} : des objets {@code {nom, proprietaire}}
+ * (la couleur du propriétaire est absente si l'élément est libre) ;</li>
+ * <li>{@code joueurs} : l'état de chaque joueur, avec son {@code index}, la
+ * longueur de son plus long chemin ({@code cheminLePlusLong}) et s'il recevrait
+ * le bonus correspondant ({@code meneurCheminLePlusLong}) ;</li>
+ * <li>{@code piles} : la taille des pioches, la défausse et les cartes visibles ;</li>
+ * <li>{@code log} : des messages du log, le premier ayant le numéro de séquence
+ * {@code debutLog}.</li>
+ * </ul>
+ * Un delta a la même forme, sans {@code complet} et avec le numéro de version
+ * {@code base} de l'état de référence : seuls {@code prompt} et {@code piles}
+ * s'ils ont changé, les villes, routes et joueurs modifiés et les nouveaux
+ * messages du log sont présents.
+ * Le tampon d'écriture est réutilisé d'un message à l'autre : une instance ne
+ * doit être utilisée que par un thread à la fois.
+ */
+public class SerialiseurEtat {
+    /**
+     * Tampon d'écriture (non synchronisé, contrairement à {@link java.io.StringWriter},
+     * car {@link JsonWriter} écrit les chaînes caractère par caractère)
+     */
+    private final Tampon tampon = new Tampon();
+
+    private static class Tampon extends Writer {
+        private final StringBuilder contenu = new StringBuilder(8192);
+
+        @Override
+        public void write(int c) {
+            contenu.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            contenu.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            contenu.append(str, off, off + len);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            contenu.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return contenu.toString();
+        }
+    }
+
+    /**
+     * @return la description complète d'un état, avec son numéro de version et
+     * tous les messages conservés du log
+     */
+    public String etatComplet(InstantaneJeu etat, LogJeu log) {
+        return etatComplet(etat, log, 0);
+    }
+
+    /**
+     * @param debutLog numéro de séquence du premier message du log à inclure (les
+     *                 messages précédents ont déjà été envoyés au client)
+     * @return la description complète d'un état, avec son numéro de version et
+     * les messages du log à partir de {@code debutLog}
+     */
+    public String etatComplet(InstantaneJeu etat, LogJeu log, long debutLog) {
+        try {
+            JsonWriter out = ouvrir();
+            out.beginObject();
+            out.name("prompt");
+            ecrirePrompt(out, etat.getPrompt());
+            out.name("villes");
+            ecrireElements(out, etat.getNomsVilles(), etat.getProprietairesVilles(), null);
+            out.name("routes");
+            ecrireElements(out, etat.getNomsRoutes(), etat.getProprietairesRoutes(), null);
+            out.name("joueurs").beginArray();
+            List<InstantaneJeu.EtatJoueur> joueurs = etat.getJoueurs();
+            for (int i = 0; i < joueurs.size(); i++) {
+                ecrireJoueur(out, i, joueurs.get(i));
+            }
+            out.endArray();
+            out.name("piles");
+            ecrirePiles(out, etat.getPiles());
+            ecrireLog(out, log.entre(debutLog, etat.getSequenceLog()));
+            out.name("version").value(etat.getVersion());
+            out.name("complet").value(true);
+            out.endObject();
+            return fermer(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return les différences entre un état de référence et un état plus récent,
+     * avec les numéros de version des deux états
+     */
+    public String delta(InstantaneJeu etat, InstantaneJeu base, LogJeu log) {
+        try {
+            JsonWriter out = ouvrir();
+            out.beginObject();
+            if (!etat.getPrompt().equals(base.getPrompt())) {
+                out.name("prompt");
+                ecrirePrompt(out, etat.getPrompt());
+            }
+            if (differents(etat.getProprietairesVilles(), base.getProprietairesVilles())) {
+                out.name("villes");
+                ecrireElements(out, etat.getNomsVilles(), etat.getProprietairesVilles(), base.getProprietairesVilles());
+            }
+            if (differents(etat.getProprietairesRoutes(), base.getProprietairesRoutes())) {
+                out.name("routes");
+                ecrireElements(out, etat.getNomsRoutes(), etat.getProprietairesRoutes(), base.getProprietairesRoutes());
+            }
+            List<InstantaneJeu.EtatJoueur> joueurs = etat.getJoueurs();
+            List<InstantaneJeu.EtatJoueur> joueursBase = base.getJoueurs();
+            if (!joueurs.equals(joueursBase)) {
+                out.name("joueurs").beginArray();
+                for (int i = 0; i < joueurs.size(); i++) {
+                    if (!joueurs.get(i).equals(joueursBase.get(i))) {
+                        ecrireJoueur(out, i, joueurs.get(i));
+                    }
+                }
+                out.endArray();
+            }
+            if (!etat.getPiles().equals(base.getPiles())) {
+                out.name("piles");
+                ecrirePiles(out, etat.getPiles());
+            }
+            if (etat.getSequenceLog() > base.getSequenceLog()) {
+                ecrireLog(out, log.entre(base.getSequenceLog(), etat.getSequenceLog()));
+            }
+            out.name("version").value(etat.getVersion());
+            out.name("base").value(base.getVersion());
+            out.endObject();
+            return fermer(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return la réponse à une demande de messages anciens du log
+     */
+    public String pageLog(LogJeu.Page page) {
+        try {
+            JsonWriter out = ouvrir();
+            out.beginObject();
+            out.name("pageLog").beginObject();
+            out.name("debut").value(page.debut());
+            ecrireChaines(out.name("lignes"), page.lignes());
+            out.endObject();
+            out.endObject();
+            return fermer(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return le message d'erreur envoyé à un seul client (par exemple lorsque son
+     * instruction est refusée), qui ne dépend pas de l'état de la partie
+     */
+    public static String erreur(String message) {
+        try {
+            StringWriter texte = new StringWriter();
+            JsonWriter out = new JsonWriter(texte);
+            out.beginObject();
+            out.name("erreur").value(message);
+            out.endObject();
+            out.flush();
+            return texte.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonWriter ouvrir() {
+        tampon.contenu.setLength(0);
+        return new JsonWriter(tampon);
+    }
+
+    private String fermer(JsonWriter out) throws IOException {
+        out.flush();
+        return tampon.toString();
+    }
+
+    private static boolean differents(Joueur.Couleur[] a, Joueur.Couleur[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void ecrirePrompt(JsonWriter out, InstantaneJeu.Prompt prompt) throws IOException {
+        out.beginObject();
+        out.name("instruction").value(prompt.instruction());
+        ecrireChaines(out.name("boutons"), prompt.boutons());
+        out.name("nomJoueurCourant").value(prompt.nomJoueurCourant());
+        out.name("peutPasser").value(prompt.peutPasser());
+        out.endObject();
+    }
+
+    /**
+     * Écrit une liste de villes ou de routes avec leurs propriétaires
+     *
+     * @param base propriétaires dans l'état de référence (seuls les éléments dont
+     *             le propriétaire a changé sont écrits), ou null pour tout écrire
+     */
+    private static void ecrireElements(JsonWriter out, String[] noms, Joueur.Couleur[] proprietaires,
+                                       Joueur.Couleur[] base) throws IOException {
+        out.beginArray();
+        for (int i = 0; i < noms.length; i++) {
+            if (base != null && proprietaires[i] == base[i]) {
+                continue;
+            }
+            out.beginObject();
+            out.name("nom").value(noms[i]);
+            if (proprietaires[i] != null) {
+                out.name("proprietaire").value(proprietaires[i].name());
+            }
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private static void ecrireJoueur(JsonWriter out, int index, InstantaneJeu.EtatJoueur joueur) throws IOException {
+        out.beginObject();
+        out.name("index").value(index);
+        out.name("nom").value(joueur.nom());
+        out.name("couleur").value(joueur.couleur().name());
+        out.name("score").value(joueur.score());
+        out.name("nbGares").value(joueur.nbGares());
+        out.name("nbWagons").value(joueur.nbWagons());
+        out.name("cheminLePlusLong").value(joueur.cheminLePlusLong());
+        out.name("meneurCheminLePlusLong").value(joueur.meneurCheminLePlusLong());
+        out.name("estJoueurCourant").value(joueur.estJoueurCourant());
+        out.name("destinations").beginArray();
+        for (Destination destination : joueur.destinations()) {
+            out.beginObject();
+            out.name("ville1").value(destination.getVille1());
+            out.name("ville2").value(destination.getVille2());
+            out.name("valeur").value(destination.getValeur());
+            out.endObject();
+        }
+        out.endArray();
+        ecrireChaines(out.name("cartesWagon"), joueur.cartesWagon());
+        ecrireChaines(out.name("cartesWagonPosees"), joueur.cartesWagonPosees());
+        out.endObject();
+    }
+
+    private static void ecrirePiles(JsonWriter out, InstantaneJeu.Piles piles) throws IOException {
+        out.beginObject();
+        out.name("pileCartesWagon").value(piles.pileCartesWagon());
+        out.name("pileDestinations").value(piles.pileDestinations());
+        ecrireCartes(out.name("defausseCartesWagon"), piles.defausseCartesWagon());
+        ecrireCartes(out.name("cartesWagonVisibles"), piles.cartesWagonVisibles());
+        out.endObject();
+    }
+
+    private static void ecrireLog(JsonWriter out, LogJeu.Page page) throws IOException {
+        out.name("debutLog").value(page.debut());
+        ecrireChaines(out.name("log"), page.lignes());
+    }
+
+    private static void ecrireChaines(JsonWriter out, List<String> chaines) throws IOException {
+        out.beginArray();
+        for (String chaine : chaines) {
+            out.value(chaine);
+        }
+        out.endArray();
+    }
+
+    private static void ecrireCartes(JsonWriter out, List<CouleurWagon> cartes) throws IOException {
+        out.beginArray();
+        for (CouleurWagon carte : cartes) {
+            out.value(carte.name());
+        }
+        out.endArray();
+    }
+}
@@ -2,17 +2,21 @@ package fr.umontpellier.iut.gui;
 
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
 
 @ServerEndpoint(value = "/")
 public class WebSocketClient {
     @OnOpen
-    public void onOpen(Session session) {
-        GameServer.addClient(session);
+    public void onOpen(Session session) throws IOException {
+        CloseReason refus = GameServer.addClient(session);
+        if (refus != null) {
+            session.close(refus);
+        }
     }
 
     @OnMessage
     public void onMessage(String message, Session session) {
-        GameServer.addInput(message);
+        GameServer.addInput(session, message);
     }
 
     @OnClose
@@ -25,4 +29,4 @@ public class WebSocketClient {
         exception.printStackTrace();
         System.err.println("Error for client: " + session.getId());
     }
-}
\ No newline at end of file
+}
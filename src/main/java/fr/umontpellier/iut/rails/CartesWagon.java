@@ -0,0 +1,204 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Ensemble de cartes wagon (une couleur peut apparaître plusieurs fois),
+ * représenté par le nombre de cartes de chaque couleur : compter, ajouter ou
+ * retirer une carte se fait en temps constant.
+ * <p>
+ * L'ensemble est aussi une liste, pour être utilisé partout où une
+ * {@code List<CouleurWagon>} est attendue. Les cartes de la liste sont rangées
+ * dans l'ordre des couleurs de {@link CouleurWagon} (et non dans l'ordre où
+ * elles ont été ajoutées) ; les méthodes qui placent une carte à une position
+ * donnée ({@code add(int, E)}, {@code set}) ne sont donc pas disponibles, et
+ * {@link #sort(Comparator)} ne change pas l'ordre des cartes.
+ */
+public class CartesWagon extends AbstractList<CouleurWagon> implements RandomAccess {
+    private static final CouleurWagon[] COULEURS = CouleurWagon.values();
+
+    /**
+     * Nombre de cartes de chaque couleur (indexé par {@link CouleurWagon#ordinal()})
+     */
+    private final int[] nombres = new int[COULEURS.length];
+    /**
+     * Nombre total de cartes
+     */
+    private int taille;
+
+    public CartesWagon() {
+    }
+
+    public CartesWagon(Collection<CouleurWagon> cartes) {
+        addAll(cartes);
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur donnée
+     */
+    public int compter(CouleurWagon couleur) {
+        return nombres[couleur.ordinal()];
+    }
+
+    /**
+     * Ajoute plusieurs cartes d'une même couleur
+     */
+    public void ajouter(CouleurWagon couleur, int nb) {
+        if (nb < 0) {
+            throw new IllegalArgumentException("Nombre de cartes négatif : " + nb);
+        }
+        nombres[couleur.ordinal()] += nb;
+        taille += nb;
+        modCount++;
+    }
+
+    /**
+     * Retire une carte de la couleur donnée
+     *
+     * @return true si une carte a été retirée, false si l'ensemble ne contenait
+     * aucune carte de cette couleur
+     */
+    public boolean retirer(CouleurWagon couleur) {
+        int i = couleur.ordinal();
+        if (nombres[i] == 0) {
+            return false;
+        }
+        nombres[i]--;
+        taille--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * @return un nombre qui change à chaque modification de l'ensemble (pour
+     * savoir si un résultat calculé à partir des cartes est encore valable)
+     */
+    public int getVersion() {
+        return modCount;
+    }
+
+    @Override
+    public int size() {
+        return taille;
+    }
+
+    @Override
+    public CouleurWagon get(int index) {
+        return COULEURS[indiceCouleur(index)];
+    }
+
+    /**
+     * @return l'indice de la couleur de la carte à la position donnée de la liste
+     */
+    private int indiceCouleur(int index) {
+        if (index < 0 || index >= taille) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + taille);
+        }
+        int i = 0;
+        while (index >= nombres[i]) {
+            index -= nombres[i];
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public boolean add(CouleurWagon couleur) {
+        ajouter(Objects.requireNonNull(couleur), 1);
+        return true;
+    }
+
+    @Override
+    public CouleurWagon remove(int index) {
+        CouleurWagon couleur = COULEURS[indiceCouleur(index)];
+        retirer(couleur);
+        return couleur;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof CouleurWagon && retirer((CouleurWagon) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof CouleurWagon && nombres[((CouleurWagon) o).ordinal()] > 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!contains(o)) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < ((CouleurWagon) o).ordinal(); i++) {
+            index += nombres[i];
+        }
+        return index;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < nombres.length; i++) {
+            nombres[i] = 0;
+        }
+        taille = 0;
+        modCount++;
+    }
+
+    /**
+     * Ne fait rien : les cartes sont toujours rangées dans l'ordre des couleurs,
+     * quel que soit le comparateur (trier une main, par exemple avec
+     * {@code Collections.sort}, n'a donc pas d'effet)
+     */
+    @Override
+    public void sort(Comparator<? super CouleurWagon> comparateur) {
+    }
+
+    @Override
+    public Iterator<CouleurWagon> iterator() {
+        return new Iterator<>() {
+            private int couleur;
+            private int restants = nombres[0];
+            private int vus;
+            private boolean peutRetirer;
+
+            @Override
+            public boolean hasNext() {
+                return vus < taille;
+            }
+
+            @Override
+            public CouleurWagon next() {
+                if (vus >= taille) {
+                    throw new NoSuchElementException();
+                }
+                while (restants == 0) {
+                    couleur++;
+                    restants = nombres[couleur];
+                }
+                restants--;
+                vus++;
+                peutRetirer = true;
+                return COULEURS[couleur];
+            }
+
+            @Override
+            public void remove() {
+                if (!peutRetirer) {
+                    throw new IllegalStateException();
+                }
+                // la carte retirée est la dernière renvoyée, de la couleur courante
+                retirer(COULEURS[couleur]);
+                vus--;
+                peutRetirer = false;
+            }
+        };
+    }
+}
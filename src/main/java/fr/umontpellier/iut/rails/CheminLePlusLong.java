@@ -0,0 +1,409 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Arrays;
+
+/**
+ * Calcul du plus long chemin continu (bonus « Express européen ») dans un
+ * ensemble de routes : suite de routes qui se touchent, où une ville peut être
+ * traversée plusieurs fois mais où chaque route n'est parcourue qu'une fois.
+ * <p>
+ * Le problème est exponentiel dans le pire cas, mais le réseau d'un joueur a au
+ * plus 45 routes (une par wagon). Les routes sont numérotées de 0 à 63 et les
+ * routes déjà parcourues sont rangées dans les bits d'un {@code long}. La
+ * recherche en profondeur repose sur une borne calculée à partir des degrés des
+ * villes : un chemin qui part d'une ville peut parcourir toutes les routes
+ * encore accessibles si au plus une autre ville a un nombre impair de routes
+ * (chemin eulérien), et sinon il doit écarter au moins une route par ville de
+ * degré impair en trop. Cette borne sert à :
+ * <ul>
+ *     <li>terminer directement les chemins eulériens, sans les parcourir ;</li>
+ *     <li>ne partir que des villes de degré impair (les extrémités du plus long
+ *     chemin, sauf dans une composante eulérienne) ;</li>
+ *     <li>explorer d'abord les routes qui ont la meilleure borne, et élaguer
+ *     celles qui ne peuvent pas dépasser le meilleur chemin trouvé ;</li>
+ *     <li>arrêter la recherche dès qu'un chemin atteint la borne du départ.</li>
+ * </ul>
+ * La meilleure prolongation depuis une ville avec un ensemble donné de routes
+ * parcourues est aussi mémorisée (le même état est atteint en partant de
+ * chacune des deux extrémités d'un chemin).
+ * <p>
+ * Une instance réutilise ses tableaux d'un calcul à l'autre et ne doit pas être
+ * partagée entre plusieurs threads.
+ */
+public class CheminLePlusLong {
+    /**
+     * Nombre maximum de routes
+     */
+    public static final int MAX_ROUTES = Long.SIZE;
+    private static final int MAX_VILLES = 2 * MAX_ROUTES;
+    private static final int TAILLE_MEMO = 1 << 12;
+
+    private final int[] extremite1 = new int[MAX_ROUTES];
+    private final int[] extremite2 = new int[MAX_ROUTES];
+    private final int[] longueurs = new int[MAX_ROUTES];
+    /**
+     * Routes (bits) qui partent de chaque ville (numérotée localement)
+     */
+    private final long[] routesDe = new long[MAX_VILLES];
+    /**
+     * Numéro local de chaque ville (-1 si la ville n'a pas de route)
+     */
+    private int[] numerosLocaux = new int[0];
+    private final int[] villesLocales = new int[MAX_VILLES];
+    private int nbVilles;
+    /**
+     * Toutes les routes (un bit par route)
+     */
+    private long toutes;
+    private int longueurMin;
+
+    /**
+     * Structure union-find temporaire sur les villes de degré impair (-1 pour une
+     * ville qui n'y est pas), utilisée par {@link #majorerCouplage(long, long, long)}
+     */
+    private final int[] parentImpair = new int[MAX_VILLES];
+    private final int[] tailleImpair = new int[MAX_VILLES];
+    private final int[] villesImpaires = new int[MAX_VILLES];
+
+    /**
+     * Routes candidates pour prolonger le chemin, et leur valeur (longueur de la
+     * route plus borne de la suite), pour chaque nombre de routes parcourues
+     */
+    private final int[][] candidates = new int[MAX_ROUTES][MAX_ROUTES];
+    private final int[][] valeursCandidates = new int[MAX_ROUTES][MAX_ROUTES];
+
+    /**
+     * Table de mémorisation à adressage ouvert : clé (ville, routes parcourues),
+     * valeur la longueur de la meilleure prolongation
+     */
+    private final long[] memoRoutes = new long[TAILLE_MEMO];
+    private final int[] memoVilles = new int[TAILLE_MEMO];
+    private final int[] memoValeurs = new int[TAILLE_MEMO];
+    /**
+     * Cases occupées de la table (pour la vider sans la parcourir entièrement)
+     */
+    private final int[] memoCases = new int[TAILLE_MEMO];
+    private int memoTaille;
+
+    private int meilleur;
+    /**
+     * Aucun chemin ne peut dépasser cette longueur
+     */
+    private int borneMax;
+    /**
+     * Vrai si la dernière borne calculée est la longueur exacte de la meilleure
+     * prolongation (chemin eulérien)
+     */
+    private boolean exacte;
+    /**
+     * Vrai si une branche a été élaguée pendant l'exploration en cours (sa
+     * valeur n'est alors qu'une borne inférieure et n'est pas mémorisée)
+     */
+    private boolean elague;
+
+    public CheminLePlusLong() {
+        Arrays.fill(memoVilles, -1);
+        Arrays.fill(parentImpair, -1);
+    }
+
+    /**
+     * Calcule la longueur du plus long chemin continu formé par des routes
+     *
+     * @param nbRoutes nombre de routes (au plus {@link #MAX_ROUTES})
+     * @param villes1  première extrémité de chaque route (numéros de villes
+     *                 positifs quelconques)
+     * @param villes2  deuxième extrémité de chaque route
+     * @param longueur longueur de chaque route
+     * @return la somme des longueurs des routes du plus long chemin
+     */
+    public int calculer(int nbRoutes, int[] villes1, int[] villes2, int[] longueur) {
+        if (nbRoutes > MAX_ROUTES) {
+            throw new IllegalArgumentException("Trop de routes : " + nbRoutes);
+        }
+        preparer(nbRoutes, villes1, villes2, longueur);
+
+        // départs possibles, rangés par borne décroissante
+        meilleur = 0;
+        int[] departs = new int[nbVilles];
+        int[] bornesDeparts = new int[nbVilles];
+        int nbDeparts = 0;
+        for (int v = 0; v < nbVilles; v++) {
+            int borne = borne(v, 0L);
+            if (exacte) {
+                meilleur = Math.max(meilleur, borne);
+            } else if ((Long.bitCount(routesDe[v]) & 1) == 1) {
+                int i = nbDeparts++;
+                for (; i > 0 && bornesDeparts[i - 1] < borne; i--) {
+                    departs[i] = departs[i - 1];
+                    bornesDeparts[i] = bornesDeparts[i - 1];
+                }
+                departs[i] = v;
+                bornesDeparts[i] = borne;
+            }
+        }
+        borneMax = Math.max(meilleur, nbDeparts > 0 ? bornesDeparts[0] : 0);
+        for (int i = 0; i < nbDeparts && bornesDeparts[i] > meilleur; i++) {
+            elague = false;
+            prolonger(departs[i], 0L, 0);
+        }
+        return meilleur;
+    }
+
+    /**
+     * Calcule le plus long chemin continu formé par les routes d'un joueur sur
+     * un plateau
+     *
+     * @param graphe   graphe du plateau
+     * @param routes   numéros des routes du joueur
+     * @param nbRoutes nombre de numéros utilisés dans {@code routes}
+     */
+    public int calculer(GraphePlateau graphe, int[] routes, int nbRoutes) {
+        if (nbRoutes > MAX_ROUTES) {
+            throw new IllegalArgumentException("Trop de routes : " + nbRoutes);
+        }
+        int[] villes1 = new int[nbRoutes];
+        int[] villes2 = new int[nbRoutes];
+        int[] longueur = new int[nbRoutes];
+        for (int i = 0; i < nbRoutes; i++) {
+            villes1[i] = graphe.getVille1(routes[i]);
+            villes2[i] = graphe.getVille2(routes[i]);
+            longueur[i] = graphe.getLongueur(routes[i]);
+        }
+        return calculer(nbRoutes, villes1, villes2, longueur);
+    }
+
+    /**
+     * Renumérote les villes de 0 à nbVilles - 1 et remplit les tableaux des routes
+     */
+    private void preparer(int nbRoutes, int[] villes1, int[] villes2, int[] longueur) {
+        for (int i = 0; i < nbVilles; i++) {
+            numerosLocaux[villesLocales[i]] = -1;
+        }
+        nbVilles = 0;
+        Arrays.fill(routesDe, 0L);
+        toutes = nbRoutes == MAX_ROUTES ? -1L : (1L << nbRoutes) - 1;
+        longueurMin = Integer.MAX_VALUE;
+        for (int r = 0; r < nbRoutes; r++) {
+            extremite1[r] = numeroLocal(villes1[r]);
+            extremite2[r] = numeroLocal(villes2[r]);
+            longueurs[r] = longueur[r];
+            longueurMin = Math.min(longueurMin, longueur[r]);
+            routesDe[extremite1[r]] |= 1L << r;
+            routesDe[extremite2[r]] |= 1L << r;
+        }
+        for (int i = 0; i < memoTaille; i++) {
+            memoVilles[memoCases[i]] = -1;
+        }
+        memoTaille = 0;
+    }
+
+    private int numeroLocal(int ville) {
+        if (ville >= numerosLocaux.length) {
+            int ancienneTaille = numerosLocaux.length;
+            numerosLocaux = Arrays.copyOf(numerosLocaux, Math.max(ville + 1, 2 * ancienneTaille));
+            Arrays.fill(numerosLocaux, ancienneTaille, numerosLocaux.length, -1);
+        }
+        if (numerosLocaux[ville] < 0) {
+            numerosLocaux[ville] = nbVilles;
+            villesLocales[nbVilles] = ville;
+            nbVilles++;
+        }
+        return numerosLocaux[ville];
+    }
+
+    /**
+     * Majore la longueur de la meilleure prolongation d'un chemin arrivé dans
+     * une ville. Si la majoration est exacte (toutes les routes accessibles
+     * forment un chemin eulérien), {@link #exacte} est mis à vrai.
+     *
+     * @param ville      ville (numéro local) où se trouve l'extrémité du chemin
+     * @param parcourues routes déjà parcourues par le chemin
+     */
+    private int borne(int ville, long parcourues) {
+        // routes non parcourues que l'on peut encore atteindre depuis la ville
+        long libres = toutes & ~parcourues;
+        long accessibles = routesDe[ville] & libres;
+        long frontiere = accessibles;
+        while (frontiere != 0) {
+            int r = Long.numberOfTrailingZeros(frontiere);
+            frontiere &= frontiere - 1;
+            long nouvelles = (routesDe[extremite1[r]] | routesDe[extremite2[r]]) & libres & ~accessibles;
+            accessibles |= nouvelles;
+            frontiere |= nouvelles;
+        }
+        // longueur totale et villes de degré impair de ces routes (une ville par bit)
+        int total = 0;
+        long impairs0 = 0;
+        long impairs1 = 0;
+        for (long a = accessibles; a != 0; a &= a - 1) {
+            int r = Long.numberOfTrailingZeros(a);
+            total += longueurs[r];
+            int v1 = extremite1[r];
+            int v2 = extremite2[r];
+            if (v1 < Long.SIZE) impairs0 ^= 1L << v1; else impairs1 ^= 1L << (v1 - Long.SIZE);
+            if (v2 < Long.SIZE) impairs0 ^= 1L << v2; else impairs1 ^= 1L << (v2 - Long.SIZE);
+        }
+        int nbImpairs = Long.bitCount(impairs0) + Long.bitCount(impairs1);
+        boolean villeImpaire = estImpaire(ville, impairs0, impairs1);
+        exacte = nbImpairs == 0 || (nbImpairs == 2 && villeImpaire);
+        if (exacte) {
+            return total;
+        }
+        // Le chemin laisse au plus une autre ville de degré impair : chacune des
+        // autres doit avoir une route écartée. Une route écartée « corrige » au
+        // plus deux villes, et seulement si elle relie deux villes de degré
+        // impair (autres que la ville de départ).
+        int nbAutres = nbImpairs - (villeImpaire ? 1 : 0);
+        if (villeImpaire) {
+            if (ville < Long.SIZE) impairs0 ^= 1L << ville; else impairs1 ^= 1L << (ville - Long.SIZE);
+        }
+        int nbEcartees = Math.max(nbAutres / 2, nbAutres - majorerCouplage(accessibles, impairs0, impairs1) - 1);
+        return total - nbEcartees * longueurMin;
+    }
+
+    private static boolean estImpaire(int ville, long impairs0, long impairs1) {
+        return ((ville < Long.SIZE ? impairs0 >>> ville : impairs1 >>> (ville - Long.SIZE)) & 1) == 1;
+    }
+
+    /**
+     * Majore le nombre de routes sans extrémité commune qui relient deux villes
+     * de degré impair : dans chaque composante formée par ces routes, il y en a
+     * au plus la moitié du nombre de villes.
+     */
+    private int majorerCouplage(long routes, long impairs0, long impairs1) {
+        int nb = 0;
+        for (long a = routes; a != 0; a &= a - 1) {
+            int r = Long.numberOfTrailingZeros(a);
+            int v1 = extremite1[r];
+            int v2 = extremite2[r];
+            if (estImpaire(v1, impairs0, impairs1) && estImpaire(v2, impairs0, impairs1)) {
+                if (parentImpair[v1] < 0) {
+                    parentImpair[v1] = v1;
+                    tailleImpair[v1] = 1;
+                    villesImpaires[nb++] = v1;
+                }
+                if (parentImpair[v2] < 0) {
+                    parentImpair[v2] = v2;
+                    tailleImpair[v2] = 1;
+                    villesImpaires[nb++] = v2;
+                }
+                int c1 = racineImpaire(v1);
+                int c2 = racineImpaire(v2);
+                if (c1 != c2) {
+                    parentImpair[c2] = c1;
+                    tailleImpair[c1] += tailleImpair[c2];
+                }
+            }
+        }
+        int couplage = 0;
+        for (int i = 0; i < nb; i++) {
+            int v = villesImpaires[i];
+            if (parentImpair[v] == v) {
+                couplage += tailleImpair[v] / 2;
+            }
+        }
+        for (int i = 0; i < nb; i++) {
+            parentImpair[villesImpaires[i]] = -1;
+        }
+        return couplage;
+    }
+
+    private int racineImpaire(int ville) {
+        while (parentImpair[ville] != ville) {
+            ville = parentImpair[ville];
+        }
+        return ville;
+    }
+
+    /**
+     * Explore les prolongations d'un chemin arrivé dans une ville
+     *
+     * @param ville      ville (numéro local) où se trouve l'extrémité du chemin
+     * @param parcourues routes déjà parcourues par le chemin
+     * @param longueur   longueur du chemin
+     * @return la longueur de la meilleure prolongation trouvée
+     */
+    private int prolonger(int ville, long parcourues, int longueur) {
+        if (meilleur >= borneMax) {
+            elague = true;
+            return 0;
+        }
+        int memo = chercherMemo(ville, parcourues);
+        if (memo >= 0) {
+            meilleur = Math.max(meilleur, longueur + memo);
+            return memo;
+        }
+        boolean elagueAvant = elague;
+        elague = false;
+        int prolongation = 0;
+
+        // bornes des routes qui partent de la ville, les meilleures d'abord
+        int niveau = Long.bitCount(parcourues);
+        int[] routes = candidates[niveau];
+        int[] valeurs = valeursCandidates[niveau];
+        int nb = 0;
+        for (long a = routesDe[ville] & ~parcourues & toutes; a != 0; a &= a - 1) {
+            int r = Long.numberOfTrailingZeros(a);
+            int suivante = extremite1[r] == ville ? extremite2[r] : extremite1[r];
+            int valeur = longueurs[r] + borne(suivante, parcourues | (1L << r));
+            if (exacte) {
+                prolongation = Math.max(prolongation, valeur);
+                meilleur = Math.max(meilleur, longueur + valeur);
+                continue;
+            }
+            int i = nb++;
+            for (; i > 0 && valeurs[i - 1] < valeur; i--) {
+                routes[i] = routes[i - 1];
+                valeurs[i] = valeurs[i - 1];
+            }
+            routes[i] = r;
+            valeurs[i] = valeur;
+        }
+        for (int i = 0; i < nb; i++) {
+            if (longueur + valeurs[i] <= meilleur) {
+                // les suivantes ont une borne encore plus petite
+                elague = true;
+                break;
+            }
+            int r = routes[i];
+            int suivante = extremite1[r] == ville ? extremite2[r] : extremite1[r];
+            int l = longueurs[r];
+            prolongation = Math.max(prolongation, l + prolonger(suivante, parcourues | (1L << r), longueur + l));
+        }
+        meilleur = Math.max(meilleur, longueur + prolongation);
+        if (!elague) {
+            memoriser(ville, parcourues, prolongation);
+        }
+        elague |= elagueAvant;
+        return prolongation;
+    }
+
+    private int caseMemo(int ville, long parcourues) {
+        long h = (parcourues ^ (parcourues >>> 29) ^ ((long) ville * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> 40) & (TAILLE_MEMO - 1);
+    }
+
+    private int chercherMemo(int ville, long parcourues) {
+        for (int i = caseMemo(ville, parcourues); memoVilles[i] >= 0; i = (i + 1) & (TAILLE_MEMO - 1)) {
+            if (memoVilles[i] == ville && memoRoutes[i] == parcourues) {
+                return memoValeurs[i];
+            }
+        }
+        return -1;
+    }
+
+    private void memoriser(int ville, long parcourues, int valeur) {
+        // la table n'est remplie qu'aux trois quarts pour que les recherches restent courtes
+        if (memoTaille >= TAILLE_MEMO * 3 / 4) {
+            return;
+        }
+        int i = caseMemo(ville, parcourues);
+        while (memoVilles[i] >= 0) {
+            i = (i + 1) & (TAILLE_MEMO - 1);
+        }
+        memoVilles[i] = ville;
+        memoRoutes[i] = parcourues;
+        memoValeurs[i] = valeur;
+        memoCases[memoTaille++] = i;
+    }
+}
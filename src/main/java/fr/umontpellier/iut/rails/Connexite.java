@@ -0,0 +1,79 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Villes reliées entre elles par le réseau de routes d'un joueur, représentées
+ * par une structure union-find sur les numéros des villes
+ * ({@link Ville#getId()}).
+ * <p>
+ * Ajouter une route ou tester si deux villes sont reliées se fait en temps
+ * quasi constant. Une route ne peut pas être retirée : il faut reconstruire la
+ * structure.
+ */
+public class Connexite {
+    /**
+     * Parent de chaque ville dans sa composante (une ville qui est son propre
+     * parent est le représentant de sa composante)
+     */
+    private final int[] parent;
+    /**
+     * Majorant de la hauteur de l'arbre de chaque représentant
+     */
+    private final byte[] rang;
+
+    /**
+     * Crée une structure où aucune ville n'est reliée à une autre
+     */
+    public Connexite(int nbVilles) {
+        parent = new int[nbVilles];
+        rang = new byte[nbVilles];
+        for (int i = 0; i < nbVilles; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Crée une copie indépendante d'une structure
+     */
+    public Connexite(Connexite autre) {
+        parent = autre.parent.clone();
+        rang = autre.rang.clone();
+    }
+
+    /**
+     * @return le représentant de la composante de la ville
+     */
+    public int trouver(int ville) {
+        while (parent[ville] != ville) {
+            // compression de chemin par division par deux
+            parent[ville] = parent[parent[ville]];
+            ville = parent[ville];
+        }
+        return ville;
+    }
+
+    /**
+     * Relie deux villes (ajout d'une route entre elles)
+     */
+    public void unir(int ville1, int ville2) {
+        int a = trouver(ville1);
+        int b = trouver(ville2);
+        if (a == b) {
+            return;
+        }
+        if (rang[a] < rang[b]) {
+            parent[a] = b;
+        } else if (rang[a] > rang[b]) {
+            parent[b] = a;
+        } else {
+            parent[b] = a;
+            rang[a]++;
+        }
+    }
+
+    /**
+     * @return true si les deux villes sont reliées
+     */
+    public boolean connectees(int ville1, int ville2) {
+        return trouver(ville1) == trouver(ville2);
+    }
+}
@@ -51,7 +51,7 @@ public enum CouleurWagon {
     public static String listToString(List<CouleurWagon> liste) {
         StringJoiner joiner = new StringJoiner(", ");
         for (CouleurWagon c : CouleurWagon.values()) {
-            int count = Collections.frequency(liste, c);
+            int count = liste instanceof CartesWagon cartes ? cartes.compter(c) : Collections.frequency(liste, c);
             if (count == 1) {
                 joiner.add(c.toString());
             } else if (count > 1) {
@@ -64,7 +64,7 @@ public enum CouleurWagon {
     public static String listToLog(List<CouleurWagon> liste) {
         StringJoiner joiner = new StringJoiner(", ");
         for (CouleurWagon c : CouleurWagon.values()) {
-            int count = Collections.frequency(liste, c);
+            int count = liste instanceof CartesWagon cartes ? cartes.compter(c) : Collections.frequency(liste, c);
             if (count == 1) {
                 joiner.add(c.toLog());
             } else if (count > 1) {
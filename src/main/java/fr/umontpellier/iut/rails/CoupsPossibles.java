@@ -0,0 +1,223 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Coups qu'un joueur peut jouer au début de son tour (routes qu'il peut
+ * capturer, villes où construire une gare, cartes visibles à prendre), tenus à
+ * jour pour que {@link Joueur#jouerTour()} n'ait pas à examiner tout le plateau
+ * à chaque tour.
+ * <p>
+ * L'index n'est modifié que par les événements qui le concernent : changement
+ * de propriétaire d'une route ({@link #routeChangee(int)}) ou d'une ville
+ * ({@link #villeChangee()}). Les résultats qui dépendent d'un ensemble de cartes
+ * (main d'un joueur, cartes visibles) sont recalculés lorsque la version de cet
+ * ensemble change (voir {@link CartesWagon#getVersion()}).
+ * <p>
+ * Une route (hors ferry) de couleur c et de longueur l peut être capturée si le
+ * joueur a au moins l cartes c et locomotives, une route grise si c'est le cas
+ * pour sa couleur la plus nombreuse. Les routes sont donc rangées dans des
+ * ensembles de bits par couleur et par longueur maximale : les routes
+ * capturables avec une main sont l'union d'un ensemble par couleur, restreinte
+ * aux routes encore ouvertes. Les quelques ferries sont examinés un par un.
+ */
+public class CoupsPossibles {
+    private final GraphePlateau graphe;
+    private final List<Route> routes;
+    private final List<Ville> villes;
+    /**
+     * Cartes wagon face visible du jeu
+     */
+    private final CartesWagon visibles;
+    private final int nbJoueurs;
+    /**
+     * Nombre de {@code long} des ensembles de routes
+     */
+    private final int nbMots;
+    private final int longueurMax;
+    /**
+     * {@code masques[c][l]} : routes (hors ferries) de couleur d'ordinal c et de
+     * longueur au plus l
+     */
+    private final long[][][] masques;
+    private final int[] ferries;
+    /**
+     * Routes qui peuvent encore être capturées (libres, et qui ne sont pas la
+     * seconde route d'une route double fermée)
+     */
+    private final long[] ouvertes;
+    /**
+     * Incrémenté à chaque changement des routes ouvertes
+     */
+    private int versionRoutes;
+    /**
+     * Noms des villes sans gare (null s'ils doivent être recalculés)
+     */
+    private List<String> villesLibres;
+    private List<String> couleursVisibles;
+    private int versionVisibles = -1;
+
+    public CoupsPossibles(GraphePlateau graphe, List<Route> routes, List<Ville> villes, CartesWagon visibles,
+                          int nbJoueurs) {
+        this.graphe = graphe;
+        this.routes = routes;
+        this.villes = villes;
+        this.visibles = visibles;
+        this.nbJoueurs = nbJoueurs;
+        int nbRoutes = graphe.getNbRoutes();
+        nbMots = (nbRoutes + 63) / 64;
+        int max = 0;
+        int nbFerries = 0;
+        for (int r = 0; r < nbRoutes; r++) {
+            max = Math.max(max, graphe.getLongueur(r));
+            if (graphe.estFerry(r)) {
+                nbFerries++;
+            }
+        }
+        longueurMax = max;
+        masques = new long[CouleurWagon.values().length][longueurMax + 1][nbMots];
+        ferries = new int[nbFerries];
+        nbFerries = 0;
+        for (int r = 0; r < nbRoutes; r++) {
+            if (graphe.estFerry(r)) {
+                ferries[nbFerries++] = r;
+                continue;
+            }
+            long[][] parLongueur = masques[graphe.getCouleur(r).ordinal()];
+            for (int l = graphe.getLongueur(r); l <= longueurMax; l++) {
+                parLongueur[l][r >> 6] |= 1L << r;
+            }
+        }
+        ouvertes = new long[nbMots];
+        for (int r = 0; r < nbRoutes; r++) {
+            mettreAJour(r);
+        }
+    }
+
+    /**
+     * Met à jour les routes ouvertes après le changement de propriétaire d'une
+     * route (et de l'autre route si elle est double)
+     */
+    public void routeChangee(int route) {
+        mettreAJour(route);
+        int autre = graphe.getRouteDouble(route);
+        if (autre >= 0) {
+            mettreAJour(autre);
+        }
+        versionRoutes++;
+    }
+
+    private void mettreAJour(int route) {
+        if (estOuverte(route)) {
+            ouvertes[route >> 6] |= 1L << route;
+        } else {
+            ouvertes[route >> 6] &= ~(1L << route);
+        }
+    }
+
+    /**
+     * Mêmes conditions que {@link Route#valide(Joueur)} et
+     * {@link Ferry#valide(Joueur)} pour le plateau : à moins de 4 joueurs, une
+     * route double (hors ferry) se ferme dès que l'une des deux est prise
+     */
+    private boolean estOuverte(int route) {
+        if (routes.get(route).getProprietaire() != null) {
+            return false;
+        }
+        int autre = graphe.getRouteDouble(route);
+        return graphe.estFerry(route) || autre < 0 || nbJoueurs >= 4 || routes.get(autre).getProprietaire() == null;
+    }
+
+    /**
+     * @return un nombre qui change chaque fois que les routes ouvertes changent
+     */
+    public int getVersionRoutes() {
+        return versionRoutes;
+    }
+
+    /**
+     * @return les noms des routes qui peuvent être capturées avec une main, dans
+     * l'ordre des routes du plateau
+     */
+    public List<String> routesCapturables(CartesWagon main) {
+        long[] capturables = new long[nbMots];
+        int nbLocomotives = main.compter(CouleurWagon.LOCOMOTIVE);
+        int maxCouleur = 0;
+        for (CouleurWagon couleur : CouleurWagon.getCouleursSimples()) {
+            int nb = main.compter(couleur);
+            maxCouleur = Math.max(maxCouleur, nb);
+            ajouterMasque(capturables, couleur, nb + nbLocomotives);
+        }
+        ajouterMasque(capturables, CouleurWagon.GRIS, maxCouleur + nbLocomotives);
+        // un ferry se paie avec ses locomotives et au moins une carte d'une couleur
+        for (int route : ferries) {
+            if (maxCouleur > 0 && nbLocomotives >= graphe.getNbLocomotives(route)
+                    && maxCouleur + nbLocomotives >= graphe.getLongueur(route)) {
+                capturables[route >> 6] |= 1L << route;
+            }
+        }
+        List<String> noms = new ArrayList<>();
+        for (int m = 0; m < nbMots; m++) {
+            long mot = capturables[m] & ouvertes[m];
+            while (mot != 0) {
+                noms.add(routes.get((m << 6) + Long.numberOfTrailingZeros(mot)).getNom());
+                mot &= mot - 1;
+            }
+        }
+        return noms;
+    }
+
+    private void ajouterMasque(long[] capturables, CouleurWagon couleur, int longueur) {
+        long[] masque = masques[couleur.ordinal()][Math.min(longueur, longueurMax)];
+        for (int m = 0; m < nbMots; m++) {
+            capturables[m] |= masque[m];
+        }
+    }
+
+    /**
+     * Indique que le propriétaire d'une ville a changé
+     */
+    public void villeChangee() {
+        villesLibres = null;
+    }
+
+    /**
+     * @return les noms des villes sans gare, dans l'ordre des villes du plateau
+     * (liste non modifiable)
+     */
+    public List<String> villesLibres() {
+        if (villesLibres == null) {
+            List<String> noms = new ArrayList<>();
+            for (Ville ville : villes) {
+                if (ville.getProprietaire() == null) {
+                    noms.add(ville.getNom());
+                }
+            }
+            villesLibres = Collections.unmodifiableList(noms);
+        }
+        return villesLibres;
+    }
+
+    /**
+     * @return les noms des couleurs des cartes visibles (couleurs simples puis
+     * LOCOMOTIVE, chacune une seule fois ; liste non modifiable)
+     */
+    public List<String> couleursVisibles() {
+        if (couleursVisibles == null || versionVisibles != visibles.getVersion()) {
+            List<String> noms = new ArrayList<>();
+            for (CouleurWagon couleur : CouleurWagon.getCouleursSimples()) {
+                if (visibles.compter(couleur) > 0) {
+                    noms.add(couleur.name());
+                }
+            }
+            if (visibles.compter(CouleurWagon.LOCOMOTIVE) > 0) {
+                noms.add(CouleurWagon.LOCOMOTIVE.name());
+            }
+            couleursVisibles = Collections.unmodifiableList(noms);
+            versionVisibles = visibles.getVersion();
+        }
+        return couleursVisibles;
+    }
+}
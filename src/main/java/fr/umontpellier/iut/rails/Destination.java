@@ -29,6 +29,18 @@ public class Destination {
         return getNom();
     }
 
+    public String getVille1() {
+        return ville1;
+    }
+
+    public String getVille2() {
+        return ville2;
+    }
+
+    public int getValeur() {
+        return valeur;
+    }
+
     public String getNom() {
         return String.format("%s - %s (%d)", ville1, ville2, valeur);
     }
@@ -56,7 +68,7 @@ public class Destination {
         destinations.add(new Destination("Zurich", "Budapest", 6));
         destinations.add(new Destination("Warszawa", "Smolensk", 6));
         destinations.add(new Destination("Zagrab", "Brindisi", 6));
-        destinations.add(new Destination("Paris", "Zagreb", 7));
+        destinations.add(new Destination("Paris", "Zagrab", 7));
         destinations.add(new Destination("Brest", "Marseille", 7));
         destinations.add(new Destination("London", "Berlin", 7));
         destinations.add(new Destination("Edinburgh", "Paris", 7));
@@ -74,12 +86,12 @@ public class Destination {
         destinations.add(new Destination("Kyiv", "Sochi", 8));
         destinations.add(new Destination("Madrid", "Zurich", 8));
         destinations.add(new Destination("Berlin", "Bucuresti", 8));
-        destinations.add(new Destination("Bruxelles", "Danzic", 9));
+        destinations.add(new Destination("Bruxelles", "Danzig", 9));
         destinations.add(new Destination("Berlin", "Roma", 9));
         destinations.add(new Destination("Angora", "Kharkov", 10));
         destinations.add(new Destination("Riga", "Bucuresti", 10));
         destinations.add(new Destination("Essen", "Kyiv", 10));
-        destinations.add(new Destination("Venizia", "Constantinople", 10));
+        destinations.add(new Destination("Venezia", "Constantinople", 10));
         destinations.add(new Destination("London", "Wien", 10));
         destinations.add(new Destination("Athina", "Wilno", 11));
         destinations.add(new Destination("Stockholm", "Wien", 11));
@@ -94,7 +106,7 @@ public class Destination {
      */
     public static ArrayList<Destination> makeDestinationsLonguesEurope() {
         ArrayList<Destination> destinations = new ArrayList<>();
-        destinations.add(new Destination("Lisboa", "Danzic", 20));
+        destinations.add(new Destination("Lisboa", "Danzig", 20));
         destinations.add(new Destination("Brest", "Petrograd", 20));
         destinations.add(new Destination("Palermo", "Moskva", 20));
         destinations.add(new Destination("Kobenhavn", "Erzurum", 21));
@@ -0,0 +1,88 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Arrays;
+
+/**
+ * Table des plus courtes distances entre toutes les paires de villes d'un
+ * plateau, en nombre de wagons, lorsqu'aucune route n'est capturée (algorithme
+ * de Floyd-Warshall).
+ * <p>
+ * La table est immuable et peut être partagée par toutes les parties (voir
+ * {@link #europe()}). Elle sert de point de départ aux distances propres à
+ * chaque joueur ({@link DistancesJoueur}).
+ */
+public final class Distances {
+    /**
+     * Distance entre deux villes qui ne peuvent pas être reliées (assez petite
+     * pour que la somme de trois distances ne déborde pas)
+     */
+    public static final int INFINI = Integer.MAX_VALUE / 4;
+
+    private final int nbVilles;
+    /**
+     * Distance de la ville i à la ville j dans la case {@code i * nbVilles + j}
+     */
+    private final int[] distances;
+
+    public Distances(GraphePlateau graphe) {
+        nbVilles = graphe.getNbVilles();
+        distances = new int[nbVilles * nbVilles];
+        Arrays.fill(distances, INFINI);
+        for (int v = 0; v < nbVilles; v++) {
+            distances[v * nbVilles + v] = 0;
+        }
+        for (int r = 0; r < graphe.getNbRoutes(); r++) {
+            int a = graphe.getVille1(r);
+            int b = graphe.getVille2(r);
+            int longueur = Math.min(graphe.getLongueur(r), distances[a * nbVilles + b]);
+            distances[a * nbVilles + b] = longueur;
+            distances[b * nbVilles + a] = longueur;
+        }
+        for (int k = 0; k < nbVilles; k++) {
+            int ligneK = k * nbVilles;
+            for (int i = 0; i < nbVilles; i++) {
+                int ik = distances[i * nbVilles + k];
+                if (ik == INFINI) {
+                    continue;
+                }
+                int ligneI = i * nbVilles;
+                for (int j = 0; j < nbVilles; j++) {
+                    int d = ik + distances[ligneK + j];
+                    if (d < distances[ligneI + j]) {
+                        distances[ligneI + j] = d;
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Europe {
+        private static final Distances DISTANCES = new Distances(GraphePlateau.europe());
+    }
+
+    /**
+     * @return les distances du plateau Europe, partagées par toutes les parties
+     */
+    public static Distances europe() {
+        return Europe.DISTANCES;
+    }
+
+    public int getNbVilles() {
+        return nbVilles;
+    }
+
+    /**
+     * @return le nombre minimum de wagons pour relier deux villes (numéros sur
+     * le plateau), ou {@link #INFINI} si elles ne peuvent pas être reliées
+     */
+    public int distance(int ville1, int ville2) {
+        return distances[ville1 * nbVilles + ville2];
+    }
+
+    /**
+     * Copie la table dans un tableau (même disposition que la table)
+     */
+    void copierDans(int[] destination) {
+        System.arraycopy(distances, 0, destination, 0, distances.length);
+    }
+}
@@ -0,0 +1,256 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Plus courtes distances entre toutes les paires de villes pour un joueur : ses
+ * propres routes ne coûtent rien, les routes qu'il ne peut plus capturer
+ * (prises par un adversaire) sont infranchissables et les autres coûtent leur
+ * longueur en wagons.
+ * <p>
+ * La table part des distances du plateau vide ({@link Distances}) et est mise à
+ * jour à chaque changement du coût d'une route ({@link #changerCout(int, int)}) :
+ * <ul>
+ *     <li>une route qui devient moins chère peut raccourcir n'importe quel
+ *     chemin, ce qui se vérifie en une passe sur la table ;</li>
+ *     <li>une route qui devient plus chère ne change que les distances entre
+ *     deux villes dont un plus court chemin l'empruntait : seules ces distances
+ *     sont recalculées (algorithme de Dijkstra limité à ces villes, à partir
+ *     des distances inchangées).</li>
+ * </ul>
+ */
+public class DistancesJoueur {
+    private final GraphePlateau graphe;
+    private final int nbVilles;
+    /**
+     * Distance de la ville i à la ville j dans la case {@code i * nbVilles + j}
+     */
+    private final int[] distances;
+    /**
+     * Coût de chaque route pour le joueur ({@link Distances#INFINI} si elle est
+     * infranchissable)
+     */
+    private final int[] couts;
+    /**
+     * Coût de chaque route après application des changements en attente
+     */
+    private final int[] nouveauxCouts;
+    /**
+     * Routes dont le coût a changé depuis la dernière consultation
+     */
+    private final int[] enAttente;
+    private final boolean[] estEnAttente;
+    private int nbEnAttente;
+
+    // tableaux de travail du recalcul des distances
+    private final int[] lignesARecalculer;
+    /**
+     * Distances à recalculer (même disposition que la table)
+     */
+    private final boolean[] aRecalculer;
+    private final int[] villesARecalculer;
+
+    /**
+     * Crée la table d'un joueur qui n'a encore aucune route, sur un plateau où
+     * aucune route n'est capturée
+     */
+    public DistancesJoueur(GraphePlateau graphe, Distances depart) {
+        this.graphe = graphe;
+        nbVilles = graphe.getNbVilles();
+        distances = new int[nbVilles * nbVilles];
+        depart.copierDans(distances);
+        couts = new int[graphe.getNbRoutes()];
+        for (int r = 0; r < couts.length; r++) {
+            couts[r] = graphe.getLongueur(r);
+        }
+        nouveauxCouts = couts.clone();
+        enAttente = new int[couts.length];
+        estEnAttente = new boolean[couts.length];
+        lignesARecalculer = new int[nbVilles];
+        aRecalculer = new boolean[nbVilles * nbVilles];
+        villesARecalculer = new int[nbVilles];
+    }
+
+    /**
+     * @return le nombre minimum de wagons que le joueur doit encore poser pour
+     * relier deux villes, ou {@link Distances#INFINI} si c'est impossible
+     */
+    public int distance(int ville1, int ville2) {
+        if (nbEnAttente > 0) {
+            appliquerChangements();
+        }
+        return distances[ville1 * nbVilles + ville2];
+    }
+
+    public int getCout(int route) {
+        return nouveauxCouts[route];
+    }
+
+    /**
+     * Change le coût d'une route pour le joueur (les distances sont mises à jour
+     * à la prochaine consultation)
+     *
+     * @param route numéro de la route
+     * @param cout  nouveau coût (0 pour une route du joueur,
+     *              {@link Distances#INFINI} pour une route infranchissable)
+     */
+    public void changerCout(int route, int cout) {
+        nouveauxCouts[route] = cout;
+        if (!estEnAttente[route]) {
+            estEnAttente[route] = true;
+            enAttente[nbEnAttente++] = route;
+        }
+    }
+
+    private void appliquerChangements() {
+        for (int i = 0; i < nbEnAttente; i++) {
+            int route = enAttente[i];
+            estEnAttente[route] = false;
+            appliquerCout(route, nouveauxCouts[route]);
+        }
+        nbEnAttente = 0;
+    }
+
+    private void appliquerCout(int route, int cout) {
+        int a = graphe.getVille1(route);
+        int b = graphe.getVille2(route);
+        int avant = poids(route);
+        couts[route] = cout;
+        int apres = poids(route);
+        if (apres < avant) {
+            diminuer(a, b, apres);
+        } else if (apres > avant) {
+            augmenter(a, b, avant);
+        }
+    }
+
+    /**
+     * @return le coût de la liaison directe entre les extrémités de la route (la
+     * moins chère des deux routes d'une route double)
+     */
+    private int poids(int route) {
+        int autre = graphe.getRouteDouble(route);
+        return autre < 0 ? couts[route] : Math.min(couts[route], couts[autre]);
+    }
+
+    private void diminuer(int a, int b, int poids) {
+        int ligneA = a * nbVilles;
+        int ligneB = b * nbVilles;
+        for (int i = 0; i < nbVilles; i++) {
+            int ligneI = i * nbVilles;
+            // chemins i -> a -> b -> j et i -> b -> a -> j
+            int viaA = distances[ligneI + a] + poids;
+            int viaB = distances[ligneI + b] + poids;
+            if (viaA >= distances[ligneI + b] && viaB >= distances[ligneI + a]) {
+                continue;
+            }
+            for (int j = 0; j < nbVilles; j++) {
+                int d = Math.min(viaA + distances[ligneB + j], viaB + distances[ligneA + j]);
+                if (d < distances[ligneI + j]) {
+                    distances[ligneI + j] = d;
+                }
+            }
+        }
+    }
+
+    private void augmenter(int a, int b, int ancienPoids) {
+        // repérage (avec les anciennes distances) des distances qui empruntaient la liaison
+        int nb = 0;
+        for (int i = 0; i < nbVilles; i++) {
+            int ligneI = i * nbVilles;
+            int da = distances[ligneI + a];
+            int db = distances[ligneI + b];
+            if (da >= Distances.INFINI) {
+                continue;
+            }
+            // la ligne ne change que si la liaison était le seul accès à l'une des extrémités
+            boolean versB = da + ancienPoids == db && !autreAcces(ligneI, b, a);
+            boolean versA = db + ancienPoids == da && !autreAcces(ligneI, a, b);
+            if (!versB && !versA) {
+                continue;
+            }
+            lignesARecalculer[nb++] = i;
+            for (int j = 0; j < nbVilles; j++) {
+                int d = distances[ligneI + j];
+                aRecalculer[ligneI + j] = j != i
+                        && ((versB && db + distances[b * nbVilles + j] == d)
+                        || (versA && da + distances[a * nbVilles + j] == d));
+            }
+        }
+        for (int k = 0; k < nb; k++) {
+            recalculerLigne(lignesARecalculer[k]);
+        }
+    }
+
+    /**
+     * Indique si, depuis la ville dont la ligne commence à {@code ligneI}, la
+     * ville {@code y} est atteinte au plus court par une autre liaison que celle
+     * qui vient de {@code x}, à partir d'une ville strictement plus proche (dont
+     * les plus courts chemins ne peuvent donc pas passer par {@code y}). Les
+     * distances de la ligne ne changent alors pas.
+     */
+    private boolean autreAcces(int ligneI, int y, int x) {
+        int dy = distances[ligneI + y];
+        for (int i = graphe.debutVoisins(y); i < graphe.finVoisins(y); i++) {
+            int u = graphe.voisin(i);
+            int cout = couts[graphe.routeVoisine(i)];
+            if (u != x && cout < Distances.INFINI) {
+                int du = distances[ligneI + u];
+                if (du < dy && du + cout == dy) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recalcule les distances marquées d'une ligne : chaque ville à recalculer
+     * part de la meilleure distance par une voisine dont la distance n'a pas
+     * changé, puis l'algorithme de Dijkstra (sur un tableau, il y a peu de
+     * villes) est appliqué entre les villes à recalculer. Les distances sont
+     * recopiées dans la colonne correspondante.
+     */
+    private void recalculerLigne(int source) {
+        int ligneSource = source * nbVilles;
+        int nb = 0;
+        for (int v = 0; v < nbVilles; v++) {
+            if (aRecalculer[ligneSource + v]) {
+                villesARecalculer[nb++] = v;
+                distances[ligneSource + v] = Distances.INFINI;
+            }
+        }
+        for (int k = 0; k < nb; k++) {
+            int v = villesARecalculer[k];
+            for (int i = graphe.debutVoisins(v); i < graphe.finVoisins(v); i++) {
+                int u = graphe.voisin(i);
+                int cout = couts[graphe.routeVoisine(i)];
+                if (!aRecalculer[ligneSource + u] && cout < Distances.INFINI) {
+                    distances[ligneSource + v] = Math.min(distances[ligneSource + v], distances[ligneSource + u] + cout);
+                }
+            }
+        }
+        while (nb > 0) {
+            // la ville la plus proche parmi celles qui restent est fixée
+            int meilleure = 0;
+            for (int k = 1; k < nb; k++) {
+                if (distances[ligneSource + villesARecalculer[k]] < distances[ligneSource + villesARecalculer[meilleure]]) {
+                    meilleure = k;
+                }
+            }
+            int u = villesARecalculer[meilleure];
+            villesARecalculer[meilleure] = villesARecalculer[--nb];
+            aRecalculer[ligneSource + u] = false;
+            int du = distances[ligneSource + u];
+            distances[u * nbVilles + source] = du;
+            if (du >= Distances.INFINI) {
+                continue;
+            }
+            for (int i = graphe.debutVoisins(u); i < graphe.finVoisins(u); i++) {
+                int v = graphe.voisin(i);
+                int cout = couts[graphe.routeVoisine(i)];
+                if (aRecalculer[ligneSource + v] && cout < Distances.INFINI && du + cout < distances[ligneSource + v]) {
+                    distances[ligneSource + v] = du + cout;
+                }
+            }
+        }
+    }
+}
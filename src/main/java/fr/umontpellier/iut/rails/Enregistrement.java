@@ -0,0 +1,93 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tout ce qu'il faut pour rejouer exactement une partie : les noms des joueurs,
+ * la graine qui détermine tous les mélanges et la suite des choix faits par les
+ * joueurs (voir {@link Jeu#rejouer(Enregistrement)}).
+ *
+ * @param nomJoueurs noms des joueurs, dans l'ordre de la partie
+ * @param graine     graine du générateur aléatoire de la partie
+ * @param entrees    choix valides des joueurs, dans l'ordre où ils ont été faits
+ */
+public record Enregistrement(List<String> nomJoueurs, long graine, List<String> entrees) {
+
+    public Enregistrement {
+        nomJoueurs = List.copyOf(nomJoueurs);
+        entrees = List.copyOf(entrees);
+    }
+
+    /**
+     * @return l'enregistrement au format JSON
+     * ({@code {"nomJoueurs": [...], "graine": ..., "entrees": [...]}})
+     */
+    public String toJson() {
+        StringWriter texte = new StringWriter();
+        try (JsonWriter out = new JsonWriter(texte)) {
+            out.beginObject();
+            ecrireChaines(out.name("nomJoueurs"), nomJoueurs);
+            out.name("graine").value(graine);
+            ecrireChaines(out.name("entrees"), entrees);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return texte.toString();
+    }
+
+    /**
+     * Relit un enregistrement écrit par {@link #toJson()}
+     *
+     * @throws IllegalArgumentException si le texte n'est pas un enregistrement valide
+     */
+    public static Enregistrement depuisJson(String json) {
+        List<String> nomJoueurs = null;
+        List<String> entrees = null;
+        Long graine = null;
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "nomJoueurs" -> nomJoueurs = lireChaines(in);
+                    case "graine" -> graine = in.nextLong();
+                    case "entrees" -> entrees = lireChaines(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Enregistrement invalide", e);
+        }
+        if (nomJoueurs == null || graine == null || entrees == null) {
+            throw new IllegalArgumentException("Enregistrement incomplet");
+        }
+        return new Enregistrement(nomJoueurs, graine, entrees);
+    }
+
+    private static void ecrireChaines(JsonWriter out, List<String> chaines) throws IOException {
+        out.beginArray();
+        for (String chaine : chaines) {
+            out.value(chaine);
+        }
+        out.endArray();
+    }
+
+    private static List<String> lireChaines(JsonReader in) throws IOException {
+        List<String> chaines = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            chaines.add(in.nextString());
+        }
+        in.endArray();
+        return chaines;
+    }
+}
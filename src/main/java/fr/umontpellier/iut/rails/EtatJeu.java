@@ -0,0 +1,969 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * État compact d'une partie, pour les joueurs automatiques qui explorent les
+ * coups à venir : tout l'état est rangé dans quelques petits tableaux d'entiers
+ * (cartes, propriétaires, scores, wagons et gares), si bien qu'une copie
+ * ({@link #copier()}) ne coûte que quelques copies de tableaux.
+ * <p>
+ * Un état est construit à partir d'un {@link Jeu} au début du tour de son
+ * joueur courant, et peut être appliqué à un jeu ({@link #appliquer(Jeu)}).
+ * Les coups sont des entiers (voir {@link #coupsPossibles(int[])}) :
+ * {@link #jouer(int)} applique un coup et {@link #annuler()} le défait. Chaque
+ * valeur modifiée par un coup est notée (avec son ancienne valeur) dans une
+ * trace, qui est relue à l'envers pour annuler le coup.
+ * <p>
+ * Les règles sont celles de {@link Joueur#jouerTour()}, avec quelques
+ * simplifications : le paiement d'une route ou d'une gare est choisi en un seul
+ * coup (couleur et nombre de locomotives), un tunnel ne demande jamais de
+ * cartes supplémentaires, les destinations ne sont pas piochées en cours de
+ * partie et les gares ne sont pas prises en compte dans le score des
+ * destinations. La fin de partie suit la règle du jeu : lorsqu'un joueur finit
+ * son tour avec au plus {@link #NB_WAGONS_FIN} wagons, chaque joueur (lui
+ * compris) joue un dernier tour. La partie s'arrête aussi si tous les joueurs
+ * passent leur tour à la suite.
+ */
+public final class EtatJeu {
+    private static final CouleurWagon[] COULEURS = CouleurWagon.values();
+    private static final int NB_COULEURS = COULEURS.length;
+    private static final int NB_COULEURS_SIMPLES = CouleurWagon.getCouleursSimples().size();
+    private static final int GRIS = CouleurWagon.GRIS.ordinal();
+    private static final int LOCOMOTIVE = CouleurWagon.LOCOMOTIVE.ordinal();
+    /**
+     * Nombre total de cartes wagon (12 de chaque couleur simple et 14 locomotives)
+     */
+    private static final int NB_CARTES = 12 * NB_COULEURS_SIMPLES + 14;
+    private static final int NB_VISIBLES = 5;
+    public static final int NB_WAGONS_FIN = 2;
+
+    /**
+     * Types de coups (voir {@link #type(int)})
+     */
+    public static final int PASSER = 0;
+    public static final int PIOCHE = 1;
+    public static final int VISIBLE = 2;
+    public static final int ROUTE = 3;
+    public static final int GARE = 4;
+
+    /**
+     * Positions dans {@code scalaires}
+     */
+    private static final int JOUEUR_COURANT = 0;
+    /**
+     * Nombre de cartes déjà piochées pendant le tour (0 ou 1)
+     */
+    private static final int CARTES_PIOCHEES = 1;
+    private static final int TAILLE_PIOCHE = 2;
+    private static final int NB_TOURS = 3;
+    /**
+     * Joueur dont le prochain tour est le dernier de la partie (-1 si la fin
+     * n'est pas encore annoncée)
+     */
+    private static final int DERNIER_JOUEUR = 4;
+    private static final int TERMINEE = 5;
+    private static final int NB_PASSES = 6;
+    /**
+     * État du générateur aléatoire (xorshift) des mélanges de la défausse
+     */
+    private static final int ALEA = 7;
+    private static final int NB_SCALAIRES = 8;
+
+    /**
+     * Positions dans {@code cartes} : cartes visibles, défausse, puis main de chaque joueur
+     */
+    private static final int VISIBLES = 0;
+    private static final int DEFAUSSE = NB_COULEURS;
+    private static final int MAINS = 2 * NB_COULEURS;
+
+    /**
+     * Positions dans {@code joueurs} (3 cases par joueur)
+     */
+    private static final int SCORE = 0;
+    private static final int WAGONS = 1;
+    private static final int GARES = 2;
+
+    /**
+     * Tableaux désignés dans la trace
+     */
+    private static final int T_SCALAIRES = 0;
+    private static final int T_CARTES = 1;
+    private static final int T_JOUEURS = 2;
+    private static final int T_PIOCHE = 3;
+    private static final int T_PROPRIETAIRES = 4;
+
+    private final GraphePlateau graphe;
+    private final int nbJoueurs;
+    private final int[] scalaires;
+    /**
+     * Nombre de cartes de chaque couleur (indexé par {@link CouleurWagon#ordinal()})
+     * des cartes visibles, de la défausse et de la main de chaque joueur
+     */
+    private final int[] cartes;
+    private final int[] joueurs;
+    /**
+     * Cartes de la pioche (ordinaux), la carte du dessus en dernier
+     */
+    private final byte[] pioche;
+    /**
+     * Propriétaire (position du joueur plus 1, 0 si aucun) de chaque route, puis
+     * de chaque ville
+     */
+    private final byte[] proprietaires;
+    /**
+     * Destinations de chaque joueur (ensemble de positions dans le catalogue).
+     * Les coups ne les modifient pas : le tableau est partagé par les copies (et
+     * remplacé par {@link #determiniser(int, SplittableRandom)}).
+     */
+    private long[] destinations;
+    /**
+     * Pile des destinations (positions dans le catalogue, la première en
+     * premier), partagée par les copies
+     */
+    private byte[] pileDestinations;
+    /**
+     * Valeurs modifiées par les coups joués (tableau, position et ancienne valeur)
+     */
+    private long[] trace;
+    private int tailleTrace;
+    /**
+     * Position dans la trace du début de chaque coup joué et non annulé
+     */
+    private int[] debutsCoups;
+    private int nbCoups;
+
+    /**
+     * Construit l'état d'un jeu au début du tour de son joueur courant
+     */
+    public EtatJeu(Jeu jeu) {
+        this(jeu, false);
+    }
+
+    /**
+     * Construit l'état d'un jeu pendant le tour de son joueur courant
+     *
+     * @param cartePiochee indique si le joueur courant a déjà pioché une carte
+     *                     pendant ce tour (il doit alors choisir une seconde carte)
+     */
+    public EtatJeu(Jeu jeu, boolean cartePiochee) {
+        graphe = jeu.getGraphe();
+        List<Joueur> liste = jeu.getJoueurs();
+        nbJoueurs = liste.size();
+        scalaires = new int[NB_SCALAIRES];
+        scalaires[JOUEUR_COURANT] = liste.indexOf(jeu.getJoueurCourant());
+        scalaires[NB_TOURS] = jeu.getNbTours();
+        scalaires[DERNIER_JOUEUR] = -1;
+        scalaires[CARTES_PIOCHEES] = cartePiochee ? 1 : 0;
+        scalaires[ALEA] = (int) jeu.getGraine() | 1;
+
+        cartes = new int[MAINS + nbJoueurs * NB_COULEURS];
+        compter(jeu.getCartesWagonVisibles(), VISIBLES);
+        compter(jeu.getDefausseCartesWagon(), DEFAUSSE);
+
+        joueurs = new int[3 * nbJoueurs];
+        destinations = new long[nbJoueurs];
+        for (int j = 0; j < nbJoueurs; j++) {
+            Joueur joueur = liste.get(j);
+            compter(joueur.getCartesWagon(), MAINS + j * NB_COULEURS);
+            joueurs[3 * j + SCORE] = joueur.getScore();
+            joueurs[3 * j + WAGONS] = joueur.getNbWagons();
+            joueurs[3 * j + GARES] = joueur.getNbGares();
+            for (Destination destination : joueur.getDestinations()) {
+                destinations[j] |= 1L << Catalogue.position(destination);
+            }
+        }
+        // toutes les cartes doivent pouvoir revenir dans la pioche (le jeu peut en
+        // compter plus que NB_CARTES si des cartes ont été dupliquées)
+        List<CouleurWagon> pile = jeu.getPileCartesWagon();
+        int taille = pile.size();
+        pioche = new byte[Math.max(NB_CARTES, taille + Arrays.stream(cartes).sum())];
+        for (int i = 0; i < taille; i++) {
+            pioche[taille - 1 - i] = (byte) pile.get(i).ordinal();
+        }
+        scalaires[TAILLE_PIOCHE] = taille;
+
+        List<Destination> pileD = jeu.getPileDestinations();
+        pileDestinations = new byte[pileD.size()];
+        for (int i = 0; i < pileDestinations.length; i++) {
+            pileDestinations[i] = (byte) Catalogue.position(pileD.get(i));
+        }
+
+        int nbRoutes = graphe.getNbRoutes();
+        proprietaires = new byte[nbRoutes + graphe.getNbVilles()];
+        for (Route route : jeu.getRoutes()) {
+            proprietaires[route.getId()] = (byte) (liste.indexOf(route.getProprietaire()) + 1);
+        }
+        for (Ville ville : jeu.getVilles()) {
+            proprietaires[nbRoutes + ville.getId()] = (byte) (liste.indexOf(ville.getProprietaire()) + 1);
+        }
+    }
+
+    private EtatJeu(EtatJeu autre) {
+        graphe = autre.graphe;
+        nbJoueurs = autre.nbJoueurs;
+        scalaires = autre.scalaires.clone();
+        cartes = autre.cartes.clone();
+        joueurs = autre.joueurs.clone();
+        pioche = autre.pioche.clone();
+        proprietaires = autre.proprietaires.clone();
+        destinations = autre.destinations;
+        pileDestinations = autre.pileDestinations;
+    }
+
+    private void compter(List<CouleurWagon> liste, int debut) {
+        for (CouleurWagon carte : liste) {
+            cartes[debut + carte.ordinal()]++;
+        }
+    }
+
+    /**
+     * @return une copie indépendante de l'état (sans les coups à annuler)
+     */
+    public EtatJeu copier() {
+        return new EtatJeu(this);
+    }
+
+    /**
+     * Applique l'état à un jeu construit sur le même plateau avec les mêmes
+     * joueurs : cartes, propriétaires, scores, wagons, gares et destinations. Le
+     * joueur courant et le nombre de tours restent ceux du jeu (ils sont
+     * déterminés par {@link Jeu#run()}).
+     */
+    public void appliquer(Jeu jeu) {
+        List<Joueur> liste = jeu.getJoueurs();
+        remplir(jeu.getCartesWagonVisibles(), VISIBLES);
+        remplir(jeu.getDefausseCartesWagon(), DEFAUSSE);
+        List<CouleurWagon> pile = jeu.getPileCartesWagon();
+        pile.clear();
+        for (int i = scalaires[TAILLE_PIOCHE] - 1; i >= 0; i--) {
+            pile.add(COULEURS[pioche[i]]);
+        }
+        for (int j = 0; j < nbJoueurs; j++) {
+            Joueur joueur = liste.get(j);
+            remplir(joueur.getCartesWagon(), MAINS + j * NB_COULEURS);
+            joueur.addScore(joueurs[3 * j + SCORE] - joueur.getScore());
+            joueur.setNbWagons(joueurs[3 * j + WAGONS]);
+            joueur.setNbGares(joueurs[3 * j + GARES]);
+            long actuelles = 0;
+            for (Destination destination : joueur.getDestinations()) {
+                actuelles |= 1L << Catalogue.position(destination);
+            }
+            if (actuelles != destinations[j]) {
+                joueur.getDestinations().clear();
+                joueur.getDestinations().addAll(Catalogue.destinations(destinations[j]));
+            }
+        }
+        List<Destination> pileD = jeu.getPileDestinations();
+        pileD.clear();
+        for (byte position : pileDestinations) {
+            pileD.add(Catalogue.DESTINATIONS[position]);
+        }
+        int nbRoutes = graphe.getNbRoutes();
+        for (Route route : jeu.getRoutes()) {
+            Joueur proprietaire = joueur(liste, proprietaires[route.getId()]);
+            if (route.getProprietaire() != proprietaire) {
+                route.setProprietaire(proprietaire);
+            }
+        }
+        for (Ville ville : jeu.getVilles()) {
+            Joueur proprietaire = joueur(liste, proprietaires[nbRoutes + ville.getId()]);
+            if (ville.getProprietaire() != proprietaire) {
+                ville.setProprietaire(proprietaire);
+            }
+        }
+    }
+
+    private static Joueur joueur(List<Joueur> liste, byte numero) {
+        return numero == 0 ? null : liste.get(numero - 1);
+    }
+
+    private void remplir(List<CouleurWagon> liste, int debut) {
+        liste.clear();
+        for (int c = 0; c < NB_COULEURS; c++) {
+            for (int n = 0; n < cartes[debut + c]; n++) {
+                liste.add(COULEURS[c]);
+            }
+        }
+    }
+
+    /**
+     * Mélange la pioche (dont l'ordre est inconnu des joueurs) et réinitialise le
+     * générateur des mélanges suivants. Un joueur automatique mélange la copie
+     * de l'état qu'il explore pour ne pas tirer parti de l'ordre réel.
+     */
+    public void melangerPioche(SplittableRandom alea) {
+        melanger(pioche, scalaires[TAILLE_PIOCHE], alea);
+        scalaires[ALEA] = alea.nextInt() | 1;
+    }
+
+    /**
+     * Remplace l'information cachée au joueur observateur par un tirage compatible
+     * avec ce qu'il sait : les cartes de la pioche et des mains des autres
+     * joueurs sont redistribuées au hasard (chacun garde son nombre de cartes),
+     * de même que les destinations des autres joueurs et de la pile de
+     * destinations. Le générateur des mélanges suivants est aussi réinitialisé.
+     */
+    public void determiniser(int observateur, SplittableRandom alea) {
+        int taille = scalaires[TAILLE_PIOCHE];
+        int[] tailleMains = new int[nbJoueurs];
+        byte[] cachees = Arrays.copyOf(pioche, pioche.length);
+        int nbCachees = taille;
+        for (int j = 0; j < nbJoueurs; j++) {
+            if (j == observateur) {
+                continue;
+            }
+            int main = MAINS + j * NB_COULEURS;
+            for (int c = 0; c < NB_COULEURS; c++) {
+                for (int n = cartes[main + c]; n > 0; n--) {
+                    cachees[nbCachees++] = (byte) c;
+                    tailleMains[j]++;
+                }
+                cartes[main + c] = 0;
+            }
+        }
+        melanger(cachees, nbCachees, alea);
+        System.arraycopy(cachees, 0, pioche, 0, taille);
+        int suivante = taille;
+        for (int j = 0; j < nbJoueurs; j++) {
+            for (int n = 0; n < tailleMains[j]; n++) {
+                cartes[MAINS + j * NB_COULEURS + cachees[suivante++]]++;
+            }
+        }
+
+        byte[] inconnues = Arrays.copyOf(pileDestinations, Long.SIZE);
+        int nbInconnues = pileDestinations.length;
+        for (int j = 0; j < nbJoueurs; j++) {
+            if (j != observateur) {
+                for (long d = destinations[j]; d != 0; d &= d - 1) {
+                    inconnues[nbInconnues++] = (byte) Long.numberOfTrailingZeros(d);
+                }
+            }
+        }
+        melanger(inconnues, nbInconnues, alea);
+        long[] tirees = destinations.clone();
+        byte[] pile = Arrays.copyOf(inconnues, pileDestinations.length);
+        suivante = pile.length;
+        for (int j = 0; j < nbJoueurs; j++) {
+            if (j != observateur) {
+                tirees[j] = 0;
+                for (int n = Long.bitCount(destinations[j]); n > 0; n--) {
+                    tirees[j] |= 1L << inconnues[suivante++];
+                }
+            }
+        }
+        destinations = tirees;
+        pileDestinations = pile;
+        scalaires[ALEA] = alea.nextInt() | 1;
+    }
+
+    private static void melanger(byte[] tableau, int taille, SplittableRandom alea) {
+        for (int i = taille - 1; i > 0; i--) {
+            int k = alea.nextInt(i + 1);
+            byte valeur = tableau[i];
+            tableau[i] = tableau[k];
+            tableau[k] = valeur;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Coups
+    // ------------------------------------------------------------------
+
+    private static int coup(int type, int cible, int couleur, int nbLocomotives) {
+        return type << 24 | cible << 8 | couleur << 4 | nbLocomotives;
+    }
+
+    public static int type(int coup) {
+        return coup >>> 24;
+    }
+
+    /**
+     * @return la route ou la ville d'un coup {@link #ROUTE} ou {@link #GARE}
+     */
+    public static int cible(int coup) {
+        return (coup >>> 8) & 0xffff;
+    }
+
+    /**
+     * @return la couleur de la carte prise ({@link #VISIBLE}) ou des cartes payées
+     * ({@link #ROUTE}, {@link #GARE} ; LOCOMOTIVE si seules des locomotives sont payées)
+     */
+    public static CouleurWagon couleur(int coup) {
+        return COULEURS[(coup >>> 4) & 0xf];
+    }
+
+    /**
+     * @return le nombre de locomotives payées ({@link #ROUTE}, {@link #GARE})
+     */
+    public static int nbLocomotives(int coup) {
+        return coup & 0xf;
+    }
+
+    /**
+     * @return le choix qui correspond au coup dans {@link Joueur#jouerTour()} (le
+     * paiement est demandé ensuite au joueur)
+     */
+    public String nom(int coup) {
+        return switch (type(coup)) {
+            case PIOCHE -> CouleurWagon.GRIS.name();
+            case VISIBLE -> couleur(coup).name();
+            case ROUTE -> graphe.getNomRoute(cible(coup));
+            case GARE -> graphe.getNomVille(cible(coup));
+            default -> "";
+        };
+    }
+
+    /**
+     * @return une taille suffisante pour le tableau de {@link #coupsPossibles(int[])}
+     */
+    public int getNbCoupsMax() {
+        return 2 + NB_COULEURS + (graphe.getNbRoutes() + graphe.getNbVilles()) * (NB_COULEURS_SIMPLES + 1);
+    }
+
+    /**
+     * Range dans le tableau les coups que le joueur courant peut jouer
+     *
+     * @param coups tableau d'au moins {@link #getNbCoupsMax()} cases
+     * @return le nombre de coups (0 si la partie est terminée)
+     */
+    public int coupsPossibles(int[] coups) {
+        if (estTerminee()) {
+            return 0;
+        }
+        int n = 0;
+        coups[n++] = coup(PASSER, 0, 0, 0);
+        if (scalaires[TAILLE_PIOCHE] > 0 || compterCartes(DEFAUSSE) > 0) {
+            coups[n++] = coup(PIOCHE, 0, 0, 0);
+        }
+        boolean secondeCarte = scalaires[CARTES_PIOCHEES] > 0;
+        for (int c = 0; c < NB_COULEURS; c++) {
+            if (cartes[VISIBLES + c] > 0 && !(secondeCarte && c == LOCOMOTIVE)) {
+                coups[n++] = coup(VISIBLE, 0, c, 0);
+            }
+        }
+        if (secondeCarte) {
+            return n;
+        }
+        int joueur = getJoueurCourant();
+        int main = MAINS + joueur * NB_COULEURS;
+        int nbLocomotives = cartes[main + LOCOMOTIVE];
+        int nbRoutes = graphe.getNbRoutes();
+        for (int r = 0; r < nbRoutes; r++) {
+            int longueur = graphe.getLongueur(r);
+            int locomotivesImposees = graphe.getNbLocomotives(r);
+            if (!estOuverte(r) || joueurs[3 * joueur + WAGONS] < longueur || nbLocomotives < locomotivesImposees) {
+                continue;
+            }
+            int couleurRoute = graphe.getCouleur(r).ordinal();
+            for (int c = 0; c < NB_COULEURS_SIMPLES; c++) {
+                int nbCouleur = cartes[main + c];
+                if (nbCouleur > 0 && (couleurRoute == GRIS || couleurRoute == c)
+                        && nbCouleur + nbLocomotives >= longueur) {
+                    int locomotives = Math.max(locomotivesImposees, longueur - nbCouleur);
+                    if (locomotives < longueur) {
+                        coups[n++] = coup(ROUTE, r, c, locomotives);
+                    }
+                }
+            }
+            if (nbLocomotives >= longueur) {
+                coups[n++] = coup(ROUTE, r, LOCOMOTIVE, longueur);
+            }
+        }
+        int nbGares = joueurs[3 * joueur + GARES];
+        if (nbGares > 0) {
+            int prix = 4 - nbGares;
+            for (int v = 0; v < graphe.getNbVilles(); v++) {
+                if (proprietaires[nbRoutes + v] != 0) {
+                    continue;
+                }
+                for (int c = 0; c < NB_COULEURS_SIMPLES; c++) {
+                    int nbCouleur = cartes[main + c];
+                    if (nbCouleur > 0 && nbCouleur + nbLocomotives >= prix) {
+                        coups[n++] = coup(GARE, v, c, Math.max(0, prix - nbCouleur));
+                    }
+                }
+                if (nbLocomotives >= prix) {
+                    coups[n++] = coup(GARE, v, LOCOMOTIVE, prix);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Mêmes conditions que {@link CoupsPossibles} : à moins de 4 joueurs, une
+     * route double (hors ferry) se ferme dès que l'une des deux est prise
+     */
+    private boolean estOuverte(int route) {
+        if (proprietaires[route] != 0) {
+            return false;
+        }
+        int autre = graphe.getRouteDouble(route);
+        return autre < 0 || graphe.estFerry(route) || nbJoueurs >= 4 || proprietaires[autre] == 0;
+    }
+
+    /**
+     * Joue un coup du joueur courant (qui doit être l'un des coups renvoyés par
+     * {@link #coupsPossibles(int[])})
+     */
+    public void jouer(int coup) {
+        if (debutsCoups == null) {
+            debutsCoups = new int[16];
+            trace = new long[64];
+        } else if (nbCoups == debutsCoups.length) {
+            debutsCoups = Arrays.copyOf(debutsCoups, 2 * nbCoups);
+        }
+        debutsCoups[nbCoups++] = tailleTrace;
+        appliquerCoup(coup);
+    }
+
+    /**
+     * Joue un coup sans le noter dans la trace (pour les parties simulées
+     * jusqu'à la fin) : ni ce coup ni ceux joués avant ne peuvent plus être annulés
+     */
+    public void jouerDefinitivement(int coup) {
+        nbCoups = 0;
+        tailleTrace = 0;
+        appliquerCoup(coup);
+    }
+
+    private void appliquerCoup(int coup) {
+        int joueur = getJoueurCourant();
+        int main = MAINS + joueur * NB_COULEURS;
+        switch (type(coup)) {
+            case PASSER -> {
+                if (scalaires[CARTES_PIOCHEES] == 0) {
+                    ecrire(T_SCALAIRES, NB_PASSES, scalaires[NB_PASSES] + 1);
+                }
+                finirTour();
+            }
+            case PIOCHE -> {
+                int carte = piocherCarte();
+                if (carte >= 0) {
+                    ecrire(T_CARTES, main + carte, cartes[main + carte] + 1);
+                }
+                piocheFaite(false);
+            }
+            case VISIBLE -> {
+                int c = (coup >>> 4) & 0xf;
+                ecrire(T_CARTES, VISIBLES + c, cartes[VISIBLES + c] - 1);
+                ecrire(T_CARTES, main + c, cartes[main + c] + 1);
+                int remplacante = piocherCarte();
+                if (remplacante >= 0) {
+                    ecrire(T_CARTES, VISIBLES + remplacante, cartes[VISIBLES + remplacante] + 1);
+                }
+                refaireVisibles();
+                piocheFaite(c == LOCOMOTIVE);
+            }
+            case ROUTE -> {
+                int route = cible(coup);
+                int longueur = graphe.getLongueur(route);
+                payer(main, (coup >>> 4) & 0xf, longueur, nbLocomotives(coup));
+                ecrire(T_PROPRIETAIRES, route, joueur + 1);
+                ecrire(T_JOUEURS, 3 * joueur + WAGONS, joueurs[3 * joueur + WAGONS] - longueur);
+                ecrire(T_JOUEURS, 3 * joueur + SCORE, joueurs[3 * joueur + SCORE] + Route.points(longueur));
+                ecrire(T_SCALAIRES, NB_PASSES, 0);
+                finirTour();
+            }
+            case GARE -> {
+                int nbGares = joueurs[3 * joueur + GARES];
+                payer(main, (coup >>> 4) & 0xf, 4 - nbGares, nbLocomotives(coup));
+                ecrire(T_PROPRIETAIRES, graphe.getNbRoutes() + cible(coup), joueur + 1);
+                ecrire(T_JOUEURS, 3 * joueur + GARES, nbGares - 1);
+                ecrire(T_JOUEURS, 3 * joueur + SCORE, joueurs[3 * joueur + SCORE] - 4);
+                ecrire(T_SCALAIRES, NB_PASSES, 0);
+                finirTour();
+            }
+            default -> throw new IllegalArgumentException("Coup inconnu : " + coup);
+        }
+    }
+
+    /**
+     * Annule le dernier coup joué (et non encore annulé)
+     *
+     * @throws IllegalStateException s'il n'y a aucun coup à annuler
+     */
+    public void annuler() {
+        if (nbCoups == 0) {
+            throw new IllegalStateException("Aucun coup à annuler");
+        }
+        int debut = debutsCoups[--nbCoups];
+        while (tailleTrace > debut) {
+            long entree = trace[--tailleTrace];
+            int tableau = (int) (entree >>> 56);
+            int position = (int) (entree >>> 32) & 0xffffff;
+            affecter(tableau, position, (int) entree);
+        }
+    }
+
+    /**
+     * @return le nombre de coups joués qui peuvent être annulés
+     */
+    public int getNbCoupsAAnnuler() {
+        return nbCoups;
+    }
+
+    private void ecrire(int tableau, int position, int valeur) {
+        int ancienne = switch (tableau) {
+            case T_SCALAIRES -> scalaires[position];
+            case T_CARTES -> cartes[position];
+            case T_JOUEURS -> joueurs[position];
+            case T_PIOCHE -> pioche[position];
+            default -> proprietaires[position];
+        };
+        if (ancienne == valeur) {
+            return;
+        }
+        if (nbCoups > 0) {
+            if (tailleTrace == trace.length) {
+                trace = Arrays.copyOf(trace, 2 * tailleTrace);
+            }
+            trace[tailleTrace++] = (long) tableau << 56 | (long) position << 32 | (ancienne & 0xffffffffL);
+        }
+        affecter(tableau, position, valeur);
+    }
+
+    private void affecter(int tableau, int position, int valeur) {
+        switch (tableau) {
+            case T_SCALAIRES -> scalaires[position] = valeur;
+            case T_CARTES -> cartes[position] = valeur;
+            case T_JOUEURS -> joueurs[position] = valeur;
+            case T_PIOCHE -> pioche[position] = (byte) valeur;
+            default -> proprietaires[position] = (byte) valeur;
+        }
+    }
+
+    /**
+     * Paie une route ou une gare : {@code nbCartes - nbLocomotives} cartes de la
+     * couleur et {@code nbLocomotives} locomotives
+     */
+    private void payer(int main, int couleur, int nbCartes, int nbLocomotives) {
+        for (int i = 0; i < nbCartes; i++) {
+            int carte = i < nbLocomotives ? LOCOMOTIVE : couleur;
+            ecrire(T_CARTES, main + carte, cartes[main + carte] - 1);
+            defausser(carte);
+        }
+    }
+
+    /**
+     * Comme {@link Jeu#defausserCarteWagon(CouleurWagon)} : la carte est rendue
+     * visible s'il manque des cartes visibles
+     */
+    private void defausser(int carte) {
+        if (compterCartes(VISIBLES) != NB_VISIBLES) {
+            ecrire(T_CARTES, VISIBLES + carte, cartes[VISIBLES + carte] + 1);
+        } else {
+            ecrire(T_CARTES, DEFAUSSE + carte, cartes[DEFAUSSE + carte] + 1);
+        }
+    }
+
+    private int compterCartes(int debut) {
+        int total = 0;
+        for (int c = 0; c < NB_COULEURS; c++) {
+            total += cartes[debut + c];
+        }
+        return total;
+    }
+
+    /**
+     * Comme {@link Jeu#piocherCarteWagon()} : si la pioche est vide, la défausse
+     * est mélangée pour former une nouvelle pioche
+     *
+     * @return la carte piochée, ou -1 s'il n'y a plus de carte
+     */
+    private int piocherCarte() {
+        int taille = scalaires[TAILLE_PIOCHE];
+        if (taille == 0) {
+            for (int c = 0; c < NB_COULEURS; c++) {
+                for (int n = cartes[DEFAUSSE + c]; n > 0; n--) {
+                    ecrire(T_PIOCHE, taille++, c);
+                }
+                ecrire(T_CARTES, DEFAUSSE + c, 0);
+            }
+            melanger(taille);
+            if (taille == 0) {
+                return -1;
+            }
+        }
+        ecrire(T_SCALAIRES, TAILLE_PIOCHE, taille - 1);
+        return pioche[taille - 1];
+    }
+
+    /**
+     * Mélange les {@code taille} premières cartes de la pioche
+     */
+    private void melanger(int taille) {
+        for (int i = taille - 1; i > 0; i--) {
+            int k = aleatoire(i + 1);
+            int carte = pioche[i];
+            ecrire(T_PIOCHE, i, pioche[k]);
+            ecrire(T_PIOCHE, k, carte);
+        }
+    }
+
+    private int aleatoire(int borne) {
+        int x = scalaires[ALEA];
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        ecrire(T_SCALAIRES, ALEA, x);
+        return (int) ((x & 0xffffffffL) % borne);
+    }
+
+    /**
+     * Comme {@code Jeu.refaitPiocheVisible()} : les cartes visibles sont remises
+     * dans la pioche et remplacées tant qu'au moins 3 d'entre elles sont des
+     * locomotives (s'il reste assez d'autres cartes)
+     */
+    private void refaireVisibles() {
+        while (cartes[VISIBLES + LOCOMOTIVE] >= 3) {
+            int taille = scalaires[TAILLE_PIOCHE];
+            int autres = taille + compterCartes(VISIBLES) - cartes[VISIBLES + LOCOMOTIVE];
+            for (int i = 0; i < taille; i++) {
+                if (pioche[i] == LOCOMOTIVE) {
+                    autres--;
+                }
+            }
+            if (autres < 3) {
+                return;
+            }
+            for (int c = 0; c < NB_COULEURS; c++) {
+                for (int n = cartes[VISIBLES + c]; n > 0; n--) {
+                    ecrire(T_PIOCHE, taille++, c);
+                }
+                ecrire(T_CARTES, VISIBLES + c, 0);
+            }
+            ecrire(T_SCALAIRES, TAILLE_PIOCHE, taille);
+            melanger(taille);
+            for (int i = 0; i < NB_VISIBLES; i++) {
+                int carte = piocherCarte();
+                if (carte >= 0) {
+                    ecrire(T_CARTES, VISIBLES + carte, cartes[VISIBLES + carte] + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Termine le tour après la deuxième carte piochée (ou après une locomotive
+     * visible prise comme première carte)
+     */
+    private void piocheFaite(boolean locomotiveVisible) {
+        ecrire(T_SCALAIRES, NB_PASSES, 0);
+        if (scalaires[CARTES_PIOCHEES] > 0 || locomotiveVisible) {
+            finirTour();
+        } else {
+            ecrire(T_SCALAIRES, CARTES_PIOCHEES, 1);
+        }
+    }
+
+    private void finirTour() {
+        int joueur = getJoueurCourant();
+        if (scalaires[DERNIER_JOUEUR] == joueur || scalaires[NB_PASSES] >= nbJoueurs) {
+            ecrire(T_SCALAIRES, TERMINEE, 1);
+        } else if (scalaires[DERNIER_JOUEUR] < 0 && joueurs[3 * joueur + WAGONS] <= NB_WAGONS_FIN) {
+            ecrire(T_SCALAIRES, DERNIER_JOUEUR, joueur);
+        }
+        ecrire(T_SCALAIRES, CARTES_PIOCHEES, 0);
+        ecrire(T_SCALAIRES, NB_TOURS, scalaires[NB_TOURS] + 1);
+        ecrire(T_SCALAIRES, JOUEUR_COURANT, (joueur + 1) % nbJoueurs);
+    }
+
+    // ------------------------------------------------------------------
+    // Consultation
+    // ------------------------------------------------------------------
+
+    public int getNbJoueurs() {
+        return nbJoueurs;
+    }
+
+    /**
+     * @return la position du joueur courant dans la liste des joueurs du jeu
+     */
+    public int getJoueurCourant() {
+        return scalaires[JOUEUR_COURANT];
+    }
+
+    public int getNbTours() {
+        return scalaires[NB_TOURS];
+    }
+
+    public boolean estTerminee() {
+        return scalaires[TERMINEE] != 0;
+    }
+
+    public int getScore(int joueur) {
+        return joueurs[3 * joueur + SCORE];
+    }
+
+    public int getNbWagons(int joueur) {
+        return joueurs[3 * joueur + WAGONS];
+    }
+
+    public int getNbGares(int joueur) {
+        return joueurs[3 * joueur + GARES];
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur dans la main du joueur
+     */
+    public int getNbCartes(int joueur, CouleurWagon couleur) {
+        return cartes[MAINS + joueur * NB_COULEURS + couleur.ordinal()];
+    }
+
+    public int getNbCartesVisibles(CouleurWagon couleur) {
+        return cartes[VISIBLES + couleur.ordinal()];
+    }
+
+    public int getNbCartesDefausse(CouleurWagon couleur) {
+        return cartes[DEFAUSSE + couleur.ordinal()];
+    }
+
+    public int getTaillePioche() {
+        return scalaires[TAILLE_PIOCHE];
+    }
+
+    /**
+     * @return la position du propriétaire de la route dans la liste des joueurs,
+     * ou -1 si la route est libre
+     */
+    public int getProprietaireRoute(int route) {
+        return proprietaires[route] - 1;
+    }
+
+    /**
+     * @return la position du propriétaire de la ville dans la liste des joueurs,
+     * ou -1 si la ville n'a pas de gare
+     */
+    public int getProprietaireVille(int ville) {
+        return proprietaires[graphe.getNbRoutes() + ville] - 1;
+    }
+
+    /**
+     * @return les destinations du joueur
+     */
+    public List<Destination> getDestinations(int joueur) {
+        return Catalogue.destinations(destinations[joueur]);
+    }
+
+    /**
+     * @return les scores des joueurs si la partie s'arrêtait maintenant :
+     * points des routes et des gares, points des destinations (réalisées avec les
+     * seules routes du joueur) et bonus du plus long chemin continu
+     */
+    public int[] scoresFinals() {
+        int nbRoutes = graphe.getNbRoutes();
+        int[] scores = new int[nbJoueurs];
+        int[] chemins = new int[nbJoueurs];
+        int meilleur = 1; // un joueur sans route n'est jamais meneur
+        CheminLePlusLong cheminLePlusLong = new CheminLePlusLong();
+        int[] routes = new int[nbRoutes];
+        for (int j = 0; j < nbJoueurs; j++) {
+            Connexite reseau = new Connexite(graphe.getNbVilles());
+            int nb = 0;
+            for (int r = 0; r < nbRoutes; r++) {
+                if (proprietaires[r] == j + 1) {
+                    reseau.unir(graphe.getVille1(r), graphe.getVille2(r));
+                    routes[nb++] = r;
+                }
+            }
+            scores[j] = joueurs[3 * j + SCORE];
+            long d = destinations[j];
+            while (d != 0) {
+                int position = Long.numberOfTrailingZeros(d);
+                d &= d - 1;
+                boolean realisee = reseau.connectees(Catalogue.VILLES1[position], Catalogue.VILLES2[position]);
+                scores[j] += realisee ? Catalogue.DESTINATIONS[position].getValeur()
+                        : -Catalogue.DESTINATIONS[position].getValeur();
+            }
+            chemins[j] = cheminLePlusLong.calculer(graphe, routes, nb);
+            meilleur = Math.max(meilleur, chemins[j]);
+        }
+        for (int j = 0; j < nbJoueurs; j++) {
+            if (chemins[j] == meilleur) {
+                scores[j] += Jeu.BONUS_CHEMIN_LE_PLUS_LONG;
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Deux états sont égaux s'ils ont les mêmes cartes, propriétaires, joueurs et
+     * destinations (les coups à annuler ne sont pas comparés)
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EtatJeu autre)) {
+            return false;
+        }
+        return graphe == autre.graphe && Arrays.equals(scalaires, autre.scalaires)
+                && Arrays.equals(cartes, autre.cartes) && Arrays.equals(joueurs, autre.joueurs)
+                && Arrays.equals(pioche, 0, scalaires[TAILLE_PIOCHE], autre.pioche, 0, autre.scalaires[TAILLE_PIOCHE])
+                && Arrays.equals(proprietaires, autre.proprietaires)
+                && Arrays.equals(destinations, autre.destinations)
+                && Arrays.equals(pileDestinations, autre.pileDestinations);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Arrays.hashCode(scalaires);
+        h = 31 * h + Arrays.hashCode(cartes);
+        h = 31 * h + Arrays.hashCode(joueurs);
+        h = 31 * h + Arrays.hashCode(proprietaires);
+        return h;
+    }
+
+    /**
+     * Toutes les destinations du jeu (courtes puis longues), numérotées par leur
+     * position, avec les numéros de leurs villes sur le plateau Europe
+     */
+    private static class Catalogue {
+        private static final Destination[] DESTINATIONS;
+        private static final int[] VILLES1;
+        private static final int[] VILLES2;
+        private static final Map<String, Integer> POSITIONS = new HashMap<>();
+
+        static {
+            List<Destination> toutes = new ArrayList<>(Destination.makeDestinationsEurope());
+            toutes.addAll(Destination.makeDestinationsLonguesEurope());
+            if (toutes.size() > Long.SIZE) {
+                throw new IllegalStateException("Trop de destinations : " + toutes.size());
+            }
+            DESTINATIONS = toutes.toArray(new Destination[0]);
+            VILLES1 = new int[DESTINATIONS.length];
+            VILLES2 = new int[DESTINATIONS.length];
+            GraphePlateau graphe = GraphePlateau.europe();
+            for (int i = 0; i < DESTINATIONS.length; i++) {
+                POSITIONS.put(DESTINATIONS[i].getNom(), i);
+                VILLES1[i] = graphe.getVille(DESTINATIONS[i].getVille1());
+                VILLES2[i] = graphe.getVille(DESTINATIONS[i].getVille2());
+            }
+        }
+
+        static int position(Destination destination) {
+            Integer position = POSITIONS.get(destination.getNom());
+            if (position == null) {
+                throw new IllegalArgumentException("Destination inconnue : " + destination);
+            }
+            return position;
+        }
+
+        static List<Destination> destinations(long ensemble) {
+            List<Destination> liste = new ArrayList<>(Long.bitCount(ensemble));
+            while (ensemble != 0) {
+                liste.add(DESTINATIONS[Long.numberOfTrailingZeros(ensemble)]);
+                ensemble &= ensemble - 1;
+            }
+            return liste;
+        }
+    }
+}
@@ -1,33 +1,27 @@
 package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
-import java.util.Collections;
 
 public class Ferry extends Route {
-    /**
-     * Nombre de locomotives qu'un joueur doit payer pour capturer le ferry
-     */
-    private int nbLocomotives;
-    private int longueurAvant;
 
-    public Ferry(Ville ville1, Ville ville2, int longueur, CouleurWagon couleur, int nbLocomotives) {
-        super(ville1, ville2, longueur, couleur);
-        this.nbLocomotives = nbLocomotives;
-        longueurAvant=getLongueur();
+    Ferry(Plateau plateau, int id) {
+        super(plateau, id);
     }
 
     @Override
     public String toString() {
         return String.format("[%s - %s (%d, %s, %d)]", getVille1(), getVille2(), getLongueur(), getCouleur(),
-                nbLocomotives);
+                getNbLocomotives());
     }
 
     @Override
     public ArrayList<String> possedeCouleur(Joueur joueur){
+        int nbLocomotives=getNbLocomotives();
         ArrayList<String> couleurs=new ArrayList<>();
-        if(longueurAvant==getLongueur()){
+        // la longueur n'a pas encore été diminuée des locomotives (voir comptePoints)
+        if(getPlateau().getGraphe().getLongueur(getId())==getLongueur()){
             for(CouleurWagon c : CouleurWagon.getCouleursSimples()){
-                if(((Collections.frequency(joueur.getCartesWagon(),c)>=getLongueur()-nbLocomotives && Collections.frequency(joueur.getCartesWagon(),CouleurWagon.LOCOMOTIVE)==nbLocomotives)||Collections.frequency(joueur.getCartesWagon(),CouleurWagon.LOCOMOTIVE)-nbLocomotives+Collections.frequency(joueur.getCartesWagon(),c)>=getLongueur()-nbLocomotives)&& joueur.getCartesWagon().contains(c)){
+                if(((joueur.nbCartesWagon(c)>=getLongueur()-nbLocomotives && joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)==nbLocomotives)||joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)-nbLocomotives+joueur.nbCartesWagon(c)>=getLongueur()-nbLocomotives)&& joueur.getCartesWagon().contains(c)){
                     couleurs.add(c.name());
                 }
             }
@@ -35,7 +29,7 @@ public class Ferry extends Route {
         }
         else{
             for(CouleurWagon c : CouleurWagon.getCouleursSimples()){
-                if((Collections.frequency(joueur.getCartesWagon(), c)>=getLongueur() || Collections.frequency(joueur.getCartesWagon(), c) + Collections.frequency(joueur.getCartesWagon(), CouleurWagon.LOCOMOTIVE)-nbLocomotives>=getLongueur()) && joueur.getCartesWagon().contains(c)){
+                if((joueur.nbCartesWagon(c)>=getLongueur() || joueur.nbCartesWagon(c) + joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)-nbLocomotives>=getLongueur()) && joueur.getCartesWagon().contains(c)){
                     couleurs.add(c.name());
                 }
             }
@@ -45,7 +39,7 @@ public class Ferry extends Route {
 
     @Override
     public boolean valide(Joueur joueur){
-        if(getProprietaire()==null && Collections.frequency(joueur.getCartesWagon(),CouleurWagon.LOCOMOTIVE)>=nbLocomotives){
+        if(getProprietaire()==null && joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)>=getNbLocomotives()){
             ArrayList<String> couleursPossede=possedeCouleur(joueur);
             if(couleursPossede.contains(getCouleur().name()) || couleursPossede.contains(CouleurWagon.LOCOMOTIVE.name()) || (!couleursPossede.isEmpty() && getCouleur()==CouleurWagon.GRIS)){
                 return true;
@@ -56,13 +50,13 @@ public class Ferry extends Route {
 
     @Override
     public boolean capturer(Joueur joueur, CouleurWagon c){
-        if(nbLocomotives>0){
+        if(getNbLocomotives()>0){
             int nbl=0;
-            int nbLoco=nbLocomotives;
+            int nbLoco=getNbLocomotives();
             while(nbl!=nbLoco){
                 super.capturer(joueur,CouleurWagon.LOCOMOTIVE);
                 nbl++;
-                nbLocomotives--;
+                setNbLocomotives(getNbLocomotives()-1);
             }
         }
         return super.capturer(joueur,c);
@@ -71,11 +65,19 @@ public class Ferry extends Route {
     @Override
     public int comptePoints(){
         int pts=super.comptePoints();
-        setLongueur(getLongueur()-nbLocomotives);
+        setLongueur(getLongueur()-getNbLocomotives());
         return pts;
     }
 
+    /**
+     * @return le nombre de locomotives qu'un joueur doit payer pour capturer le
+     * ferry (qui diminue pendant sa capture)
+     */
     public int getNbLocomotives() {
-        return nbLocomotives;
+        return getPlateau().getLocomotivesRoute(getId());
+    }
+
+    private void setNbLocomotives(int nbLocomotives) {
+        getPlateau().setLocomotivesRoute(getId(), nbLocomotives);
     }
 }
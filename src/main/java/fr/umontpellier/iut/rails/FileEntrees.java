@@ -0,0 +1,174 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * File bornée des entrées d'une partie : plusieurs producteurs (threads du
+ * serveur qui reçoivent les messages des clients) et un seul consommateur (le
+ * thread de la partie).
+ * <p>
+ * Les entrées sont rangées dans un tableau circulaire, sans verrou ni
+ * allocation par message : un producteur réserve une case en avançant
+ * atomiquement la position d'écriture, puis y publie son entrée. Le
+ * consommateur vide la file par lots ({@link #prendre(Object[])}) et n'avance
+ * la position de lecture qu'une fois par lot. Lorsque la file est vide, il
+ * s'endort ({@link LockSupport#park}, qui libère aussi le thread porteur d'un
+ * thread virtuel) et le producteur suivant le réveille.
+ * <p>
+ * Une file pleine refuse les nouvelles entrées ({@link #offrir(Object)} renvoie
+ * false) : c'est à l'appelant de signaler le débordement.
+ *
+ * @param <E> type des entrées (par exemple une instruction et le client qui l'a envoyée)
+ */
+public class FileEntrees<E> {
+    /**
+     * Propriété système fixant la capacité de la file d'entrées de chaque partie
+     */
+    public static final String PROPRIETE_CAPACITE = "rails.entrees.capacite";
+    public static final int CAPACITE_DEFAUT = 256;
+
+    private final AtomicReferenceArray<E> entrees;
+    private final int masque;
+    /**
+     * Position de la prochaine case à réserver par un producteur
+     */
+    private final AtomicLong ecriture = new AtomicLong();
+    /**
+     * Position de la prochaine entrée à lire (écrite seulement par le consommateur)
+     */
+    private volatile long lecture;
+    /**
+     * Dernière position de lecture vue par les producteurs (peut être en retard)
+     */
+    private volatile long lectureConnue;
+    /**
+     * Thread consommateur endormi en attendant une entrée (null s'il ne dort pas)
+     */
+    private volatile Thread enAttente;
+    private final AtomicLong nbRefusees = new AtomicLong();
+
+    public FileEntrees() {
+        this(Integer.getInteger(PROPRIETE_CAPACITE, CAPACITE_DEFAUT));
+    }
+
+    /**
+     * @param capacite nombre maximal d'entrées en attente (arrondi à la puissance
+     *                 de 2 supérieure)
+     */
+    public FileEntrees(int capacite) {
+        if (capacite <= 0) {
+            throw new IllegalArgumentException("La capacité de la file d'entrées doit être positive");
+        }
+        int taille = Integer.highestOneBit(capacite);
+        if (taille < capacite) {
+            taille <<= 1;
+        }
+        entrees = new AtomicReferenceArray<>(taille);
+        masque = taille - 1;
+    }
+
+    public int getCapacite() {
+        return masque + 1;
+    }
+
+    /**
+     * Ajoute une entrée à la file (peut être appelée par plusieurs threads)
+     *
+     * @return false si la file est pleine (l'entrée n'est pas ajoutée)
+     */
+    public boolean offrir(E entree) {
+        if (entree == null) {
+            throw new NullPointerException();
+        }
+        long position;
+        do {
+            position = ecriture.get();
+            if (position - lectureConnue > masque) {
+                lectureConnue = lecture;
+                if (position - lectureConnue > masque) {
+                    nbRefusees.incrementAndGet();
+                    return false;
+                }
+            }
+        } while (!ecriture.compareAndSet(position, position + 1));
+        // écriture volatile : le consommateur qui s'endort après l'avoir manquée
+        // est forcément vu dans enAttente ci-dessous
+        entrees.set((int) position & masque, entree);
+        Thread consommateur = enAttente;
+        if (consommateur != null) {
+            LockSupport.unpark(consommateur);
+        }
+        return true;
+    }
+
+    /**
+     * Retire les entrées disponibles (au plus {@code lot.length}), sans attendre
+     * (à n'appeler que depuis le thread consommateur)
+     *
+     * @param lot tableau qui reçoit les entrées retirées, dans l'ordre d'arrivée
+     * @return le nombre d'entrées retirées (0 si la file est vide)
+     */
+    public int retirer(E[] lot) {
+        long debut = lecture;
+        int n = 0;
+        while (n < lot.length) {
+            int indice = (int) (debut + n) & masque;
+            E entree = entrees.get(indice);
+            if (entree == null) {
+                // case vide, ou réservée mais pas encore publiée
+                break;
+            }
+            entrees.lazySet(indice, null);
+            lot[n++] = entree;
+        }
+        if (n > 0) {
+            lecture = debut + n;
+        }
+        return n;
+    }
+
+    /**
+     * Retire les entrées disponibles (au plus {@code lot.length}), en attendant
+     * qu'il y en ait au moins une (à n'appeler que depuis le thread consommateur)
+     *
+     * @return le nombre d'entrées retirées (au moins 1)
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    public int prendre(E[] lot) throws InterruptedException {
+        while (true) {
+            int n = retirer(lot);
+            if (n > 0) {
+                return n;
+            }
+            enAttente = Thread.currentThread();
+            // une entrée publiée entre le premier essai et l'inscription dans enAttente
+            n = retirer(lot);
+            if (n == 0) {
+                LockSupport.park(this);
+            }
+            enAttente = null;
+            if (n > 0) {
+                return n;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * @return le nombre d'entrées refusées parce que la file était pleine
+     */
+    public long getNbRefusees() {
+        return nbRefusees.get();
+    }
+
+    /**
+     * @return le nombre approximatif d'entrées en attente
+     */
+    public int size() {
+        return (int) Math.max(0, ecriture.get() - lecture);
+    }
+}
@@ -0,0 +1,469 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Topologie d'un plateau : villes et routes (extrémités, longueur, couleur,
+ * type), rangées dans des tableaux d'entiers (format « compressed sparse row »)
+ * pour les calculs de chemins, de score et les joueurs automatiques.
+ * <p>
+ * Les villes et les routes sont désignées par leurs numéros ({@link Ville#getId()},
+ * {@link Route#getId()}), qui sont aussi leurs positions dans les listes de tout
+ * {@link Plateau} construit sur ce graphe. Les routes d'une ville
+ * {@code v} sont les entrées {@code debutVoisins(v)} (inclus) à
+ * {@code finVoisins(v)} (exclu) des tableaux de voisinage : chaque entrée donne
+ * la ville voisine ({@link #voisin(int)}) et la route qui y mène
+ * ({@link #routeVoisine(int)}).
+ * <p>
+ * Le graphe ne décrit que la topologie du plateau, qui ne change jamais : les
+ * propriétaires des routes et des villes, et les caractéristiques des routes
+ * modifiées pendant une capture, sont rangés dans le {@link Plateau} de chaque
+ * partie. Il est immuable et est construit une seule fois pour toutes les parties
+ * (voir {@link #europe()}).
+ */
+public final class GraphePlateau {
+    private final String[] nomsVilles;
+    private final String[] nomsRoutes;
+    /**
+     * Indice dans {@code voisins} de la première route de chaque ville (une case
+     * de plus que le nombre de villes)
+     */
+    private final int[] debutVoisins;
+    private final int[] voisins;
+    private final int[] routesVoisines;
+    private final int[] ville1;
+    private final int[] ville2;
+    private final int[] longueur;
+    private final CouleurWagon[] couleur;
+    private final boolean[] tunnel;
+    /**
+     * Nombre de locomotives à payer pour chaque route (0 si ce n'est pas un ferry)
+     */
+    private final int[] nbLocomotives;
+    /**
+     * Numéro de l'autre route d'une route double (-1 pour une route simple)
+     */
+    private final int[] routeDouble;
+
+    /**
+     * Villes indexées par leur nom
+     */
+    private final Map<String, Integer> villesParNom;
+    /**
+     * Routes indexées par leur nom (unique, y compris pour les routes doubles)
+     */
+    private final Map<String, Integer> routesParNom;
+
+    private GraphePlateau(Constructeur constructeur) {
+        int nbVilles = constructeur.villes.size();
+        int nbRoutes = constructeur.ville1.size();
+        nomsVilles = constructeur.villes.toArray(new String[0]);
+        nomsRoutes = new String[nbRoutes];
+        ville1 = new int[nbRoutes];
+        ville2 = new int[nbRoutes];
+        longueur = new int[nbRoutes];
+        couleur = new CouleurWagon[nbRoutes];
+        tunnel = new boolean[nbRoutes];
+        nbLocomotives = new int[nbRoutes];
+        routeDouble = new int[nbRoutes];
+        Map<String, Integer> villesParNom = new HashMap<>();
+        for (int v = 0; v < nbVilles; v++) {
+            villesParNom.put(nomsVilles[v], v);
+        }
+        // association des routes doubles (qui relient les mêmes villes)
+        Map<Long, Integer> routesParVilles = new HashMap<>();
+        for (int r = 0; r < nbRoutes; r++) {
+            ville1[r] = constructeur.ville1.get(r);
+            ville2[r] = constructeur.ville2.get(r);
+            longueur[r] = constructeur.longueur.get(r);
+            couleur[r] = constructeur.couleur.get(r);
+            tunnel[r] = constructeur.tunnel.get(r);
+            nbLocomotives[r] = constructeur.nbLocomotives.get(r);
+            nomsRoutes[r] = nomsVilles[ville1[r]] + " - " + nomsVilles[ville2[r]];
+            routeDouble[r] = -1;
+            long cle = (long) Math.min(ville1[r], ville2[r]) * nbVilles + Math.max(ville1[r], ville2[r]);
+            Integer autre = routesParVilles.put(cle, r);
+            if (autre != null) {
+                routeDouble[r] = autre;
+                routeDouble[autre] = r;
+                // les suffixes distinguent les deux routes dans l'affichage et les choix des joueurs
+                nomsRoutes[autre] += "(1)";
+                nomsRoutes[r] += "(2)";
+            }
+        }
+        Map<String, Integer> routesParNom = new HashMap<>();
+        for (int r = 0; r < nbRoutes; r++) {
+            routesParNom.put(nomsRoutes[r], r);
+        }
+        this.villesParNom = Map.copyOf(villesParNom);
+        this.routesParNom = Map.copyOf(routesParNom);
+
+        // voisinage : on compte les routes de chaque ville, puis on les range
+        debutVoisins = new int[nbVilles + 1];
+        for (int r = 0; r < nbRoutes; r++) {
+            debutVoisins[ville1[r] + 1]++;
+            debutVoisins[ville2[r] + 1]++;
+        }
+        for (int v = 0; v < nbVilles; v++) {
+            debutVoisins[v + 1] += debutVoisins[v];
+        }
+        voisins = new int[2 * nbRoutes];
+        routesVoisines = new int[2 * nbRoutes];
+        int[] suivant = debutVoisins.clone();
+        for (int r = 0; r < nbRoutes; r++) {
+            int i = suivant[ville1[r]]++;
+            voisins[i] = ville2[r];
+            routesVoisines[i] = r;
+            int j = suivant[ville2[r]]++;
+            voisins[j] = ville1[r];
+            routesVoisines[j] = r;
+        }
+    }
+
+    /**
+     * Description d'un plateau, ville par ville puis route par route. Les villes
+     * et les routes sont numérotées dans l'ordre où elles sont ajoutées ; deux
+     * routes qui relient les mêmes villes forment une route double.
+     */
+    public static class Constructeur {
+        private final List<String> villes = new ArrayList<>();
+        private final Map<String, Integer> numerosVilles = new HashMap<>();
+        private final List<Integer> ville1 = new ArrayList<>();
+        private final List<Integer> ville2 = new ArrayList<>();
+        private final List<Integer> longueur = new ArrayList<>();
+        private final List<CouleurWagon> couleur = new ArrayList<>();
+        private final List<Boolean> tunnel = new ArrayList<>();
+        private final List<Integer> nbLocomotives = new ArrayList<>();
+
+        public void ville(String nom) {
+            if (numerosVilles.putIfAbsent(nom, villes.size()) != null) {
+                throw new IllegalArgumentException("Ville en double : " + nom);
+            }
+            villes.add(nom);
+        }
+
+        public void route(String ville1, String ville2, int longueur, CouleurWagon couleur) {
+            ajouter(ville1, ville2, longueur, couleur, false, 0);
+        }
+
+        public void tunnel(String ville1, String ville2, int longueur, CouleurWagon couleur) {
+            ajouter(ville1, ville2, longueur, couleur, true, 0);
+        }
+
+        /**
+         * @param nbLocomotives nombre de locomotives à payer pour capturer le ferry
+         */
+        public void ferry(String ville1, String ville2, int longueur, CouleurWagon couleur, int nbLocomotives) {
+            ajouter(ville1, ville2, longueur, couleur, false, nbLocomotives);
+        }
+
+        private void ajouter(String ville1, String ville2, int longueur, CouleurWagon couleur, boolean tunnel,
+                             int nbLocomotives) {
+            this.ville1.add(numeroVille(ville1));
+            this.ville2.add(numeroVille(ville2));
+            this.longueur.add(longueur);
+            this.couleur.add(couleur);
+            this.tunnel.add(tunnel);
+            this.nbLocomotives.add(nbLocomotives);
+        }
+
+        private int numeroVille(String nom) {
+            Integer numero = numerosVilles.get(nom);
+            if (numero == null) {
+                throw new IllegalArgumentException("Ville inconnue : " + nom);
+            }
+            return numero;
+        }
+
+        public GraphePlateau construire() {
+            return new GraphePlateau(this);
+        }
+    }
+
+    private static class Europe {
+        private static final GraphePlateau GRAPHE = construireEurope();
+    }
+
+    private static GraphePlateau construireEurope() {
+        Constructeur europe = new Constructeur();
+        europe.ville("Amsterdam");
+        europe.ville("Angora");
+        europe.ville("Athina");
+        europe.ville("Barcelona");
+        europe.ville("Berlin");
+        europe.ville("Brest");
+        europe.ville("Brindisi");
+        europe.ville("Bruxelles");
+        europe.ville("Bucuresti");
+        europe.ville("Budapest");
+        europe.ville("Cadiz");
+        europe.ville("Constantinople");
+        europe.ville("Danzig");
+        europe.ville("Dieppe");
+        europe.ville("Edinburgh");
+        europe.ville("Erzurum");
+        europe.ville("Essen");
+        europe.ville("Frankfurt");
+        europe.ville("Kharkov");
+        europe.ville("Kobenhavn");
+        europe.ville("Kyiv");
+        europe.ville("Lisboa");
+        europe.ville("London");
+        europe.ville("Madrid");
+        europe.ville("Marseille");
+        europe.ville("Moskva");
+        europe.ville("Munchen");
+        europe.ville("Palermo");
+        europe.ville("Pamplona");
+        europe.ville("Paris");
+        europe.ville("Petrograd");
+        europe.ville("Riga");
+        europe.ville("Roma");
+        europe.ville("Rostov");
+        europe.ville("Sarajevo");
+        europe.ville("Sevastopol");
+        europe.ville("Smolensk");
+        europe.ville("Smyrna");
+        europe.ville("Sochi");
+        europe.ville("Sofia");
+        europe.ville("Stockholm");
+        europe.ville("Venezia");
+        europe.ville("Warszawa");
+        europe.ville("Wien");
+        europe.ville("Wilno");
+        europe.ville("Zagrab");
+        europe.ville("Zurich");
+
+        europe.route("Amsterdam", "Bruxelles", 1, CouleurWagon.NOIR);
+        europe.route("Amsterdam", "Essen", 3, CouleurWagon.JAUNE);
+        europe.route("Amsterdam", "Frankfurt", 2, CouleurWagon.BLANC);
+        europe.ferry("Amsterdam", "London", 2, CouleurWagon.GRIS, 2);
+        europe.tunnel("Angora", "Constantinople", 2, CouleurWagon.GRIS);
+        europe.route("Angora", "Erzurum", 3, CouleurWagon.NOIR);
+        europe.tunnel("Angora", "Smyrna", 3, CouleurWagon.ORANGE);
+        europe.ferry("Athina", "Brindisi", 4, CouleurWagon.GRIS, 1);
+        europe.route("Athina", "Sarajevo", 4, CouleurWagon.VERT);
+        europe.ferry("Athina", "Smyrna", 2, CouleurWagon.GRIS, 1);
+        europe.route("Athina", "Sofia", 3, CouleurWagon.ROSE);
+        europe.route("Barcelona", "Madrid", 2, CouleurWagon.JAUNE);
+        europe.route("Barcelona", "Marseille", 4, CouleurWagon.GRIS);
+        europe.tunnel("Barcelona", "Pamplona", 2, CouleurWagon.GRIS);
+        europe.route("Berlin", "Danzig", 4, CouleurWagon.GRIS);
+        europe.route("Berlin", "Essen", 2, CouleurWagon.BLEU);
+        europe.route("Berlin", "Frankfurt", 3, CouleurWagon.ROUGE);
+        europe.route("Berlin", "Frankfurt", 3, CouleurWagon.NOIR);
+        europe.route("Berlin", "Warszawa", 4, CouleurWagon.JAUNE);
+        europe.route("Berlin", "Warszawa", 4, CouleurWagon.ROSE);
+        europe.route("Berlin", "Wien", 3, CouleurWagon.VERT);
+        europe.route("Brest", "Dieppe", 2, CouleurWagon.ORANGE);
+        europe.route("Brest", "Pamplona", 4, CouleurWagon.ROSE);
+        europe.route("Brest", "Paris", 3, CouleurWagon.NOIR);
+        europe.ferry("Brindisi", "Palermo", 3, CouleurWagon.GRIS, 1);
+        europe.route("Brindisi", "Roma", 2, CouleurWagon.BLANC);
+        europe.route("Bruxelles", "Dieppe", 2, CouleurWagon.VERT);
+        europe.route("Bruxelles", "Frankfurt", 2, CouleurWagon.BLEU);
+        europe.route("Bruxelles", "Paris", 2, CouleurWagon.JAUNE);
+        europe.route("Bruxelles", "Paris", 2, CouleurWagon.ROUGE);
+        europe.tunnel("Bucuresti", "Budapest", 4, CouleurWagon.GRIS);
+        europe.route("Bucuresti", "Constantinople", 3, CouleurWagon.JAUNE);
+        europe.route("Bucuresti", "Kyiv", 4, CouleurWagon.GRIS);
+        europe.route("Bucuresti", "Sevastopol", 4, CouleurWagon.BLANC);
+        europe.tunnel("Bucuresti", "Sofia", 2, CouleurWagon.GRIS);
+        europe.tunnel("Budapest", "Kyiv", 6, CouleurWagon.GRIS);
+        europe.route("Budapest", "Sarajevo", 3, CouleurWagon.ROSE);
+        europe.route("Budapest", "Wien", 1, CouleurWagon.ROUGE);
+        europe.route("Budapest", "Wien", 1, CouleurWagon.BLANC);
+        europe.route("Budapest", "Zagrab", 2, CouleurWagon.ORANGE);
+        europe.route("Cadiz", "Lisboa", 2, CouleurWagon.BLEU);
+        europe.route("Cadiz", "Madrid", 3, CouleurWagon.ORANGE);
+        europe.ferry("Constantinople", "Sevastopol", 4, CouleurWagon.GRIS, 2);
+        europe.tunnel("Constantinople", "Smyrna", 2, CouleurWagon.GRIS);
+        europe.route("Constantinople", "Sofia", 3, CouleurWagon.BLEU);
+        europe.route("Danzig", "Riga", 3, CouleurWagon.NOIR);
+        europe.route("Danzig", "Warszawa", 2, CouleurWagon.GRIS);
+        europe.ferry("Dieppe", "London", 2, CouleurWagon.GRIS, 1);
+        europe.ferry("Dieppe", "London", 2, CouleurWagon.GRIS, 1);
+        europe.route("Dieppe", "Paris", 1, CouleurWagon.ROSE);
+        europe.route("Edinburgh", "London", 4, CouleurWagon.ORANGE);
+        europe.route("Edinburgh", "London", 4, CouleurWagon.NOIR);
+        europe.ferry("Erzurum", "Sevastopol", 4, CouleurWagon.GRIS, 2);
+        europe.tunnel("Erzurum", "Sochi", 3, CouleurWagon.ROUGE);
+        europe.route("Essen", "Frankfurt", 2, CouleurWagon.VERT);
+        europe.ferry("Essen", "Kobenhavn", 3, CouleurWagon.GRIS, 1);
+        europe.ferry("Essen", "Kobenhavn", 3, CouleurWagon.GRIS, 1);
+        europe.route("Frankfurt", "Munchen", 2, CouleurWagon.ROSE);
+        europe.route("Frankfurt", "Paris", 3, CouleurWagon.ORANGE);
+        europe.route("Frankfurt", "Paris", 3, CouleurWagon.BLANC);
+        europe.route("Kharkov", "Kyiv", 4, CouleurWagon.GRIS);
+        europe.route("Kharkov", "Moskva", 4, CouleurWagon.GRIS);
+        europe.route("Kharkov", "Rostov", 2, CouleurWagon.VERT);
+        europe.route("Kobenhavn", "Stockholm", 3, CouleurWagon.JAUNE);
+        europe.route("Kobenhavn", "Stockholm", 3, CouleurWagon.BLANC);
+        europe.route("Kyiv", "Smolensk", 3, CouleurWagon.ROUGE);
+        europe.route("Kyiv", "Warszawa", 4, CouleurWagon.GRIS);
+        europe.route("Kyiv", "Wilno", 2, CouleurWagon.GRIS);
+        europe.route("Lisboa", "Madrid", 3, CouleurWagon.ROSE);
+        europe.tunnel("Madrid", "Pamplona", 3, CouleurWagon.BLANC);
+        europe.tunnel("Madrid", "Pamplona", 3, CouleurWagon.NOIR);
+        europe.route("Marseille", "Pamplona", 4, CouleurWagon.ROUGE);
+        europe.route("Marseille", "Paris", 4, CouleurWagon.GRIS);
+        europe.tunnel("Marseille", "Roma", 4, CouleurWagon.GRIS);
+        europe.tunnel("Marseille", "Zurich", 2, CouleurWagon.ROSE);
+        europe.route("Moskva", "Petrograd", 4, CouleurWagon.BLANC);
+        europe.route("Moskva", "Smolensk", 2, CouleurWagon.ORANGE);
+        europe.tunnel("Munchen", "Venezia", 2, CouleurWagon.BLEU);
+        europe.route("Munchen", "Wien", 3, CouleurWagon.ORANGE);
+        europe.tunnel("Munchen", "Zurich", 2, CouleurWagon.JAUNE);
+        europe.ferry("Palermo", "Roma", 4, CouleurWagon.GRIS, 1);
+        europe.ferry("Palermo", "Smyrna", 6, CouleurWagon.GRIS, 2);
+        europe.route("Pamplona", "Paris", 4, CouleurWagon.BLEU);
+        europe.route("Pamplona", "Paris", 4, CouleurWagon.VERT);
+        europe.tunnel("Paris", "Zurich", 3, CouleurWagon.GRIS);
+        europe.route("Petrograd", "Riga", 4, CouleurWagon.GRIS);
+        europe.tunnel("Petrograd", "Stockholm", 8, CouleurWagon.GRIS);
+        europe.route("Petrograd", "Wilno", 4, CouleurWagon.BLEU);
+        europe.route("Riga", "Wilno", 4, CouleurWagon.VERT);
+        europe.route("Roma", "Venezia", 2, CouleurWagon.NOIR);
+        europe.route("Rostov", "Sevastopol", 4, CouleurWagon.GRIS);
+        europe.route("Rostov", "Sochi", 2, CouleurWagon.GRIS);
+        europe.tunnel("Sarajevo", "Sofia", 2, CouleurWagon.GRIS);
+        europe.route("Sarajevo", "Zagrab", 3, CouleurWagon.ROUGE);
+        europe.ferry("Sevastopol", "Sochi", 2, CouleurWagon.GRIS, 1);
+        europe.route("Smolensk", "Wilno", 3, CouleurWagon.JAUNE);
+        europe.route("Venezia", "Zagrab", 2, CouleurWagon.GRIS);
+        europe.tunnel("Venezia", "Zurich", 2, CouleurWagon.VERT);
+        europe.route("Warszawa", "Wien", 4, CouleurWagon.BLEU);
+        europe.route("Warszawa", "Wilno", 3, CouleurWagon.ROUGE);
+        europe.route("Wien", "Zagrab", 2, CouleurWagon.GRIS);
+        return europe.construire();
+    }
+
+    /**
+     * @return le graphe du plateau Europe, construit une seule fois et partagé
+     * par toutes les parties (voir {@link Plateau#makePlateauEurope()})
+     */
+    public static GraphePlateau europe() {
+        return Europe.GRAPHE;
+    }
+
+    public int getNbVilles() {
+        return nomsVilles.length;
+    }
+
+    public int getNbRoutes() {
+        return nomsRoutes.length;
+    }
+
+    public String getNomVille(int ville) {
+        return nomsVilles[ville];
+    }
+
+    public String getNomRoute(int route) {
+        return nomsRoutes[route];
+    }
+
+    /**
+     * @return le numéro de la ville de nom donné, ou -1 si elle n'est pas sur le plateau
+     */
+    public int getVille(String nom) {
+        return villesParNom.getOrDefault(nom, -1);
+    }
+
+    /**
+     * @return le numéro de la route de nom donné, ou -1 si elle n'est pas sur le plateau
+     */
+    public int getRoute(String nom) {
+        return routesParNom.getOrDefault(nom, -1);
+    }
+
+    /**
+     * @return l'indice de la première route de la ville dans les tableaux de voisinage
+     */
+    public int debutVoisins(int ville) {
+        return debutVoisins[ville];
+    }
+
+    /**
+     * @return l'indice qui suit la dernière route de la ville dans les tableaux de voisinage
+     */
+    public int finVoisins(int ville) {
+        return debutVoisins[ville + 1];
+    }
+
+    /**
+     * @return le nombre de routes qui partent de la ville
+     */
+    public int degre(int ville) {
+        return debutVoisins[ville + 1] - debutVoisins[ville];
+    }
+
+    /**
+     * @param i indice dans les tableaux de voisinage
+     * @return la ville à l'autre extrémité de la route d'indice i
+     */
+    public int voisin(int i) {
+        return voisins[i];
+    }
+
+    /**
+     * @param i indice dans les tableaux de voisinage
+     * @return le numéro de la route d'indice i
+     */
+    public int routeVoisine(int i) {
+        return routesVoisines[i];
+    }
+
+    public int getVille1(int route) {
+        return ville1[route];
+    }
+
+    public int getVille2(int route) {
+        return ville2[route];
+    }
+
+    /**
+     * @return l'extrémité de la route qui n'est pas la ville donnée
+     */
+    public int autreExtremite(int route, int ville) {
+        return ville1[route] == ville ? ville2[route] : ville1[route];
+    }
+
+    public int getLongueur(int route) {
+        return longueur[route];
+    }
+
+    /**
+     * @return la couleur de la route au début de la partie (GRIS si n'importe
+     * quelle couleur convient)
+     */
+    public CouleurWagon getCouleur(int route) {
+        return couleur[route];
+    }
+
+    public boolean estTunnel(int route) {
+        return tunnel[route];
+    }
+
+    public boolean estFerry(int route) {
+        return nbLocomotives[route] > 0;
+    }
+
+    /**
+     * @return le nombre de locomotives à payer pour capturer la route (0 si ce
+     * n'est pas un ferry)
+     */
+    public int getNbLocomotives(int route) {
+        return nbLocomotives[route];
+    }
+
+    /**
+     * @return le numéro de l'autre route d'une route double, ou -1 si la route
+     * est simple
+     */
+    public int getRouteDouble(int route) {
+        return routeDouble[route];
+    }
+}
@@ -1,16 +1,23 @@
 package fr.umontpellier.iut.rails;
 
-import com.google.gson.Gson;
-import fr.umontpellier.iut.gui.GameServer;
+import fr.umontpellier.iut.gui.ClientPartie;
+import fr.umontpellier.iut.gui.InstantaneJeu;
+import fr.umontpellier.iut.gui.Partie;
 
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static fr.umontpellier.iut.rails.CouleurWagon.getCouleursSimples;
 
 public class Jeu implements Runnable {
+    /**
+     * Points du bonus « Express européen » (plus long chemin continu)
+     */
+    public static final int BONUS_CHEMIN_LE_PLUS_LONG = 10;
+    /**
+     * Nombre maximal d'instructions retirées ensemble de la file d'entrées
+     */
+    private static final int TAILLE_LOT = 32;
     /**
      * Liste des joueurs
      */
@@ -28,61 +35,174 @@ public class Jeu implements Runnable {
      * Liste des routes du plateau de jeu
      */
     private List<Route> routes;
+    /**
+     * Plateau de jeu (état des villes et des routes de la partie, sur le graphe
+     * partagé par toutes les parties)
+     */
+    private final Plateau plateau;
     /**
      * Pile de pioche (face cachée)
      */
-    private List<CouleurWagon> pileCartesWagon;
+    private PileCartesWagon pileCartesWagon;
     /**
      * Cartes de la pioche face visible (normalement il y a 5 cartes face visible)
      */
-    private List<CouleurWagon> cartesWagonVisibles;
+    private CartesWagon cartesWagonVisibles;
     /**
      * Pile de cartes qui ont été défaussée au cours de la partie
      */
-    private List<CouleurWagon> defausseCartesWagon;
+    private CartesWagon defausseCartesWagon;
     /**
      * Pile des cartes "Destination" (uniquement les destinations "courtes", les
      * destinations "longues" sont distribuées au début de la partie et ne peuvent
      * plus être piochées après)
      */
     private List<Destination> pileDestinations;
+    /**
+     * Instruction reçue, avec le client qui l'a envoyée (null si elle ne vient pas
+     * d'un client du serveur)
+     */
+    private record Entree(String texte, ClientPartie client) {
+    }
+
     /**
      * File d'attente des instructions recues par le serveur
      */
-    private BlockingQueue<String> inputQueue;
+    private final FileEntrees<Entree> entreesRecues;
+    /**
+     * Dernier lot d'instructions retiré de la file : les instructions de
+     * {@code debutLot} (inclus) à {@code finLot} (exclu) n'ont pas encore été lues
+     */
+    private final Entree[] lot;
+    private int debutLot;
+    private int finLot;
+    /**
+     * Client qui a envoyé la dernière instruction lue (null si elle ne vient pas
+     * d'un client), prévenu si elle est refusée
+     */
+    private ClientPartie origineEntree;
+    /**
+     * Choix enregistrés à relire avant la file d'instructions (partie rejouée
+     * ou reprise), et position du prochain choix à relire
+     */
+    private List<String> entreesARelire;
+    private int prochaineEntreeARelire;
+    /**
+     * Nombre d'instructions lues qui n'étaient pas un choix valide (modifié
+     * seulement par le thread de la partie)
+     */
+    private volatile long nbEntreesInvalides;
     /**
      * Messages d'information du jeu
      */
-    private List<String> log;
-
-
+    private LogJeu log;
+    /**
+     * Partie du serveur à laquelle le jeu envoie son état (ou null si le jeu
+     * n'est pas hébergé par le serveur)
+     */
+    private Partie partie;
+    /**
+     * Noms des joueurs (conservés pour l'enregistrement de la partie)
+     */
+    private final String[] nomJoueurs;
+    /**
+     * Graine du générateur aléatoire de la partie
+     */
+    private final long graine;
+    /**
+     * Générateur aléatoire utilisé pour tous les mélanges de la partie (propre à
+     * la partie : des parties jouées en parallèle ne partagent aucun générateur)
+     */
+    private final SplittableRandom alea;
+    /**
+     * Choix valides faits par les joueurs depuis le début de la partie (voir
+     * {@link #getEnregistrement()})
+     */
+    private final List<String> entrees;
+    /**
+     * Indique que la partie est rejouée à partir d'un enregistrement : les entrées
+     * ne sont pas attendues et la partie s'arrête lorsqu'elles sont épuisées
+     */
+    private boolean enRejeu;
+    /**
+     * Nombre de choix du journal à partir duquel la partie a été reprise (voir
+     * {@link #reprendre(Enregistrement)}) : tant qu'ils ne sont pas tous rejoués,
+     * l'état n'est ni affiché ni envoyé, et ils ne sont pas de nouveau journalisés
+     */
+    private int nbEntreesReprises;
+    /**
+     * Indique que le jeu s'exécute sans affichage ni envoi de son état (les
+     * joueurs sont alors pilotés par des stratégies)
+     */
+    private boolean silencieux;
+    /**
+     * Nombre maximal de tours de jeu (0 si la partie n'est pas limitée)
+     */
+    private int nbToursMax;
+    /**
+     * Nombre de tours joués depuis le début de la partie
+     */
+    private int nbTours;
+    /**
+     * Calcul des plus longs chemins des joueurs (réutilisé d'un calcul à l'autre)
+     */
+    private final CheminLePlusLong cheminLePlusLong = new CheminLePlusLong();
+    /**
+     * Longueur du plus long chemin de chaque joueur (dans l'ordre des joueurs), ou
+     * -1 si elle doit être recalculée (voir {@link #routeChangee(Route)})
+     */
+    private final int[] longueursChemins;
+    /**
+     * Routes, villes et cartes visibles que les joueurs peuvent choisir au début
+     * de leur tour
+     */
+    private final CoupsPossibles coupsPossibles;
 
     public Jeu(String[] nomJoueurs) {
+        this(nomJoueurs, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Crée un jeu dont les mélanges de cartes sont déterminés par une graine
+     *
+     * @param nomJoueurs noms des joueurs
+     * @param graine     graine du générateur aléatoire de la partie
+     */
+    public Jeu(String[] nomJoueurs, long graine) {
+        this.nomJoueurs = nomJoueurs.clone();
+        this.graine = graine;
+        alea = new SplittableRandom(graine);
+        entrees = new ArrayList<>();
 
         // initialisation des entrées/sorties
-        inputQueue = new LinkedBlockingQueue<>();
-        log = new ArrayList<>();
+        entreesRecues = new FileEntrees<>();
+        lot = new Entree[TAILLE_LOT];
+        entreesARelire = List.of();
+        log = new LogJeu();
 
         // création des cartes
-        pileCartesWagon = new ArrayList<>();
-        cartesWagonVisibles = new ArrayList<>();
-        defausseCartesWagon = new ArrayList<>();
+        pileCartesWagon = new PileCartesWagon();
+        cartesWagonVisibles = new CartesWagon();
+        defausseCartesWagon = new CartesWagon();
         pileDestinations = new ArrayList<>();
 
         // création des joueurs
         ArrayList<Joueur.Couleur> couleurs = new ArrayList<>(Arrays.asList(Joueur.Couleur.values()));
-        Collections.shuffle(couleurs);
+        melanger(couleurs);
         joueurs = new ArrayList<>();
         for (String nom : nomJoueurs) {
             Joueur joueur = new Joueur(nom, this, couleurs.remove(0));
             joueurs.add(joueur);
         }
         joueurCourant = joueurs.get(0);
+        longueursChemins = new int[joueurs.size()];
+        Arrays.fill(longueursChemins, -1);
 
-        // création des villes et des routes
-        Plateau plateau = Plateau.makePlateauEurope();
+        // création du plateau (seul l'état des villes et des routes est propre à la partie)
+        plateau = new Plateau(getGraphe(), joueurs);
         villes = plateau.getVilles();
         routes = plateau.getRoutes();
+        coupsPossibles = new CoupsPossibles(getGraphe(), routes, villes, cartesWagonVisibles, joueurs.size());
 
         // remplissage de la pioche
         for (int i = 0; i < 12; i++) {
@@ -91,24 +211,24 @@ public class Jeu implements Runnable {
         for(int i = 0; i < 14; i++) {
             pileCartesWagon.add(CouleurWagon.LOCOMOTIVE);
         }
-        Collections.shuffle(pileCartesWagon);
+        pileCartesWagon.melanger(alea);
 
 
         //distribuer cartes wagon
         for(int i = 0; i < nomJoueurs.length; i++) {
             for (int j = 0; j < 4; j++) {
-                joueurs.get(i).getCartesWagon().add(pileCartesWagon.remove(0));
+                joueurs.get(i).getCartesWagon().add(pileCartesWagon.piocher());
             }
         }
 
         //mettre cartes wagons visibles
         for(int i = 0; i < 5; i++) {
-            cartesWagonVisibles.add(pileCartesWagon.remove(0));
+            cartesWagonVisibles.add(pileCartesWagon.piocher());
         }
 
         //mélanger cartes destinations
         ArrayList<Destination> destinationscourtes = Destination.makeDestinationsEurope();
-        Collections.shuffle(destinationscourtes);
+        melanger(destinationscourtes);
         pileDestinations.addAll(destinationscourtes);
     }
 
@@ -128,6 +248,106 @@ public class Jeu implements Runnable {
         return routes;
     }
 
+    public Plateau getPlateau() {
+        return plateau;
+    }
+
+    /**
+     * @return le graphe du plateau (partagé par toutes les parties, voir
+     * {@link GraphePlateau#europe()})
+     */
+    public GraphePlateau getGraphe() {
+        return GraphePlateau.europe();
+    }
+
+    /**
+     * @return la longueur du plus long chemin continu formé par les routes du joueur
+     * (calculée de nouveau seulement lorsque le propriétaire d'une route a changé)
+     */
+    public int longueurCheminLePlusLong(Joueur joueur) {
+        int index = joueurs.indexOf(joueur);
+        if (index >= 0 && longueursChemins[index] >= 0) {
+            return longueursChemins[index];
+        }
+        int[] numeros = new int[routes.size()];
+        int nbRoutes = 0;
+        for (Route route : routes) {
+            if (route.getProprietaire() == joueur) {
+                numeros[nbRoutes++] = route.getId();
+            }
+        }
+        int longueur = cheminLePlusLong.calculer(getGraphe(), numeros, nbRoutes);
+        if (index >= 0) {
+            longueursChemins[index] = longueur;
+        }
+        return longueur;
+    }
+
+    /**
+     * @return les joueurs qui ont le plus long chemin continu (vide si aucun
+     * joueur n'a de route). Ils reçoivent le bonus « Express européen » en fin de
+     * partie.
+     */
+    public List<Joueur> getMeneursCheminLePlusLong() {
+        List<Joueur> meneurs = new ArrayList<>();
+        int meilleur = 1; // un joueur sans route n'est jamais meneur
+        for (Joueur joueur : joueurs) {
+            int longueur = longueurCheminLePlusLong(joueur);
+            if (longueur > meilleur) {
+                meneurs.clear();
+                meilleur = longueur;
+            }
+            if (longueur == meilleur) {
+                meneurs.add(joueur);
+            }
+        }
+        return meneurs;
+    }
+
+    public CoupsPossibles getCoupsPossibles() {
+        return coupsPossibles;
+    }
+
+    /**
+     * Met à jour les distances de tous les joueurs, les coups possibles et les
+     * plus longs chemins après le changement de propriétaire d'une route
+     * (appelée par {@link Route#setProprietaire(Joueur)})
+     */
+    void routeChangee(Route route) {
+        if (route.getId() < 0) {
+            return;
+        }
+        Arrays.fill(longueursChemins, -1);
+        coupsPossibles.routeChangee(route.getId());
+        int autre = getGraphe().getRouteDouble(route.getId());
+        for (Joueur joueur : joueurs) {
+            joueur.getDistances().changerCout(route.getId(), coutRoute(route.getId(), joueur));
+            if (autre >= 0) {
+                // à moins de 4 joueurs, une route double se ferme dès que l'une des deux est prise
+                joueur.getDistances().changerCout(autre, coutRoute(autre, joueur));
+            }
+        }
+    }
+
+    /**
+     * @return le nombre de wagons que le joueur doit poser pour utiliser la route
+     * (0 s'il la possède, {@link Distances#INFINI} s'il ne peut plus la capturer)
+     */
+    private int coutRoute(int numero, Joueur joueur) {
+        Joueur proprietaire = routes.get(numero).getProprietaire();
+        if (proprietaire == joueur) {
+            return 0;
+        }
+        if (proprietaire != null) {
+            return Distances.INFINI;
+        }
+        int autre = getGraphe().getRouteDouble(numero);
+        if (autre >= 0 && joueurs.size() < 4 && routes.get(autre).getProprietaire() != null) {
+            return Distances.INFINI;
+        }
+        return getGraphe().getLongueur(numero);
+    }
+
     public Joueur getJoueurCourant() {
         return joueurCourant;
     }
@@ -140,6 +360,150 @@ public class Jeu implements Runnable {
         return pileDestinations;
     }
 
+    public LogJeu getLog() {
+        return log;
+    }
+
+    public void setPartie(Partie partie) {
+        this.partie = partie;
+    }
+
+    public long getGraine() {
+        return graine;
+    }
+
+    /**
+     * Mélange une liste avec le générateur de la partie (algorithme de
+     * Fisher-Yates)
+     */
+    private void melanger(List<?> liste) {
+        for (int i = liste.size() - 1; i > 0; i--) {
+            Collections.swap(liste, i, alea.nextInt(i + 1));
+        }
+    }
+
+    /**
+     * Ajoute un choix valide d'un joueur à l'enregistrement de la partie
+     */
+    void enregistrerEntree(String entree) {
+        boolean nouvelle;
+        synchronized (entrees) {
+            entrees.add(entree);
+            nouvelle = entrees.size() > nbEntreesReprises;
+        }
+        if (nouvelle && partie != null) {
+            partie.journaliser(entree);
+        }
+    }
+
+    /**
+     * @return true tant que les choix d'une partie reprise sont en train d'être rejoués
+     */
+    boolean enRattrapage() {
+        synchronized (entrees) {
+            return entrees.size() < nbEntreesReprises;
+        }
+    }
+
+    /**
+     * Renvoie l'enregistrement de la partie depuis son début : avec la graine, il
+     * permet de la rejouer exactement jusqu'à l'état actuel (voir
+     * {@link #rejouer(Enregistrement)}). Cette méthode peut être appelée depuis un
+     * autre thread que celui de la partie.
+     */
+    public Enregistrement getEnregistrement() {
+        synchronized (entrees) {
+            return new Enregistrement(Arrays.asList(nomJoueurs), graine, entrees);
+        }
+    }
+
+    /**
+     * Levée lorsqu'une partie rejouée a utilisé toutes les entrées de son
+     * enregistrement
+     */
+    private static class FinRejeu extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FinRejeu() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Rejoue une partie enregistrée, sans affichage, jusqu'à la fin de ses entrées
+     * (ou de la partie)
+     *
+     * @param enregistrement l'enregistrement de la partie
+     * @return le jeu dans l'état où il était après le dernier choix enregistré
+     */
+    public static Jeu rejouer(Enregistrement enregistrement) {
+        Jeu jeu = new Jeu(enregistrement.nomJoueurs().toArray(new String[0]), enregistrement.graine());
+        jeu.silencieux = true;
+        jeu.enRejeu = true;
+        jeu.entreesARelire = enregistrement.entrees();
+        try {
+            jeu.run();
+        } catch (FinRejeu e) {
+            // toutes les entrées ont été rejouées
+        }
+        return jeu;
+    }
+
+    /**
+     * Prépare la reprise d'une partie interrompue (par exemple à partir de son
+     * journal sur le serveur) : lorsque le jeu est exécuté, les choix enregistrés
+     * sont rejoués sans affichage ni envoi de l'état, puis la partie continue
+     * normalement en attendant les entrées suivantes.
+     *
+     * @param enregistrement l'enregistrement de la partie interrompue
+     * @return le jeu, qui n'est pas encore exécuté
+     */
+    public static Jeu reprendre(Enregistrement enregistrement) {
+        Jeu jeu = new Jeu(enregistrement.nomJoueurs().toArray(new String[0]), enregistrement.graine());
+        jeu.nbEntreesReprises = enregistrement.entrees().size();
+        jeu.entreesARelire = enregistrement.entrees();
+        return jeu;
+    }
+
+    public boolean isSilencieux() {
+        return silencieux;
+    }
+
+    /**
+     * Active ou désactive le mode silencieux : le jeu n'affiche rien, n'envoie
+     * pas son état et ne conserve pas de log. Les joueurs doivent alors avoir
+     * une stratégie (voir {@link Joueur#setStrategie(Strategie)}), car aucune
+     * entrée n'est attendue.
+     */
+    public void setSilencieux(boolean silencieux) {
+        this.silencieux = silencieux;
+    }
+
+    public int getNbToursMax() {
+        return nbToursMax;
+    }
+
+    /**
+     * Limite la durée de la partie (utile pour les simulations, où des
+     * stratégies peuvent ne jamais terminer la partie)
+     *
+     * @param nbToursMax nombre maximal de tours de jeu, ou 0 pour ne pas limiter la partie
+     */
+    public void setNbToursMax(int nbToursMax) {
+        this.nbToursMax = nbToursMax;
+    }
+
+    public int getNbTours() {
+        return nbTours;
+    }
+
+    /**
+     * @return true si la partie a été arrêtée parce qu'elle a atteint le nombre maximal de tours
+     */
+    public boolean estInterrompue() {
+        return nbToursMax > 0 && nbTours >= nbToursMax;
+    }
+
     private ArrayList<String> gagnant(){
         ArrayList<String> g=new ArrayList<>();
         Joueur j=joueurs.get(0);
@@ -152,7 +516,7 @@ public class Jeu implements Runnable {
         }
         for(int i=n;i<joueurs.size();i++){
             if(joueurs.get(i).getScore()==j.getScore()){
-                g.add(j.getNom());
+                g.add(joueurs.get(i).getNom());
             }
         }
         return g;
@@ -163,7 +527,7 @@ public class Jeu implements Runnable {
      */
     public void run() {
         ArrayList<Destination> destinationslongues = Destination.makeDestinationsLonguesEurope();
-        Collections.shuffle(destinationslongues);
+        melanger(destinationslongues);
         for (int i=0;i<joueurs.size();i++){
             joueurCourant=joueurs.get(i);
             ArrayList<Destination> destinationsPossibles=new ArrayList<>();
@@ -175,8 +539,9 @@ public class Jeu implements Runnable {
         }
         int i=0;
         joueurCourant=joueurs.get(0);
-        while(joueurCourant.getNbWagons()>0){
+        while(joueurCourant.getNbWagons()>0 && !estInterrompue()){
             joueurCourant.jouerTour();
+            nbTours++;
             if(i>=joueurs.size()-1){
                 i=0;
             }
@@ -185,7 +550,21 @@ public class Jeu implements Runnable {
             }
             joueurCourant=joueurs.get(i);
         }
-        prompt("Le joueur "+gagnant()+" a gagné !",new ArrayList<String>(),false);
+        if (!estInterrompue()) {
+            // décompte des destinations en fin de partie
+            for (Joueur joueur : joueurs) {
+                int points = joueur.scoreDestinations();
+                joueur.addScore(points);
+                log(String.format("%s : %+d points de destinations", joueur.toLog(), points));
+            }
+            for (Joueur joueur : getMeneursCheminLePlusLong()) {
+                joueur.addScore(BONUS_CHEMIN_LE_PLUS_LONG);
+                log(String.format("%s : bonus Express européen (+%d)", joueur.toLog(), BONUS_CHEMIN_LE_PLUS_LONG));
+            }
+        }
+        if (!silencieux) {
+            prompt("Le joueur "+gagnant()+" a gagné !",new ArrayList<String>(),false);
+        }
     }
 
     /**
@@ -209,27 +588,34 @@ public class Jeu implements Runnable {
     /**
      * Pioche une carte de la pile de pioche
      * Si la pile est vide, les cartes de la défausse sont replacées dans la pioche
-     * puis mélangées avant de piocher une carte
+     * (toutes à la fois) puis mélangées une seule fois avant de piocher une carte
      *
      * @return la carte qui a été piochée (ou null si aucune carte disponible)
      */
     public CouleurWagon piocherCarteWagon() {
-        if(pileCartesWagon.isEmpty()){
-            int taille=defausseCartesWagon.size();
-            for (int i=0;i<taille;i++){
-                CouleurWagon carteRemplace=defausseCartesWagon.remove(0);
-                pileCartesWagon.add(carteRemplace);
-                Collections.shuffle(pileCartesWagon);
-            }
+        if(pileCartesWagon.isEmpty() && !defausseCartesWagon.isEmpty()){
+            pileCartesWagon.addAll(defausseCartesWagon);
+            defausseCartesWagon.clear();
+            pileCartesWagon.melanger(alea);
         }
-        CouleurWagon cartePioche=pileCartesWagon.remove(0);
-        return cartePioche;
+        return pileCartesWagon.piocher();
     }
 
+    /**
+     * Remplace les cartes visibles tant qu'au moins 3 d'entre elles sont des
+     * locomotives. Les cartes visibles sont remises dans la pioche, qui est
+     * remélangée. Si la pioche et les cartes visibles ne contiennent pas au moins
+     * 3 cartes qui ne sont pas des locomotives, les cartes ne sont pas remplacées
+     * (sinon la boucle ne se terminerait jamais).
+     */
     private void refaitPiocheVisible(){
-        while(Collections.frequency(cartesWagonVisibles,CouleurWagon.LOCOMOTIVE)>=3){
+        while(cartesWagonVisibles.compter(CouleurWagon.LOCOMOTIVE)>=3
+                && pileCartesWagon.size() + cartesWagonVisibles.size()
+                - pileCartesWagon.compter(CouleurWagon.LOCOMOTIVE)
+                - cartesWagonVisibles.compter(CouleurWagon.LOCOMOTIVE) >= 3){
             pileCartesWagon.addAll(cartesWagonVisibles);
             cartesWagonVisibles.clear();
+            pileCartesWagon.melanger(alea);
             for(int i=0;i<5;i++){
                 cartesWagonVisibles.add(piocherCarteWagon());
             }
@@ -245,7 +631,10 @@ public class Jeu implements Runnable {
         if(cartesWagonVisibles.contains(c)){
             cartesWagonVisibles.remove(c);
             joueurCourant.getCartesWagon().add(c);
-            cartesWagonVisibles.add(pileCartesWagon.remove(0));
+            CouleurWagon remplacante=piocherCarteWagon();
+            if(remplacante!=null){
+                cartesWagonVisibles.add(remplacante);
+            }
             refaitPiocheVisible();
         }
     }
@@ -283,14 +672,65 @@ public class Jeu implements Runnable {
      * Ajoute un message au log du jeu
      */
     public void log(String message) {
-        log.add(message);
+        if (silencieux) {
+            return;
+        }
+        log.ajouter(message);
     }
 
     /**
-     * Ajoute un message à la file d'entrées
+     * Ajoute un message à la file d'entrées (peut être appelée depuis n'importe
+     * quel thread)
+     *
+     * @return false si la file est pleine : le message est alors ignoré
+     */
+    public boolean addInput(String message) {
+        return addInput(message, null);
+    }
+
+    /**
+     * Ajoute un message envoyé par un client à la file d'entrées (peut être
+     * appelée depuis n'importe quel thread)
+     *
+     * @param client le client qui a envoyé le message : il est prévenu si le
+     *               message n'est pas un choix valide au moment où il est lu
+     * @return false si la file est pleine : le message est alors ignoré
      */
-    public void addInput(String message) {
-        inputQueue.add(message);
+    public boolean addInput(String message, ClientPartie client) {
+        return entreesRecues.offrir(new Entree(message, client));
+    }
+
+    /**
+     * @return le nombre de messages ignorés parce que la file d'entrées était pleine
+     */
+    public long getNbEntreesRefusees() {
+        return entreesRecues.getNbRefusees();
+    }
+
+    /**
+     * @return le nombre d'instructions lues qui n'étaient pas un choix valide
+     */
+    public long getNbEntreesInvalides() {
+        return nbEntreesInvalides;
+    }
+
+    /**
+     * Signale qu'une instruction lue n'est pas un choix valide. Contrairement à
+     * {@link #prompt}, l'état de la partie (qui n'a pas changé) n'est ni réaffiché
+     * ni renvoyé aux clients : seul le client qui a envoyé l'instruction reçoit
+     * un message d'erreur court.
+     *
+     * @param entree l'instruction refusée
+     */
+    public void refuserEntree(String entree) {
+        nbEntreesInvalides++;
+        if (partie != null && origineEntree != null) {
+            partie.refuserEntree(origineEntree);
+        }
+        if (silencieux || enRattrapage()) {
+            return;
+        }
+        System.out.printf(">>> %s: choix invalide (%s) <<<%n", joueurCourant.getNom(), entree);
     }
 
     /**
@@ -302,12 +742,27 @@ public class Jeu implements Runnable {
      *         file
      */
     public String lireLigne() {
-        try {
-            return inputQueue.take();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            return null;
+        if (prochaineEntreeARelire < entreesARelire.size()) {
+            origineEntree = null;
+            return entreesARelire.get(prochaineEntreeARelire++);
+        }
+        if (enRejeu) {
+            throw new FinRejeu();
         }
+        if (debutLot == finLot) {
+            try {
+                finLot = entreesRecues.prendre(lot);
+                debutLot = 0;
+            } catch (InterruptedException e) {
+                // arrêt du serveur : la partie se termine (voir Partie.demarrer)
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Partie interrompue", e);
+            }
+        }
+        Entree entree = lot[debutLot];
+        lot[debutLot++] = null;
+        origineEntree = entree.client();
+        return entree.texte();
     }
 
     /**
@@ -318,6 +773,9 @@ public class Jeu implements Runnable {
      * @param peutPasser  indique si le joueur peut passer sans faire de choix
      */
     public void prompt(String instruction, Collection<String> boutons, boolean peutPasser) {
+        if (silencieux || enRattrapage()) {
+            return;
+        }
         System.out.println();
         System.out.println(this);
         if (boutons.isEmpty()) {
@@ -329,26 +787,10 @@ public class Jeu implements Runnable {
             }
             System.out.printf(">>> %s: %s [%s] <<<%n", joueurCourant.getNom(), instruction, joiner);
         }
-
-        Map<String, Object> data = Map.ofEntries(
-                new AbstractMap.SimpleEntry<String, Object>("prompt", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("instruction", instruction),
-                        new AbstractMap.SimpleEntry<String, Object>("boutons", boutons),
-                        new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", getJoueurCourant().getNom()),
-                        new AbstractMap.SimpleEntry<String, Object>("peutPasser", peutPasser))),
-                new AbstractMap.SimpleEntry<>("villes",
-                        villes.stream().map(Ville::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<>("routes",
-                        routes.stream().map(Route::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("joueurs",
-                        joueurs.stream().map(Joueur::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("piles", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", pileCartesWagon.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("pileDestinations", pileDestinations.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", defausseCartesWagon),
-                        new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", cartesWagonVisibles))),
-                new AbstractMap.SimpleEntry<String, Object>("log", log));
-        GameServer.setEtatJeu(new Gson().toJson(data));
+        if (partie == null) {
+            return;
+        }
+        partie.publier(new InstantaneJeu(this, instruction, boutons, peutPasser));
     }
 
 }
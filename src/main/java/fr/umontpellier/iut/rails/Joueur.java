@@ -12,6 +12,13 @@ public class Joueur {
         JAUNE, ROUGE, BLEU, VERT, ROSE;
     }
 
+    /**
+     * Instructions des choix d'un tour (reconnues par les stratégies)
+     */
+    static final String INSTRUCTION_TOUR = "Que voulez vous faire ?";
+    static final String INSTRUCTION_SECONDE_CARTE = "Choisissez une seconde carte";
+    static final String INSTRUCTION_DESTINATION = "choisissez une carte a retirer";
+
     /**
      * Jeu auquel le joueur est rattaché
      */
@@ -39,16 +46,37 @@ public class Joueur {
     /**
      * Liste des cartes que le joueur a en main
      */
-    private List<CouleurWagon> cartesWagon;
+    private CartesWagon cartesWagon;
     /**
      * Liste temporaire de cartes wagon que le joueur est en train de jouer pour
      * payer la capture d'une route ou la construction d'une gare
      */
-    private List<CouleurWagon> cartesWagonPosees;
+    private CartesWagon cartesWagonPosees;
     /**
      * Score courant du joueur (somme des valeurs des routes capturées)
      */
     private int score;
+    /**
+     * Stratégie qui prend les décisions du joueur (ou null si les décisions sont
+     * lues sur l'entrée du jeu)
+     */
+    private Strategie strategie;
+    /**
+     * Villes reliées par les routes capturées par le joueur (sans compter les
+     * routes empruntées grâce aux gares)
+     */
+    private Connexite reseau;
+    /**
+     * Nombre de wagons qu'il reste au joueur à poser pour relier deux villes
+     */
+    private DistancesJoueur distances;
+    /**
+     * Noms des routes que le joueur peut capturer (voir {@link #nomRoutes()}),
+     * calculés pour les versions de sa main et des routes ouvertes ci-dessous
+     */
+    private List<String> routesCapturables;
+    private int versionMain;
+    private int versionRoutes;
 
     public Joueur(String nom, Jeu jeu, Joueur.Couleur couleur) {
         this.nom = nom;
@@ -56,10 +84,12 @@ public class Joueur {
         this.couleur = couleur;
         nbGares = 3;
         nbWagons = 45;
-        cartesWagon = new ArrayList<>();
-        cartesWagonPosees = new ArrayList<>();
+        cartesWagon = new CartesWagon();
+        cartesWagonPosees = new CartesWagon();
         destinations = new ArrayList<>();
         score = 12; // chaque gare non utilisée vaut 4 points
+        reseau = new Connexite(jeu.getGraphe().getNbVilles());
+        distances = new DistancesJoueur(jeu.getGraphe(), Distances.europe());
     }
 
     public String getNom() {
@@ -86,6 +116,13 @@ public class Joueur {
         return cartesWagon;
     }
 
+    /**
+     * @return le nombre de cartes wagon de la couleur donnée que le joueur a en main
+     */
+    public int nbCartesWagon(CouleurWagon couleur) {
+        return cartesWagon.compter(couleur);
+    }
+
     public List<Destination> getDestinations() {
         return destinations;
     }
@@ -98,10 +135,32 @@ public class Joueur {
         return nbGares;
     }
 
+    void setNbGares(int nbGares) {
+        this.nbGares = nbGares;
+    }
+
+    void setNbWagons(int nbWagons) {
+        this.nbWagons = nbWagons;
+    }
+
     public void addScore(int score) {
         this.score += score;
     }
 
+    public Strategie getStrategie() {
+        return strategie;
+    }
+
+    /**
+     * Confie les décisions du joueur à une stratégie : {@link #choisir} ne lit
+     * plus les entrées du jeu et n'affiche plus d'instruction.
+     *
+     * @param strategie la stratégie, ou null pour lire de nouveau les entrées du jeu
+     */
+    public void setStrategie(Strategie strategie) {
+        this.strategie = strategie;
+    }
+
     /**
      * Attend une entrée de la part du joueur (au clavier ou sur la websocket) et
      * renvoie le choix du joueur.
@@ -119,6 +178,13 @@ public class Joueur {
      * Si l'ensemble des choix est vide, la chaîne vide ("") est automatiquement
      * renvoyée par la méthode (indépendamment de la valeur de {@code canPass}).
      * <p>
+     * Si le joueur a une stratégie, c'est elle qui fait le choix, sans que l'entrée
+     * du jeu ne soit lue (sauf pendant le rattrapage d'une partie reprise, dont
+     * les choix enregistrés sont relus).
+     * <p>
+     * Le choix renvoyé (sauf s'il était l'unique choix possible) est ajouté à
+     * l'enregistrement de la partie (voir {@link Jeu#getEnregistrement()}).
+     * <p>
      * Exemple d'utilisation pour demander à un joueur de répondre à une question
      * par "oui" ou "non" :
      * <p>
@@ -153,7 +219,7 @@ public class Joueur {
     public String choisir(String instruction, Collection<String> choix, Collection<String> boutons,
                           boolean peutPasser) {
         // on retire les doublons de la liste des choix
-        HashSet<String> choixDistincts = new HashSet<>();
+        LinkedHashSet<String> choixDistincts = new LinkedHashSet<>();
         choixDistincts.addAll(choix);
         choixDistincts.addAll(boutons);
 
@@ -164,15 +230,28 @@ public class Joueur {
             // Un seul choix possible (renvoyer cet unique élément)
             if (choixDistincts.size() == 1 && !peutPasser)
                 return choixDistincts.iterator().next();
-            else {
-                String entree;
-                // Lit l'entrée de l'utilisateur jusqu'à obtenir un choix valide
+            else if (strategie != null && !jeu.enRattrapage()) {
+                String choixStrategie = strategie.choisir(this, instruction, new ArrayList<>(choixDistincts), peutPasser);
+                if (choixDistincts.contains(choixStrategie) || (peutPasser && choixStrategie.equals(""))) {
+                    jeu.enregistrerEntree(choixStrategie);
+                    return choixStrategie;
+                }
+                throw new IllegalStateException("Choix invalide de la stratégie : " + choixStrategie);
+            } else {
+                if (peutPasser) {
+                    choixDistincts.add("");
+                }
+                jeu.prompt(instruction, boutons, peutPasser);
+                // Lit l'entrée de l'utilisateur jusqu'à obtenir un choix valide (un
+                // choix invalide est signalé sans renvoyer l'état de la partie)
                 while (true) {
-                    jeu.prompt(instruction, boutons, peutPasser);
-                    entree = jeu.lireLigne();
+                    String entree = jeu.lireLigne();
                     // si une réponse valide est obtenue, elle est renvoyée
-                    if (choixDistincts.contains(entree) || (peutPasser && entree.equals("")))
+                    if (choixDistincts.contains(entree)) {
+                        jeu.enregistrerEntree(entree);
                         return entree;
+                    }
+                    jeu.refuserEntree(entree);
                 }
             }
         }
@@ -253,7 +332,7 @@ public class Joueur {
         }
         boolean choixEnCours=true;
         while(choixEnCours && choix.size()>n){
-            String choixCarteDefausse= choisir("choisissez une carte a retirer",choix,choix,true);
+            String choixCarteDefausse= choisir(INSTRUCTION_DESTINATION,choix,choix,true);
             if(choixCarteDefausse.equals("")){
                 choixEnCours=false;
             }
@@ -280,55 +359,188 @@ public class Joueur {
         nbWagons--;
     }
 
+    /**
+     * @return les noms des routes que le joueur peut capturer avec sa main (voir
+     * {@link CoupsPossibles#routesCapturables(CartesWagon)}, recalculés seulement
+     * si sa main ou les routes ouvertes ont changé)
+     */
     public ArrayList<String> nomRoutes(){
-        ArrayList<String> listRoute=new ArrayList<>();
-        for (Route r: jeu.getRoutes()){
-            if(r.valide(this)){
-                listRoute.add(r.getNom());
-            }
+        CoupsPossibles coups = jeu.getCoupsPossibles();
+        if (routesCapturables == null || versionMain != cartesWagon.getVersion()
+                || versionRoutes != coups.getVersionRoutes()) {
+            routesCapturables = coups.routesCapturables(cartesWagon);
+            versionMain = cartesWagon.getVersion();
+            versionRoutes = coups.getVersionRoutes();
         }
-        return listRoute;
+        return new ArrayList<>(routesCapturables);
     }
 
     private ArrayList<String> nomVilles(){
-        ArrayList<String> listVille=new ArrayList<>();
-        for (Ville v: jeu.getVilles()){
-            if(v.getProprietaire()==null){
-                listVille.add(v.getNom());
-            }
-        }
-        return listVille;
+        return new ArrayList<>(jeu.getCoupsPossibles().villesLibres());
     }
 
     private ArrayList<String> couleursVisibles(){
-        ArrayList<String> couleurs=new ArrayList<>();
-        for(CouleurWagon c : CouleurWagon.getCouleursSimples()){
-            if(jeu.getCartesWagonVisibles().contains(c)){
-                couleurs.add(c.name());
+        return new ArrayList<>(jeu.getCoupsPossibles().couleursVisibles());
+    }
+
+    public Ville getVilleParNom(String nom) {
+        return jeu.getPlateau().getVilleParNom(nom);
+    }
+
+    public Route getRouteParNom(String nom) {
+        return jeu.getPlateau().getRouteParNom(nom);
+    }
+
+    /**
+     * Ajoute une route capturée par le joueur à son réseau (appelée par
+     * {@link Route#setProprietaire(Joueur)})
+     */
+    void ajouterAuReseau(Route route) {
+        if (route.getVille1().getId() >= 0 && route.getVille2().getId() >= 0) {
+            reseau.unir(route.getVille1().getId(), route.getVille2().getId());
+        }
+    }
+
+    /**
+     * Reconstruit le réseau du joueur à partir des routes du plateau (lorsqu'une
+     * route lui est retirée)
+     */
+    void reconstruireReseau() {
+        reseau = new Connexite(jeu.getGraphe().getNbVilles());
+        for (Route route : jeu.getRoutes()) {
+            if (route.getProprietaire() == this) {
+                ajouterAuReseau(route);
             }
         }
-        if(jeu.getCartesWagonVisibles().contains(CouleurWagon.LOCOMOTIVE)){
-            couleurs.add(CouleurWagon.LOCOMOTIVE.name());
+    }
+
+    /**
+     * Indique si les deux villes d'une destination sont reliées par les routes
+     * capturées par le joueur (les gares ne sont pas prises en compte, voir
+     * {@link #scoreDestinations()})
+     */
+    public boolean estDestinationRealisee(Destination destination) {
+        return estRealisee(destination, reseau);
+    }
+
+    public DistancesJoueur getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return le nombre minimum de wagons que le joueur doit encore poser pour
+     * réaliser la destination (0 si elle est réalisée), ou
+     * {@link Distances#INFINI} si les routes encore libres ne le permettent plus
+     */
+    public int nbWagonsManquants(Destination destination) {
+        Ville ville1 = getVilleParNom(destination.getVille1());
+        Ville ville2 = getVilleParNom(destination.getVille2());
+        if (ville1 == null || ville2 == null) {
+            return Distances.INFINI;
         }
-        return couleurs;
+        return distances.distance(ville1.getId(), ville2.getId());
     }
 
-    public Ville getVilleParNom(String nom) {
+    private boolean estRealisee(Destination destination, Connexite connexite) {
+        Ville ville1 = getVilleParNom(destination.getVille1());
+        Ville ville2 = getVilleParNom(destination.getVille2());
+        return ville1 != null && ville2 != null && connexite.connectees(ville1.getId(), ville2.getId());
+    }
+
+    /**
+     * Calcule les points des destinations du joueur en fin de partie : la valeur
+     * des destinations réalisées est gagnée, celle des destinations non réalisées
+     * est perdue.
+     * <p>
+     * Chaque gare du joueur lui permet d'emprunter une route d'un autre joueur
+     * qui part de la ville de la gare. Toutes les combinaisons de routes
+     * empruntées sont essayées et la meilleure est retenue.
+     *
+     * @return le nombre de points (éventuellement négatif) rapportés par les
+     * destinations
+     */
+    public int scoreDestinations() {
+        GraphePlateau graphe = jeu.getGraphe();
+        List<int[]> empruntsPossibles = new ArrayList<>();
         for (Ville ville : jeu.getVilles()) {
-            if (ville.getNom().equals(nom)) {
-                return ville;
+            if (ville.getProprietaire() != this) {
+                continue;
+            }
+            ArrayList<Integer> routes = new ArrayList<>();
+            for (int i = graphe.debutVoisins(ville.getId()); i < graphe.finVoisins(ville.getId()); i++) {
+                Joueur proprietaire = jeu.getRoutes().get(graphe.routeVoisine(i)).getProprietaire();
+                if (proprietaire != null && proprietaire != this) {
+                    routes.add(graphe.routeVoisine(i));
+                }
+            }
+            // une gare sans route adverse voisine ne change rien au réseau
+            if (!routes.isEmpty()) {
+                empruntsPossibles.add(routes.stream().mapToInt(Integer::intValue).toArray());
             }
         }
-        return null;
+        return meilleurScore(empruntsPossibles, 0, reseau);
     }
 
-    public Route getRouteParNom(String nom) {
-        for (Route route : jeu.getRoutes()) {
-            if (route.getNom().equals(nom)) {
-                return route;
+    /**
+     * Essaie toutes les routes empruntables par les gares à partir de la gare
+     * d'indice {@code gare} (emprunter une route ne fait qu'ajouter des liaisons,
+     * donc chaque gare emprunte toujours une route)
+     */
+    private int meilleurScore(List<int[]> empruntsPossibles, int gare, Connexite connexite) {
+        if (gare == empruntsPossibles.size()) {
+            int points = 0;
+            for (Destination destination : destinations) {
+                points += estRealisee(destination, connexite) ? destination.getValeur() : -destination.getValeur();
+            }
+            return points;
+        }
+        GraphePlateau graphe = jeu.getGraphe();
+        int meilleur = Integer.MIN_VALUE;
+        for (int route : empruntsPossibles.get(gare)) {
+            Connexite avecEmprunt = new Connexite(connexite);
+            avecEmprunt.unir(graphe.getVille1(route), graphe.getVille2(route));
+            meilleur = Math.max(meilleur, meilleurScore(empruntsPossibles, gare + 1, avecEmprunt));
+        }
+        return meilleur;
+    }
+
+    /**
+     * @return true s'il reste des cartes wagon à piocher (dans la pioche ou dans la défausse)
+     */
+    private boolean resteCartesAPiocher() {
+        return !jeu.getPileCartesWagon().isEmpty() || !jeu.getDefausseCartesWagon().isEmpty();
+    }
+
+    /**
+     * Ajoute à la main du joueur une carte piochée (s'il en reste une dans la
+     * pioche ou la défausse)
+     */
+    private void ajouterCartePiochee() {
+        CouleurWagon carte = jeu.piocherCarteWagon();
+        if (carte != null) {
+            cartesWagon.add(carte);
+        }
+    }
+
+    /**
+     * Renvoie les couleurs (hors locomotives) que le joueur peut utiliser pour
+     * payer encore nbCartes cartes d'une même couleur, en complétant avec ses
+     * locomotives.
+     *
+     * @param nbCartes               nombre de cartes restant à payer
+     * @param nbLocomotivesEngagees  nombre de locomotives de la main déjà
+     *                               engagées dans le paiement
+     */
+    private ArrayList<String> couleursPourPayer(int nbCartes, int nbLocomotivesEngagees) {
+        ArrayList<String> couleurs = new ArrayList<>();
+        int nbLocomotives = cartesWagon.compter(CouleurWagon.LOCOMOTIVE) - nbLocomotivesEngagees;
+        for (CouleurWagon couleur : CouleurWagon.getCouleursSimples()) {
+            int nbCouleur = cartesWagon.compter(couleur);
+            if (nbCouleur > 0 && nbCouleur + nbLocomotives >= nbCartes) {
+                couleurs.add(couleur.name());
             }
         }
-        return null;
+        return couleurs;
     }
 
     /**
@@ -359,30 +571,37 @@ public class Joueur {
         if(!jeu.getPileDestinations().isEmpty()){
             choix.add("destinations");
         }
-        choix.add("GRIS");
+        if(resteCartesAPiocher()){
+            choix.add("GRIS");
+        }
         choix.addAll(routes);
         if(nbGares>0){
             choix.addAll(villes);
         }
         choix.addAll(couleurs);
-        String c=choisir("Que voulez vous faire ?",choix,new ArrayList<String>(),true);
+        String c=choisir(INSTRUCTION_TOUR,choix,new ArrayList<String>(),true);
         if(c.equals("destinations")){
             ArrayList<Destination> destinationsPossibles=new ArrayList<>();
             for(int i=0;i<3;i++){
-                destinationsPossibles.add(jeu.piocherDestination());
+                Destination destination=jeu.piocherDestination();
+                if(destination!=null){
+                    destinationsPossibles.add(destination);
+                }
             }
             List<Destination> destinationsDefausse=choisirDestinations(destinationsPossibles,1);
             jeu.getPileDestinations().addAll(destinationsDefausse);
         }
         else if(c.equals("GRIS")){
-            cartesWagon.add(jeu.piocherCarteWagon());
+            ajouterCartePiochee();
             ArrayList<String> choix2=new ArrayList<>();
-            choix2.add("GRIS");
+            if(resteCartesAPiocher()){
+                choix2.add("GRIS");
+            }
             couleurs.remove("LOCOMOTIVE");
             choix2.addAll(couleurs);
-            String c2=choisir("Choisissez une seconde carte",choix2,new ArrayList<String>(),true);
+            String c2=choisir(INSTRUCTION_SECONDE_CARTE,choix2,new ArrayList<String>(),true);
             if(c2.equals("GRIS")) {
-                cartesWagon.add(jeu.piocherCarteWagon());
+                ajouterCartePiochee();
             }
             else if(!c2.equals("")){
                 jeu.retirerCarteWagonVisible(CouleurWagon.valueOf(c2));
@@ -394,12 +613,14 @@ public class Joueur {
             couleurs=couleursVisibles();
             if(!c.equals(CouleurWagon.LOCOMOTIVE.name())){
                 ArrayList<String> choix2=new ArrayList<>();
-                choix2.add("GRIS");
+                if(resteCartesAPiocher()){
+                    choix2.add("GRIS");
+                }
                 couleurs.remove(CouleurWagon.LOCOMOTIVE.name());
                 choix2.addAll(couleurs);
-                String c2=choisir("Choisissez une seconde carte",choix2,new ArrayList<String>(),true);
+                String c2=choisir(INSTRUCTION_SECONDE_CARTE,choix2,new ArrayList<String>(),true);
                 if(c2.equals("GRIS")) {
-                    cartesWagon.add(jeu.piocherCarteWagon());
+                    ajouterCartePiochee();
                 }
                 else if(!c2.equals("")){
                     jeu.retirerCarteWagonVisible(CouleurWagon.valueOf(c2));
@@ -407,15 +628,16 @@ public class Joueur {
             }
         }
         else if(nbGares>0 && villes.contains(c)){
+            Ville ville = getVilleParNom(c);
             ArrayList<String> couleursDeck = new ArrayList<>();
             ArrayList<CouleurWagon> couleurSimple = CouleurWagon.getCouleursSimples();
             boolean peutConstruire=true;
             for (CouleurWagon couleur : couleurSimple) {
-                if (Collections.frequency(cartesWagon, c) >= 3 - nbGares + 1 || cartesWagon.contains(couleur) && (Collections.frequency(cartesWagon, couleur) + Collections.frequency(cartesWagon, CouleurWagon.LOCOMOTIVE) >= 3 - nbGares + 1)) {
+                if (cartesWagon.contains(couleur) && cartesWagon.compter(couleur) + cartesWagon.compter(CouleurWagon.LOCOMOTIVE) >= 3 - nbGares + 1) {
                     couleursDeck.add(couleur.name());
                 }
             }
-            if(!couleursDeck.isEmpty() && getVilleParNom(c).getProprietaire()==null) {
+            if(!couleursDeck.isEmpty() && ville.getProprietaire()==null) {
                 for (int i = 0; i < 3 - nbGares + 1; i++) {
                     if (cartesWagon.contains(CouleurWagon.LOCOMOTIVE)) {
                         couleursDeck.add(CouleurWagon.LOCOMOTIVE.name());
@@ -424,14 +646,18 @@ public class Joueur {
                     jeu.defausserCarteWagon(CouleurWagon.valueOf(couleurGare));
                     cartesWagon.remove(CouleurWagon.valueOf(couleurGare));
                     couleursDeck.clear();
-                    if (cartesWagon.contains(CouleurWagon.valueOf(couleurGare))) {
+                    if (couleurGare.equals(CouleurWagon.LOCOMOTIVE.name())) {
+                        // aucune couleur n'est encore imposée par une locomotive
+                        couleursDeck.addAll(couleursPourPayer(3 - nbGares - i, 0));
+                    }
+                    else if (cartesWagon.contains(CouleurWagon.valueOf(couleurGare))) {
                         couleursDeck.add(couleurGare);
                     }
                 }
             }
             else{peutConstruire=false;}
             if(peutConstruire){
-                getVilleParNom(c).setProprietaire(this);
+                ville.setProprietaire(this);
                 nbGares--;
                 score -= 4;
             }
@@ -443,8 +669,17 @@ public class Joueur {
             score+=route.comptePoints();
             while(i<route.getLongueur() && bon){
                 if(route.getCouleur()==CouleurWagon.GRIS){
-                    ArrayList<String> couleursPossede=route.possedeCouleur(this);
-                    if(Collections.frequency(cartesWagon,CouleurWagon.LOCOMOTIVE)>0){
+                    ArrayList<String> couleursPossede;
+                    // les cartes payées pour un tunnel restent dans la main jusqu'à la fin de la capture
+                    int locomotivesEngagees=route instanceof Tunnel ? i : 0;
+                    if(i==0){
+                        couleursPossede=route.possedeCouleur(this);
+                    }
+                    else{
+                        // seules des locomotives ont été payées : la couleur n'est pas encore fixée
+                        couleursPossede=couleursPourPayer(route.getLongueur()-i, locomotivesEngagees);
+                    }
+                    if(cartesWagon.compter(CouleurWagon.LOCOMOTIVE)>locomotivesEngagees){
                         couleursPossede.add(CouleurWagon.LOCOMOTIVE.name());
                     }
                     String choixCouleurRoute=choisir("Choississez une couleur",couleursPossede,couleursPossede,false);
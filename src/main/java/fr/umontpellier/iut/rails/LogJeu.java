@@ -0,0 +1,114 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log des messages d'information d'une partie.
+ * <p>
+ * Chaque message reçoit un numéro de séquence croissant (le premier message a le
+ * numéro 0). Seuls les {@code capacite} derniers messages sont conservés : les
+ * plus anciens sont écrasés, ce qui borne la mémoire utilisée par partie.
+ * <p>
+ * Le log est écrit par le thread de la partie et peut être lu depuis d'autres
+ * threads (envoi des messages aux clients).
+ */
+public class LogJeu {
+    /**
+     * Suite de messages consécutifs du log
+     *
+     * @param debut  numéro de séquence du premier message
+     * @param lignes les messages
+     */
+    public record Page(long debut, List<String> lignes) {
+    }
+
+    /**
+     * Propriété système fixant le nombre de messages conservés par partie
+     */
+    public static final String PROPRIETE_CAPACITE = "rails.log.capacite";
+    public static final int CAPACITE_DEFAUT = 256;
+
+    private final String[] messages;
+    /**
+     * Numéro de séquence du prochain message (nombre total de messages ajoutés)
+     */
+    private long sequence;
+
+    public LogJeu() {
+        this(Integer.getInteger(PROPRIETE_CAPACITE, CAPACITE_DEFAUT));
+    }
+
+    public LogJeu(int capacite) {
+        if (capacite <= 0) {
+            throw new IllegalArgumentException("La capacité du log doit être positive");
+        }
+        messages = new String[capacite];
+    }
+
+    /**
+     * Ajoute un message au log
+     *
+     * @return le numéro de séquence du message
+     */
+    public synchronized long ajouter(String message) {
+        messages[(int) (sequence % messages.length)] = message;
+        return sequence++;
+    }
+
+    /**
+     * @return le numéro de séquence du prochain message ajouté
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return le numéro de séquence du plus ancien message conservé
+     */
+    public synchronized long getPremiereSequence() {
+        return Math.max(0, sequence - messages.length);
+    }
+
+    public int getCapacite() {
+        return messages.length;
+    }
+
+    /**
+     * Renvoie les messages conservés dont le numéro de séquence est compris entre
+     * {@code debut} (inclus) et {@code fin} (exclu). Les messages qui ne sont plus
+     * conservés sont ignorés : la page commence au plus ancien message conservé
+     * si celui-ci est postérieur à {@code debut}.
+     */
+    public synchronized Page entre(long debut, long fin) {
+        long dernier = Math.min(fin, sequence);
+        long premier = Math.min(dernier, Math.max(debut, Math.max(0, sequence - messages.length)));
+        List<String> lignes = new ArrayList<>();
+        for (long s = premier; s < dernier; s++) {
+            lignes.add(messages[(int) (s % messages.length)]);
+        }
+        return new Page(premier, lignes);
+    }
+
+    /**
+     * @return les messages conservés dont le numéro de séquence est supérieur ou égal à {@code debut}
+     */
+    public Page depuis(long debut) {
+        return entre(debut, Long.MAX_VALUE);
+    }
+
+    /**
+     * Renvoie une page d'au plus {@code taille} messages précédant immédiatement
+     * le message de numéro {@code avant} (pour consulter les messages plus anciens)
+     */
+    public Page page(long avant, int taille) {
+        return entre(Math.max(0, avant - Math.max(0, taille)), avant);
+    }
+
+    /**
+     * @return le nombre de messages conservés
+     */
+    public synchronized int size() {
+        return (int) Math.min(sequence, messages.length);
+    }
+}
@@ -0,0 +1,164 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+
+/**
+ * Pioche de cartes wagon, rangée dans un tableau circulaire : piocher la carte
+ * du dessus ou poser une carte sur la pioche (ou sous la pioche) se fait en
+ * temps constant.
+ * <p>
+ * La pioche est aussi une liste, dont le premier élément (indice 0) est la
+ * carte du dessus.
+ */
+public class PileCartesWagon extends AbstractList<CouleurWagon> implements RandomAccess {
+    private static final int CAPACITE_INITIALE = 128;
+
+    /**
+     * Cartes de la pioche (la taille du tableau est toujours une puissance de 2)
+     */
+    private CouleurWagon[] cartes = new CouleurWagon[CAPACITE_INITIALE];
+    /**
+     * Position dans le tableau de la carte du dessus
+     */
+    private int debut;
+    private int taille;
+    /**
+     * Nombre de cartes de chaque couleur (indexé par {@link CouleurWagon#ordinal()})
+     */
+    private final int[] nombres = new int[CouleurWagon.values().length];
+
+    /**
+     * @return la position dans le tableau de la carte d'indice donné
+     */
+    private int position(int index) {
+        return (debut + index) & (cartes.length - 1);
+    }
+
+    private void verifierIndex(int index, int max) {
+        if (index < 0 || index > max) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + taille);
+        }
+    }
+
+    /**
+     * Retire et renvoie la carte du dessus de la pioche
+     *
+     * @return la carte piochée, ou null si la pioche est vide
+     */
+    public CouleurWagon piocher() {
+        return taille == 0 ? null : remove(0);
+    }
+
+    /**
+     * Mélange la pioche (algorithme de Fisher-Yates)
+     *
+     * @param alea générateur aléatoire de la partie
+     */
+    public void melanger(SplittableRandom alea) {
+        for (int i = taille - 1; i > 0; i--) {
+            int a = position(i);
+            int b = position(alea.nextInt(i + 1));
+            CouleurWagon carte = cartes[a];
+            cartes[a] = cartes[b];
+            cartes[b] = carte;
+        }
+        modCount++;
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur donnée dans la pioche
+     */
+    public int compter(CouleurWagon couleur) {
+        return nombres[couleur.ordinal()];
+    }
+
+    @Override
+    public int size() {
+        return taille;
+    }
+
+    @Override
+    public CouleurWagon get(int index) {
+        verifierIndex(index, taille - 1);
+        return cartes[position(index)];
+    }
+
+    @Override
+    public CouleurWagon set(int index, CouleurWagon carte) {
+        verifierIndex(index, taille - 1);
+        Objects.requireNonNull(carte);
+        int i = position(index);
+        CouleurWagon ancienne = cartes[i];
+        cartes[i] = carte;
+        nombres[ancienne.ordinal()]--;
+        nombres[carte.ordinal()]++;
+        return ancienne;
+    }
+
+    @Override
+    public void add(int index, CouleurWagon carte) {
+        verifierIndex(index, taille);
+        Objects.requireNonNull(carte);
+        if (taille == cartes.length) {
+            agrandir();
+        }
+        if (index == 0) {
+            debut = (debut - 1) & (cartes.length - 1);
+        } else {
+            // les cartes situées sous la position d'insertion sont décalées d'un cran
+            for (int j = taille; j > index; j--) {
+                cartes[position(j)] = cartes[position(j - 1)];
+            }
+        }
+        cartes[position(index)] = carte;
+        taille++;
+        nombres[carte.ordinal()]++;
+        modCount++;
+    }
+
+    @Override
+    public CouleurWagon remove(int index) {
+        verifierIndex(index, taille - 1);
+        CouleurWagon carte = cartes[position(index)];
+        if (index == 0) {
+            cartes[debut] = null;
+            debut = (debut + 1) & (cartes.length - 1);
+        } else {
+            for (int j = index; j < taille - 1; j++) {
+                cartes[position(j)] = cartes[position(j + 1)];
+            }
+            cartes[position(taille - 1)] = null;
+        }
+        taille--;
+        nombres[carte.ordinal()]--;
+        modCount++;
+        return carte;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof CouleurWagon && nombres[((CouleurWagon) o).ordinal()] > 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cartes, null);
+        Arrays.fill(nombres, 0);
+        debut = 0;
+        taille = 0;
+        modCount++;
+    }
+
+    private void agrandir() {
+        CouleurWagon[] nouvelles = new CouleurWagon[cartes.length * 2];
+        for (int i = 0; i < taille; i++) {
+            nouvelles[i] = cartes[position(i)];
+        }
+        cartes = nouvelles;
+        debut = 0;
+    }
+}
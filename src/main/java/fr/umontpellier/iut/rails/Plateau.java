@@ -1,11 +1,29 @@
 package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Plateau d'une partie : état des villes et des routes d'un {@link GraphePlateau}
+ * (propriétaires, et couleur, longueur, locomotives restant à payer et cartes
+ * déjà payées des routes en cours de capture).
+ * <p>
+ * La topologie (noms, extrémités, caractéristiques de départ des routes) est
+ * partagée par toutes les parties ; chaque plateau ne contient que de petits
+ * tableaux indexés par les numéros des villes et des routes. Les objets
+ * {@link Ville} et {@link Route} d'un plateau ne sont que des accès à ces
+ * tableaux : ils ne contiennent que le plateau et leur numéro.
+ */
 public class Plateau {
+    private static final CouleurWagon[] COULEURS = CouleurWagon.values();
+
+    private final GraphePlateau graphe;
+    /**
+     * Joueurs qui peuvent posséder des routes et des villes (les propriétaires
+     * sont rangés comme des positions dans cette liste)
+     */
+    private final List<Joueur> joueurs;
     /**
      * Liste des villes
      */
@@ -14,10 +32,88 @@ public class Plateau {
      * Liste des routes
      */
     private final List<Route> routes;
+    /**
+     * Propriétaire de chaque ville (position du joueur plus 1, 0 si pas de gare)
+     */
+    private final byte[] proprietairesVilles;
+    /**
+     * Propriétaire de chaque route (position du joueur plus 1, 0 si la route est
+     * encore à prendre)
+     */
+    private final byte[] proprietairesRoutes;
+    /**
+     * Couleur de chaque route (ordinal ; GRIS tant que la couleur d'une route
+     * grise n'a pas été choisie pendant sa capture)
+     */
+    private final byte[] couleursRoutes;
+    private final byte[] longueursRoutes;
+    /**
+     * Nombre de locomotives qui restent à payer pour capturer chaque route (0 si
+     * ce n'est pas un ferry)
+     */
+    private final byte[] locomotivesRoutes;
+    /**
+     * Cartes payées pour la capture en cours de chaque tunnel, par couleur (le
+     * nombre de cartes de la couleur c pour la route r est à l'indice
+     * {@code r * COULEURS.length + c.ordinal()})
+     */
+    private final byte[] cartesPayeesRoutes;
+    /**
+     * Indique (1) que seules des locomotives ont été payées pour la capture en
+     * cours de chaque tunnel
+     */
+    private final byte[] locomotivesSeulesRoutes;
+
+    /**
+     * Construit le plateau d'une partie : toutes les routes et toutes les villes
+     * sont libres
+     *
+     * @param joueurs les joueurs de la partie (liste qui peut être complétée
+     *                ensuite)
+     */
+    public Plateau(GraphePlateau graphe, List<Joueur> joueurs) {
+        this.graphe = graphe;
+        this.joueurs = joueurs;
+        int nbVilles = graphe.getNbVilles();
+        int nbRoutes = graphe.getNbRoutes();
+        proprietairesVilles = new byte[nbVilles];
+        proprietairesRoutes = new byte[nbRoutes];
+        couleursRoutes = new byte[nbRoutes];
+        longueursRoutes = new byte[nbRoutes];
+        locomotivesRoutes = new byte[nbRoutes];
+        cartesPayeesRoutes = new byte[nbRoutes * COULEURS.length];
+        locomotivesSeulesRoutes = new byte[nbRoutes];
+        List<Ville> villes = new ArrayList<>(nbVilles);
+        for (int v = 0; v < nbVilles; v++) {
+            villes.add(new Ville(this, v));
+        }
+        List<Route> routes = new ArrayList<>(nbRoutes);
+        for (int r = 0; r < nbRoutes; r++) {
+            couleursRoutes[r] = (byte) graphe.getCouleur(r).ordinal();
+            longueursRoutes[r] = (byte) graphe.getLongueur(r);
+            locomotivesRoutes[r] = (byte) graphe.getNbLocomotives(r);
+            locomotivesSeulesRoutes[r] = 1;
+            if (graphe.estTunnel(r)) {
+                routes.add(new Tunnel(this, r));
+            } else if (graphe.estFerry(r)) {
+                routes.add(new Ferry(this, r));
+            } else {
+                routes.add(new Route(this, r));
+            }
+        }
+        this.villes = Collections.unmodifiableList(villes);
+        this.routes = Collections.unmodifiableList(routes);
+    }
 
-    public Plateau(List<Ville> villes, List<Route> routes) {
-        this.villes = villes;
-        this.routes = routes;
+    /**
+     * @return un plateau Europe libre, sur le graphe partagé {@link GraphePlateau#europe()}
+     */
+    static public Plateau makePlateauEurope() {
+        return new Plateau(GraphePlateau.europe(), new ArrayList<>());
+    }
+
+    public GraphePlateau getGraphe() {
+        return graphe;
     }
 
     public List<Ville> getVilles() {
@@ -28,170 +124,130 @@ public class Plateau {
         return routes;
     }
 
-    static public Plateau makePlateauEurope() {
-        Map<String, Ville> villes = new HashMap<>();
-        villes.put("amsterdam", new Ville("Amsterdam"));
-        villes.put("angora", new Ville("Angora"));
-        villes.put("athina", new Ville("Athina"));
-        villes.put("barcelona", new Ville("Barcelona"));
-        villes.put("berlin", new Ville("Berlin"));
-        villes.put("brest", new Ville("Brest"));
-        villes.put("brindisi", new Ville("Brindisi"));
-        villes.put("bruxelles", new Ville("Bruxelles"));
-        villes.put("bucuresti", new Ville("Bucuresti"));
-        villes.put("budapest", new Ville("Budapest"));
-        villes.put("cadiz", new Ville("Cadiz"));
-        villes.put("constantinople", new Ville("Constantinople"));
-        villes.put("danzig", new Ville("Danzig"));
-        villes.put("dieppe", new Ville("Dieppe"));
-        villes.put("edinburgh", new Ville("Edinburgh"));
-        villes.put("erzurum", new Ville("Erzurum"));
-        villes.put("essen", new Ville("Essen"));
-        villes.put("frankfurt", new Ville("Frankfurt"));
-        villes.put("kharkov", new Ville("Kharkov"));
-        villes.put("kobenhavn", new Ville("Kobenhavn"));
-        villes.put("kyiv", new Ville("Kyiv"));
-        villes.put("lisboa", new Ville("Lisboa"));
-        villes.put("london", new Ville("London"));
-        villes.put("madrid", new Ville("Madrid"));
-        villes.put("marseille", new Ville("Marseille"));
-        villes.put("moskva", new Ville("Moskva"));
-        villes.put("munchen", new Ville("Munchen"));
-        villes.put("palermo", new Ville("Palermo"));
-        villes.put("pamplona", new Ville("Pamplona"));
-        villes.put("paris", new Ville("Paris"));
-        villes.put("petrograd", new Ville("Petrograd"));
-        villes.put("riga", new Ville("Riga"));
-        villes.put("roma", new Ville("Roma"));
-        villes.put("rostov", new Ville("Rostov"));
-        villes.put("sarajevo", new Ville("Sarajevo"));
-        villes.put("sevastopol", new Ville("Sevastopol"));
-        villes.put("smolensk", new Ville("Smolensk"));
-        villes.put("smyrna", new Ville("Smyrna"));
-        villes.put("sochi", new Ville("Sochi"));
-        villes.put("sofia", new Ville("Sofia"));
-        villes.put("stockholm", new Ville("Stockholm"));
-        villes.put("venezia", new Ville("Venezia"));
-        villes.put("warszawa", new Ville("Warszawa"));
-        villes.put("wien", new Ville("Wien"));
-        villes.put("wilno", new Ville("Wilno"));
-        villes.put("zagrab", new Ville("Zagrab"));
-        villes.put("zurich", new Ville("Zurich"));
-
-        ArrayList<Route> routes = new ArrayList<>();
-        routes.add(new Route(villes.get("amsterdam"), villes.get("bruxelles"), 1, CouleurWagon.NOIR));
-        routes.add(new Route(villes.get("amsterdam"), villes.get("essen"), 3, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("amsterdam"), villes.get("frankfurt"), 2, CouleurWagon.BLANC));
-        routes.add(new Ferry(villes.get("amsterdam"), villes.get("london"), 2, CouleurWagon.GRIS, 2));
-        routes.add(new Tunnel(villes.get("angora"), villes.get("constantinople"), 2, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("angora"), villes.get("erzurum"), 3, CouleurWagon.NOIR));
-        routes.add(new Tunnel(villes.get("angora"), villes.get("smyrna"), 3, CouleurWagon.ORANGE));
-        routes.add(new Ferry(villes.get("athina"), villes.get("brindisi"), 4, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("athina"), villes.get("sarajevo"), 4, CouleurWagon.VERT));
-        routes.add(new Ferry(villes.get("athina"), villes.get("smyrna"), 2, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("athina"), villes.get("sofia"), 3, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("barcelona"), villes.get("madrid"), 2, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("barcelona"), villes.get("marseille"), 4, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("barcelona"), villes.get("pamplona"), 2, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("berlin"), villes.get("danzig"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("berlin"), villes.get("essen"), 2, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("berlin"), villes.get("frankfurt"), 3, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("berlin"), villes.get("frankfurt"), 3, CouleurWagon.NOIR));
-        routes.add(new Route(villes.get("berlin"), villes.get("warszawa"), 4, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("berlin"), villes.get("warszawa"), 4, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("berlin"), villes.get("wien"), 3, CouleurWagon.VERT));
-        routes.add(new Route(villes.get("brest"), villes.get("dieppe"), 2, CouleurWagon.ORANGE));
-        routes.add(new Route(villes.get("brest"), villes.get("pamplona"), 4, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("brest"), villes.get("paris"), 3, CouleurWagon.NOIR));
-        routes.add(new Ferry(villes.get("brindisi"), villes.get("palermo"), 3, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("brindisi"), villes.get("roma"), 2, CouleurWagon.BLANC));
-        routes.add(new Route(villes.get("bruxelles"), villes.get("dieppe"), 2, CouleurWagon.VERT));
-        routes.add(new Route(villes.get("bruxelles"), villes.get("frankfurt"), 2, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("bruxelles"), villes.get("paris"), 2, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("bruxelles"), villes.get("paris"), 2, CouleurWagon.ROUGE));
-        routes.add(new Tunnel(villes.get("bucuresti"), villes.get("budapest"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("bucuresti"), villes.get("constantinople"), 3, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("bucuresti"), villes.get("kyiv"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("bucuresti"), villes.get("sevastopol"), 4, CouleurWagon.BLANC));
-        routes.add(new Tunnel(villes.get("bucuresti"), villes.get("sofia"), 2, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("budapest"), villes.get("kyiv"), 6, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("budapest"), villes.get("sarajevo"), 3, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("budapest"), villes.get("wien"), 1, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("budapest"), villes.get("wien"), 1, CouleurWagon.BLANC));
-        routes.add(new Route(villes.get("budapest"), villes.get("zagrab"), 2, CouleurWagon.ORANGE));
-        routes.add(new Route(villes.get("cadiz"), villes.get("lisboa"), 2, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("cadiz"), villes.get("madrid"), 3, CouleurWagon.ORANGE));
-        routes.add(new Ferry(villes.get("constantinople"), villes.get("sevastopol"), 4, CouleurWagon.GRIS, 2));
-        routes.add(new Tunnel(villes.get("constantinople"), villes.get("smyrna"), 2, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("constantinople"), villes.get("sofia"), 3, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("danzig"), villes.get("riga"), 3, CouleurWagon.NOIR));
-        routes.add(new Route(villes.get("danzig"), villes.get("warszawa"), 2, CouleurWagon.GRIS));
-        routes.add(new Ferry(villes.get("dieppe"), villes.get("london"), 2, CouleurWagon.GRIS, 1));
-        routes.add(new Ferry(villes.get("dieppe"), villes.get("london"), 2, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("dieppe"), villes.get("paris"), 1, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("edinburgh"), villes.get("london"), 4, CouleurWagon.ORANGE));
-        routes.add(new Route(villes.get("edinburgh"), villes.get("london"), 4, CouleurWagon.NOIR));
-        routes.add(new Ferry(villes.get("erzurum"), villes.get("sevastopol"), 4, CouleurWagon.GRIS, 2));
-        routes.add(new Tunnel(villes.get("erzurum"), villes.get("sochi"), 3, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("essen"), villes.get("frankfurt"), 2, CouleurWagon.VERT));
-        routes.add(new Ferry(villes.get("essen"), villes.get("kobenhavn"), 3, CouleurWagon.GRIS, 1));
-        routes.add(new Ferry(villes.get("essen"), villes.get("kobenhavn"), 3, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("frankfurt"), villes.get("munchen"), 2, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("frankfurt"), villes.get("paris"), 3, CouleurWagon.ORANGE));
-        routes.add(new Route(villes.get("frankfurt"), villes.get("paris"), 3, CouleurWagon.BLANC));
-        routes.add(new Route(villes.get("kharkov"), villes.get("kyiv"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("kharkov"), villes.get("moskva"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("kharkov"), villes.get("rostov"), 2, CouleurWagon.VERT));
-        routes.add(new Route(villes.get("kobenhavn"), villes.get("stockholm"), 3, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("kobenhavn"), villes.get("stockholm"), 3, CouleurWagon.BLANC));
-        routes.add(new Route(villes.get("kyiv"), villes.get("smolensk"), 3, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("kyiv"), villes.get("warszawa"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("kyiv"), villes.get("wilno"), 2, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("lisboa"), villes.get("madrid"), 3, CouleurWagon.ROSE));
-        routes.add(new Tunnel(villes.get("madrid"), villes.get("pamplona"), 3, CouleurWagon.BLANC));
-        routes.add(new Tunnel(villes.get("madrid"), villes.get("pamplona"), 3, CouleurWagon.NOIR));
-        routes.add(new Route(villes.get("marseille"), villes.get("pamplona"), 4, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("marseille"), villes.get("paris"), 4, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("marseille"), villes.get("roma"), 4, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("marseille"), villes.get("zurich"), 2, CouleurWagon.ROSE));
-        routes.add(new Route(villes.get("moskva"), villes.get("petrograd"), 4, CouleurWagon.BLANC));
-        routes.add(new Route(villes.get("moskva"), villes.get("smolensk"), 2, CouleurWagon.ORANGE));
-        routes.add(new Tunnel(villes.get("munchen"), villes.get("venezia"), 2, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("munchen"), villes.get("wien"), 3, CouleurWagon.ORANGE));
-        routes.add(new Tunnel(villes.get("munchen"), villes.get("zurich"), 2, CouleurWagon.JAUNE));
-        routes.add(new Ferry(villes.get("palermo"), villes.get("roma"), 4, CouleurWagon.GRIS, 1));
-        routes.add(new Ferry(villes.get("palermo"), villes.get("smyrna"), 6, CouleurWagon.GRIS, 2));
-        routes.add(new Route(villes.get("pamplona"), villes.get("paris"), 4, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("pamplona"), villes.get("paris"), 4, CouleurWagon.VERT));
-        routes.add(new Tunnel(villes.get("paris"), villes.get("zurich"), 3, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("petrograd"), villes.get("riga"), 4, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("petrograd"), villes.get("stockholm"), 8, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("petrograd"), villes.get("wilno"), 4, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("riga"), villes.get("wilno"), 4, CouleurWagon.VERT));
-        routes.add(new Route(villes.get("roma"), villes.get("venezia"), 2, CouleurWagon.NOIR));
-        routes.add(new Route(villes.get("rostov"), villes.get("sevastopol"), 4, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("rostov"), villes.get("sochi"), 2, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("sarajevo"), villes.get("sofia"), 2, CouleurWagon.GRIS));
-        routes.add(new Route(villes.get("sarajevo"), villes.get("zagrab"), 3, CouleurWagon.ROUGE));
-        routes.add(new Ferry(villes.get("sevastopol"), villes.get("sochi"), 2, CouleurWagon.GRIS, 1));
-        routes.add(new Route(villes.get("smolensk"), villes.get("wilno"), 3, CouleurWagon.JAUNE));
-        routes.add(new Route(villes.get("venezia"), villes.get("zagrab"), 2, CouleurWagon.GRIS));
-        routes.add(new Tunnel(villes.get("venezia"), villes.get("zurich"), 2, CouleurWagon.VERT));
-        routes.add(new Route(villes.get("warszawa"), villes.get("wien"), 4, CouleurWagon.BLEU));
-        routes.add(new Route(villes.get("warszawa"), villes.get("wilno"), 3, CouleurWagon.ROUGE));
-        routes.add(new Route(villes.get("wien"), villes.get("zagrab"), 2, CouleurWagon.GRIS));
-
-        // Correction du nom pour les routes doubles
-        for (int i = 0; i < routes.size(); i++) {
-            Route r1 = routes.get(i);
-            if (i < routes.size() - 1) {
-                Route r2 = routes.get(i + 1);
-                if (r1.getNom().equals(r2.getNom())) {
-                    r1.setNom(r1.getNom() + "(1)");
-                    r2.setNom(r2.getNom() + "(2)");
-                }
+    /**
+     * @return la ville de nom donné, ou null si elle n'est pas sur le plateau
+     */
+    public Ville getVilleParNom(String nom) {
+        int id = graphe.getVille(nom);
+        return id < 0 ? null : villes.get(id);
+    }
+
+    /**
+     * @return la route de nom donné, ou null si elle n'est pas sur le plateau
+     */
+    public Route getRouteParNom(String nom) {
+        int id = graphe.getRoute(nom);
+        return id < 0 ? null : routes.get(id);
+    }
+
+    /**
+     * @return la ville de numéro donné (voir {@link Ville#getId()})
+     */
+    public Ville getVille(int id) {
+        return villes.get(id);
+    }
+
+    /**
+     * @return la route de numéro donné (voir {@link Route#getId()})
+     */
+    public Route getRoute(int id) {
+        return routes.get(id);
+    }
+
+    private Joueur joueur(byte numero) {
+        return numero == 0 ? null : joueurs.get(numero - 1);
+    }
+
+    private byte numero(Joueur joueur) {
+        if (joueur == null) {
+            return 0;
+        }
+        for (int i = 0; i < joueurs.size(); i++) {
+            if (joueurs.get(i) == joueur) {
+                return (byte) (i + 1);
             }
         }
-        return new Plateau(new ArrayList<>(villes.values()), routes);
+        throw new IllegalArgumentException("Le joueur " + joueur.getNom() + " ne joue pas sur ce plateau");
+    }
+
+    Joueur getProprietaireVille(int ville) {
+        return joueur(proprietairesVilles[ville]);
+    }
+
+    void setProprietaireVille(int ville, Joueur joueur) {
+        proprietairesVilles[ville] = numero(joueur);
+    }
+
+    Joueur getProprietaireRoute(int route) {
+        return joueur(proprietairesRoutes[route]);
+    }
+
+    void setProprietaireRoute(int route, Joueur joueur) {
+        proprietairesRoutes[route] = numero(joueur);
+    }
+
+    CouleurWagon getCouleurRoute(int route) {
+        return COULEURS[couleursRoutes[route]];
+    }
+
+    void setCouleurRoute(int route, CouleurWagon couleur) {
+        couleursRoutes[route] = (byte) couleur.ordinal();
+    }
+
+    int getLongueurRoute(int route) {
+        return longueursRoutes[route];
+    }
+
+    void setLongueurRoute(int route, int longueur) {
+        longueursRoutes[route] = (byte) longueur;
+    }
+
+    int getLocomotivesRoute(int route) {
+        return locomotivesRoutes[route];
+    }
+
+    void setLocomotivesRoute(int route, int nbLocomotives) {
+        locomotivesRoutes[route] = (byte) nbLocomotives;
+    }
+
+    /**
+     * @return le nombre de cartes de la couleur donnée payées pour la capture en
+     * cours d'un tunnel
+     */
+    int getCartesPayees(int route, CouleurWagon couleur) {
+        return cartesPayeesRoutes[route * COULEURS.length + couleur.ordinal()];
+    }
+
+    /**
+     * @return le nombre total de cartes payées pour la capture en cours d'un tunnel
+     */
+    int getNbCartesPayees(int route) {
+        int nb = 0;
+        for (int c = 0; c < COULEURS.length; c++) {
+            nb += cartesPayeesRoutes[route * COULEURS.length + c];
+        }
+        return nb;
+    }
+
+    void payerCarte(int route, CouleurWagon couleur) {
+        cartesPayeesRoutes[route * COULEURS.length + couleur.ordinal()]++;
+    }
+
+    boolean estPayeeEnLocomotives(int route) {
+        return locomotivesSeulesRoutes[route] != 0;
+    }
+
+    void setPayeeEnLocomotives(int route, boolean locomotivesSeules) {
+        locomotivesSeulesRoutes[route] = (byte) (locomotivesSeules ? 1 : 0);
+    }
+
+    /**
+     * Oublie les cartes payées pour la capture d'un tunnel (capture terminée ou annulée)
+     */
+    void effacerPaiement(int route) {
+        for (int c = 0; c < COULEURS.length; c++) {
+            cartesPayeesRoutes[route * COULEURS.length + c] = 0;
+        }
+        locomotivesSeulesRoutes[route] = 1;
     }
 }
@@ -1,88 +1,109 @@
 package fr.umontpellier.iut.rails;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 
+/**
+ * Route d'un plateau. Les caractéristiques de la route sont lues dans le graphe
+ * partagé par toutes les parties ({@link GraphePlateau}), et son état
+ * (propriétaire, couleur et longueur pendant une capture) dans le
+ * {@link Plateau} de la partie.
+ */
 public class Route {
+    private final Plateau plateau;
     /**
-     * Première extrémité
-     */
-    private Ville ville1;
-    /**
-     * Deuxième extrémité
-     */
-    private Ville ville2;
-    /**
-     * Nombre de segments
-     */
-    private int longueur;
-    /**
-     * CouleurWagon pour capturer la route (éventuellement GRIS, mais pas LOCOMOTIVE)
-     */
-    private CouleurWagon couleur;
-    /**
-     * Joueur qui a capturé la route (`null` si la route est encore à prendre)
-     */
-    private Joueur proprietaire;
-    /**
-     * Nom unique de la route. Ce nom est nécessaire pour résoudre l'ambiguïté entre les routes doubles
-     * (voir la classe Plateau pour plus de clarté)
+     * Numéro de la route sur son plateau (position dans la liste des routes du plateau)
      */
-    private String nom;
+    private final int id;
 
-    public Route(Ville ville1, Ville ville2, int longueur, CouleurWagon couleur) {
-        this.ville1 = ville1;
-        this.ville2 = ville2;
-        this.longueur = longueur;
-        this.couleur = couleur;
-        nom = ville1.getNom() + " - " + ville2.getNom();
-        proprietaire = null;
+    Route(Plateau plateau, int id) {
+        this.plateau = plateau;
+        this.id = id;
     }
 
+    /**
+     * Première extrémité
+     */
     public Ville getVille1() {
-        return ville1;
+        return plateau.getVille(plateau.getGraphe().getVille1(id));
     }
 
+    /**
+     * Deuxième extrémité
+     */
     public Ville getVille2() {
-        return ville2;
+        return plateau.getVille(plateau.getGraphe().getVille2(id));
     }
 
+    /**
+     * Nombre de segments
+     */
     public int getLongueur() {
-        return longueur;
+        return plateau.getLongueurRoute(id);
     }
 
-    public void setLongueur(int longueur) {this.longueur = longueur;}
+    public void setLongueur(int longueur) {plateau.setLongueurRoute(id, longueur);}
 
+    /**
+     * CouleurWagon pour capturer la route (éventuellement GRIS, mais pas LOCOMOTIVE)
+     */
     public CouleurWagon getCouleur() {
-        return couleur;
+        return plateau.getCouleurRoute(id);
     }
 
+    /**
+     * Joueur qui a capturé la route (`null` si la route est encore à prendre)
+     */
     public Joueur getProprietaire() {
-        return proprietaire;
+        return plateau.getProprietaireRoute(id);
     }
 
-    public void setCouleur(CouleurWagon couleur) {this.couleur = couleur;}
+    public void setCouleur(CouleurWagon couleur) {plateau.setCouleurRoute(id, couleur);}
 
+    /**
+     * Change le propriétaire de la route et met à jour le réseau des joueurs
+     * concernés (voir {@link Joueur#estDestinationRealisee(Destination)}), les
+     * distances de tous les joueurs (voir {@link Joueur#getDistances()}) et les
+     * coups possibles (voir {@link Jeu#getCoupsPossibles()})
+     */
     public void setProprietaire(Joueur proprietaire) {
-        this.proprietaire = proprietaire;
+        Joueur ancien = getProprietaire();
+        plateau.setProprietaireRoute(id, proprietaire);
+        if (ancien != null && ancien != proprietaire) {
+            ancien.reconstruireReseau();
+        }
+        if (proprietaire != null) {
+            proprietaire.ajouterAuReseau(this);
+        }
+        Joueur joueur = proprietaire != null ? proprietaire : ancien;
+        if (joueur != null && ancien != proprietaire) {
+            joueur.getJeu().routeChangee(this);
+        }
     }
 
+    /**
+     * Nom unique de la route. Ce nom est nécessaire pour résoudre l'ambiguïté entre les routes doubles
+     * (voir la classe GraphePlateau pour plus de clarté)
+     */
     public String getNom() {
-        return nom;
+        return plateau.getGraphe().getNomRoute(id);
+    }
+
+    public int getId() {
+        return id;
     }
 
-    public void setNom(String nom) {
-        this.nom = nom;
+    Plateau getPlateau() {
+        return plateau;
     }
 
     public String toLog() {
-        return String.format("<span class=\"route\">%s - %s</span>", ville1.getNom(), ville2.getNom());
+        return String.format("<span class=\"route\">%s - %s</span>", getVille1().getNom(), getVille2().getNom());
     }
 
     @Override
     public String toString() {
-        return String.format("[%s - %s (%d, %s)]", ville1, ville2, longueur, couleur);
+        return String.format("[%s - %s (%d, %s)]", getVille1(), getVille2(), getLongueur(), getCouleur());
     }
 
     /**
@@ -91,6 +112,7 @@ public class Route {
     public Object asPOJO() {
         HashMap<String, Object> data = new HashMap<>();
         data.put("nom", getNom());
+        Joueur proprietaire = getProprietaire();
         if (proprietaire != null) {
             data.put("proprietaire", proprietaire.getCouleur());
         }
@@ -98,28 +120,33 @@ public class Route {
     }
 
     public boolean isDouble(){
-        return nom.contains("(1)") || nom.contains("(2)");
+        return plateau.getGraphe().getRouteDouble(id) >= 0;
     }
 
-    public Route routeAssocié(Jeu jeu) {
+    /**
+     * @return l'autre route d'une route double, ou null si la route est simple
+     */
+    public Route getRouteDouble() {
+        int autre = plateau.getGraphe().getRouteDouble(id);
+        return autre < 0 ? null : plateau.getRoute(autre);
+    }
 
-        if (nom.contains("(1)")) {
-            return jeu.getRoutes().get(jeu.getRoutes().indexOf(this) + 1);
-        }
-        else if (nom.contains("(2)")) {
-            return jeu.getRoutes().get(jeu.getRoutes().indexOf(this) -1);
-        }
-        return null;
+    /**
+     * @return l'autre route d'une route double, ou null si la route est simple
+     * (même résultat que {@link #getRouteDouble()}, le jeu n'est plus utilisé)
+     */
+    public Route routeAssocié(Jeu jeu) {
+        return getRouteDouble();
     }
 
     public ArrayList<String> possedeCouleur(Joueur joueur){
         ArrayList<String> couleursDeck=new ArrayList<>();
         for(CouleurWagon c : CouleurWagon.getCouleursSimples()){
-            if((Collections.frequency(joueur.getCartesWagon(), c)>=longueur || Collections.frequency(joueur.getCartesWagon(), c) + Collections.frequency(joueur.getCartesWagon(), CouleurWagon.LOCOMOTIVE)>=longueur) && joueur.getCartesWagon().contains(c)){
+            if((joueur.nbCartesWagon(c)>=getLongueur() || joueur.nbCartesWagon(c) + joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)>=getLongueur()) && joueur.getCartesWagon().contains(c)){
                 couleursDeck.add(c.name());
             }
         }
-        if(Collections.frequency(joueur.getCartesWagon(), CouleurWagon.LOCOMOTIVE)>=longueur){
+        if(joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)>=getLongueur()){
             couleursDeck.add(CouleurWagon.LOCOMOTIVE.name());
         }
         return couleursDeck;
@@ -127,14 +154,15 @@ public class Route {
 
 
     public boolean valide(Joueur joueur){
-        if(proprietaire==null){
-            if(isDouble() && joueur.getJeu().getJoueurs().size()<4){
-                if(routeAssocié(joueur.getJeu()).getProprietaire()!=null){
+        if(getProprietaire()==null){
+            Route routeDouble=getRouteDouble();
+            if(routeDouble!=null && joueur.getJeu().getJoueurs().size()<4){
+                if(routeDouble.getProprietaire()!=null){
                     return false;
                 }
             }
             ArrayList<String> couleursPossede=possedeCouleur(joueur);
-            if(couleursPossede.contains(couleur.name()) || couleursPossede.contains(CouleurWagon.LOCOMOTIVE.name()) || (!couleursPossede.isEmpty() && couleur==CouleurWagon.GRIS)){
+            if(couleursPossede.contains(getCouleur().name()) || couleursPossede.contains(CouleurWagon.LOCOMOTIVE.name()) || (!couleursPossede.isEmpty() && getCouleur()==CouleurWagon.GRIS)){
                 return true;
             }
         }
@@ -142,7 +170,7 @@ public class Route {
     }
 
     public boolean capturer(Joueur joueur, CouleurWagon c){
-        if(couleur==CouleurWagon.GRIS && c!=CouleurWagon.LOCOMOTIVE){
+        if(getCouleur()==CouleurWagon.GRIS && c!=CouleurWagon.LOCOMOTIVE){
             setCouleur(c);
         }
         joueur.getCartesWagon().remove(c);
@@ -153,6 +181,14 @@ public class Route {
     }
 
     public int comptePoints() {
+        return points(getLongueur());
+    }
+
+    /**
+     * @return le nombre de points que rapporte la capture d'une route de longueur
+     * donnée (0 pour une longueur qui n'existe pas sur le plateau)
+     */
+    static int points(int longueur) {
         switch (longueur) {
             case 1 -> {
                 return 1;
@@ -0,0 +1,307 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Joue des parties complètes sans affichage ni entrées, les joueurs étant
+ * pilotés par des stratégies (pour analyser l'équilibre du jeu ou entraîner des
+ * joueurs automatiques).
+ * <p>
+ * Les parties sont réparties sur tous les cœurs à l'aide d'un
+ * {@link ForkJoinPool}. Chaque partie a sa propre graine, calculée à partir de la
+ * graine de la simulation et du numéro de la partie : une simulation est donc
+ * reproductible, quel que soit le nombre de threads.
+ */
+public class Simulateur {
+    /**
+     * Crée la stratégie d'un joueur pour une partie
+     */
+    @FunctionalInterface
+    public interface FabriqueStrategie {
+        /**
+         * @param place  position du joueur dans la partie (0 pour le premier joueur)
+         * @param graine graine à utiliser par la stratégie si elle est aléatoire
+         */
+        Strategie creer(int place, long graine);
+    }
+
+    /**
+     * Partie arrêtée par une erreur du jeu
+     *
+     * @param graine    graine de la partie (une partie jouée avec cette graine et
+     *                  les mêmes stratégies reproduit l'erreur)
+     * @param exception l'exception qui a arrêté la partie
+     */
+    public record Erreur(long graine, RuntimeException exception) {
+    }
+
+    /**
+     * Résultats d'une simulation
+     */
+    public static class Resultats {
+        private int nbParties;
+        private int nbTerminees;
+        private int nbInterrompues;
+        private final List<Erreur> erreurs;
+        private final int[] victoires;
+        private long sommeScores;
+        private long nbTours;
+        private long dureeNanos;
+
+        Resultats(int nbJoueurs) {
+            victoires = new int[nbJoueurs];
+            erreurs = new ArrayList<>();
+        }
+
+        /**
+         * Enregistre le résultat d'une partie jouée jusqu'au bout (ou interrompue)
+         */
+        void ajouter(Jeu jeu) {
+            nbParties++;
+            nbTours += jeu.getNbTours();
+            if (jeu.estInterrompue()) {
+                nbInterrompues++;
+                return;
+            }
+            nbTerminees++;
+            List<Joueur> joueurs = jeu.getJoueurs();
+            int gagnant = 0;
+            for (int i = 0; i < joueurs.size(); i++) {
+                sommeScores += joueurs.get(i).getScore();
+                if (joueurs.get(i).getScore() > joueurs.get(gagnant).getScore()) {
+                    gagnant = i;
+                }
+            }
+            victoires[gagnant]++;
+        }
+
+        /**
+         * Enregistre une partie arrêtée par une erreur du jeu
+         */
+        void erreur(long graine, RuntimeException exception) {
+            nbParties++;
+            erreurs.add(new Erreur(graine, exception));
+        }
+
+        Resultats fusionner(Resultats autres) {
+            nbParties += autres.nbParties;
+            nbTerminees += autres.nbTerminees;
+            nbInterrompues += autres.nbInterrompues;
+            erreurs.addAll(autres.erreurs);
+            for (int i = 0; i < victoires.length; i++) {
+                victoires[i] += autres.victoires[i];
+            }
+            sommeScores += autres.sommeScores;
+            nbTours += autres.nbTours;
+            return this;
+        }
+
+        public int getNbParties() {
+            return nbParties;
+        }
+
+        /**
+         * @return le nombre de parties terminées normalement (un joueur n'a plus de wagons)
+         */
+        public int getNbTerminees() {
+            return nbTerminees;
+        }
+
+        /**
+         * @return le nombre de parties arrêtées après le nombre maximal de tours
+         */
+        public int getNbInterrompues() {
+            return nbInterrompues;
+        }
+
+        /**
+         * @return le nombre de parties arrêtées par une erreur du jeu
+         */
+        public int getNbErreurs() {
+            return erreurs.size();
+        }
+
+        /**
+         * @return les parties arrêtées par une erreur du jeu, dans l'ordre de leurs
+         * numéros dans la simulation
+         */
+        public List<Erreur> getErreurs() {
+            return Collections.unmodifiableList(erreurs);
+        }
+
+        /**
+         * @return le nombre de parties terminées gagnées par le joueur de chaque place
+         */
+        public int[] getVictoires() {
+            return victoires.clone();
+        }
+
+        /**
+         * @return le score moyen d'un joueur à la fin d'une partie terminée
+         */
+        public double getScoreMoyen() {
+            return nbTerminees == 0 ? 0 : (double) sommeScores / (nbTerminees * victoires.length);
+        }
+
+        public long getNbTours() {
+            return nbTours;
+        }
+
+        public long getDureeNanos() {
+            return dureeNanos;
+        }
+
+        public double getPartiesParSeconde() {
+            return dureeNanos == 0 ? 0 : nbParties * 1e9 / dureeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d parties en %.2f s (%.0f parties/s, %.0f tours/s)%n"
+                            + "terminées: %d, interrompues: %d, erreurs: %d%n"
+                            + "victoires par place: %s, score moyen: %.1f",
+                    nbParties, dureeNanos / 1e9, getPartiesParSeconde(), nbTours * 1e9 / Math.max(1, dureeNanos),
+                    nbTerminees, nbInterrompues, erreurs.size(), Arrays.toString(victoires), getScoreMoyen());
+        }
+    }
+
+    /**
+     * Nombre de parties en dessous duquel une tâche n'est plus divisée
+     */
+    private static final int SEUIL = 8;
+    public static final int NB_TOURS_MAX_DEFAUT = 1000;
+
+    private final String[] nomJoueurs;
+    private final FabriqueStrategie fabrique;
+    private final ForkJoinPool pool;
+    private int nbToursMax;
+
+    /**
+     * @param nbJoueurs nombre de joueurs de chaque partie
+     * @param fabrique  crée la stratégie de chaque joueur
+     * @param pool      pool sur lequel les parties sont jouées
+     */
+    public Simulateur(int nbJoueurs, FabriqueStrategie fabrique, ForkJoinPool pool) {
+        nomJoueurs = new String[nbJoueurs];
+        for (int i = 0; i < nbJoueurs; i++) {
+            nomJoueurs[i] = "Joueur " + (i + 1);
+        }
+        this.fabrique = fabrique;
+        this.pool = pool;
+        nbToursMax = NB_TOURS_MAX_DEFAUT;
+    }
+
+    public Simulateur(int nbJoueurs, FabriqueStrategie fabrique) {
+        this(nbJoueurs, fabrique, ForkJoinPool.commonPool());
+    }
+
+    public void setNbToursMax(int nbToursMax) {
+        this.nbToursMax = nbToursMax;
+    }
+
+    /**
+     * Joue des parties et renvoie leurs résultats
+     *
+     * @param nbParties nombre de parties à jouer
+     * @param graine    graine de la simulation
+     */
+    public Resultats simuler(int nbParties, long graine) {
+        long debut = System.nanoTime();
+        Resultats resultats = pool.invoke(new Tache(graine, 0, nbParties));
+        resultats.dureeNanos = System.nanoTime() - debut;
+        return resultats;
+    }
+
+    /**
+     * Joue la partie de numéro donné d'une simulation
+     */
+    private void jouer(long graine, int numero, Resultats resultats) {
+        long graineJeu = melanger(graine + numero * 0x9E3779B97F4A7C15L);
+        Jeu jeu = new Jeu(nomJoueurs, graineJeu);
+        jeu.setSilencieux(true);
+        jeu.setNbToursMax(nbToursMax);
+        List<Joueur> joueurs = jeu.getJoueurs();
+        for (int i = 0; i < joueurs.size(); i++) {
+            joueurs.get(i).setStrategie(fabrique.creer(i, melanger(graineJeu + i + 1)));
+        }
+        try {
+            jeu.run();
+            resultats.ajouter(jeu);
+        } catch (RuntimeException e) {
+            resultats.erreur(graineJeu, e);
+        }
+    }
+
+    /**
+     * Fonction de mélange de SplitMix64 : deux graines proches donnent des valeurs
+     * sans rapport
+     */
+    static long melanger(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Joue les parties de numéros compris entre debut (inclus) et fin (exclu), en
+     * divisant l'intervalle tant qu'il est assez grand
+     */
+    @SuppressWarnings("serial") // les tâches ne sont jamais sérialisées
+    private class Tache extends RecursiveTask<Resultats> {
+        private final long graine;
+        private final int debut;
+        private final int fin;
+
+        Tache(long graine, int debut, int fin) {
+            this.graine = graine;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected Resultats compute() {
+            if (fin - debut <= SEUIL) {
+                Resultats resultats = new Resultats(nomJoueurs.length);
+                for (int i = debut; i < fin; i++) {
+                    jouer(graine, i, resultats);
+                }
+                return resultats;
+            }
+            int milieu = (debut + fin) >>> 1;
+            Tache gauche = new Tache(graine, debut, milieu);
+            gauche.fork();
+            Resultats droite = new Tache(graine, milieu, fin).compute();
+            return gauche.join().fusionner(droite);
+        }
+    }
+
+    /**
+     * Lance une simulation de parties entre joueurs aléatoires.
+     * <p>
+     * Arguments (tous facultatifs) : nombre de parties, nombre de joueurs, graine,
+     * nombre de threads.
+     */
+    public static void main(String[] args) {
+        int nbParties = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int nbJoueurs = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long graine = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int nbThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(nbThreads);
+        Simulateur simulateur = new Simulateur(nbJoueurs, (place, g) -> new StrategieAleatoire(g), pool);
+        // première simulation pour laisser la JVM compiler le jeu
+        simulateur.simuler(Math.min(nbParties, 500), graine);
+        System.out.printf("graine: %d, threads: %d%n", graine, nbThreads);
+        Resultats resultats = simulateur.simuler(nbParties, graine);
+        System.out.println(resultats);
+        for (Erreur erreur : resultats.getErreurs()) {
+            System.out.printf("erreur (graine de la partie: %d): %s%n", erreur.graine(), erreur.exception());
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,23 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.List;
+
+/**
+ * Politique de décision d'un joueur automatique.
+ * <p>
+ * Une stratégie est consultée par {@link Joueur#choisir} à chaque décision du
+ * joueur auquel elle est attribuée (voir {@link Joueur#setStrategie(Strategie)}),
+ * à la place de la lecture des entrées du jeu.
+ */
+public interface Strategie {
+    /**
+     * Choisit une réponse parmi les choix valides
+     *
+     * @param joueur      le joueur qui doit faire le choix
+     * @param instruction l'instruction qui serait affichée à un joueur humain
+     * @param choix       les choix valides, sans doublons (au moins un élément)
+     * @param peutPasser  indique si la chaîne vide ("") est aussi une réponse valide
+     * @return un élément de {@code choix}, ou la chaîne vide si {@code peutPasser} est vrai
+     */
+    String choisir(Joueur joueur, String instruction, List<String> choix, boolean peutPasser);
+}
@@ -0,0 +1,22 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stratégie qui choisit uniformément au hasard parmi les réponses valides (y
+ * compris passer, lorsque c'est permis)
+ */
+public class StrategieAleatoire implements Strategie {
+    private final SplittableRandom alea;
+
+    public StrategieAleatoire(long graine) {
+        alea = new SplittableRandom(graine);
+    }
+
+    @Override
+    public String choisir(Joueur joueur, String instruction, List<String> choix, boolean peutPasser) {
+        int i = alea.nextInt(peutPasser ? choix.size() + 1 : choix.size());
+        return i < choix.size() ? choix.get(i) : "";
+    }
+}
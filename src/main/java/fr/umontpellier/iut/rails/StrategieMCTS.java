@@ -0,0 +1,441 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stratégie d'un joueur automatique qui choisit ses coups par une recherche
+ * arborescente Monte-Carlo sur les ensembles d'information (ISMCTS), jouée sur
+ * l'état compact {@link EtatJeu}.
+ * <p>
+ * À chaque itération, l'information cachée au joueur (ordre de la pioche, mains
+ * et destinations des autres joueurs) est tirée au hasard
+ * ({@link EtatJeu#determiniser(int, SplittableRandom)}), puis l'arbre est
+ * parcouru en ne considérant que les coups possibles dans ce tirage (sélection
+ * UCB1 pondérée par le nombre de fois où chaque coup était disponible). La
+ * partie est ensuite terminée par des coups aléatoires et chaque joueur reçoit 1
+ * s'il l'a gagnée (partagé entre les ex æquo), 0 sinon.
+ * <p>
+ * La recherche est parallélisée à la racine : chaque tâche du pool construit
+ * son propre arbre pendant la durée accordée au coup, et le coup le plus visité
+ * dans l'ensemble des arbres est joué. La durée de chaque arbre est décomptée à
+ * partir du début de sa tâche : lorsque le pool est partagé par plusieurs
+ * parties, une tâche qui attend un thread libre dispose quand même de toute la
+ * durée (le coup est alors choisi plus tard).
+ * <p>
+ * Le paiement d'une route ou d'une gare suit le paiement choisi par la
+ * recherche. Les destinations, que l'état compact ne pioche pas, sont choisies
+ * à l'aide des distances du joueur ({@link Joueur#nbWagonsManquants(Destination)}).
+ */
+public class StrategieMCTS implements Strategie {
+    /**
+     * Durée de recherche par défaut pour chaque choix, en millisecondes
+     */
+    public static final long DUREE_DEFAUT = 1000;
+    /**
+     * Constante d'exploration de UCB1 (les gains sont compris entre 0 et 1)
+     */
+    private static final double EXPLORATION = 0.7;
+    /**
+     * Part des wagons du joueur qu'il accepte d'engager pour ses destinations
+     */
+    private static final double PART_WAGONS_DESTINATIONS = 0.6;
+    private static final Pattern FORMAT_DESTINATION = Pattern.compile("(.+) - (.+) \\((\\d+)\\)");
+
+    private final SplittableRandom alea;
+    private final long duree;
+    private final ForkJoinPool pool;
+    private final int nbArbres;
+    private int nbIterationsMax;
+    /**
+     * Couleur et nombre de locomotives restant à payer pour le coup choisi
+     * (null si le dernier coup choisi n'est ni une route ni une gare)
+     */
+    private CouleurWagon couleurPrevue;
+    private int locomotivesPrevues;
+    /**
+     * Nombre total d'itérations de la dernière recherche
+     */
+    private long nbIterations;
+    /**
+     * Nombres d'itérations et de recherches depuis la création de la stratégie
+     * (lus par d'autres threads que celui de la partie)
+     */
+    private final LongAdder nbIterationsTotal;
+    private final LongAdder nbRecherches;
+
+    /**
+     * @param graine graine des tirages de la stratégie
+     * @param duree  durée de recherche pour chaque choix, en millisecondes
+     * @param pool   pool sur lequel les arbres sont construits (un arbre par
+     *               thread du pool)
+     */
+    public StrategieMCTS(long graine, long duree, ForkJoinPool pool) {
+        alea = new SplittableRandom(graine);
+        this.duree = duree;
+        this.pool = pool;
+        nbArbres = pool.getParallelism();
+        nbIterationsMax = Integer.MAX_VALUE;
+        nbIterationsTotal = new LongAdder();
+        nbRecherches = new LongAdder();
+    }
+
+    public StrategieMCTS(long graine) {
+        this(graine, DUREE_DEFAUT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Limite le nombre d'itérations de chaque arbre (la recherche s'arrête à la
+     * limite ou à la fin de la durée accordée, au premier des deux)
+     */
+    public void setNbIterationsMax(int nbIterationsMax) {
+        this.nbIterationsMax = nbIterationsMax;
+    }
+
+    /**
+     * @return le nombre total d'itérations (parties simulées) de la dernière recherche
+     */
+    public long getNbIterations() {
+        return nbIterations;
+    }
+
+    /**
+     * @return le nombre total d'itérations de toutes les recherches de la stratégie
+     */
+    public long getNbIterationsTotal() {
+        return nbIterationsTotal.sum();
+    }
+
+    /**
+     * @return le nombre de recherches (choix d'un coup) de la stratégie
+     */
+    public long getNbRecherches() {
+        return nbRecherches.sum();
+    }
+
+    @Override
+    public String choisir(Joueur joueur, String instruction, List<String> choix, boolean peutPasser) {
+        if (instruction.equals(Joueur.INSTRUCTION_TOUR) || instruction.equals(Joueur.INSTRUCTION_SECONDE_CARTE)) {
+            Jeu jeu = joueur.getJeu();
+            EtatJeu etat = new EtatJeu(jeu, instruction.equals(Joueur.INSTRUCTION_SECONDE_CARTE));
+            int coup = chercher(etat);
+            couleurPrevue = null;
+            if (EtatJeu.type(coup) == EtatJeu.ROUTE || EtatJeu.type(coup) == EtatJeu.GARE) {
+                couleurPrevue = EtatJeu.couleur(coup);
+                locomotivesPrevues = EtatJeu.nbLocomotives(coup);
+            }
+            String nom = etat.nom(coup);
+            if (choix.contains(nom) || (peutPasser && nom.isEmpty())) {
+                return nom;
+            }
+            // coup inconnu du jeu (règles simplifiées de l'état compact)
+            couleurPrevue = null;
+            return choix.contains(CouleurWagon.GRIS.name()) ? CouleurWagon.GRIS.name() : choix.get(0);
+        }
+        if (instruction.equals(Joueur.INSTRUCTION_DESTINATION)) {
+            return choisirDestination(joueur, choix, peutPasser);
+        }
+        return choisirCarte(joueur, choix);
+    }
+
+    /**
+     * Choisit une carte pour payer une route ou une gare : les locomotives
+     * prévues, puis la couleur prévue, et sinon (cartes supplémentaires d'un
+     * tunnel) la couleur dont le joueur a le plus de cartes, les locomotives en
+     * dernier
+     */
+    private String choisirCarte(Joueur joueur, List<String> choix) {
+        String locomotive = CouleurWagon.LOCOMOTIVE.name();
+        if (locomotivesPrevues > 0 && choix.contains(locomotive)) {
+            locomotivesPrevues--;
+            return locomotive;
+        }
+        if (couleurPrevue != null && choix.contains(couleurPrevue.name())) {
+            return couleurPrevue.name();
+        }
+        String meilleur = null;
+        int nbMeilleur = -1;
+        for (String nom : choix) {
+            if (!nom.equals(locomotive)) {
+                int nb = joueur.nbCartesWagon(CouleurWagon.valueOf(nom));
+                if (nb > nbMeilleur) {
+                    meilleur = nom;
+                    nbMeilleur = nb;
+                }
+            }
+        }
+        return meilleur != null ? meilleur : choix.get(0);
+    }
+
+    /**
+     * Écarte la destination proposée la moins rentable (valeur par wagon
+     * manquant) tant qu'elle ne peut plus être réalisée ou que les destinations
+     * gardées demandent trop de wagons, et passe sinon
+     */
+    private String choisirDestination(Joueur joueur, List<String> choix, boolean peutPasser) {
+        String pire = null;
+        double pireRendement = Double.MAX_VALUE;
+        long wagonsDemandes = 0;
+        boolean irrealisable = false;
+        for (String nom : choix) {
+            Matcher m = FORMAT_DESTINATION.matcher(nom);
+            if (!m.matches()) {
+                continue;
+            }
+            Destination destination = new Destination(m.group(1), m.group(2), Integer.parseInt(m.group(3)));
+            int manquants = joueur.nbWagonsManquants(destination);
+            boolean infini = manquants >= Distances.INFINI || manquants > joueur.getNbWagons();
+            double rendement = infini ? -1 : destination.getValeur() / (manquants + 1.0);
+            if (rendement < pireRendement) {
+                pire = nom;
+                pireRendement = rendement;
+                irrealisable = infini;
+            }
+            wagonsDemandes += infini ? joueur.getNbWagons() : manquants;
+        }
+        if (pire == null || (peutPasser && !irrealisable
+                && wagonsDemandes <= PART_WAGONS_DESTINATIONS * joueur.getNbWagons())) {
+            return peutPasser ? "" : choix.get(0);
+        }
+        return pire;
+    }
+
+    /**
+     * Recherche le meilleur coup du joueur courant de l'état
+     */
+    int chercher(EtatJeu etat) {
+        List<Recherche> recherches = new ArrayList<>();
+        for (int i = 0; i < nbArbres; i++) {
+            recherches.add(new Recherche(new Arbre(etat, alea.split()), duree * 1_000_000, nbIterationsMax));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(recherches);
+                return null;
+            }
+        });
+
+        // visites et gains de chaque coup de la racine, additionnés sur tous les arbres
+        Map<Integer, double[]> statistiques = new HashMap<>();
+        nbIterations = 0;
+        for (Recherche recherche : recherches) {
+            Arbre arbre = recherche.arbre;
+            nbIterations += arbre.getNbIterations();
+            for (Noeud enfant : arbre.racine.enfants.values()) {
+                double[] s = statistiques.computeIfAbsent(enfant.coup, c -> new double[2]);
+                s[0] += enfant.visites;
+                s[1] += enfant.gains;
+            }
+        }
+        nbIterationsTotal.add(nbIterations);
+        nbRecherches.increment();
+        int meilleur = 0;
+        double[] meilleures = null;
+        for (Map.Entry<Integer, double[]> entree : statistiques.entrySet()) {
+            double[] s = entree.getValue();
+            if (meilleures == null || s[0] > meilleures[0] || (s[0] == meilleures[0] && s[1] > meilleures[1])) {
+                meilleur = entree.getKey();
+                meilleures = s;
+            }
+        }
+        if (meilleures == null) {
+            // aucune itération : premier coup possible
+            int[] coups = new int[etat.getNbCoupsMax()];
+            return etat.coupsPossibles(coups) > 0 ? coups[0] : 0;
+        }
+        return meilleur;
+    }
+
+    /**
+     * Construction d'un arbre pendant la durée donnée (décomptée à partir du début
+     * de la tâche) ou jusqu'au nombre maximal d'itérations
+     */
+    @SuppressWarnings("serial") // les tâches ne sont jamais sérialisées
+    private static class Recherche extends RecursiveTask<Void> {
+        private final Arbre arbre;
+        /**
+         * Durée de la recherche, en nanosecondes
+         */
+        private final long duree;
+        private final int nbIterationsMax;
+
+        Recherche(Arbre arbre, long duree, int nbIterationsMax) {
+            this.arbre = arbre;
+            this.duree = duree;
+            this.nbIterationsMax = nbIterationsMax;
+        }
+
+        @Override
+        protected Void compute() {
+            long fin = System.nanoTime() + duree;
+            for (int i = 0; i < nbIterationsMax && System.nanoTime() < fin; i++) {
+                arbre.iterer();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Nœud de l'arbre de recherche : un coup, et ses statistiques du point de vue
+     * du joueur qui l'a joué
+     */
+    private static final class Noeud {
+        private final int coup;
+        private final int joueur;
+        private final Noeud parent;
+        private final Map<Integer, Noeud> enfants = new HashMap<>();
+        private int visites;
+        /**
+         * Nombre de parcours du parent pendant lesquels le coup était possible
+         */
+        private int disponibilites;
+        private double gains;
+
+        Noeud(int coup, int joueur, Noeud parent) {
+            this.coup = coup;
+            this.joueur = joueur;
+            this.parent = parent;
+        }
+
+        double ucb() {
+            return gains / visites + EXPLORATION * Math.sqrt(Math.log(disponibilites) / visites);
+        }
+    }
+
+    /**
+     * Arbre de recherche d'un joueur, construit par itérations successives
+     * (utilisé par un seul thread)
+     */
+    static final class Arbre {
+        private final EtatJeu etat;
+        private final int observateur;
+        private final SplittableRandom alea;
+        private final Noeud racine;
+        private final int[] coups;
+
+        Arbre(EtatJeu etat, SplittableRandom alea) {
+            this.etat = etat.copier();
+            this.alea = alea;
+            observateur = etat.getJoueurCourant();
+            racine = new Noeud(0, -1, null);
+            coups = new int[etat.getNbCoupsMax()];
+        }
+
+        /**
+         * Tirage de l'information cachée, sélection et ajout d'un nœud, partie
+         * simulée jusqu'à la fin et mise à jour des statistiques
+         */
+        void iterer() {
+            EtatJeu partie = etat.copier();
+            partie.determiniser(observateur, alea);
+            Noeud noeud = racine;
+            int n;
+            while ((n = partie.coupsPossibles(coups)) > 0) {
+                Noeud suivant = selectionner(noeud, partie.getJoueurCourant(), n);
+                partie.jouerDefinitivement(suivant.coup);
+                noeud = suivant;
+                if (suivant.visites == 0) {
+                    break;
+                }
+            }
+            while ((n = partie.coupsPossibles(coups)) > 0) {
+                partie.jouerDefinitivement(coupAleatoire(n));
+            }
+
+            int[] scores = partie.scoresFinals();
+            int meilleur = Arrays.stream(scores).max().orElse(0);
+            int nbGagnants = 0;
+            for (int score : scores) {
+                if (score == meilleur) {
+                    nbGagnants++;
+                }
+            }
+            for (Noeud x = noeud; x != null; x = x.parent) {
+                x.visites++;
+                if (x.joueur >= 0 && scores[x.joueur] == meilleur) {
+                    x.gains += 1.0 / nbGagnants;
+                }
+            }
+        }
+
+        /**
+         * Choisit le nœud suivant parmi les {@code n} coups possibles : un coup
+         * jamais essayé s'il en reste (qui est ajouté à l'arbre), sinon le coup de
+         * meilleure valeur UCB
+         */
+        private Noeud selectionner(Noeud noeud, int joueur, int n) {
+            Noeud meilleur = null;
+            double meilleureValeur = Double.NEGATIVE_INFINITY;
+            int nbNouveaux = 0;
+            int nouveauCoup = 0;
+            for (int i = 0; i < n; i++) {
+                Noeud enfant = noeud.enfants.get(coups[i]);
+                if (enfant == null) {
+                    // tirage uniforme (par réservoir) parmi les coups jamais essayés
+                    nbNouveaux++;
+                    if (alea.nextInt(nbNouveaux) == 0) {
+                        nouveauCoup = coups[i];
+                    }
+                    continue;
+                }
+                enfant.disponibilites++;
+                if (nbNouveaux == 0) {
+                    double valeur = enfant.ucb();
+                    if (valeur > meilleureValeur) {
+                        meilleur = enfant;
+                        meilleureValeur = valeur;
+                    }
+                }
+            }
+            if (nbNouveaux > 0) {
+                Noeud nouveau = new Noeud(nouveauCoup, joueur, noeud);
+                nouveau.disponibilites = 1;
+                noeud.enfants.put(nouveauCoup, nouveau);
+                return nouveau;
+            }
+            return meilleur;
+        }
+
+        /**
+         * Coup de la partie simulée : une route une fois sur deux s'il y en a,
+         * sinon une pioche (les gares, qui ne rapportent rien dans l'état compact,
+         * ne sont jouées que s'il n'y a pas d'autre coup)
+         */
+        private int coupAleatoire(int n) {
+            // coups rangés par type : passer, pioches, routes puis gares
+            int debutRoutes = 1;
+            while (debutRoutes < n && EtatJeu.type(coups[debutRoutes]) < EtatJeu.ROUTE) {
+                debutRoutes++;
+            }
+            int debutGares = debutRoutes;
+            while (debutGares < n && EtatJeu.type(coups[debutGares]) == EtatJeu.ROUTE) {
+                debutGares++;
+            }
+            if (debutGares > debutRoutes && (debutRoutes == 1 || alea.nextBoolean())) {
+                return coups[debutRoutes + alea.nextInt(debutGares - debutRoutes)];
+            }
+            if (debutRoutes > 1) {
+                return coups[1 + alea.nextInt(debutRoutes - 1)];
+            }
+            return coups[n > 1 ? 1 + alea.nextInt(n - 1) : 0];
+        }
+
+        /**
+         * @return le nombre d'itérations faites sur l'arbre
+         */
+        long getNbIterations() {
+            return racine.visites;
+        }
+    }
+}
@@ -1,18 +1,15 @@
 package fr.umontpellier.iut.rails;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
-import java.util.Collections;
 
+/**
+ * Tunnel d'un plateau. Les cartes payées pendant une capture et le fait qu'elles
+ * soient toutes des locomotives sont conservés par le plateau.
+ */
 public class Tunnel extends Route {
 
-    ArrayList<CouleurWagon> cartePaye;
-    private boolean fullLoco;
-
-    public Tunnel(Ville ville1, Ville ville2, int longueur, CouleurWagon couleur) {
-        super(ville1, ville2, longueur, couleur);
-        cartePaye = new ArrayList<>();
-        fullLoco=true;
+    Tunnel(Plateau plateau, int id) {
+        super(plateau, id);
     }
 
     @Override
@@ -20,83 +17,151 @@ public class Tunnel extends Route {
         return "[" + super.toString() + "]";
     }
 
-    private ArrayList<CouleurWagon> cartesPiochees(Joueur joueur) {
-        ArrayList<CouleurWagon> listPioche = new ArrayList<>();
+    /**
+     * @return le nombre de cartes de la couleur donnée payées pour la capture en cours
+     */
+    private int cartesPayees(CouleurWagon c) {
+        return getPlateau().getCartesPayees(getId(), c);
+    }
+
+    private int nbCartesPayees() {
+        return getPlateau().getNbCartesPayees(getId());
+    }
+
+    private boolean fullLoco() {
+        return getPlateau().estPayeeEnLocomotives(getId());
+    }
+
+    /**
+     * Oublie les cartes payées pour la capture en cours (qui vient de se terminer
+     * ou d'être annulée)
+     */
+    void effacerPaiement() {
+        getPlateau().effacerPaiement(getId());
+    }
+
+    private CartesWagon cartesPiochees(Joueur joueur) {
+        CartesWagon listPioche = new CartesWagon();
         for (int i = 0; i < 3; i++) {
             CouleurWagon c = joueur.getJeu().piocherCarteWagon();
-            listPioche.add(c);
-            joueur.getJeu().defausserCarteWagon(c);
+            if (c != null) {
+                listPioche.add(c);
+                joueur.getJeu().defausserCarteWagon(c);
+            }
         }
         return listPioche;
     }
 
-    private boolean valideApresPioche(Joueur joueur, ArrayList<CouleurWagon> carteBonus) {
-        int carteAjouer = Collections.frequency(carteBonus, getCouleur()) + Collections.frequency(carteBonus, CouleurWagon.LOCOMOTIVE);
-        int nbCouleur=Collections.frequency(joueur.getCartesWagon(), getCouleur())-Collections.frequency(cartePaye,getCouleur());
-        int nbLoco=Collections.frequency(joueur.getCartesWagon(), CouleurWagon.LOCOMOTIVE)-Collections.frequency(cartePaye, CouleurWagon.LOCOMOTIVE);
-        if ( nbCouleur>=carteAjouer || nbCouleur + nbLoco >= carteAjouer || (fullLoco && nbLoco>=Collections.frequency(carteBonus, CouleurWagon.LOCOMOTIVE))) {
+    private boolean valideApresPioche(Joueur joueur, CartesWagon carteBonus) {
+        int carteAjouer = carteBonus.compter(getCouleur()) + carteBonus.compter(CouleurWagon.LOCOMOTIVE);
+        int nbCouleur=joueur.nbCartesWagon(getCouleur())-cartesPayees(getCouleur());
+        int nbLoco=joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)-cartesPayees(CouleurWagon.LOCOMOTIVE);
+        if ( nbCouleur>=carteAjouer || nbCouleur + nbLoco >= carteAjouer || (fullLoco() && nbLoco>=carteBonus.compter(CouleurWagon.LOCOMOTIVE))) {
             return true;
         } else {
             return false;
         }
     }
 
-    private int nbCarteSupp(ArrayList<CouleurWagon> carteBonus){
-        if(fullLoco){
-            return Collections.frequency(carteBonus, CouleurWagon.LOCOMOTIVE);
+    private int nbCarteSupp(CartesWagon carteBonus){
+        if(fullLoco()){
+            return carteBonus.compter(CouleurWagon.LOCOMOTIVE);
         }
         else{
-            return Collections.frequency(carteBonus, getCouleur()) + Collections.frequency(carteBonus, CouleurWagon.LOCOMOTIVE);
+            return carteBonus.compter(getCouleur()) + carteBonus.compter(CouleurWagon.LOCOMOTIVE);
         }
     }
 
     private void coutSupplementaire(Joueur joueur, CouleurWagon c){
         if(c!=CouleurWagon.LOCOMOTIVE){
-            fullLoco=false;
+            getPlateau().setPayeeEnLocomotives(getId(), false);
         }
         joueur.getCartesWagon().remove(c);
         joueur.getJeu().defausserCarteWagon(c);
         joueur.getCartesWagonPosees().add(c);
     }
 
+    /**
+     * Rend au joueur les cartes déjà payées pour une capture annulée (elles sont
+     * reprises dans la défausse ou parmi les cartes visibles), ainsi que les
+     * wagons posés
+     */
+    private void rendreCartes(Joueur joueur, CartesWagon payees) {
+        Jeu jeu = joueur.getJeu();
+        for (CouleurWagon c : payees) {
+            if (!jeu.getDefausseCartesWagon().remove(c)) {
+                jeu.getCartesWagonVisibles().remove(c);
+            }
+            joueur.getCartesWagonPosees().remove(c);
+            joueur.getCartesWagon().add(c);
+        }
+        joueur.setNbWagons(joueur.getNbWagons() + nbCartesPayees());
+    }
+
+    /**
+     * Annule la capture en cours : une route grise redevient grise, les cartes
+     * payées sont oubliées et les points de la route sont retirés au joueur
+     *
+     * @return false (la route n'est pas capturée)
+     */
+    private boolean annuler(Joueur joueur, boolean gris) {
+        if(gris){
+            setCouleur(CouleurWagon.GRIS);
+        }
+        effacerPaiement();
+        joueur.addScore(-comptePoints());
+        return false;
+    }
+
     @Override
     public boolean capturer(Joueur joueur, CouleurWagon c) {
         boolean gris=false;
         if(c!=CouleurWagon.LOCOMOTIVE){
-            fullLoco=false;
+            getPlateau().setPayeeEnLocomotives(getId(), false);
         }
         if(getCouleur()==CouleurWagon.GRIS && c!=CouleurWagon.LOCOMOTIVE){
             gris=true;
             setCouleur(c);
         }
-        if (cartePaye.size() != getLongueur()) {
-            cartePaye.add(c);
+        if (nbCartesPayees() != getLongueur()) {
+            getPlateau().payerCarte(getId(), c);
         }
-        if (cartePaye.size() == getLongueur()) {
-            ArrayList<CouleurWagon> carteBonus = cartesPiochees(joueur);
+        if (nbCartesPayees() == getLongueur()) {
+            CartesWagon carteBonus = cartesPiochees(joueur);
             if(valideApresPioche(joueur,carteBonus) && carteBonus.contains(getCouleur())){
                 ArrayList<String> choix = new ArrayList<>();
-                if(Collections.frequency(joueur.getCartesWagon(),CouleurWagon.LOCOMOTIVE)-Collections.frequency(cartePaye,CouleurWagon.LOCOMOTIVE)>0){
+                if(joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)-cartesPayees(CouleurWagon.LOCOMOTIVE)>0){
                     choix.add(CouleurWagon.LOCOMOTIVE.name());
                 }
-                if(Collections.frequency(joueur.getCartesWagon(),getCouleur())-Collections.frequency(cartePaye,getCouleur())>0){
+                if(joueur.nbCartesWagon(getCouleur())-cartesPayees(getCouleur())>0){
                     choix.add(getCouleur().name());
                 }
                 String couleurChoix = joueur.choisir("Vous avez pioché " + carteBonus + " voulez vous continuer la capture ? si non, passez.", choix, choix, true);
                 if (!couleurChoix.equals("")) {
-                    for (int i = 0; i < cartePaye.size(); i++) {
-                        super.capturer(joueur, cartePaye.get(i));
+                    CartesWagon payees = new CartesWagon();
+                    for (CouleurWagon couleur : CouleurWagon.values()) {
+                        for (int i = 0; i < cartesPayees(couleur); i++) {
+                            super.capturer(joueur, couleur);
+                        }
+                        payees.ajouter(couleur, cartesPayees(couleur));
                     }
                     coutSupplementaire(joueur,CouleurWagon.valueOf(couleurChoix));
+                    payees.add(CouleurWagon.valueOf(couleurChoix));
                     int nbSupp=nbCarteSupp(carteBonus);
                     int n=1;
                     while(n!=nbSupp){
+                        if (couleurChoix.equals("")) {
+                            // plus aucune carte ne permet de payer le surcoût : la capture est annulée
+                            rendreCartes(joueur, payees);
+                            return annuler(joueur, gris);
+                        }
                         coutSupplementaire(joueur,CouleurWagon.valueOf(couleurChoix));
+                        payees.add(CouleurWagon.valueOf(couleurChoix));
                         choix.clear();
-                        if(Collections.frequency(joueur.getCartesWagon(),CouleurWagon.LOCOMOTIVE)-Collections.frequency(cartePaye,CouleurWagon.LOCOMOTIVE)>0){
+                        if(joueur.nbCartesWagon(CouleurWagon.LOCOMOTIVE)-cartesPayees(CouleurWagon.LOCOMOTIVE)>0){
                             choix.add(CouleurWagon.LOCOMOTIVE.name());
                         }
-                        if(Collections.frequency(joueur.getCartesWagon(),getCouleur())-Collections.frequency(cartePaye,getCouleur())>0){
+                        if(joueur.nbCartesWagon(getCouleur())-cartesPayees(getCouleur())>0){
                             choix.add(getCouleur().name());
                         }
                         couleurChoix=joueur.choisir("Choisissez une Locomotive ou une carte "+getCouleur(),choix,choix,false);
@@ -104,24 +169,15 @@ public class Tunnel extends Route {
                         n++;
                     }
                     setProprietaire(joueur);
+                    effacerPaiement();
                     return true;
                 }
                 else {
-                    if(gris){
-                        setCouleur(CouleurWagon.GRIS);
-                    }
-                    cartePaye.clear();
-                    joueur.addScore(-comptePoints());
-                    return false;
+                    return annuler(joueur, gris);
                 }
             }
             else{
-                if(gris){
-                    setCouleur(CouleurWagon.GRIS);
-                }
-                cartePaye.clear();
-                joueur.addScore(-comptePoints());
-                return false;
+                return annuler(joueur, gris);
             }
         }
         if(gris){
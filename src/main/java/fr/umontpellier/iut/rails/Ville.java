@@ -2,44 +2,67 @@ package fr.umontpellier.iut.rails;
 
 import java.util.HashMap;
 
+/**
+ * Ville d'un plateau : son nom est lu dans le graphe partagé par toutes les
+ * parties ({@link GraphePlateau}), son propriétaire dans le {@link Plateau} de
+ * la partie.
+ */
 public class Ville {
+    private final Plateau plateau;
     /**
-     * Nom complet de la ville
-     */
-    private String nom;
-    /**
-     * Joueur qui a construit une gare sur la ville (ou `null` si pas de gare)
+     * Numéro de la ville sur son plateau (position dans la liste des villes du plateau)
      */
-    private Joueur proprietaire;
+    private final int id;
 
-    public Ville(String nom) {
-        this.nom = nom;
+    Ville(Plateau plateau, int id) {
+        this.plateau = plateau;
+        this.id = id;
     }
 
+    /**
+     * Nom complet de la ville
+     */
     public String getNom() {
-        return nom;
+        return plateau.getGraphe().getNomVille(id);
     }
     
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Joueur qui a construit une gare sur la ville (ou `null` si pas de gare)
+     */
     public Joueur getProprietaire() {
-        return proprietaire;
+        return plateau.getProprietaireVille(id);
     }
     
+    /**
+     * Change le propriétaire de la ville et met à jour les coups possibles (voir
+     * {@link Jeu#getCoupsPossibles()})
+     */
     public void setProprietaire(Joueur proprietaire) {
-        this.proprietaire = proprietaire;
+        Joueur ancien = getProprietaire();
+        plateau.setProprietaireVille(id, proprietaire);
+        Joueur joueur = proprietaire != null ? proprietaire : ancien;
+        if (joueur != null && ancien != proprietaire) {
+            joueur.getJeu().getCoupsPossibles().villeChangee();
+        }
     }
     
     @Override
     public String toString() {
-        return nom;
+        return getNom();
     }
 
     public String toLog() {
-        return String.format("<span class=\"ville\">%s</span>", nom);
+        return String.format("<span class=\"ville\">%s</span>", getNom());
     }
 
     public Object asPOJO() {
         HashMap<String, Object> data = new HashMap<>();
-        data.put("nom", nom);
+        data.put("nom", getNom());
+        Joueur proprietaire = getProprietaire();
         if (proprietaire != null) {
             data.put("proprietaire", proprietaire.getCouleur());
         }    
@@ -0,0 +1,81 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Jeu;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test de charge de l'exécuteur des parties : démarre un grand nombre de parties
+ * inactives (bloquées en attente de la première instruction) et mesure la
+ * mémoire et le nombre de threads utilisés par la JVM.
+ * <p>
+ * Usage : {@code ChargeParties [nbParties] [virtuel|plateforme] [taillePileKo]}
+ * <p>
+ * La mémoire des piles des threads système n'est pas comptée dans le tas ; pour
+ * la mesurer, lancer la JVM avec {@code -XX:NativeMemoryTracking=summary} et
+ * consulter la section "Thread" de {@code jcmd <pid> VM.native_memory}.
+ */
+public class ChargeParties {
+    private static final String[] NOMS_JOUEURS = new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"};
+
+    /**
+     * Jeu qui signale le moment où il se met en attente d'une instruction
+     */
+    private static class JeuInactif extends Jeu {
+        private final CountDownLatch enAttente;
+
+        JeuInactif(CountDownLatch enAttente) {
+            super(NOMS_JOUEURS);
+            this.enAttente = enAttente;
+        }
+
+        @Override
+        public String lireLigne() {
+            enAttente.countDown();
+            return super.lireLigne();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int nbParties = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        ExecuteurParties.Mode mode = args.length > 1
+                ? ExecuteurParties.Mode.valueOf(args[1].toUpperCase())
+                : ExecuteurParties.Mode.VIRTUEL;
+        long taillePile = args.length > 2 ? Long.parseLong(args[2]) : ExecuteurParties.TAILLE_PILE_DEFAUT;
+
+        // chaque partie affiche le plateau avant d'attendre une instruction
+        PrintStream sortie = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        long memoireAvant = memoireUtilisee();
+        int threadsAvant = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        ExecuteurParties executeur = new ExecuteurParties(mode, taillePile);
+        CountDownLatch enAttente = new CountDownLatch(nbParties);
+        long debut = System.nanoTime();
+        for (int i = 0; i < nbParties; i++) {
+            executeur.executer(new JeuInactif(enAttente));
+        }
+        enAttente.await();
+        long duree = System.nanoTime() - debut;
+
+        long memoire = memoireUtilisee() - memoireAvant;
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsAvant;
+
+        System.setOut(sortie);
+        System.out.printf("Mode %s (demandé : %s), %d parties en attente%n", executeur.getMode(), mode, nbParties);
+        System.out.printf("  démarrage      : %d ms%n", duree / 1_000_000);
+        System.out.printf("  threads JVM    : +%d%n", threads);
+        System.out.printf("  tas utilisé    : +%d Mo (%d Ko par partie)%n",
+                memoire / (1024 * 1024), memoire / 1024 / nbParties);
+        System.exit(0);
+    }
+
+    private static long memoireUtilisee() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,199 @@
+package fr.umontpellier.iut.gui;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+public class ClientPartieTest {
+    private Partie partie;
+    private RemoteEndpoint.Async remote;
+    private ClientPartie client;
+
+    @BeforeEach
+    void init() {
+        partie = new Partie("test", new String[]{"Guybrush", "Largo"});
+        Session session = mock(Session.class);
+        remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        client = new ClientPartie(session, partie, ClientPartie.Protocole.COMPLET);
+        partie.addClient(client);
+    }
+
+    private void publier(String instruction) {
+        partie.publier(new InstantaneJeu(partie.getJeu(), instruction, new ArrayList<>(), false));
+    }
+
+    @Test
+    void testEtatsFusionnesPendantUnEnvoi() {
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SendHandler> handlers = ArgumentCaptor.forClass(SendHandler.class);
+
+        publier("premier");
+        publier("deuxième");
+        publier("troisième");
+        verify(remote, times(1)).sendText(anyString(), any(SendHandler.class));
+
+        verify(remote).sendText(messages.capture(), handlers.capture());
+        handlers.getValue().onResult(new SendResult());
+        verify(remote, times(2)).sendText(messages.capture(), handlers.capture());
+
+        List<String> envoyes = messages.getAllValues();
+        assertTrue(envoyes.get(0).contains("premier"));
+        assertTrue(envoyes.get(envoyes.size() - 1).contains("troisième"));
+        assertEquals(1, partie.getMetriques().getFusions());
+        assertEquals(1, partie.getMetriques().getEnvois());
+        assertEquals(0, client.getProfondeurFile());
+    }
+
+    @Test
+    void testMessagesIndividuelsAvantEtat() {
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SendHandler> handlers = ArgumentCaptor.forClass(SendHandler.class);
+
+        publier("premier");
+        publier("deuxième");
+        client.envoyer("réponse");
+        verify(remote).sendText(messages.capture(), handlers.capture());
+        handlers.getValue().onResult(new SendResult());
+        verify(remote, times(2)).sendText(messages.capture(), handlers.capture());
+
+        assertEquals("réponse", messages.getValue());
+        assertEquals(1, client.getProfondeurFile());
+    }
+
+    @Test
+    void testMessagesLimitesParClient() {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async remoteLimite = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remoteLimite);
+        ClientPartie bavard = new ClientPartie(session, partie, ClientPartie.Protocole.COMPLET, 2);
+        partie.addClient(bavard);
+
+        for (int i = 0; i < 5; i++) {
+            partie.recevoir(bavard, "!resync");
+        }
+        // les acquittements ne sont pas limités
+        partie.recevoir(bavard, "!ack 0");
+        assertEquals(3, bavard.getNbEntreesLimitees());
+        assertEquals(3, partie.getNbEntreesLimitees());
+        // une seule erreur est envoyée pour toute la rafale
+        verify(remoteLimite, times(1)).sendText(contains("erreur"), any(SendHandler.class));
+        assertEquals(0, client.getNbEntreesLimitees());
+    }
+
+    @Test
+    void testChoixInvalideRefuseSansRenvoyerLEtat() throws InterruptedException {
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SendHandler> handlers = ArgumentCaptor.forClass(SendHandler.class);
+        ExecuteurParties executeur = new ExecuteurParties(ExecuteurParties.Mode.PLATEFORME, 0);
+        try {
+            // la partie attend le choix des destinations du premier joueur
+            partie.demarrer(executeur);
+            verify(remote, timeout(10000)).sendText(messages.capture(), handlers.capture());
+            long version = partie.getEtatCourant().getVersion();
+            handlers.getValue().onResult(new SendResult());
+
+            // l'instruction est vérifiée par le jeu lorsqu'il la lit
+            partie.recevoir(client, "n'importe quoi");
+            verify(remote, timeout(10000).times(2)).sendText(messages.capture(), handlers.capture());
+            assertTrue(messages.getValue().contains("erreur"));
+            assertEquals(1, client.getNbEntreesInvalides());
+            assertEquals(1, partie.getNbEntreesInvalides());
+            assertEquals(version, partie.getEtatCourant().getVersion());
+        } finally {
+            executeur.arreter();
+        }
+    }
+
+    @Test
+    void testInstructionEnAvanceMiseEnFile() {
+        ClientPartie autre = new ClientPartie(mock(Session.class), partie, ClientPartie.Protocole.COMPLET);
+        // les instructions ne sont pas comparées aux choix attendus avant d'être mises en file
+        partie.recevoir(client, "Paris");
+        partie.recevoir(autre, "Brest");
+        assertEquals("Paris", partie.getJeu().lireLigne());
+        partie.getJeu().refuserEntree("Paris");
+        assertEquals(1, client.getNbEntreesInvalides());
+        assertEquals("Brest", partie.getJeu().lireLigne());
+        assertEquals(0, autre.getNbEntreesInvalides());
+        assertEquals(1, partie.getNbEntreesInvalides());
+    }
+
+    @Test
+    void testEtatCompletSansLeLogDejaEnvoye() {
+        ClientPartie nouveau = new ClientPartie(mock(Session.class), partie, ClientPartie.Protocole.COMPLET);
+        partie.getJeu().log("premier");
+        publier("premier");
+        JsonObject message = JsonParser.parseString(partie.messageEtat(nouveau)).getAsJsonObject();
+        long debut = message.get("debutLog").getAsLong();
+        int nbLignes = message.getAsJsonArray("log").size();
+        assertEquals("premier", message.getAsJsonArray("log").get(nbLignes - 1).getAsString());
+
+        // seuls les nouveaux messages du log sont envoyés
+        partie.getJeu().log("second");
+        publier("second");
+        message = JsonParser.parseString(partie.messageEtat(nouveau)).getAsJsonObject();
+        assertEquals(debut + nbLignes, message.get("debutLog").getAsLong());
+        assertEquals(1, message.getAsJsonArray("log").size());
+        assertEquals("second", message.getAsJsonArray("log").get(0).getAsString());
+
+        // après une resynchronisation, tout le log conservé est renvoyé
+        nouveau.resynchroniser();
+        message = JsonParser.parseString(partie.messageEtat(nouveau)).getAsJsonObject();
+        assertEquals(debut, message.get("debutLog").getAsLong());
+        assertEquals(nbLignes + 1, message.getAsJsonArray("log").size());
+    }
+
+    @Test
+    void testPasDeDeconnexionPendantLaConstructionDeLEtat() throws InterruptedException {
+        publier("premier");
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async remoteNouveau = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remoteNouveau);
+        ClientPartie nouveau = new ClientPartie(session, partie, ClientPartie.Protocole.COMPLET);
+        Thread etat;
+        synchronized (partie) {
+            // l'état du nouveau client attend le verrou de la partie : aucun envoi
+            // n'a encore commencé pour ce client
+            etat = new Thread(nouveau::signalerEtat);
+            etat.start();
+            long limite = System.currentTimeMillis() + 10000;
+            while (etat.getState() != Thread.State.BLOCKED) {
+                assertTrue(System.currentTimeMillis() < limite);
+                Thread.sleep(1);
+            }
+            nouveau.envoyer("réponse");
+        }
+        etat.join(10000);
+        assertEquals(0, partie.getMetriques().getDeconnexions());
+        verify(remoteNouveau).sendText(anyString(), any(SendHandler.class));
+        assertEquals(1, nouveau.getProfondeurFile());
+    }
+
+    @Test
+    void testEchecDEnvoiDeconnecteLeClient() {
+        ArgumentCaptor<SendHandler> handlers = ArgumentCaptor.forClass(SendHandler.class);
+        publier("premier");
+        verify(remote).sendText(anyString(), handlers.capture());
+        handlers.getValue().onResult(new SendResult(new IOException("connexion perdue")));
+        assertEquals(0, partie.getNbClients());
+        assertEquals(1, partie.getMetriques().getEchecs());
+        assertEquals(1, partie.getMetriques().getDeconnexions());
+    }
+}
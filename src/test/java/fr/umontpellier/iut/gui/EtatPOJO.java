@@ -0,0 +1,128 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Destination;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.LogJeu;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Représentation des instantanés de l'état sous forme d'objets Java simples
+ * (POJO), construite naïvement à partir des {@code Map} : elle sert de référence
+ * pour vérifier les messages écrits par {@link SerialiseurEtat} (une fois
+ * convertie en JSON par Gson, elle doit donner les mêmes messages).
+ */
+public class EtatPOJO {
+    /**
+     * @return l'état complet, avec tous les messages conservés du log
+     */
+    public static Map<String, Object> complet(InstantaneJeu etat, LogJeu log) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("prompt", prompt(etat.getPrompt()));
+        data.put("villes", elements(etat.getNomsVilles(), etat.getProprietairesVilles(), null));
+        data.put("routes", elements(etat.getNomsRoutes(), etat.getProprietairesRoutes(), null));
+        List<Object> joueurs = new ArrayList<>();
+        for (int i = 0; i < etat.getJoueurs().size(); i++) {
+            joueurs.add(joueur(i, etat.getJoueurs().get(i)));
+        }
+        data.put("joueurs", joueurs);
+        data.put("piles", piles(etat.getPiles()));
+        LogJeu.Page page = log.entre(0, etat.getSequenceLog());
+        data.put("debutLog", page.debut());
+        data.put("log", page.lignes());
+        return data;
+    }
+
+    /**
+     * @return les parties de l'état qui ont changé depuis l'état de référence
+     * (les villes, routes et joueurs modifiés, les nouveaux messages du log)
+     */
+    public static Map<String, Object> delta(InstantaneJeu etat, InstantaneJeu base, LogJeu log) {
+        HashMap<String, Object> data = new HashMap<>();
+        if (!etat.getPrompt().equals(base.getPrompt())) {
+            data.put("prompt", prompt(etat.getPrompt()));
+        }
+        List<Object> villes = elements(etat.getNomsVilles(), etat.getProprietairesVilles(),
+                base.getProprietairesVilles());
+        if (!villes.isEmpty()) {
+            data.put("villes", villes);
+        }
+        List<Object> routes = elements(etat.getNomsRoutes(), etat.getProprietairesRoutes(),
+                base.getProprietairesRoutes());
+        if (!routes.isEmpty()) {
+            data.put("routes", routes);
+        }
+        List<Object> joueurs = new ArrayList<>();
+        for (int i = 0; i < etat.getJoueurs().size(); i++) {
+            if (!etat.getJoueurs().get(i).equals(base.getJoueurs().get(i))) {
+                joueurs.add(joueur(i, etat.getJoueurs().get(i)));
+            }
+        }
+        if (!joueurs.isEmpty()) {
+            data.put("joueurs", joueurs);
+        }
+        if (!etat.getPiles().equals(base.getPiles())) {
+            data.put("piles", piles(etat.getPiles()));
+        }
+        if (etat.getSequenceLog() > base.getSequenceLog()) {
+            LogJeu.Page page = log.entre(base.getSequenceLog(), etat.getSequenceLog());
+            data.put("debutLog", page.debut());
+            data.put("log", page.lignes());
+        }
+        return data;
+    }
+
+    private static Object prompt(InstantaneJeu.Prompt prompt) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("instruction", prompt.instruction());
+        data.put("boutons", prompt.boutons());
+        data.put("nomJoueurCourant", prompt.nomJoueurCourant());
+        data.put("peutPasser", prompt.peutPasser());
+        return data;
+    }
+
+    private static List<Object> elements(String[] noms, Joueur.Couleur[] proprietaires, Joueur.Couleur[] base) {
+        List<Object> elements = new ArrayList<>();
+        for (int i = 0; i < noms.length; i++) {
+            if (base != null && proprietaires[i] == base[i]) {
+                continue;
+            }
+            HashMap<String, Object> data = new HashMap<>();
+            data.put("nom", noms[i]);
+            if (proprietaires[i] != null) {
+                data.put("proprietaire", proprietaires[i]);
+            }
+            elements.add(data);
+        }
+        return elements;
+    }
+
+    private static Object joueur(int index, InstantaneJeu.EtatJoueur joueur) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("index", index);
+        data.put("nom", joueur.nom());
+        data.put("couleur", joueur.couleur());
+        data.put("score", joueur.score());
+        data.put("nbGares", joueur.nbGares());
+        data.put("nbWagons", joueur.nbWagons());
+        data.put("cheminLePlusLong", joueur.cheminLePlusLong());
+        data.put("meneurCheminLePlusLong", joueur.meneurCheminLePlusLong());
+        data.put("estJoueurCourant", joueur.estJoueurCourant());
+        data.put("destinations", joueur.destinations().stream().map(Destination::asPOJO).toList());
+        data.put("cartesWagon", joueur.cartesWagon());
+        data.put("cartesWagonPosees", joueur.cartesWagonPosees());
+        return data;
+    }
+
+    private static Object piles(InstantaneJeu.Piles piles) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("pileCartesWagon", piles.pileCartesWagon());
+        data.put("pileDestinations", piles.pileDestinations());
+        data.put("defausseCartesWagon", piles.defausseCartesWagon());
+        data.put("cartesWagonVisibles", piles.cartesWagonVisibles());
+        return data;
+    }
+}
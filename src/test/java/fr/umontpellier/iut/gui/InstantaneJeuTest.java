@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.IOJeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.Route;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstantaneJeuTest {
+    private IOJeu jeu;
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+    }
+
+    @Test
+    void testMemeEtat() {
+        InstantaneJeu e1 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        InstantaneJeu e2 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        assertTrue(e1.memeEtat(e2));
+        assertTrue(EtatPOJO.delta(e1, e2, jeu.getLog()).isEmpty());
+    }
+
+    @Test
+    void testDeltaRouteCapturee() {
+        InstantaneJeu e1 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        Joueur joueur = jeu.getJoueurs().get(1);
+        Route route = jeu.getRoutes().get(0);
+        route.setProprietaire(joueur);
+        jeu.log("capture");
+        InstantaneJeu e2 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+
+        assertFalse(e1.memeEtat(e2));
+        Map<String, Object> delta = EtatPOJO.delta(e2, e1, jeu.getLog());
+        // routes, joueurs (plus long chemin du joueur), debutLog et log
+        assertEquals(4, delta.size());
+        List<?> routes = (List<?>) delta.get("routes");
+        assertEquals(1, routes.size());
+        assertEquals(route.getNom(), ((Map<?, ?>) routes.get(0)).get("nom"));
+        assertEquals(joueur.getCouleur(), ((Map<?, ?>) routes.get(0)).get("proprietaire"));
+        assertEquals(0L, delta.get("debutLog"));
+        assertEquals(List.of("capture"), delta.get("log"));
+    }
+
+    @Test
+    void testDeltaCartesJoueur() {
+        InstantaneJeu e1 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        jeu.getJoueurs().get(2).getCartesWagon().add(jeu.piocherCarteWagon());
+        InstantaneJeu e2 = new InstantaneJeu(jeu, "Choisissez une seconde carte", new ArrayList<>(), true);
+
+        Map<String, Object> delta = EtatPOJO.delta(e2, e1, jeu.getLog());
+        assertTrue(delta.containsKey("prompt"));
+        assertTrue(delta.containsKey("piles"));
+        assertFalse(delta.containsKey("routes"));
+        List<?> joueurs = (List<?>) delta.get("joueurs");
+        assertEquals(1, joueurs.size());
+        assertEquals(2, ((Map<?, ?>) joueurs.get(0)).get("index"));
+    }
+
+    @Test
+    void testDeltaMeneurCheminLePlusLong() {
+        Joueur joueur1 = jeu.getJoueurs().get(0);
+        Joueur joueur2 = jeu.getJoueurs().get(1);
+        jeu.getPlateau().getRouteParNom("Brest - Paris").setProprietaire(joueur1);
+        InstantaneJeu e1 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        assertEquals(3, e1.getJoueurs().get(0).cheminLePlusLong());
+        assertTrue(e1.getJoueurs().get(0).meneurCheminLePlusLong());
+
+        jeu.getPlateau().getRouteParNom("Pamplona - Paris(1)").setProprietaire(joueur2);
+        InstantaneJeu e2 = new InstantaneJeu(jeu, "Que voulez vous faire ?", new ArrayList<>(), true);
+        Map<String, Object> delta = EtatPOJO.delta(e2, e1, jeu.getLog());
+        // le second joueur passe en tête : les deux joueurs ont changé
+        List<?> joueurs = (List<?>) delta.get("joueurs");
+        assertEquals(2, joueurs.size());
+        assertEquals(false, ((Map<?, ?>) joueurs.get(0)).get("meneurCheminLePlusLong"));
+        assertEquals(4, ((Map<?, ?>) joueurs.get(1)).get("cheminLePlusLong"));
+        assertEquals(true, ((Map<?, ?>) joueurs.get(1)).get("meneurCheminLePlusLong"));
+    }
+}
@@ -0,0 +1,134 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.Enregistrement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+    private static final Enregistrement DEBUT = new Enregistrement(List.of("Guybrush", "Largo"), 42, List.of());
+    private Path dossier;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dossier = Files.createTempDirectory("journaux");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> fichiers = Files.walk(dossier)) {
+            for (Path fichier : fichiers.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(fichier);
+            }
+        }
+    }
+
+    @Test
+    void testAjouterPuisRelire() throws IOException {
+        for (Journal.Synchronisation synchronisation : Journal.Synchronisation.values()) {
+            Path fichier = dossier.resolve(synchronisation + ".journal");
+            try (Journal journal = Journal.creer(fichier, DEBUT, synchronisation)) {
+                journal.ajouter("Bruxelles - Frankfurt");
+                journal.ajouter("ROUGE");
+                journal.ajouter("");
+                journal.ajouter("Zürich");
+            }
+            assertEquals(new Enregistrement(DEBUT.nomJoueurs(), 42, List.of("Bruxelles - Frankfurt", "ROUGE", "",
+                    "Zürich")), Journal.lire(fichier));
+        }
+    }
+
+    @Test
+    void testChoixEcritsAvantLaFermeture() throws IOException {
+        Path fichier = dossier.resolve("partie.journal");
+        Journal journal = Journal.creer(fichier, DEBUT, Journal.Synchronisation.TOUJOURS);
+        journal.ajouter("ROUGE");
+        // le serveur s'arrête sans fermer le journal
+        assertEquals(List.of("ROUGE"), Journal.lire(fichier).entrees());
+
+        Journal groupe = Journal.creer(dossier.resolve("groupe.journal"), DEBUT, Journal.Synchronisation.GROUPEE);
+        groupe.ajouter("ROUGE");
+        assertEquals(List.of(), Journal.lire(groupe.getFichier()).entrees());
+        groupe.synchroniser();
+        assertEquals(List.of("ROUGE"), Journal.lire(groupe.getFichier()).entrees());
+        journal.close();
+        groupe.close();
+    }
+
+    @Test
+    void testFinDeFichierAbimee() throws IOException {
+        Path fichier = dossier.resolve("partie.journal");
+        try (Journal journal = Journal.creer(fichier, DEBUT, Journal.Synchronisation.JAMAIS)) {
+            journal.ajouter("ROUGE");
+            journal.ajouter("BLEU");
+        }
+        long taille = Files.size(fichier);
+        // arrêt pendant l'écriture d'un choix
+        Files.write(fichier, new byte[]{0, 0, 0, 20, 1, 2, 3}, StandardOpenOption.APPEND);
+        assertEquals(List.of("ROUGE", "BLEU"), Journal.lire(fichier).entrees());
+
+        try (Journal journal = Journal.ouvrir(fichier, Journal.Synchronisation.TOUJOURS)) {
+            assertEquals(List.of("ROUGE", "BLEU"), journal.getEnregistrement().entrees());
+            assertEquals(taille, Files.size(fichier));
+            journal.ajouter("VERT");
+        }
+        assertEquals(List.of("ROUGE", "BLEU", "VERT"), Journal.lire(fichier).entrees());
+
+        // un choix abîmé (somme de contrôle fausse) termine le journal
+        byte[] octets = Files.readAllBytes(fichier);
+        octets[octets.length - 1] ^= 1;
+        Files.write(fichier, octets);
+        assertEquals(List.of("ROUGE", "BLEU"), Journal.lire(fichier).entrees());
+    }
+
+    @Test
+    void testEnTeteInvalide() throws IOException {
+        Path fichier = dossier.resolve("partie.journal");
+        Files.write(fichier, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> Journal.lire(fichier));
+        assertThrows(IOException.class, () -> Journal.ouvrir(fichier, Journal.Synchronisation.JAMAIS));
+    }
+
+    @Test
+    void testReprendreLesParties() throws IOException {
+        try (Journaux journaux = new Journaux(dossier, Journal.Synchronisation.GROUPEE, 1)) {
+            journaux.creer("a", DEBUT).ajouter("ROUGE");
+            journaux.creer("b", DEBUT);
+            journaux.creer("c", DEBUT).terminer();
+        }
+        Files.write(dossier.resolve("d.journal"), new byte[0]);
+
+        try (Journaux journaux = new Journaux(dossier, Journal.Synchronisation.GROUPEE, 1)) {
+            Map<String, Journal> repris = journaux.reprendre();
+            assertEquals(List.of("a", "b"), List.copyOf(repris.keySet()));
+            assertEquals(List.of("ROUGE"), repris.get("a").getEnregistrement().entrees());
+            assertEquals(List.of(), repris.get("b").getEnregistrement().entrees());
+        }
+    }
+
+    @Test
+    void testReprendreUnePartieArretee() throws IOException {
+        try (Journaux journaux = new Journaux(dossier, Journal.Synchronisation.TOUJOURS, 1)) {
+            Journal journal = journaux.creer("a", DEBUT);
+            journal.ajouter("ROUGE");
+            // partie arrêtée faute de clients : le journal est fermé mais conservé
+            journal.close();
+            Journal repris = journaux.reprendre("a");
+            assertEquals(List.of("ROUGE"), repris.getEnregistrement().entrees());
+            repris.ajouter("VERT");
+            assertNull(journaux.reprendre("inconnue"));
+        }
+        assertEquals(List.of("ROUGE", "VERT"), Journal.lire(dossier.resolve("a.journal")).entrees());
+    }
+}
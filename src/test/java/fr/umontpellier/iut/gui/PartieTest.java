@@ -0,0 +1,146 @@
+package fr.umontpellier.iut.gui;
+
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartieTest {
+    private static final int NB_THREADS = 8;
+    private static final int NB_CONNEXIONS = 1000;
+
+    /**
+     * Client connecté avec le dernier message reçu par sa session
+     */
+    private record Connexion(ClientPartie client, AtomicReference<String> dernierMessage) {
+    }
+
+    /**
+     * Des clients se connectent et se déconnectent en continu pendant que la
+     * partie publie de nouveaux états : aucune diffusion ne doit échouer, aucun
+     * client ne doit être déconnecté, et les clients restés connectés doivent
+     * tous recevoir le dernier état publié.
+     */
+    @Test
+    void testConnexionsPendantLaDiffusion() throws Exception {
+        Partie partie = new Partie("stress", new String[]{"Guybrush", "Largo"});
+        ExecutorService threads = Executors.newFixedThreadPool(NB_THREADS + 1);
+        // les envois se terminent sur d'autres threads, comme avec un vrai conteneur
+        ExecutorService reseau = Executors.newFixedThreadPool(2);
+        AtomicBoolean fini = new AtomicBoolean();
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            Future<Integer> diffusion = threads.submit(() -> {
+                depart.await();
+                int n = 0;
+                while (!fini.get()) {
+                    publier(partie, "etat " + n);
+                    n++;
+                }
+                return n;
+            });
+
+            List<Future<Connexion>> connexions = new ArrayList<>();
+            for (int t = 0; t < NB_THREADS; t++) {
+                connexions.add(threads.submit(() -> {
+                    depart.await();
+                    Connexion derniere = null;
+                    for (int i = 0; i < NB_CONNEXIONS; i++) {
+                        Connexion connexion = connecter(partie, reseau);
+                        if (derniere != null) {
+                            partie.removeClient(derniere.client());
+                        }
+                        derniere = connexion;
+                    }
+                    return derniere;
+                }));
+            }
+
+            depart.countDown();
+            List<Connexion> restantes = new ArrayList<>();
+            for (Future<Connexion> connexion : connexions) {
+                restantes.add(connexion.get(60, TimeUnit.SECONDS));
+            }
+            fini.set(true);
+            assertTrue(diffusion.get(60, TimeUnit.SECONDS) > 0);
+            assertEquals(NB_THREADS, partie.getNbClients());
+
+            publier(partie, "etat final");
+            long limite = System.currentTimeMillis() + 10_000;
+            for (Connexion connexion : restantes) {
+                while (!recu(connexion, "etat final") && System.currentTimeMillis() < limite) {
+                    Thread.sleep(5);
+                }
+                assertTrue(recu(connexion, "etat final"), "dernier état non reçu");
+            }
+            assertEquals(0, partie.getMetriques().getEchecs());
+            assertEquals(0, partie.getMetriques().getDeconnexions());
+
+            for (Connexion connexion : restantes) {
+                partie.removeClient(connexion.client());
+            }
+            assertEquals(0, partie.getNbClients());
+        } finally {
+            threads.shutdownNow();
+            reseau.shutdownNow();
+        }
+    }
+
+    private static void publier(Partie partie, String instruction) {
+        partie.publier(new InstantaneJeu(partie.getJeu(), instruction, new ArrayList<>(), false));
+    }
+
+    private static boolean recu(Connexion connexion, String instruction) {
+        String message = connexion.dernierMessage().get();
+        return message != null && message.contains(instruction);
+    }
+
+    /**
+     * Connecte à la partie un nouveau client dont les envois réussissent tous
+     * (terminés sur l'exécuteur {@code reseau})
+     */
+    private static Connexion connecter(Partie partie, ExecutorService reseau) {
+        AtomicReference<String> dernierMessage = new AtomicReference<>();
+        RemoteEndpoint.Async remote = simuler(RemoteEndpoint.Async.class, (methode, arguments) -> {
+            if (methode.equals("sendText") && arguments.length == 2) {
+                dernierMessage.set((String) arguments[0]);
+                SendHandler handler = (SendHandler) arguments[1];
+                reseau.execute(() -> handler.onResult(new SendResult()));
+            }
+            return null;
+        });
+        Session session = simuler(Session.class,
+                (methode, arguments) -> methode.equals("getAsyncRemote") ? remote : null);
+        ClientPartie client = new ClientPartie(session, partie, ClientPartie.Protocole.COMPLET);
+        partie.addClient(client);
+        return new Connexion(client, dernierMessage);
+    }
+
+    /**
+     * Implémentation minimale d'une interface, utilisable depuis plusieurs
+     * threads à la fois (contrairement au paramétrage des mocks)
+     *
+     * @param methodes renvoie le résultat d'un appel à partir du nom de la méthode
+     *                 et de ses arguments
+     */
+    private static <T> T simuler(Class<T> type, BiFunction<String, Object[], Object> methodes) {
+        return type.cast(Proxy.newProxyInstance(PartieTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, methode, arguments) -> switch (methode.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == arguments[0];
+                    case "toString" -> type.getSimpleName();
+                    default -> methodes.apply(methode.getName(), arguments == null ? new Object[0] : arguments);
+                }));
+    }
+}
@@ -0,0 +1,68 @@
+package fr.umontpellier.iut.gui;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import fr.umontpellier.iut.rails.CouleurWagon;
+import fr.umontpellier.iut.rails.IOJeu;
+import fr.umontpellier.iut.rails.Joueur;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SerialiseurEtatTest {
+    private IOJeu jeu;
+    private SerialiseurEtat serialiseur;
+    private Gson gson;
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
+        serialiseur = new SerialiseurEtat();
+        gson = new Gson();
+    }
+
+    @Test
+    void testEtatCompletIdentiqueAuPOJO() {
+        jeu.log("début de la partie");
+        jeu.getJoueurs().get(0).getCartesWagon().add(CouleurWagon.ROUGE);
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", List.of("A", "B"), true);
+        etat.setVersion(3);
+
+        Map<String, Object> data = EtatPOJO.complet(etat, jeu.getLog());
+        data.put("version", 3L);
+        data.put("complet", true);
+        assertEquals(gson.toJsonTree(data), JsonParser.parseString(serialiseur.etatComplet(etat, jeu.getLog())));
+    }
+
+    @Test
+    void testDeltaIdentiqueAuPOJO() {
+        InstantaneJeu base = new InstantaneJeu(jeu, "Que voulez vous faire ?", List.of(), true);
+        base.setVersion(0);
+        Joueur joueur = jeu.getJoueurs().get(2);
+        jeu.getRoutes().get(5).setProprietaire(joueur);
+        joueur.getCartesWagon().add(CouleurWagon.VERT);
+        jeu.log("capture");
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", List.of(), true);
+        etat.setVersion(1);
+
+        Map<String, Object> data = EtatPOJO.delta(etat, base, jeu.getLog());
+        data.put("version", 1L);
+        data.put("base", 0L);
+        JsonElement delta = JsonParser.parseString(serialiseur.delta(etat, base, jeu.getLog()));
+        assertEquals(gson.toJsonTree(data), delta);
+        assertFalse(delta.getAsJsonObject().has("prompt"));
+    }
+
+    @Test
+    void testTamponReutilise() {
+        InstantaneJeu etat = new InstantaneJeu(jeu, "Que voulez vous faire ?", List.of(), true);
+        String premier = serialiseur.etatComplet(etat, jeu.getLog());
+        serialiseur.pageLog(jeu.getLog().depuis(0));
+        assertEquals(premier, serialiseur.etatComplet(etat, jeu.getLog()));
+    }
+}
@@ -0,0 +1,77 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartesWagonTest {
+
+    @Test
+    void testCompterAjouterRetirer() {
+        CartesWagon cartes = new CartesWagon();
+        cartes.add(CouleurWagon.ROUGE);
+        cartes.ajouter(CouleurWagon.LOCOMOTIVE, 2);
+        cartes.add(CouleurWagon.ROUGE);
+        cartes.add(CouleurWagon.NOIR);
+        assertEquals(5, cartes.size());
+        assertEquals(2, cartes.compter(CouleurWagon.ROUGE));
+        assertEquals(2, cartes.compter(CouleurWagon.LOCOMOTIVE));
+        assertEquals(0, cartes.compter(CouleurWagon.VERT));
+
+        assertTrue(cartes.retirer(CouleurWagon.ROUGE));
+        assertTrue(cartes.remove(CouleurWagon.NOIR));
+        assertFalse(cartes.retirer(CouleurWagon.NOIR));
+        assertFalse(cartes.remove("NOIR"));
+        assertFalse(cartes.contains(CouleurWagon.NOIR));
+        assertEquals(3, cartes.size());
+    }
+
+    @Test
+    void testVueListeDansLOrdreDesCouleurs() {
+        CartesWagon cartes = new CartesWagon(List.of(CouleurWagon.LOCOMOTIVE, CouleurWagon.VERT,
+                CouleurWagon.NOIR, CouleurWagon.VERT));
+        assertEquals(List.of(CouleurWagon.NOIR, CouleurWagon.VERT, CouleurWagon.VERT, CouleurWagon.LOCOMOTIVE),
+                cartes);
+        assertEquals(new ArrayList<>(cartes), cartes);
+        assertEquals(CouleurWagon.VERT, cartes.get(2));
+        assertEquals(1, cartes.indexOf(CouleurWagon.VERT));
+        assertEquals(-1, cartes.indexOf(CouleurWagon.ROSE));
+        assertThrows(IndexOutOfBoundsException.class, () -> cartes.get(4));
+
+        Collections.sort(cartes);
+        // l'ordre est fixé par les couleurs : un autre tri ne change rien
+        cartes.sort(Comparator.reverseOrder());
+        assertEquals(List.of(CouleurWagon.NOIR, CouleurWagon.VERT, CouleurWagon.VERT, CouleurWagon.LOCOMOTIVE),
+                cartes);
+        assertEquals(CouleurWagon.VERT, cartes.remove(1));
+        assertEquals(List.of(CouleurWagon.NOIR, CouleurWagon.VERT, CouleurWagon.LOCOMOTIVE), cartes);
+
+        cartes.clear();
+        assertTrue(cartes.isEmpty());
+        assertEquals(0, cartes.compter(CouleurWagon.NOIR));
+    }
+
+    @Test
+    void testRetirerPendantLeParcours() {
+        CartesWagon cartes = new CartesWagon(List.of(CouleurWagon.BLANC, CouleurWagon.BLANC,
+                CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE));
+        Iterator<CouleurWagon> iterateur = cartes.iterator();
+        List<CouleurWagon> vues = new ArrayList<>();
+        while (iterateur.hasNext()) {
+            CouleurWagon carte = iterateur.next();
+            vues.add(carte);
+            if (carte == CouleurWagon.BLANC) {
+                iterateur.remove();
+            }
+        }
+        assertEquals(List.of(CouleurWagon.BLANC, CouleurWagon.BLANC, CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE),
+                vues);
+        assertEquals(List.of(CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE), cartes);
+    }
+}
@@ -0,0 +1,90 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheminLePlusLongTest {
+
+    /**
+     * Recherche exhaustive, sans élagage : seuls les résultats déjà calculés
+     * pour une ville et un ensemble de routes parcourues sont réutilisés
+     * (sinon les routes parallèles rendent la recherche factorielle)
+     */
+    private static int parcourir(int ville, int parcourues, int[] villes1, int[] villes2, int[] longueur, int[] memo) {
+        int cle = (parcourues << 4) | ville;
+        if (memo[cle] >= 0) {
+            return memo[cle];
+        }
+        int meilleur = 0;
+        for (int r = 0; r < villes1.length; r++) {
+            if ((parcourues & (1 << r)) == 0 && (villes1[r] == ville || villes2[r] == ville)) {
+                int suivante = villes1[r] == ville ? villes2[r] : villes1[r];
+                meilleur = Math.max(meilleur, longueur[r] + parcourir(suivante, parcourues | (1 << r), villes1, villes2, longueur, memo));
+            }
+        }
+        memo[cle] = meilleur;
+        return meilleur;
+    }
+
+    @Test
+    void testPetitsReseaux() {
+        CheminLePlusLong chemin = new CheminLePlusLong();
+        assertEquals(0, chemin.calculer(0, new int[0], new int[0], new int[0]));
+        // étoile à trois branches : on ne peut en parcourir que deux
+        assertEquals(7, chemin.calculer(3, new int[]{0, 0, 0}, new int[]{1, 2, 3}, new int[]{2, 3, 4}));
+        // triangle (circuit) et route isolée plus courte
+        assertEquals(6, chemin.calculer(4, new int[]{0, 1, 2, 10}, new int[]{1, 2, 0, 11}, new int[]{2, 2, 2, 5}));
+        // triangle avec une queue : la queue et tout le triangle
+        assertEquals(7, chemin.calculer(4, new int[]{0, 1, 2, 2}, new int[]{1, 2, 0, 3}, new int[]{1, 1, 1, 4}));
+        assertThrows(IllegalArgumentException.class, () -> chemin.calculer(65, new int[65], new int[65], new int[65]));
+    }
+
+    @Test
+    void testCommeLaRechercheExhaustive() {
+        CheminLePlusLong chemin = new CheminLePlusLong();
+        SplittableRandom alea = new SplittableRandom(16);
+        for (int essai = 0; essai < 300; essai++) {
+            int nbRoutes = alea.nextInt(1, 13);
+            int nbVilles = alea.nextInt(2, 9);
+            int[] villes1 = new int[nbRoutes];
+            int[] villes2 = new int[nbRoutes];
+            int[] longueur = new int[nbRoutes];
+            for (int r = 0; r < nbRoutes; r++) {
+                villes1[r] = alea.nextInt(nbVilles);
+                villes2[r] = (villes1[r] + alea.nextInt(1, nbVilles)) % nbVilles;
+                longueur[r] = alea.nextInt(1, 7);
+            }
+            int[] memo = new int[16 << nbRoutes];
+            Arrays.fill(memo, -1);
+            int attendu = 0;
+            for (int v = 0; v < nbVilles; v++) {
+                attendu = Math.max(attendu, parcourir(v, 0, villes1, villes2, longueur, memo));
+            }
+            assertEquals(attendu, chemin.calculer(nbRoutes, villes1, villes2, longueur), "essai " + essai);
+        }
+    }
+
+    @Test
+    void testBonusExpressEuropeen() {
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        Joueur joueur1 = jeu.getJoueurs().get(0);
+        Joueur joueur2 = jeu.getJoueurs().get(1);
+        assertTrue(jeu.getMeneursCheminLePlusLong().isEmpty());
+
+        jeu.getPlateau().getRouteParNom("Brest - Paris").setProprietaire(joueur1);
+        jeu.getPlateau().getRouteParNom("Marseille - Paris").setProprietaire(joueur1);
+        jeu.getPlateau().getRouteParNom("Brest - Pamplona").setProprietaire(joueur2);
+        assertEquals(7, jeu.longueurCheminLePlusLong(joueur1));
+        assertEquals(4, jeu.longueurCheminLePlusLong(joueur2));
+        assertEquals(List.of(joueur1), jeu.getMeneursCheminLePlusLong());
+
+        jeu.getPlateau().getRouteParNom("Pamplona - Paris(1)").setProprietaire(joueur2);
+        assertEquals(8, jeu.longueurCheminLePlusLong(joueur2));
+        assertEquals(List.of(joueur2), jeu.getMeneursCheminLePlusLong());
+    }
+}
@@ -0,0 +1,72 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoupsPossiblesTest {
+
+    /**
+     * Routes capturables calculées comme avant l'index, avec {@link Route#valide(Joueur)}
+     */
+    private static List<String> routesValides(Jeu jeu, Joueur joueur) {
+        List<String> noms = new ArrayList<>();
+        for (Route route : jeu.getRoutes()) {
+            if (route.valide(joueur)) {
+                noms.add(route.getNom());
+            }
+        }
+        return noms;
+    }
+
+    @Test
+    void testRoutesCommeValide() {
+        for (int nbJoueurs : new int[]{2, 4}) {
+            String[] noms = Arrays.copyOf(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}, nbJoueurs);
+            IOJeu jeu = new IOJeu(noms);
+            SplittableRandom alea = new SplittableRandom(18);
+            CouleurWagon[] couleurs = CouleurWagon.values();
+            for (int i = 0; i < 200; i++) {
+                Joueur joueur = jeu.getJoueurs().get(alea.nextInt(nbJoueurs));
+                if (alea.nextInt(3) == 0) {
+                    Route route = jeu.getRoutes().get(alea.nextInt(jeu.getRoutes().size()));
+                    route.setProprietaire(alea.nextInt(4) == 0 ? null : joueur);
+                } else {
+                    CouleurWagon couleur = couleurs[alea.nextInt(couleurs.length)];
+                    if (couleur != CouleurWagon.GRIS && (alea.nextBoolean() || !joueur.getCartesWagon().remove(couleur))) {
+                        joueur.getCartesWagon().add(couleur);
+                    }
+                }
+                for (Joueur j : jeu.getJoueurs()) {
+                    assertEquals(routesValides(jeu, j), j.nomRoutes(), "étape " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testVillesEtCouleursVisibles() {
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        Joueur joueur = jeu.getJoueurs().get(0);
+        CoupsPossibles coups = jeu.getCoupsPossibles();
+        assertEquals(jeu.getVilles().size(), coups.villesLibres().size());
+
+        jeu.getPlateau().getVilleParNom("Brest").setProprietaire(joueur);
+        assertFalse(coups.villesLibres().contains("Brest"));
+        assertEquals(jeu.getVilles().size() - 1, coups.villesLibres().size());
+        jeu.getPlateau().getVilleParNom("Brest").setProprietaire(null);
+        assertTrue(coups.villesLibres().contains("Brest"));
+
+        jeu.getCartesWagonVisibles().clear();
+        jeu.getCartesWagonVisibles().addAll(List.of(CouleurWagon.LOCOMOTIVE, CouleurWagon.ROSE, CouleurWagon.NOIR,
+                CouleurWagon.NOIR, CouleurWagon.BLEU));
+        assertEquals(List.of("NOIR", "BLEU", "ROSE", "LOCOMOTIVE"), coups.couleursVisibles());
+        jeu.getCartesWagonVisibles().remove(CouleurWagon.LOCOMOTIVE);
+        assertEquals(List.of("NOIR", "BLEU", "ROSE"), coups.couleursVisibles());
+    }
+}
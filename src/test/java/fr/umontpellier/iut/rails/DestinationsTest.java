@@ -0,0 +1,68 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DestinationsTest {
+    private IOJeu jeu;
+    private Joueur joueur1;
+    private Joueur joueur2;
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        joueur1 = jeu.getJoueurs().get(0);
+        joueur2 = jeu.getJoueurs().get(1);
+    }
+
+    private void capturer(Joueur joueur, String nomRoute) {
+        Route route = jeu.getPlateau().getRouteParNom(nomRoute);
+        assertNotNull(route, nomRoute);
+        route.setProprietaire(joueur);
+    }
+
+    @Test
+    void testVillesDesDestinationsExistent() {
+        for (Destination destination : Destination.makeDestinationsEurope()) {
+            assertNotNull(jeu.getPlateau().getVilleParNom(destination.getVille1()), destination.getNom());
+            assertNotNull(jeu.getPlateau().getVilleParNom(destination.getVille2()), destination.getNom());
+        }
+        for (Destination destination : Destination.makeDestinationsLonguesEurope()) {
+            assertNotNull(jeu.getPlateau().getVilleParNom(destination.getVille1()), destination.getNom());
+            assertNotNull(jeu.getPlateau().getVilleParNom(destination.getVille2()), destination.getNom());
+        }
+    }
+
+    @Test
+    void testDestinationRealiseeEtRouteRetiree() {
+        Destination destination = new Destination("Brest", "Marseille", 8);
+        capturer(joueur1, "Brest - Paris");
+        assertFalse(joueur1.estDestinationRealisee(destination));
+        capturer(joueur1, "Marseille - Paris");
+        assertTrue(joueur1.estDestinationRealisee(destination));
+        assertFalse(joueur2.estDestinationRealisee(destination));
+
+        capturer(joueur2, "Brest - Paris");
+        assertFalse(joueur1.estDestinationRealisee(destination));
+        jeu.getPlateau().getRouteParNom("Marseille - Paris").setProprietaire(null);
+        capturer(joueur2, "Marseille - Paris");
+        assertTrue(joueur2.estDestinationRealisee(destination));
+    }
+
+    @Test
+    void testScoreDestinationsAvecGare() {
+        joueur1.getDestinations().clear();
+        joueur1.getDestinations().add(new Destination("Brest", "Marseille", 8));
+        joueur1.getDestinations().add(new Destination("Brest", "Dieppe", 2));
+        capturer(joueur1, "Marseille - Paris");
+        capturer(joueur2, "Brest - Paris");
+        capturer(joueur2, "Brest - Dieppe");
+        assertEquals(-10, joueur1.scoreDestinations());
+
+        // la gare de Brest n'emprunte qu'une des deux routes : la plus rentable
+        jeu.getPlateau().getVilleParNom("Brest").setProprietaire(joueur1);
+        assertEquals(6, joueur1.scoreDestinations());
+    }
+}
@@ -0,0 +1,102 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistancesTest {
+
+    /**
+     * Distances recalculées entièrement (Floyd-Warshall) avec les coûts des
+     * routes pour le joueur
+     */
+    private static int[][] recalculer(GraphePlateau graphe, DistancesJoueur distances) {
+        int n = graphe.getNbVilles();
+        int[][] d = new int[n][n];
+        for (int[] ligne : d) {
+            Arrays.fill(ligne, Distances.INFINI);
+        }
+        for (int v = 0; v < n; v++) {
+            d[v][v] = 0;
+        }
+        for (int r = 0; r < graphe.getNbRoutes(); r++) {
+            int a = graphe.getVille1(r);
+            int b = graphe.getVille2(r);
+            d[a][b] = Math.min(d[a][b], distances.getCout(r));
+            d[b][a] = d[a][b];
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    d[i][j] = Math.min(d[i][j], d[i][k] + d[k][j]);
+                }
+            }
+        }
+        return d;
+    }
+
+    @Test
+    void testDistancesPlateauVide() {
+        Plateau plateau = Plateau.makePlateauEurope();
+        Distances distances = Distances.europe();
+        int brest = plateau.getVilleParNom("Brest").getId();
+        int paris = plateau.getVilleParNom("Paris").getId();
+        int marseille = plateau.getVilleParNom("Marseille").getId();
+        assertEquals(0, distances.distance(paris, paris));
+        assertEquals(3, distances.distance(brest, paris));
+        assertEquals(7, distances.distance(marseille, brest));
+        for (int i = 0; i < distances.getNbVilles(); i++) {
+            for (int j = 0; j < distances.getNbVilles(); j++) {
+                assertEquals(distances.distance(i, j), distances.distance(j, i));
+                assertTrue(distances.distance(i, j) < Distances.INFINI);
+            }
+        }
+    }
+
+    @Test
+    void testNbWagonsManquants() {
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        Joueur joueur1 = jeu.getJoueurs().get(0);
+        Joueur joueur2 = jeu.getJoueurs().get(1);
+        Destination destination = new Destination("Brest", "Marseille", 8);
+        assertEquals(7, joueur1.nbWagonsManquants(destination));
+
+        jeu.getPlateau().getRouteParNom("Brest - Paris").setProprietaire(joueur1);
+        assertEquals(4, joueur1.nbWagonsManquants(destination));
+        assertEquals(7, joueur2.nbWagonsManquants(destination)); // par Dieppe
+
+        jeu.getPlateau().getRouteParNom("Marseille - Paris").setProprietaire(joueur1);
+        assertEquals(0, joueur1.nbWagonsManquants(destination));
+        assertTrue(joueur2.nbWagonsManquants(destination) > 7);
+
+        jeu.getPlateau().getRouteParNom("Brest - Paris").setProprietaire(null);
+        assertEquals(3, joueur1.nbWagonsManquants(destination));
+    }
+
+    @Test
+    void testMisesAJourCommeUnRecalculComplet() {
+        for (int nbJoueurs : new int[]{2, 4}) {
+            String[] noms = Arrays.copyOf(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"}, nbJoueurs);
+            IOJeu jeu = new IOJeu(noms);
+            GraphePlateau graphe = jeu.getGraphe();
+            SplittableRandom alea = new SplittableRandom(17);
+            for (int i = 0; i < 60; i++) {
+                Route route = jeu.getRoutes().get(alea.nextInt(jeu.getRoutes().size()));
+                // quelques routes sont rendues pour vérifier aussi les augmentations de coût
+                Joueur joueur = alea.nextInt(5) == 0 ? null : jeu.getJoueurs().get(alea.nextInt(nbJoueurs));
+                route.setProprietaire(joueur);
+            }
+            for (Joueur joueur : jeu.getJoueurs()) {
+                int[][] attendu = recalculer(graphe, joueur.getDistances());
+                for (int a = 0; a < graphe.getNbVilles(); a++) {
+                    for (int b = 0; b < graphe.getNbVilles(); b++) {
+                        assertEquals(attendu[a][b], joueur.getDistances().distance(a, b));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EtatJeuTest {
+    private static final String[] NOMS = new String[]{"Guybrush", "Largo", "LeChuck"};
+
+    private static int nbCartes(EtatJeu etat, int joueur) {
+        int total = 0;
+        for (CouleurWagon couleur : CouleurWagon.values()) {
+            total += etat.getNbCartes(joueur, couleur);
+        }
+        return total;
+    }
+
+    private static int nbCartes(EtatJeu etat) {
+        int total = etat.getTaillePioche();
+        for (CouleurWagon couleur : CouleurWagon.values()) {
+            total += etat.getNbCartesVisibles(couleur) + etat.getNbCartesDefausse(couleur);
+            for (int j = 0; j < etat.getNbJoueurs(); j++) {
+                total += etat.getNbCartes(j, couleur);
+            }
+        }
+        return total;
+    }
+
+    @Test
+    void testConstruireDepuisJeu() {
+        Jeu jeu = new Jeu(NOMS, 7);
+        Joueur guybrush = jeu.getJoueurs().get(0);
+        guybrush.getDestinations().add(jeu.piocherDestination());
+        jeu.getPlateau().getRouteParNom("Brest - Paris").setProprietaire(guybrush);
+
+        EtatJeu etat = new EtatJeu(jeu);
+        assertEquals(3, etat.getNbJoueurs());
+        assertEquals(0, etat.getJoueurCourant());
+        assertEquals(110, nbCartes(etat));
+        assertEquals(jeu.getPileCartesWagon().size(), etat.getTaillePioche());
+        assertEquals(4, nbCartes(etat, 1));
+        assertEquals(guybrush.getDestinations().get(0).getNom(), etat.getDestinations(0).get(0).getNom());
+        int route = jeu.getGraphe().getRoute("Brest - Paris");
+        assertEquals(0, etat.getProprietaireRoute(route));
+        assertEquals(-1, etat.getProprietaireRoute(route + 1));
+        assertEquals(45, etat.getNbWagons(2));
+        assertEquals(3, etat.getNbGares(2));
+    }
+
+    @Test
+    void testJouerPuisAnnuler() {
+        EtatJeu etat = new EtatJeu(new Jeu(NOMS, 11));
+        EtatJeu depart = etat.copier();
+        SplittableRandom alea = new SplittableRandom(3);
+        int[] coups = new int[etat.getNbCoupsMax()];
+        List<EtatJeu> etats = new ArrayList<>();
+        for (int i = 0; i < 300 && !etat.estTerminee(); i++) {
+            etats.add(etat.copier());
+            int n = etat.coupsPossibles(coups);
+            etat.jouer(coups[alea.nextInt(n)]);
+        }
+        assertEquals(etats.size(), etat.getNbCoupsAAnnuler());
+        for (int i = etats.size() - 1; i >= 0; i--) {
+            etat.annuler();
+            assertEquals(etats.get(i), etat, "coup " + i);
+        }
+        assertEquals(depart, etat);
+        assertThrows(IllegalStateException.class, etat::annuler);
+    }
+
+    @Test
+    void testCopiesIndependantes() {
+        EtatJeu etat = new EtatJeu(new Jeu(NOMS, 5));
+        EtatJeu copie = etat.copier();
+        int[] coups = new int[etat.getNbCoupsMax()];
+        for (int i = 0; i < 20; i++) {
+            int n = copie.coupsPossibles(coups);
+            copie.jouer(coups[n - 1]);
+        }
+        assertNotEquals(etat, copie);
+        assertEquals(new EtatJeu(new Jeu(NOMS, 5)), etat);
+        assertEquals(0, etat.copier().getNbCoupsAAnnuler());
+    }
+
+    @Test
+    void testPartieAleatoire() {
+        for (long graine = 0; graine < 20; graine++) {
+            EtatJeu etat = new EtatJeu(new Jeu(NOMS, graine));
+            SplittableRandom alea = new SplittableRandom(graine);
+            int[] coups = new int[etat.getNbCoupsMax()];
+            int n;
+            while ((n = etat.coupsPossibles(coups)) > 0) {
+                // les joueurs aléatoires ne passent pas leur tour
+                int coup = coups[n > 1 ? 1 + alea.nextInt(n - 1) : 0];
+                etat.jouer(coup);
+                assertEquals(110, nbCartes(etat));
+            }
+            assertTrue(etat.estTerminee());
+            int nbWagons = Integer.MAX_VALUE;
+            for (int j = 0; j < NOMS.length; j++) {
+                assertTrue(etat.getNbWagons(j) >= 0);
+                nbWagons = Math.min(nbWagons, etat.getNbWagons(j));
+            }
+            assertTrue(nbWagons <= EtatJeu.NB_WAGONS_FIN, "graine " + graine);
+            assertEquals(NOMS.length, etat.scoresFinals().length);
+        }
+    }
+
+    @Test
+    void testDeterminiser() {
+        Jeu jeu = new Jeu(NOMS, 17);
+        for (Joueur joueur : jeu.getJoueurs()) {
+            joueur.getDestinations().add(jeu.piocherDestination());
+        }
+        EtatJeu etat = new EtatJeu(jeu);
+        EtatJeu tirage = etat.copier();
+        tirage.determiniser(1, new SplittableRandom(2));
+        assertEquals(110, nbCartes(tirage));
+        assertEquals(etat.getTaillePioche(), tirage.getTaillePioche());
+        for (int j = 0; j < NOMS.length; j++) {
+            assertEquals(nbCartes(etat, j), nbCartes(tirage, j));
+            assertEquals(1, tirage.getDestinations(j).size());
+        }
+        for (CouleurWagon couleur : CouleurWagon.values()) {
+            assertEquals(etat.getNbCartes(1, couleur), tirage.getNbCartes(1, couleur));
+            assertEquals(etat.getNbCartesVisibles(couleur), tirage.getNbCartesVisibles(couleur));
+        }
+        assertEquals(etat.getDestinations(1).get(0).getNom(), tirage.getDestinations(1).get(0).getNom());
+        // l'état d'origine partage les destinations des copies mais n'est pas modifié
+        assertEquals(new EtatJeu(jeu), etat);
+        assertNotEquals(etat, tirage);
+    }
+
+    @Test
+    void testAppliquerAuJeu() {
+        Jeu jeu = new Jeu(NOMS, 13);
+        EtatJeu etat = new EtatJeu(jeu);
+        SplittableRandom alea = new SplittableRandom(13);
+        int[] coups = new int[etat.getNbCoupsMax()];
+        for (int i = 0; i < 120 && !etat.estTerminee(); i++) {
+            int n = etat.coupsPossibles(coups);
+            etat.jouer(coups[n > 1 ? 1 + alea.nextInt(n - 1) : 0]);
+        }
+        etat.appliquer(jeu);
+        EtatJeu relu = new EtatJeu(jeu);
+        for (int j = 0; j < NOMS.length; j++) {
+            assertEquals(etat.getScore(j), jeu.getJoueurs().get(j).getScore());
+            assertEquals(etat.getNbWagons(j), relu.getNbWagons(j));
+            assertEquals(etat.getNbGares(j), relu.getNbGares(j));
+            for (CouleurWagon couleur : CouleurWagon.values()) {
+                assertEquals(etat.getNbCartes(j, couleur), relu.getNbCartes(j, couleur));
+            }
+        }
+        for (int r = 0; r < jeu.getRoutes().size(); r++) {
+            assertEquals(etat.getProprietaireRoute(r), relu.getProprietaireRoute(r));
+        }
+        for (int v = 0; v < jeu.getVilles().size(); v++) {
+            assertEquals(etat.getProprietaireVille(v), relu.getProprietaireVille(v));
+        }
+        assertEquals(etat.getTaillePioche(), relu.getTaillePioche());
+        assertEquals(110, nbCartes(relu));
+    }
+
+    @Test
+    void testScoresFinals() {
+        Jeu jeu = new Jeu(NOMS, 1);
+        Joueur guybrush = jeu.getJoueurs().get(0);
+        Joueur largo = jeu.getJoueurs().get(1);
+        guybrush.getDestinations().add(new Destination("Edinburgh", "Paris", 7));
+        largo.getDestinations().add(new Destination("Brest", "Marseille", 7));
+        for (String nom : new String[]{"Brest - Paris", "Marseille - Paris"}) {
+            Route route = jeu.getPlateau().getRouteParNom(nom);
+            route.setProprietaire(largo);
+            largo.addScore(route.comptePoints());
+        }
+        int[] scores = new EtatJeu(jeu).scoresFinals();
+        assertEquals(12 - 7, scores[0]);
+        assertEquals(12 + 4 + 7 + 7 + Jeu.BONUS_CHEMIN_LE_PLUS_LONG, scores[1]);
+        assertEquals(12, scores[2]);
+    }
+}
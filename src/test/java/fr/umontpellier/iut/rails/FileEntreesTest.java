@@ -0,0 +1,108 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileEntreesTest {
+
+    @Test
+    void testLotsDansLOrdreEtDebordement() {
+        FileEntrees<String> file = new FileEntrees<>(3);
+        assertEquals(4, file.getCapacite());
+        String[] lot = new String[3];
+        assertEquals(0, file.retirer(lot));
+        for (String entree : new String[]{"a", "b", "c", "d"}) {
+            assertTrue(file.offrir(entree));
+        }
+        assertFalse(file.offrir("e"));
+        assertEquals(1, file.getNbRefusees());
+        assertEquals(4, file.size());
+
+        assertEquals(3, file.retirer(lot));
+        assertArrayEquals(new String[]{"a", "b", "c"}, lot);
+        // les cases lues sont de nouveau disponibles
+        assertTrue(file.offrir("f"));
+        assertTrue(file.offrir("g"));
+        assertEquals(3, file.retirer(lot));
+        assertArrayEquals(new String[]{"d", "f", "g"}, lot);
+        assertEquals(0, file.size());
+    }
+
+    @Test
+    void testProducteursConcurrents() throws InterruptedException {
+        int nbProducteurs = 4;
+        int nbEntrees = 20_000;
+        FileEntrees<String> file = new FileEntrees<>(64);
+        List<Thread> producteurs = new ArrayList<>();
+        for (int p = 0; p < nbProducteurs; p++) {
+            int producteur = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < nbEntrees; i++) {
+                    while (!file.offrir(producteur + ":" + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            producteurs.add(thread);
+        }
+        int[] suivantes = new int[nbProducteurs];
+        String[] lot = new String[16];
+        int nbLues = 0;
+        while (nbLues < nbProducteurs * nbEntrees) {
+            int n = file.prendre(lot);
+            for (int i = 0; i < n; i++) {
+                String[] parties = lot[i].split(":");
+                int producteur = Integer.parseInt(parties[0]);
+                // les entrées d'un même producteur arrivent dans l'ordre
+                assertEquals(suivantes[producteur]++, Integer.parseInt(parties[1]));
+            }
+            nbLues += n;
+        }
+        for (Thread thread : producteurs) {
+            thread.join();
+        }
+        assertEquals(0, file.size());
+    }
+
+    @Test
+    void testConsommateurReveille() throws InterruptedException {
+        FileEntrees<String> file = new FileEntrees<>(8);
+        AtomicReference<String> lue = new AtomicReference<>();
+        Thread consommateur = new Thread(() -> {
+            String[] lot = new String[4];
+            try {
+                file.prendre(lot);
+                lue.set(lot[0]);
+            } catch (InterruptedException e) {
+                lue.set("interrompu");
+            }
+        });
+        consommateur.start();
+        long limite = System.currentTimeMillis() + 10000;
+        while (consommateur.getState() != Thread.State.WAITING) {
+            assertTrue(System.currentTimeMillis() < limite);
+            Thread.sleep(1);
+        }
+        assertTrue(file.offrir("ROUGE"));
+        consommateur.join(10000);
+        assertEquals("ROUGE", lue.get());
+
+        Thread interrompu = new Thread(() -> {
+            try {
+                file.prendre(new String[4]);
+            } catch (InterruptedException e) {
+                lue.set("interrompu");
+            }
+        });
+        interrompu.start();
+        interrompu.interrupt();
+        interrompu.join(10000);
+        assertEquals("interrompu", lue.get());
+    }
+}
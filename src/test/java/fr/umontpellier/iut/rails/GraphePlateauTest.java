@@ -0,0 +1,52 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphePlateauTest {
+
+    @Test
+    void testVoisinage() {
+        GraphePlateau graphe = GraphePlateau.europe();
+        Plateau plateau = Plateau.makePlateauEurope();
+        assertEquals(plateau.getVilles().size(), graphe.getNbVilles());
+        assertEquals(plateau.getRoutes().size(), graphe.getNbRoutes());
+
+        int[] nbApparitions = new int[graphe.getNbRoutes()];
+        for (int v = 0; v < graphe.getNbVilles(); v++) {
+            for (int i = graphe.debutVoisins(v); i < graphe.finVoisins(v); i++) {
+                int r = graphe.routeVoisine(i);
+                nbApparitions[r]++;
+                assertEquals(graphe.voisin(i), graphe.autreExtremite(r, v));
+                assertTrue(graphe.getVille1(r) == v || graphe.getVille2(r) == v);
+            }
+        }
+        for (int r = 0; r < graphe.getNbRoutes(); r++) {
+            assertEquals(2, nbApparitions[r]);
+        }
+        int paris = plateau.getVilleParNom("Paris").getId();
+        assertEquals(10, graphe.degre(paris));
+    }
+
+    @Test
+    void testCaracteristiquesDesRoutes() {
+        GraphePlateau graphe = GraphePlateau.europe();
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        for (Route route : jeu.getRoutes()) {
+            int r = route.getId();
+            assertEquals(route.getNom(), graphe.getNomRoute(r));
+            assertEquals(route.getVille1().getId(), graphe.getVille1(r));
+            assertEquals(route.getVille2().getId(), graphe.getVille2(r));
+            assertEquals(route.getLongueur(), graphe.getLongueur(r));
+            assertEquals(route.getCouleur(), graphe.getCouleur(r));
+            assertEquals(route instanceof Tunnel, graphe.estTunnel(r));
+            assertEquals(route instanceof Ferry, graphe.estFerry(r));
+            if (route.isDouble()) {
+                assertEquals(route.getRouteDouble().getId(), graphe.getRouteDouble(r));
+            } else {
+                assertEquals(-1, graphe.getRouteDouble(r));
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -53,6 +54,27 @@ public class JoueurTest {
         assertTrue(joueur1.getDestinations().contains(d4));
     }
 
+    @Test
+    void testChoixInvalidesSansNouvelleDemande() {
+        List<String> instructions = new ArrayList<>();
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"}) {
+            @Override
+            public void prompt(String instruction, Collection<String> boutons, boolean peutPasser) {
+                instructions.add(instruction);
+            }
+        };
+        Joueur joueur = jeu.getJoueurs().get(0);
+        jeu.setInput("VIOLET", "Paris", "ROUGE");
+        assertEquals("ROUGE", joueur.choisir("Choisissez une couleur", List.of("ROUGE", "VERT"), List.of(), false));
+        // l'état n'est envoyé qu'une fois, les choix invalides sont seulement comptés
+        assertEquals(List.of("Choisissez une couleur"), instructions);
+        assertEquals(2, jeu.getNbEntreesInvalides());
+
+        jeu.setInput("");
+        assertEquals("", joueur.choisir("Choisissez une couleur", List.of("ROUGE", "VERT"), List.of(), true));
+        assertEquals(2, jeu.getNbEntreesInvalides());
+    }
+
     @Test
     void testJouerTourPrendreCartesWagon() {
         jeu.setInput("GRIS", "ROUGE");
@@ -89,4 +111,35 @@ public class JoueurTest {
                 CouleurWagon.ROUGE));
         assertEquals(nbCartesWagon - 2, pileCartesWagon.size());
     }
+
+    @Test
+    void testTunnelAbandonnePuisPayeEnLocomotives() {
+        Route tunnel = jeu.getPlateau().getRouteParNom("Marseille - Zurich"); // 2 ROSE (tunnel)
+        List<CouleurWagon> cartesWagon = joueur2.getCartesWagon();
+        cartesWagon.add(CouleurWagon.ROSE);
+        cartesWagon.add(CouleurWagon.LOCOMOTIVE);
+        cartesWagon.add(CouleurWagon.LOCOMOTIVE);
+        cartesWagon.add(CouleurWagon.LOCOMOTIVE);
+
+        // première tentative payée avec une carte ROSE, abandonnée après la pioche
+        List<CouleurWagon> pileCartesWagon = jeu.getPileCartesWagon();
+        pileCartesWagon.add(0, CouleurWagon.JAUNE);
+        pileCartesWagon.add(0, CouleurWagon.BLEU);
+        pileCartesWagon.add(0, CouleurWagon.ROSE);
+        jeu.setInput("Marseille - Zurich", "ROSE", "LOCOMOTIVE", "");
+        joueur2.jouerTour();
+        assertEquals(null, tunnel.getProprietaire());
+
+        // seconde tentative payée uniquement en locomotives : seule la locomotive
+        // piochée entraîne un surcoût
+        pileCartesWagon.add(0, CouleurWagon.JAUNE);
+        pileCartesWagon.add(0, CouleurWagon.ROSE);
+        pileCartesWagon.add(0, CouleurWagon.LOCOMOTIVE);
+        jeu.setInput("Marseille - Zurich", "LOCOMOTIVE", "LOCOMOTIVE", "LOCOMOTIVE");
+        joueur2.jouerTour();
+        assertEquals(joueur2, tunnel.getProprietaire());
+        assertTrue(TestUtils.contientExactement(joueur2.getCartesWagon(), CouleurWagon.ROSE));
+        assertTrue(TestUtils.contientExactement(joueur2.getCartesWagonPosees(),
+                CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE));
+    }
 }
@@ -0,0 +1,46 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogJeuTest {
+
+    @Test
+    void testSequenceCroissante() {
+        LogJeu log = new LogJeu(3);
+        assertEquals(0, log.ajouter("a"));
+        assertEquals(1, log.ajouter("b"));
+        assertEquals(2, log.getSequence());
+        assertEquals(List.of("a", "b"), log.depuis(0).lignes());
+        assertEquals(List.of("b"), log.depuis(1).lignes());
+        assertTrue(log.depuis(2).lignes().isEmpty());
+    }
+
+    @Test
+    void testCapaciteBornee() {
+        LogJeu log = new LogJeu(3);
+        for (String message : new String[]{"a", "b", "c", "d", "e"}) {
+            log.ajouter(message);
+        }
+        assertEquals(3, log.size());
+        assertEquals(2, log.getPremiereSequence());
+        LogJeu.Page page = log.depuis(0);
+        assertEquals(2, page.debut());
+        assertEquals(List.of("c", "d", "e"), page.lignes());
+    }
+
+    @Test
+    void testPage() {
+        LogJeu log = new LogJeu(10);
+        for (int i = 0; i < 8; i++) {
+            log.ajouter("m" + i);
+        }
+        LogJeu.Page page = log.page(6, 3);
+        assertEquals(3, page.debut());
+        assertEquals(List.of("m3", "m4", "m5"), page.lignes());
+        assertEquals(List.of("m0", "m1"), log.page(2, 5).lignes());
+    }
+}
@@ -0,0 +1,88 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PileCartesWagonTest {
+
+    @Test
+    void testDessusEtDessousDeLaPioche() {
+        PileCartesWagon pile = new PileCartesWagon();
+        pile.add(CouleurWagon.ROUGE);
+        pile.add(0, CouleurWagon.VERT);
+        pile.add(CouleurWagon.BLEU);
+        pile.add(0, CouleurWagon.LOCOMOTIVE);
+        pile.add(2, CouleurWagon.NOIR);
+        assertEquals(List.of(CouleurWagon.LOCOMOTIVE, CouleurWagon.VERT, CouleurWagon.NOIR, CouleurWagon.ROUGE,
+                CouleurWagon.BLEU), pile);
+        assertEquals(1, pile.compter(CouleurWagon.NOIR));
+
+        assertEquals(CouleurWagon.LOCOMOTIVE, pile.piocher());
+        assertEquals(CouleurWagon.NOIR, pile.remove(1));
+        assertEquals(List.of(CouleurWagon.VERT, CouleurWagon.ROUGE, CouleurWagon.BLEU), pile);
+        assertEquals(0, pile.compter(CouleurWagon.NOIR));
+
+        pile.clear();
+        assertNull(pile.piocher());
+    }
+
+    @Test
+    void testGrandePiocheTriable() {
+        PileCartesWagon pile = new PileCartesWagon();
+        List<CouleurWagon> attendu = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            CouleurWagon carte = CouleurWagon.values()[i % CouleurWagon.values().length];
+            // alternativement sur et sous la pioche, pour faire tourner le tableau circulaire
+            if (i % 2 == 0) {
+                pile.add(0, carte);
+                attendu.add(0, carte);
+            } else {
+                pile.add(carte);
+                attendu.add(carte);
+            }
+        }
+        assertEquals(attendu, pile);
+        Collections.sort(pile);
+        Collections.sort(attendu);
+        assertEquals(attendu, pile);
+        assertEquals(30, pile.compter(CouleurWagon.GRIS));
+    }
+
+    @Test
+    void testMelangerConserveLesCartes() {
+        PileCartesWagon pile = new PileCartesWagon();
+        for (int i = 0; i < 12; i++) {
+            pile.addAll(CouleurWagon.getCouleursSimples());
+        }
+        pile.melanger(new SplittableRandom(3));
+        PileCartesWagon autre = new PileCartesWagon();
+        autre.addAll(pile);
+        autre.melanger(new SplittableRandom(3));
+        pile.melanger(new SplittableRandom(3));
+        assertEquals(pile, autre);
+
+        List<CouleurWagon> cartes = new ArrayList<>(pile);
+        Collections.sort(cartes);
+        for (CouleurWagon couleur : CouleurWagon.getCouleursSimples()) {
+            assertEquals(12, Collections.frequency(cartes, couleur));
+            assertEquals(12, pile.compter(couleur));
+        }
+    }
+
+    @Test
+    void testPiocheEtDefausseVides() {
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        jeu.getPileCartesWagon().clear();
+        jeu.getDefausseCartesWagon().clear();
+        jeu.getDefausseCartesWagon().add(CouleurWagon.ROSE);
+        assertEquals(CouleurWagon.ROSE, jeu.piocherCarteWagon());
+        assertNull(jeu.piocherCarteWagon());
+        assertTrue(jeu.getPileCartesWagon().isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateauTest {
+
+    @Test
+    void testIndexParNom() {
+        Plateau plateau = Plateau.makePlateauEurope();
+        for (Ville ville : plateau.getVilles()) {
+            assertSame(ville, plateau.getVilleParNom(ville.getNom()));
+        }
+        Set<String> nomsRoutes = new HashSet<>();
+        for (Route route : plateau.getRoutes()) {
+            assertTrue(nomsRoutes.add(route.getNom()));
+            assertSame(route, plateau.getRouteParNom(route.getNom()));
+        }
+        assertNotNull(plateau.getRouteParNom("Pamplona - Paris(1)"));
+        assertNotSame(plateau.getRouteParNom("Pamplona - Paris(1)"), plateau.getRouteParNom("Pamplona - Paris(2)"));
+        assertNull(plateau.getRouteParNom("Pamplona - Paris"));
+        assertNull(plateau.getVilleParNom("Montpellier"));
+    }
+
+    @Test
+    void testNumeros() {
+        Plateau plateau = Plateau.makePlateauEurope();
+        for (int i = 0; i < plateau.getVilles().size(); i++) {
+            assertEquals(i, plateau.getVilles().get(i).getId());
+            assertSame(plateau.getVilles().get(i), plateau.getVille(i));
+        }
+        for (int i = 0; i < plateau.getRoutes().size(); i++) {
+            assertEquals(i, plateau.getRoutes().get(i).getId());
+            assertSame(plateau.getRoutes().get(i), plateau.getRoute(i));
+        }
+    }
+
+    @Test
+    void testRoutesDoubles() {
+        Plateau plateau = Plateau.makePlateauEurope();
+        Route route1 = plateau.getRouteParNom("Pamplona - Paris(1)");
+        Route route2 = plateau.getRouteParNom("Pamplona - Paris(2)");
+        assertSame(route2, route1.getRouteDouble());
+        assertSame(route1, route2.getRouteDouble());
+        assertNull(plateau.getRouteParNom("Brest - Paris").getRouteDouble());
+        int nbDoubles = 0;
+        for (Route route : plateau.getRoutes()) {
+            Route autre = route.getRouteDouble();
+            if (autre != null) {
+                nbDoubles++;
+                assertSame(route, autre.getRouteDouble());
+                assertNotSame(route, autre);
+                assertTrue(route.getVille1() == autre.getVille1() && route.getVille2() == autre.getVille2()
+                        || route.getVille1() == autre.getVille2() && route.getVille2() == autre.getVille1());
+                assertTrue(route.getNom().endsWith("(1)") || route.getNom().endsWith("(2)"));
+            } else {
+                assertFalse(route.getNom().endsWith(")"));
+            }
+        }
+        assertEquals(2 * 11, nbDoubles);
+    }
+
+    @Test
+    void testJoueurUtiliseLesIndex() {
+        IOJeu jeu = new IOJeu(new String[]{"Guybrush", "Largo"});
+        Joueur joueur = jeu.getJoueurs().get(0);
+        assertSame(jeu.getPlateau().getVilleParNom("Zurich"), joueur.getVilleParNom("Zurich"));
+        assertSame(jeu.getRoutes().get(3), joueur.getRouteParNom(jeu.getRoutes().get(3).getNom()));
+    }
+
+    @Test
+    void testTopologiePartageeEtatPropreALaPartie() {
+        IOJeu jeu1 = new IOJeu(new String[]{"Guybrush", "Largo"});
+        IOJeu jeu2 = new IOJeu(new String[]{"Guybrush", "Largo"});
+        assertSame(jeu1.getPlateau().getGraphe(), jeu2.getPlateau().getGraphe());
+
+        Joueur joueur = jeu1.getJoueurs().get(1);
+        Route route1 = jeu1.getPlateau().getRouteParNom("Marseille - Paris");
+        Route route2 = jeu2.getPlateau().getRouteParNom("Marseille - Paris");
+        route1.setProprietaire(joueur);
+        route1.setCouleur(CouleurWagon.ROUGE);
+        jeu1.getPlateau().getVilleParNom("Paris").setProprietaire(joueur);
+        assertSame(joueur, route1.getProprietaire());
+        assertEquals(CouleurWagon.ROUGE, route1.getCouleur());
+        assertSame(joueur, jeu1.getPlateau().getVilleParNom("Paris").getProprietaire());
+        assertNull(route2.getProprietaire());
+        assertEquals(CouleurWagon.GRIS, route2.getCouleur());
+        assertNull(jeu2.getPlateau().getVilleParNom("Paris").getProprietaire());
+
+        // un joueur d'une autre partie ne peut pas posséder une route du plateau
+        assertThrows(IllegalArgumentException.class, () -> route2.setProprietaire(joueur));
+        assertNull(route2.getProprietaire());
+    }
+
+    @Test
+    void testFerryEtatPropreALaPartie() {
+        IOJeu jeu1 = new IOJeu(new String[]{"Guybrush", "Largo"});
+        IOJeu jeu2 = new IOJeu(new String[]{"Guybrush", "Largo"});
+        Ferry ferry1 = (Ferry) jeu1.getPlateau().getRouteParNom("Amsterdam - London");
+        Ferry ferry2 = (Ferry) jeu2.getPlateau().getRouteParNom("Amsterdam - London");
+        Joueur joueur = jeu1.getJoueurs().get(0);
+        joueur.getCartesWagon().clear();
+        joueur.getCartesWagon().addAll(List.of(CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE, CouleurWagon.BLEU));
+        ferry1.capturer(joueur, CouleurWagon.BLEU);
+        assertEquals(0, ferry1.getNbLocomotives());
+        assertEquals(CouleurWagon.BLEU, ferry1.getCouleur());
+        assertEquals(2, ferry2.getNbLocomotives());
+        assertEquals(CouleurWagon.GRIS, ferry2.getCouleur());
+        assertEquals(2, ferry2.getLongueur());
+    }
+}
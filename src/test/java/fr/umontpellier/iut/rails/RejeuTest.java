@@ -0,0 +1,127 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RejeuTest {
+    private static final String[] NOMS = new String[]{"Guybrush", "Largo", "LeChuck"};
+
+    private static Jeu partieAleatoire(long graine, int nbToursMax) {
+        Jeu jeu = new Jeu(NOMS, graine);
+        jeu.setSilencieux(true);
+        jeu.setNbToursMax(nbToursMax);
+        for (int i = 0; i < NOMS.length; i++) {
+            jeu.getJoueurs().get(i).setStrategie(new StrategieAleatoire(graine + i));
+        }
+        jeu.run();
+        return jeu;
+    }
+
+    private static List<String> noms(List<Destination> destinations) {
+        List<String> noms = new ArrayList<>();
+        for (Destination destination : destinations) {
+            noms.add(destination.getNom());
+        }
+        return noms;
+    }
+
+    /**
+     * Résumé de l'état d'une partie (cartes, scores, propriétaires des routes et des villes)
+     */
+    private static List<Object> etat(Jeu jeu) {
+        List<Object> etat = new ArrayList<>();
+        etat.add(new ArrayList<>(jeu.getPileCartesWagon()));
+        etat.add(new ArrayList<>(jeu.getCartesWagonVisibles()));
+        etat.add(new ArrayList<>(jeu.getDefausseCartesWagon()));
+        etat.add(noms(jeu.getPileDestinations()));
+        for (Joueur joueur : jeu.getJoueurs()) {
+            etat.add(joueur.getCouleur());
+            etat.add(joueur.getScore());
+            etat.add(joueur.getNbWagons());
+            etat.add(new ArrayList<>(joueur.getCartesWagon()));
+            etat.add(noms(joueur.getDestinations()));
+        }
+        for (Route route : jeu.getRoutes()) {
+            etat.add(route.getProprietaire() == null ? null : route.getProprietaire().getNom());
+        }
+        for (Ville ville : jeu.getVilles()) {
+            etat.add(ville.getProprietaire() == null ? null : ville.getProprietaire().getNom());
+        }
+        return etat;
+    }
+
+    @Test
+    void testMemeGraineMemeDistribution() {
+        assertEquals(etat(new Jeu(NOMS, 17)), etat(new Jeu(NOMS, 17)));
+        assertNotEquals(etat(new Jeu(NOMS, 17)), etat(new Jeu(NOMS, 18)));
+    }
+
+    @Test
+    void testRejouerUnePartie() {
+        Jeu jeu = partieAleatoire(2022, 300);
+        Enregistrement enregistrement = jeu.getEnregistrement();
+        assertFalse(enregistrement.entrees().isEmpty());
+
+        Jeu rejoue = Jeu.rejouer(Enregistrement.depuisJson(enregistrement.toJson()));
+        assertEquals(etat(jeu), etat(rejoue));
+        assertEquals(jeu.getNbTours(), rejoue.getNbTours());
+        assertEquals(enregistrement, rejoue.getEnregistrement());
+    }
+
+    @Test
+    void testRejouerLeDebutDUnePartie() {
+        Jeu jeu = partieAleatoire(5, 40);
+        Enregistrement enregistrement = jeu.getEnregistrement();
+        Enregistrement debut = new Enregistrement(enregistrement.nomJoueurs(), enregistrement.graine(),
+                enregistrement.entrees().subList(0, enregistrement.entrees().size() / 2));
+
+        Jeu rejoue = Jeu.rejouer(debut);
+        assertEquals(debut, rejoue.getEnregistrement());
+        assertTrue(rejoue.getNbTours() <= jeu.getNbTours());
+    }
+
+    @Test
+    void testReprendreUnePartie() throws InterruptedException {
+        Jeu jeu = partieAleatoire(11, 40);
+        Enregistrement enregistrement = jeu.getEnregistrement();
+        Enregistrement debut = new Enregistrement(enregistrement.nomJoueurs(), enregistrement.graine(),
+                enregistrement.entrees().subList(0, enregistrement.entrees().size() / 2));
+
+        Jeu repris = Jeu.reprendre(debut);
+        Thread thread = new Thread(repris);
+        thread.setDaemon(true);
+        thread.start();
+        // la partie reprise rejoue les choix enregistrés puis attend le choix suivant
+        long limite = System.currentTimeMillis() + 10000;
+        while (repris.getEnregistrement().entrees().size() < debut.entrees().size()
+                || thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.currentTimeMillis() < limite);
+            Thread.sleep(5);
+        }
+        assertEquals(debut, repris.getEnregistrement());
+        assertEquals(etat(Jeu.rejouer(debut)), etat(repris));
+    }
+
+    @Test
+    void testReprendreAvecDesStrategies() {
+        Enregistrement enregistrement = partieAleatoire(12, 40).getEnregistrement();
+        List<String> entrees = enregistrement.entrees();
+        Enregistrement debut = new Enregistrement(enregistrement.nomJoueurs(), enregistrement.graine(),
+                entrees.subList(0, entrees.size() / 2));
+
+        Jeu repris = Jeu.reprendre(debut);
+        repris.setSilencieux(true);
+        repris.setNbToursMax(40);
+        for (int i = 0; i < NOMS.length; i++) {
+            repris.getJoueurs().get(i).setStrategie(new StrategieAleatoire(100 + i));
+        }
+        repris.run();
+        // les stratégies ne sont consultées qu'après le rattrapage des choix enregistrés
+        assertEquals(debut.entrees(), repris.getEnregistrement().entrees().subList(0, debut.entrees().size()));
+        assertEquals(40, repris.getNbTours());
+    }
+}
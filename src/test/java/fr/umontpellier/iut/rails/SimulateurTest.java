@@ -0,0 +1,76 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulateurTest {
+
+    @Test
+    void testToutesLesPartiesSontComptees() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Simulateur simulateur = new Simulateur(3, (place, graine) -> new StrategieAleatoire(graine), pool);
+            Simulateur.Resultats resultats = simulateur.simuler(20, 1234);
+            assertEquals(20, resultats.getNbParties());
+            assertEquals(0, resultats.getNbErreurs(), resultats.getErreurs().toString());
+            assertEquals(20, resultats.getNbTerminees() + resultats.getNbInterrompues());
+            assertEquals(resultats.getNbTerminees(), Arrays.stream(resultats.getVictoires()).sum());
+            assertTrue(resultats.getNbTours() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testMemeGraineMemesResultats() {
+        ForkJoinPool pool1 = new ForkJoinPool(1);
+        ForkJoinPool pool2 = new ForkJoinPool(2);
+        try {
+            Simulateur.Resultats r1 = new Simulateur(2, (place, graine) -> new StrategieAleatoire(graine), pool1)
+                    .simuler(16, 42);
+            Simulateur.Resultats r2 = new Simulateur(2, (place, graine) -> new StrategieAleatoire(graine), pool2)
+                    .simuler(16, 42);
+            assertArrayEquals(r1.getVictoires(), r2.getVictoires());
+            assertEquals(r1.getNbTours(), r2.getNbTours());
+            assertEquals(r1.getScoreMoyen(), r2.getScoreMoyen());
+            assertEquals(r1.getNbErreurs(), r2.getNbErreurs());
+        } finally {
+            pool1.shutdown();
+            pool2.shutdown();
+        }
+    }
+
+    @Test
+    void testStrategieConsulteeEtJeuSilencieux() {
+        AtomicInteger nbAppels = new AtomicInteger();
+        List<String> instructions = new ArrayList<>();
+        Jeu jeu = new Jeu(new String[]{"Guybrush", "Largo"}, 7) {
+            @Override
+            public void prompt(String instruction, Collection<String> boutons, boolean peutPasser) {
+                instructions.add(instruction);
+            }
+        };
+        jeu.setSilencieux(true);
+        jeu.setNbToursMax(50);
+        StrategieAleatoire aleatoire = new StrategieAleatoire(7);
+        for (Joueur joueur : jeu.getJoueurs()) {
+            joueur.setStrategie((j, instruction, choix, peutPasser) -> {
+                nbAppels.incrementAndGet();
+                assertSame(joueur, j);
+                return aleatoire.choisir(j, instruction, choix, peutPasser);
+            });
+        }
+        jeu.run();
+        assertTrue(nbAppels.get() > 0);
+        assertTrue(instructions.isEmpty());
+        assertTrue(jeu.getNbTours() <= 50);
+    }
+}
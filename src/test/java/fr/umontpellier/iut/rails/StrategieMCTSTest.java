@@ -0,0 +1,107 @@
+package fr.umontpellier.iut.rails;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StrategieMCTSTest {
+    private static final String[] NOMS = new String[]{"Guybrush", "Largo", "LeChuck"};
+
+    private static StrategieMCTS strategie(long graine, ForkJoinPool pool) {
+        StrategieMCTS strategie = new StrategieMCTS(graine, 60_000, pool);
+        strategie.setNbIterationsMax(30);
+        return strategie;
+    }
+
+    @Test
+    void testPartieCompleteContreDesJoueursAleatoires() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Jeu jeu = new Jeu(NOMS, 3);
+            jeu.setSilencieux(true);
+            jeu.setNbToursMax(400);
+            StrategieMCTS strategie = strategie(3, pool);
+            jeu.getJoueurs().get(0).setStrategie(strategie);
+            jeu.getJoueurs().get(1).setStrategie(new StrategieAleatoire(4));
+            jeu.getJoueurs().get(2).setStrategie(new StrategieAleatoire(5));
+            // un choix invalide de la stratégie arrêterait la partie
+            jeu.run();
+            assertTrue(jeu.getNbTours() > 0);
+            assertEquals(2 * 30, strategie.getNbIterations());
+            assertTrue(jeu.getJoueurs().get(0).getDestinations().size() >= 2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testMemeGraineMemesChoix() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Enregistrement[] enregistrements = new Enregistrement[2];
+            for (int i = 0; i < 2; i++) {
+                Jeu jeu = new Jeu(NOMS, 8);
+                jeu.setSilencieux(true);
+                jeu.setNbToursMax(30);
+                for (int j = 0; j < NOMS.length; j++) {
+                    jeu.getJoueurs().get(j).setStrategie(strategie(j, pool));
+                }
+                jeu.run();
+                enregistrements[i] = jeu.getEnregistrement();
+            }
+            assertEquals(enregistrements[0], enregistrements[1]);
+            // les choix de la stratégie sont rejoués sans elle
+            assertEquals(30, Jeu.rejouer(enregistrements[0]).getNbTours());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDureeDecompteeAuDebutDeLaRecherche() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch occupe = new CountDownLatch(1);
+        try {
+            // le seul thread du pool est occupé par une autre partie plus longtemps
+            // que la durée accordée au coup
+            pool.execute(() -> {
+                occupe.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            occupe.await();
+            StrategieMCTS strategie = new StrategieMCTS(7, 100, pool);
+            strategie.chercher(new EtatJeu(new Jeu(NOMS, 7)));
+            assertTrue(strategie.getNbIterations() > 0);
+            assertEquals(strategie.getNbIterations(), strategie.getNbIterationsTotal());
+            assertEquals(1, strategie.getNbRecherches());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDestinationIrrealisableEcartee() {
+        Jeu jeu = new Jeu(NOMS, 1);
+        Joueur guybrush = jeu.getJoueurs().get(0);
+        // Paris est isolé : toutes ses routes sont prises par un autre joueur
+        for (Route route : jeu.getRoutes()) {
+            if (route.getVille1().getNom().equals("Paris") || route.getVille2().getNom().equals("Paris")) {
+                route.setProprietaire(jeu.getJoueurs().get(1));
+            }
+        }
+        List<String> choix = List.of("Athina - Angora (5)", "Edinburgh - Paris (7)", "Budapest - Sofia (5)");
+        StrategieMCTS strategie = new StrategieMCTS(1);
+        assertEquals("Edinburgh - Paris (7)",
+                strategie.choisir(guybrush, Joueur.INSTRUCTION_DESTINATION, choix, true));
+        assertEquals("", strategie.choisir(guybrush, Joueur.INSTRUCTION_DESTINATION,
+                List.of("Athina - Angora (5)", "Budapest - Sofia (5)"), true));
+    }
+}
@@ -3615,8 +3615,21 @@ var app = (function () {
     	set_store_value(
     		ws,
     		$ws.onmessage = function (event) {
-    			$$invalidate(0, data = JSON.parse(event.data));
-    			console.log(data);
+    			const message = JSON.parse(event.data);
+    			console.log(message);
+
+    			// seuls les messages d'état sont affichés (pas les erreurs ni les pages du log)
+    			if (!message.villes) {
+    				return;
+    			}
+
+    			// un état ne contient que les messages du log qui n'ont pas encore été reçus
+    			if (data && message.debutLog === data.debutLog + data.log.length) {
+    				message.log = data.log.concat(message.log);
+    				message.debutLog = data.debutLog;
+    			}
+
+    			$$invalidate(0, data = message);
     		},
     		$ws
     	);